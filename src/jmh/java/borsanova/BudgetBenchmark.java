@@ -0,0 +1,114 @@
+package borsanova;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark della contesa sul budget di un unico {@link Operatore}.
+ *
+ * <p> Tutti i thread depositano e prelevano (o riservano e riaccreditano)
+ * piccoli importi dallo stesso operatore; la versione basata su
+ * confronto e scambio di {@link Operatore} viene confrontata con
+ * una versione di riferimento che protegge il budget con un monitor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class BudgetBenchmark {
+
+    /**
+     * Budget di riferimento, aggiornato in modo sincronizzato
+     * come avveniva prima del passaggio al confronto e scambio.
+     */
+    static final class BudgetSincronizzato {
+
+        /** Il budget. */
+        private int budget;
+
+        /**
+         * Deposita un importo.
+         *
+         * @param importo l'importo.
+         */
+        synchronized void deposito(final int importo) {
+            budget += importo;
+        }
+
+        /**
+         * Preleva un importo, se il budget è sufficiente.
+         *
+         * @param importo l'importo.
+         * @return {@code true} se l'importo è stato prelevato.
+         */
+        synchronized boolean prelievo(final int importo) {
+            if (budget < importo) return false;
+            budget -= importo;
+            return true;
+        }
+    }
+
+    /** L'operatore condiviso tra i thread. */
+    private Operatore operatore;
+
+    /** Il budget sincronizzato condiviso tra i thread. */
+    private BudgetSincronizzato sincronizzato;
+
+    /** Prepara un operatore e un budget di riferimento con lo stesso budget iniziale. */
+    @Setup(Level.Trial)
+    public void prepara() {
+        operatore = Operatore.of("BudgetBenchmark");
+        if (operatore.budget() == 0) operatore.deposito(1_000_000);
+        sincronizzato = new BudgetSincronizzato();
+        sincronizzato.deposito(1_000_000);
+    }
+
+    /**
+     * Deposito e prelievo tramite confronto e scambio.
+     *
+     * @return il budget dopo l'operazione.
+     */
+    @Benchmark
+    public int depositoPrelievoCas() {
+        operatore.deposito(3);
+        operatore.prelievo(3);
+        return operatore.budget();
+    }
+
+    /**
+     * Riserva e rilascio tramite confronto e scambio, come nel percorso di acquisto.
+     *
+     * @return l'esito della riserva.
+     */
+    @Benchmark
+    public boolean riservaRilascioCas() {
+        boolean riservato = operatore.riserva(3);
+        if (riservato) operatore.accredita(3);
+        return riservato;
+    }
+
+    /**
+     * Deposito e prelievo tramite monitor.
+     *
+     * @return l'esito del prelievo.
+     */
+    @Benchmark
+    public boolean depositoPrelievoSincronizzato() {
+        sincronizzato.deposito(3);
+        return sincronizzato.prelievo(3);
+    }
+}
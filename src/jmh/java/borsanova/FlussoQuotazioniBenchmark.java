@@ -0,0 +1,97 @@
+package borsanova;
+
+import borsanova.Borsa.Azione;
+import borsanova.politicaPrezzo.VariazioneCostante;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark della pubblicazione e della consegna degli eventi del flusso delle quotazioni.
+ *
+ * <p> Ogni invocazione esegue un acquisto e una vendita in una borsa il cui prezzo varia
+ * ad ogni scambio (quattro eventi) e consegna gli eventi in attesa a ciascun abbonato;
+ * con il profilatore gc, l'allocazione per invocazione deve restare nulla.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlussoQuotazioniBenchmark {
+
+    /** Il numero di abbonati al flusso. */
+    @Param({"0", "1", "4"})
+    public int abbonati;
+
+    /** La borsa. */
+    private Borsa borsa;
+
+    /** L'azienda scambiata. */
+    private Azienda azienda;
+
+    /** L'operatore che esegue gli scambi. */
+    private Operatore operatore;
+
+    /** Gli abbonamenti. */
+    private Abbonamento[] abbonamenti;
+
+    /** L'ascoltatore degli abbonati. */
+    private AscoltatoreQuotazioni ascoltatore;
+
+    /**
+     * Quota l'azione e iscrive gli abbonati.
+     *
+     * @param bh il blackhole a cui l'ascoltatore passa gli eventi.
+     */
+    @Setup(Level.Trial)
+    public void prepara(final Blackhole bh) {
+        borsa = Borsa.of("FlussoQuotazioniBenchmark-" + abbonati);
+        azienda = Azienda.of("FlussoQuotazioniBenchmark");
+        azienda.quotaInBorsa(borsa, Integer.MAX_VALUE, 100);
+        borsa.politica(new VariazioneCostante(1, 1));
+        operatore = Operatore.of("FlussoQuotazioniBenchmark-" + abbonati);
+        operatore.deposito(1_000_000_000);
+        abbonamenti = new Abbonamento[abbonati];
+        for (int i = 0; i < abbonati; i++)
+            abbonamenti[i] = borsa.iscrivi();
+        ascoltatore = new AscoltatoreQuotazioni() {
+            @Override
+            public void prezzo(final Azione azione, final int prezzo) {
+                bh.consume(prezzo);
+            }
+
+            @Override
+            public void scambio(final Azione azione, final boolean acquisto, final int quantita, final int prezzo) {
+                bh.consume(quantita);
+            }
+        };
+    }
+
+    /**
+     * Acquisto e vendita, con consegna degli eventi a tutti gli abbonati.
+     *
+     * @return il numero di eventi consegnati.
+     */
+    @Benchmark
+    public int scambiaEConsegna() {
+        operatore.acquistaAzioni(borsa, azienda, borsa.prendiAzione(azienda).prezzo());
+        operatore.vendiAzioni(borsa, azienda, 1);
+        int consegnati = 0;
+        for (Abbonamento a : abbonamenti)
+            consegnati += a.consegna(ascoltatore, 16);
+        return consegnati;
+    }
+}
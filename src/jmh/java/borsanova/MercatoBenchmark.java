@@ -0,0 +1,256 @@
+package borsanova;
+
+import borsanova.Borsa.Azione;
+import borsanova.politicaPrezzo.PrezzoInvariato;
+import borsanova.politicaPrezzo.VariazioneCostante;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark dei percorsi più frequenti delle operazioni di mercato:
+ * acquisto e vendita, ricerca di un'azione in una borsa, azioni disponibili,
+ * valore delle azioni e capitale totale di un operatore.
+ *
+ * <p> Il mercato è composto da una borsa con prezzo invariato in cui sono quotate
+ * {@link #aziende} aziende; ogni operatore possiede azioni di {@link #possessi}
+ * aziende diverse e gli operatori sono tanti da avere circa {@link #titolari}
+ * titolari per ogni azione. Gli stessi operatori possiedono le stesse azioni in una
+ * seconda borsa, in cui ogni acquisto aumenta e ogni vendita diminuisce il prezzo:
+ * ogni variazione di prezzo aggiorna il valore delle azioni di tutti i titolari
+ * (si veda {@link Allocazioni#valuta(int)}). Ogni invocazione usa l'operatore o l'azienda
+ * successivi, in modo da non misurare sempre gli stessi dati in cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MercatoBenchmark {
+
+    /** Il prezzo, costante, di tutte le azioni. */
+    private static final int PREZZO = 10;
+
+    /** Il numero di aziende quotate nella borsa. */
+    @Param({"10", "100"})
+    public int aziende;
+
+    /** Il numero di titolari di ciascuna azione. */
+    @Param({"10", "1000"})
+    public int titolari;
+
+    /** Il numero di aziende di cui ogni operatore possiede azioni. */
+    @Param({"1", "10"})
+    public int possessi;
+
+    /** La borsa con prezzo invariato. */
+    private Borsa borsa;
+
+    /** La borsa con prezzo variabile. */
+    private Borsa variabile;
+
+    /** Le aziende quotate. */
+    private Azienda[] quotate;
+
+    /** Gli operatori. */
+    private Operatore[] operatori;
+
+    /** La prossima azienda da usare. */
+    private int prossimaAzienda;
+
+    /** Il prossimo operatore da usare. */
+    private int prossimoOperatore;
+
+    /**
+     * Costruisce il mercato.
+     *
+     * @throws IllegalArgumentException se ogni operatore dovrebbe possedere
+     *  azioni di più aziende di quelle quotate.
+     */
+    @Setup(Level.Trial)
+    public void prepara() {
+        if (possessi > aziende)
+            throw new IllegalArgumentException("Gli operatori non possono possedere azioni di più aziende di quelle quotate");
+        String prefisso = "MercatoBenchmark-" + aziende + "-" + titolari + "-" + possessi + "-";
+        borsa = Borsa.of(prefisso + "Borsa");
+        borsa.politica(new PrezzoInvariato());
+        variabile = Borsa.of(prefisso + "Variabile");
+        variabile.politica(new PrezzoInvariato());
+        quotate = new Azienda[aziende];
+        for (int i = 0; i < aziende; i++) {
+            quotate[i] = Azienda.of(prefisso + "Azienda" + i);
+            quotate[i].quotaInBorsa(borsa, Integer.MAX_VALUE, PREZZO);
+            quotate[i].quotaInBorsa(variabile, Integer.MAX_VALUE, PREZZO);
+        }
+        operatori = new Operatore[(aziende * titolari + possessi - 1) / possessi];
+        for (int i = 0; i < operatori.length; i++) {
+            operatori[i] = Operatore.of(prefisso + "Operatore" + i);
+            operatori[i].deposito(1_000_000);
+            for (int k = 0; k < possessi; k++) {
+                operatori[i].acquistaAzioni(borsa, azienda(i, k), 10 * PREZZO);
+                operatori[i].acquistaAzioni(variabile, azienda(i, k), 10 * PREZZO);
+            }
+        }
+        variabile.politica(new VariazioneCostante(1, 1));
+    }
+
+    /**
+     * Restituisce una delle aziende di cui un operatore possiede azioni.
+     *
+     * @param operatore la posizione dell'operatore.
+     * @param k il numero dell'azienda, tra 0 e {@link #possessi} escluso.
+     * @return l'azienda.
+     */
+    private Azienda azienda(final int operatore, final int k) {
+        return quotate[(int) (((long) operatore * possessi + k) % aziende)];
+    }
+
+    /**
+     * Restituisce il prossimo operatore da usare.
+     *
+     * @return la posizione dell'operatore.
+     */
+    private int prossimoOperatore() {
+        int i = prossimoOperatore;
+        prossimoOperatore = i + 1 == operatori.length ? 0 : i + 1;
+        return i;
+    }
+
+    /**
+     * Restituisce la prossima azienda da usare.
+     *
+     * @return l'azienda.
+     */
+    private Azienda prossimaAzienda() {
+        int i = prossimaAzienda;
+        prossimaAzienda = i + 1 == aziende ? 0 : i + 1;
+        return quotate[i];
+    }
+
+    /**
+     * Acquisto e vendita di un'azione di un'azienda già posseduta.
+     *
+     * @return il budget dell'operatore dopo le operazioni.
+     */
+    @Benchmark
+    public int acquistaVendi() {
+        int i = prossimoOperatore();
+        Operatore operatore = operatori[i];
+        Azienda azienda = azienda(i, i % possessi);
+        operatore.acquistaAzioni(borsa, azienda, PREZZO);
+        operatore.vendiAzioni(borsa, azienda, 1);
+        return operatore.budget();
+    }
+
+    /**
+     * Acquisto e vendita di un'azione di un'azienda già posseduta, entrambi
+     * con variazione del prezzo e quindi del valore delle azioni di tutti i titolari.
+     *
+     * @return il valore delle azioni dell'operatore dopo le operazioni.
+     */
+    @Benchmark
+    public int acquistaVendiConVariazione() {
+        int i = prossimoOperatore();
+        Operatore operatore = operatori[i];
+        Azienda azienda = azienda(i, i % possessi);
+        operatore.acquistaAzioni(variabile, azienda, variabile.prendiAzione(azienda).prezzo());
+        operatore.vendiAzioni(variabile, azienda, 1);
+        return operatore.valoreAzioni();
+    }
+
+    /**
+     * Ricerca di un'azione nella borsa.
+     *
+     * @return l'azione.
+     */
+    @Benchmark
+    public Azione prendiAzione() {
+        return borsa.prendiAzione(prossimaAzienda());
+    }
+
+    /**
+     * Azioni disponibili di un'azione.
+     *
+     * @return il numero di azioni disponibili.
+     */
+    @Benchmark
+    public int azioniDisponibili() {
+        return borsa.prendiAzione(prossimaAzienda()).azioniDisponibili();
+    }
+
+    /**
+     * I 20 maggiori titolari di un'azione.
+     *
+     * @return i titolari e le quantità possedute.
+     */
+    @Benchmark
+    public Map<Operatore, Integer> maggioriTitolari() {
+        return borsa.prendiAzione(prossimaAzienda()).maggioriTitolari(20);
+    }
+
+    /**
+     * Posizione di un operatore nella classifica dei titolari di un'azione.
+     *
+     * @return la posizione.
+     */
+    @Benchmark
+    public int posizioneTitolare() {
+        int i = prossimoOperatore();
+        return borsa.prendiAzione(azienda(i, 0)).posizioneTitolare(operatori[i]);
+    }
+
+    /**
+     * Valore delle azioni possedute da un operatore.
+     *
+     * @return il valore delle azioni.
+     */
+    @Benchmark
+    public int valoreAzioni() {
+        return operatori[prossimoOperatore()].valoreAzioni();
+    }
+
+    /**
+     * Capitale totale di un operatore.
+     *
+     * @return il capitale totale.
+     */
+    @Benchmark
+    public int capitaleTotale() {
+        return operatori[prossimoOperatore()].capitaleTotale();
+    }
+
+    /**
+     * Acquisto e vendita di un'azione di un'azienda già posseduta, seguiti dai
+     * 20 maggiori operatori per capitale totale: la classifica riposiziona solo
+     * gli operatori il cui capitale è variato.
+     *
+     * @return gli operatori e il loro capitale totale.
+     */
+    @Benchmark
+    public Map<Operatore, Integer> maggioriCapitali() {
+        acquistaVendi();
+        return Operatore.maggioriCapitali(20);
+    }
+
+    /**
+     * Posizione di un operatore nella classifica per capitale totale.
+     *
+     * @return la posizione.
+     */
+    @Benchmark
+    public int posizioneCapitale() {
+        return operatori[prossimoOperatore()].posizioneCapitale();
+    }
+}
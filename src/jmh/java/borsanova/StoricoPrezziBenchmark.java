@@ -0,0 +1,100 @@
+package borsanova;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark della registrazione, della ricerca e dell'aggregazione in barre
+ * degli scambi di uno {@link StoricoPrezzi}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class StoricoPrezziBenchmark {
+
+    /** Il numero di scambi dello storico interrogato. */
+    @Param({"1000000", "10000000"})
+    public int scambi;
+
+    /** Lo storico interrogato. */
+    private StoricoPrezzi storico;
+
+    /** Lo storico in cui registrare, sostituito ad ogni iterazione. */
+    private StoricoPrezzi registrato;
+
+    /** Il prossimo istante da cercare, relativo al primo scambio. */
+    private int istante;
+
+    /** Costruisce lo storico interrogato. */
+    @Setup(Level.Trial)
+    public void prepara() {
+        storico = new StoricoPrezzi();
+        for (int i = 0; i < scambi; i++)
+            storico.registra(System.currentTimeMillis(), 1 + (i & 1023), 1 + (i & 7));
+    }
+
+    /** Sostituisce lo storico in cui registrare, per non esaurire la memoria. */
+    @Setup(Level.Iteration)
+    public void svuota() {
+        registrato = new StoricoPrezzi();
+    }
+
+    /**
+     * Registrazione di uno scambio.
+     *
+     * @return il numero di scambi registrati.
+     */
+    @Benchmark
+    public long registra() {
+        registrato.registra(0, 100, 1);
+        return registrato.dimensione();
+    }
+
+    /**
+     * Ricerca binaria del primo scambio non precedente a un istante.
+     *
+     * @return il numero di sequenza trovato.
+     */
+    @Benchmark
+    public long cerca() {
+        istante = (istante + 1) & 1023;
+        return storico.cerca(storico.istante(0) + istante);
+    }
+
+    /**
+     * Aggregazione dell'intero storico in barre di mille scambi.
+     *
+     * @return le barre.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Barra> barrePerScambi() {
+        return storico.barrePerScambi(0, scambi, 1000);
+    }
+
+    /**
+     * Aggregazione dell'intero storico in barre di un millisecondo.
+     *
+     * @return le barre.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Barra> barrePerTempo() {
+        return storico.barrePerTempo(0, Long.MAX_VALUE, 1);
+    }
+}
@@ -0,0 +1,106 @@
+package borsanova.politicaPrezzo;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark del calcolo dei prezzi di un blocco di compravendite indipendenti
+ * con una {@link PoliticaUniforme}: un prezzo alla volta, con
+ * {@link PoliticaUniforme#prezzoDopo(int, int, boolean)}, oppure in blocco, con
+ * {@link PoliticaUniforme#calcolaPrezzi(int[], int[], boolean[], int[], int)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalcoloPrezziBenchmark {
+
+    /** Il nome della politica di prezzo. */
+    @Param({"PrezzoInvariato", "IncrementoCostante", "DecrementoCostante", "VariazioneCostante",
+        "IncrementoLineare", "DecrementoEsponenziale"})
+    public String nome;
+
+    /** Il numero di compravendite del blocco. */
+    @Param({"1024"})
+    public int n;
+
+    /** La politica di prezzo. */
+    private PoliticaUniforme politica;
+
+    /** I prezzi prima delle compravendite. */
+    private int[] prezzi;
+
+    /** Le quantità scambiate. */
+    private int[] quantita;
+
+    /** I tipi delle compravendite. */
+    private boolean[] acquisti;
+
+    /** I nuovi prezzi. */
+    private int[] nuoviPrezzi;
+
+    /**
+     * Costruisce la politica e le compravendite.
+     *
+     * @throws IllegalArgumentException se la politica non è nota.
+     */
+    @Setup(Level.Trial)
+    public void prepara() {
+        politica = switch (nome) {
+            case "PrezzoInvariato" -> new PrezzoInvariato();
+            case "IncrementoCostante" -> new IncrementoCostante(3);
+            case "DecrementoCostante" -> new DecrementoCostante(2);
+            case "VariazioneCostante" -> new VariazioneCostante(3, 2);
+            case "IncrementoLineare" -> new IncrementoLineare(3);
+            case "DecrementoEsponenziale" -> new DecrementoEsponenziale(10);
+            default -> throw new IllegalArgumentException("Politica di prezzo sconosciuta: " + nome);
+        };
+        Random r = new Random(42);
+        prezzi = new int[n];
+        quantita = new int[n];
+        acquisti = new boolean[n];
+        nuoviPrezzi = new int[n];
+        for (int i = 0; i < n; i++) {
+            prezzi[i] = 1 + r.nextInt(1_000_000);
+            quantita[i] = 1 + r.nextInt(100);
+            acquisti[i] = r.nextBoolean();
+        }
+    }
+
+    /**
+     * Calcolo dei prezzi uno alla volta.
+     *
+     * @return i nuovi prezzi.
+     */
+    @Benchmark
+    public int[] unoAllaVolta() {
+        for (int i = 0; i < n; i++)
+            nuoviPrezzi[i] = politica.prezzoDopo(prezzi[i], quantita[i], acquisti[i]);
+        return nuoviPrezzi;
+    }
+
+    /**
+     * Calcolo dei prezzi in blocco.
+     *
+     * @return i nuovi prezzi.
+     */
+    @Benchmark
+    public int[] inBlocco() {
+        politica.calcolaPrezzi(prezzi, quantita, acquisti, nuoviPrezzi, n);
+        return nuoviPrezzi;
+    }
+}
@@ -0,0 +1,87 @@
+package borsanova.politicaPrezzo;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark del calcolo del prezzo di ciascuna {@link PoliticaPrezzo}.
+ *
+ * <p> Il prezzo viene calcolato alternando acquisti e vendite di quantità
+ * diverse di un'azione quotata, senza modificarne il prezzo.
+ *
+ * <p> {@code DecrementoEsponenzialePow} è un riferimento che calcola lo stesso
+ * prezzo di {@link DecrementoEsponenziale} con {@link Math#pow(double, double)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PoliticaPrezzoBenchmark {
+
+    /** Il nome della politica di prezzo. */
+    @Param({"PrezzoInvariato", "IncrementoCostante", "DecrementoCostante", "VariazioneCostante",
+        "IncrementoLineare", "DecrementoEsponenziale", "DecrementoEsponenzialePow", "PressioneVolume"})
+    public String nome;
+
+    /** La politica di prezzo. */
+    private PoliticaPrezzo politica;
+
+    /** L'azione di cui calcolare il prezzo. */
+    private Azione azione;
+
+    /** Il numero dell'invocazione, da cui dipendono quantità e tipo dell'operazione. */
+    private int invocazione;
+
+    /**
+     * Costruisce la politica e quota l'azione.
+     *
+     * @throws IllegalArgumentException se la politica non è nota.
+     */
+    @Setup(Level.Trial)
+    public void prepara() {
+        politica = switch (nome) {
+            case "PrezzoInvariato" -> new PrezzoInvariato();
+            case "IncrementoCostante" -> new IncrementoCostante(3);
+            case "DecrementoCostante" -> new DecrementoCostante(2);
+            case "VariazioneCostante" -> new VariazioneCostante(3, 2);
+            case "IncrementoLineare" -> new IncrementoLineare(3);
+            case "DecrementoEsponenziale" -> new DecrementoEsponenziale(10);
+            case "DecrementoEsponenzialePow" -> (azione, quantita, acquisto) -> acquisto
+                ? azione.prezzo()
+                : (int) Math.max(1, Math.floor(azione.prezzo() * Math.pow(2, -quantita / 10.0)));
+            case "PressioneVolume" -> new PressioneVolume(64, 100, 16);
+            default -> throw new IllegalArgumentException("Politica di prezzo sconosciuta: " + nome);
+        };
+        Borsa borsa = Borsa.of("PoliticaPrezzoBenchmark-" + nome);
+        Azienda azienda = Azienda.of("PoliticaPrezzoBenchmark");
+        azienda.quotaInBorsa(borsa, 1_000_000, 100);
+        azione = borsa.prendiAzione(azienda);
+    }
+
+    /**
+     * Calcolo del nuovo prezzo dell'azione.
+     *
+     * @return il nuovo prezzo.
+     */
+    @Benchmark
+    public int calcolaPrezzo() {
+        int i = invocazione++;
+        return politica.calcolaPrezzo(azione, 1 + (i & 15), (i & 1) == 0);
+    }
+}
@@ -0,0 +1,77 @@
+package borsanova.simulazione;
+
+import borsanova.politicaPrezzo.VariazioneCostante;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark dell'esecuzione di un insieme di simulazioni indipendenti con
+ * {@link Simulatore}, al variare del numero di thread del pool: il tempo
+ * dovrebbe diminuire in proporzione al numero di thread, fino al numero di core.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulatoreBenchmark {
+
+    /** Il numero di thread del pool, 0 per il numero di processori disponibili. */
+    @Param({"1", "0"})
+    public int parallelismo;
+
+    /** Il numero di simulazioni. */
+    @Param({"1000"})
+    public int simulazioni;
+
+    /** Lo scenario simulato. */
+    private Scenario scenario;
+
+    /** Il pool in cui eseguire le simulazioni. */
+    private ForkJoinPool pool;
+
+    /** Il seme delle simulazioni, diverso a ogni invocazione. */
+    private long seme;
+
+    /**
+     * Costruisce lo scenario e il pool.
+     */
+    @Setup(Level.Trial)
+    public void prepara() {
+        scenario = new Scenario(4, 10_000, 10, 50, 1_000, 2_000,
+                new Comportamento(1, 1, 3, 3, 200), () -> new VariazioneCostante(2, 1));
+        pool = new ForkJoinPool(parallelismo > 0 ? parallelismo : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Chiude il pool.
+     */
+    @TearDown(Level.Trial)
+    public void chiudi() {
+        pool.shutdown();
+    }
+
+    /**
+     * Esecuzione delle simulazioni.
+     *
+     * @return i risultati aggregati.
+     */
+    @Benchmark
+    public Risultati esegui() {
+        return Simulatore.esegui(scenario, simulazioni, seme++, pool);
+    }
+}
@@ -0,0 +1,96 @@
+package utils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark della lettura di un flusso di operazioni nel formato dei client.
+ *
+ * <p>Lo stesso flusso (linee {@code operatore b borsa azienda valore}) viene letto con {@link
+ * Lettore} e con {@link Scanner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LettoreBenchmark {
+
+  /** Il numero di linee del flusso. */
+  @Param({"100000"})
+  public int linee;
+
+  /** Il flusso, codificato in UTF-8. */
+  private byte[] flusso;
+
+  /** Genera il flusso. */
+  @Setup
+  public void setup() {
+    Random r = new Random(42);
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < linee; i++)
+      sb.append("Operatore")
+          .append(r.nextInt(100))
+          .append(r.nextBoolean() ? " b " : " s ")
+          .append("Borsa")
+          .append(r.nextInt(10))
+          .append(" Azienda")
+          .append(r.nextInt(50))
+          .append(' ')
+          .append(r.nextInt(100_000))
+          .append('\n');
+    flusso = sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Legge il flusso con {@link Lettore}.
+   *
+   * @param bh il blackhole.
+   */
+  @Benchmark
+  public void lettore(final Blackhole bh) {
+    try (Lettore sc = new Lettore(new ByteArrayInputStream(flusso))) {
+      while (sc.hasNext()) {
+        bh.consume(sc.next());
+        bh.consume(sc.next());
+        bh.consume(sc.next());
+        bh.consume(sc.next());
+        bh.consume(sc.nextInt());
+      }
+    }
+  }
+
+  /**
+   * Legge il flusso con {@link Scanner}.
+   *
+   * @param bh il blackhole.
+   */
+  @Benchmark
+  public void scanner(final Blackhole bh) {
+    try (Scanner sc = new Scanner(new ByteArrayInputStream(flusso), StandardCharsets.UTF_8)) {
+      while (sc.hasNext()) {
+        bh.consume(sc.next());
+        bh.consume(sc.next());
+        bh.consume(sc.next());
+        bh.consume(sc.next());
+        bh.consume(sc.nextInt());
+      }
+    }
+  }
+}
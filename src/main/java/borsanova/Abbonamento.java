@@ -0,0 +1,93 @@
+package borsanova;
+
+import java.util.Objects;
+
+/**
+ * Classe che rappresenta l'abbonamento al flusso delle quotazioni di una {@link Borsa},
+ * ottenuto tramite {@link Borsa#iscrivi()}.
+ *
+ * <p> L'abbonamento ricorda la posizione del prossimo evento da consegnare: gli eventi
+ * vengono consegnati, a lotti, solo quando l'abbonato lo richiede tramite
+ * {@link #consegna(AscoltatoreQuotazioni, int)}, senza mai rallentare le compravendite.
+ * Se l'abbonato resta indietro di più eventi di quanti il flusso ne conservi,
+ * gli eventi non ancora consegnati vengono sostituiti dall'ultimo prezzo di ogni azione
+ * della borsa, e il loro numero viene aggiunto a {@link #persi()}.
+ *
+ * <p> Ogni abbonamento ha un solo consumatore: la posizione del prossimo evento non è
+ * volatile, quindi l'abbonamento deve essere usato da un solo thread alla volta e, se
+ * passa da un thread all'altro, il passaggio deve stabilire una relazione
+ * <em>happens-before</em> (ad esempio tramite una coda concorrente o un blocco).
+ * Abbonamenti diversi possono essere usati da thread diversi; più consumatori dello
+ * stesso flusso devono quindi iscriversi ciascuno con il proprio abbonamento.
+ */
+public final class Abbonamento {
+
+    /** Il flusso delle quotazioni. */
+    private final FlussoQuotazioni flusso;
+
+    /** La borsa a cui si riferisce l'abbonamento. */
+    final Borsa borsa;
+
+    /**
+     * Il numero di sequenza del prossimo evento da consegnare; non è volatile perché
+     * viene letto e scritto solo dall'unico consumatore dell'abbonamento.
+     */
+    long cursore;
+
+    /** Il numero di eventi non consegnati perché l'abbonato era rimasto indietro. */
+    long persi;
+
+    /*-
+     * AF:
+     *  - l'abbonamento al flusso delle quotazioni di borsa, il cui prossimo evento
+     *    da consegnare ha numero di sequenza cursore; persi eventi sono stati sostituiti
+     *    dall'ultimo prezzo delle azioni.
+     *
+     * RI:
+     *  - flusso e borsa non sono null, flusso è il flusso delle quotazioni di borsa.
+     *  - cursore e persi non sono negativi.
+     */
+
+    /**
+     * Costruisce un abbonamento.
+     *
+     * @param flusso il flusso delle quotazioni.
+     * @param borsa la borsa.
+     * @param cursore il numero di sequenza del primo evento da consegnare.
+     */
+    Abbonamento(final FlussoQuotazioni flusso, final Borsa borsa, final long cursore) {
+        this.flusso = flusso;
+        this.borsa = borsa;
+        this.cursore = cursore;
+    }
+
+    /**
+     * Consegna a un ascoltatore un lotto di eventi pubblicati e non ancora consegnati.
+     *
+     * <p> Modifica this. Il metodo non attende la pubblicazione di nuovi eventi, ma solo
+     * il completamento della scrittura di quelli già riservati da altri thread,
+     * e non alloca memoria, tranne quando l'abbonato è rimasto indietro e riceve
+     * l'ultimo prezzo di ogni azione: in tal caso il lotto può superare il massimo.
+     *
+     * @param ascoltatore l'ascoltatore.
+     * @param massimo il numero massimo di eventi da consegnare.
+     * @return il numero di eventi consegnati.
+     * @throws NullPointerException se l'ascoltatore è {@code null}.
+     * @throws IllegalArgumentException se il massimo non è positivo.
+     */
+    public int consegna(final AscoltatoreQuotazioni ascoltatore, final int massimo) {
+        Objects.requireNonNull(ascoltatore, "L'ascoltatore non può essere null");
+        if (massimo <= 0)
+            throw new IllegalArgumentException("Il numero massimo di eventi deve essere positivo");
+        return flusso.consegna(this, ascoltatore, massimo);
+    }
+
+    /**
+     * Restituisce il numero di eventi non consegnati perché l'abbonato era rimasto indietro.
+     *
+     * @return il numero di eventi persi.
+     */
+    public long persi() {
+        return persi;
+    }
+}
@@ -0,0 +1,494 @@
+package borsanova;
+
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Classe che rappresenta il registro delle allocazioni
+ * di un'azione agli operatori che la possiedono.
+ *
+ * <p> Il registro è rappresentato da:
+ *  <ul>
+ *   <li> un contatore delle azioni allocate complessivamente; </li>
+ *   <li> un elenco di posizioni, indicizzate da interi, ciascuna delle quali
+ *        associa un operatore alla quantità di azioni che possiede e alla parte
+ *        di esse impegnata in ordini di vendita in attesa; </li>
+ *   <li> una {@link MappaInteri} che associa l'identificativo
+ *        di ogni operatore alla sua posizione; </li>
+ *   <li> il prezzo a cui sono valutate le posizioni; </li>
+ *   <li> la classifica dei titolari per quantità posseduta
+ *        (si veda {@link ClassificaOperatori}), con il nodo di ciascuna posizione,
+ *        le posizioni da riposizionare e i nodi da rimuovere. </li>
+ *  </ul>
+ *
+ * <p> Il registro mantiene aggiornato il valore delle azioni possedute da ogni
+ * titolare (si veda {@link Operatore#valoreAzioni()}): ogni aggiunta o rimozione
+ * di azioni e ogni variazione del prezzo, tramite {@link #valuta(int)}, comunica
+ * ai titolari coinvolti la variazione del loro valore. Una variazione di prezzo
+ * richiede quindi tempo lineare nel numero di titolari, mentre non richiede
+ * alcun lavoro se il prezzo non cambia.
+ *
+ * <p> Le operazioni di interrogazione, aggiunta e rimozione
+ * richiedono tempo costante (ammortizzato) e non allocano memoria
+ * se non quando è necessario ingrandire le strutture interne.
+ * L'elenco degli operatori in ordine lessicografico viene
+ * prodotto solo su richiesta tramite {@link #ordinate()}.
+ *
+ * <p> La classifica dei titolari viene costruita alla prima interrogazione e poi
+ * aggiornata in modo pigro, come la {@link ClassificaCapitali}: le aggiunte e le
+ * rimozioni si limitano ad annotare, in tempo costante, le posizioni la cui quantità
+ * è variata e i nodi dei titolari usciti; le interrogazioni riposizionano prima i
+ * soli titolari annotati, in tempo atteso {@code O(log n)} ciascuno, con {@code n}
+ * titolari. Le compravendite non pagano quindi il costo della classifica.
+ *
+ * <p> La classe è visibile solo all'interno del package,
+ * ed è responsabilità di {@link Borsa} verificare che le quantità
+ * aggiunte e rimosse siano valide e che tutti i titolari appartengano
+ * allo stesso {@link Mercato}, così che i loro identificativi siano distinti.
+ */
+final class Allocazioni {
+
+    /** La capacità iniziale delle posizioni. */
+    private static final int CAPACITA_INIZIALE = 4;
+
+    /** Gli operatori titolari, indicizzati per posizione. */
+    private Operatore[] titolari = new Operatore[CAPACITA_INIZIALE];
+
+    /** Le quantità possedute, indicizzate per posizione. */
+    private int[] quantita = new int[CAPACITA_INIZIALE];
+
+    /** Le quantità impegnate in ordini di vendita, indicizzate per posizione. */
+    private int[] impegnate = new int[CAPACITA_INIZIALE];
+
+    /**
+     * I nodi della classifica dei titolari, indicizzati per posizione;
+     * {@link ClassificaOperatori#NESSUNO} per i titolari non ancora inseriti.
+     */
+    private int[] nodi = new int[CAPACITA_INIZIALE];
+
+    /**
+     * La voce di ciascuna posizione in {@link #daRiposizionare},
+     * oppure {@link ClassificaOperatori#NESSUNO} se la posizione non vi compare.
+     */
+    private int[] voci = new int[CAPACITA_INIZIALE];
+
+    /** Le posizioni da riposizionare nella classifica, nelle prime {@link #riposizionande} voci. */
+    private int[] daRiposizionare = new int[CAPACITA_INIZIALE];
+
+    /** Il numero di posizioni da riposizionare. */
+    private int riposizionande;
+
+    /** I nodi dei titolari usciti, da rimuovere dalla classifica, nelle prime {@link #numeroOrfani} voci. */
+    private int[] orfani = new int[CAPACITA_INIZIALE];
+
+    /** Il numero di nodi da rimuovere. */
+    private int numeroOrfani;
+
+    /** {@code true} se la classifica è stata costruita. */
+    private boolean classificaAttiva;
+
+    /** Il numero di posizioni occupate. */
+    private int dimensione;
+
+    /** La classifica dei titolari per quantità posseduta. */
+    private final ClassificaOperatori classifica = new ClassificaOperatori();
+
+    /** La mappa che associa l'identificativo di ogni titolare alla sua posizione. */
+    private final MappaInteri posizioni = new MappaInteri();
+
+    /** La somma delle quantità possedute da tutti gli operatori. */
+    private int allocate;
+
+    /** Il prezzo a cui sono valutate le posizioni. */
+    private int prezzo;
+
+    /*-
+     * AF:
+     *  - per ogni 0 <= i < dimensione, l'operatore titolari[i] possiede quantita[i] azioni,
+     *    impegnate[i] delle quali sono offerte in ordini di vendita in attesa.
+     *  - allocate è il numero complessivo di azioni possedute dagli operatori.
+     *  - prezzo è il prezzo unitario con cui le azioni possedute concorrono
+     *    al valore delle azioni di ciascun titolare.
+     *  - la classifica dei titolari per quantità posseduta è quella che si ottiene
+     *    da classifica rimuovendo i nodi orfani[0..numeroOrfani) e riposizionando
+     *    le posizioni daRiposizionare[0..riposizionande) con la loro quantità.
+     *
+     * RI:
+     *  - titolari, quantita, impegnate, nodi, voci, daRiposizionare, orfani e posizioni
+     *    non sono null; titolari, quantita, impegnate, nodi, voci e daRiposizionare
+     *    hanno la stessa lunghezza.
+     *  - 0 <= dimensione <= titolari.length.
+     *  - per ogni 0 <= i < dimensione: titolari[i] non è null, quantita[i] > 0,
+     *    0 <= impegnate[i] <= quantita[i] e titolari[i] compare una sola volta
+     *    tra le prime dimensione posizioni.
+     *  - posizioni associa titolari[i].id a i per ogni 0 <= i < dimensione,
+     *    e nessun'altra chiave.
+     *  - allocate è la somma di quantita[i] per 0 <= i < dimensione.
+     *  - se classificaAttiva è false, classifica è vuota, riposizionande e numeroOrfani
+     *    sono 0, nodi[i] e voci[i] valgono NESSUNO per ogni 0 <= i < dimensione.
+     *  - se classificaAttiva è true, classifica contiene esattamente i nodi nodi[i] diversi
+     *    da NESSUNO, per 0 <= i < dimensione, e i nodi orfani[0..numeroOrfani); il nodo
+     *    nodi[i] contiene titolari[i], con quantità quantita[i] se voci[i] vale NESSUNO.
+     *    Ogni posizione i con nodi[i] uguale a NESSUNO ha voci[i] diverso da NESSUNO.
+     *  - per ogni 0 <= k < riposizionande, voci[daRiposizionare[k]] = k.
+     *  - per ogni 0 <= i < dimensione, prezzo * quantita[i] è compreso nel
+     *    valore delle azioni di titolari[i].
+     */
+
+    /**
+     * Restituisce il numero complessivo di azioni allocate agli operatori.
+     *
+     * @return il numero di azioni allocate.
+     */
+    int allocate() {
+        return allocate;
+    }
+
+    /**
+     * Restituisce il numero di operatori che possiedono almeno un'azione.
+     *
+     * @return il numero di titolari.
+     */
+    int dimensione() {
+        return dimensione;
+    }
+
+    /**
+     * Restituisce l'operatore nella posizione specificata.
+     *
+     * @param posizione la posizione, compresa tra 0 e {@link #dimensione()} escluso.
+     * @return l'operatore titolare della posizione.
+     */
+    Operatore titolare(final int posizione) {
+        return titolari[posizione];
+    }
+
+    /**
+     * Restituisce la quantità posseduta dall'operatore nella posizione specificata.
+     *
+     * @param posizione la posizione, compresa tra 0 e {@link #dimensione()} escluso.
+     * @return la quantità posseduta.
+     */
+    int quantita(final int posizione) {
+        return quantita[posizione];
+    }
+
+    /**
+     * Restituisce la quantità di azioni possedute da un operatore.
+     *
+     * @param operatore l'operatore.
+     * @return la quantità di azioni possedute, 0 se l'operatore non ne possiede.
+     */
+    int quantita(final Operatore operatore) {
+        int posizione = posizione(operatore);
+        return posizione < 0 ? 0 : quantita[posizione];
+    }
+
+    /**
+     * Restituisce la quantità di azioni possedute da un operatore
+     * e non impegnate in ordini di vendita.
+     *
+     * @param operatore l'operatore.
+     * @return la quantità di azioni libere, 0 se l'operatore non ne possiede.
+     */
+    int libere(final Operatore operatore) {
+        int posizione = posizione(operatore);
+        return posizione < 0 ? 0 : quantita[posizione] - impegnate[posizione];
+    }
+
+    /**
+     * Impegna in un ordine di vendita delle azioni libere di un operatore.
+     *
+     * <p> Modifica this.
+     *
+     * @param operatore l'operatore.
+     * @param q la quantità da impegnare, deve essere positiva e non maggiore
+     *  di quella libera.
+     */
+    void impegna(final Operatore operatore, final int q) {
+        impegnate[posizione(operatore)] += q;
+    }
+
+    /**
+     * Libera delle azioni di un operatore impegnate in un ordine di vendita.
+     *
+     * <p> Modifica this.
+     *
+     * @param operatore l'operatore.
+     * @param q la quantità da liberare, deve essere positiva e non maggiore
+     *  di quella impegnata.
+     */
+    void libera(final Operatore operatore, final int q) {
+        impegnate[posizione(operatore)] -= q;
+    }
+
+    /**
+     * Imposta il prezzo a cui sono valutate le posizioni, comunicando
+     * a ogni titolare la variazione del valore delle sue azioni.
+     *
+     * <p> Modifica this e, se il prezzo cambia, i titolari.
+     *
+     * @param nuovo il nuovo prezzo.
+     */
+    void valuta(final int nuovo) {
+        int variazione = nuovo - prezzo;
+        prezzo = nuovo;
+        if (variazione == 0) return;
+        for (int i = 0; i < dimensione; i++)
+            titolari[i].rivaluta(variazione * quantita[i]);
+    }
+
+    /**
+     * Aggiunge delle azioni a quelle possedute da un operatore.
+     *
+     * <p> Modifica this e il valore delle azioni dell'operatore.
+     *
+     * @param operatore l'operatore.
+     * @param q la quantità da aggiungere, deve essere positiva.
+     */
+    void aggiungi(final Operatore operatore, final int q) {
+        int posizione = posizione(operatore);
+        if (posizione < 0) {
+            if (dimensione == titolari.length) ingrandisci();
+            posizione = dimensione++;
+            titolari[posizione] = operatore;
+            quantita[posizione] = 0;
+            impegnate[posizione] = 0;
+            nodi[posizione] = ClassificaOperatori.NESSUNO;
+            voci[posizione] = ClassificaOperatori.NESSUNO;
+            posizioni.put(operatore.id, posizione);
+        }
+        quantita[posizione] += q;
+        allocate += q;
+        operatore.rivaluta(prezzo * q);
+        segna(posizione);
+    }
+
+    /**
+     * Aggiunge un nuovo titolare durante il caricamento di un'{@link Istantanea},
+     * senza cercarne prima la posizione.
+     *
+     * <p> Modifica this e il valore delle azioni dell'operatore.
+     *
+     * @param operatore l'operatore.
+     * @param q la quantità posseduta.
+     * @throws IllegalArgumentException se la quantità non è positiva o l'operatore
+     *  è già un titolare.
+     */
+    void carica(final Operatore operatore, final int q) {
+        if (q <= 0 || posizione(operatore) >= 0)
+            throw new IllegalArgumentException("Titolare non valido");
+        if (dimensione == titolari.length) ingrandisci();
+        int posizione = dimensione++;
+        titolari[posizione] = operatore;
+        quantita[posizione] = q;
+        impegnate[posizione] = 0;
+        nodi[posizione] = ClassificaOperatori.NESSUNO;
+        voci[posizione] = ClassificaOperatori.NESSUNO;
+        posizioni.put(operatore.id, posizione);
+        allocate += q;
+        operatore.rivaluta(prezzo * q);
+        segna(posizione);
+    }
+
+    /**
+     * Rimuove delle azioni da quelle possedute da un operatore;
+     * se la quantità posseduta si azzera, l'operatore non è più un titolare.
+     *
+     * <p> Modifica this e il valore delle azioni dell'operatore.
+     *
+     * @param operatore l'operatore.
+     * @param q la quantità da rimuovere, deve essere positiva e non maggiore
+     *  di quella libera.
+     */
+    void rimuovi(final Operatore operatore, final int q) {
+        int posizione = posizione(operatore);
+        quantita[posizione] -= q;
+        allocate -= q;
+        operatore.rivaluta(-prezzo * q);
+        if (quantita[posizione] == 0)
+            elimina(posizione);
+        else
+            segna(posizione);
+    }
+
+    /**
+     * Predispone il registro a contenere il numero di titolari specificato
+     * senza doversi ingrandire durante le aggiunte successive.
+     *
+     * <p> Modifica this.
+     *
+     * @param attesi il numero di titolari attesi.
+     */
+    void riserva(final int attesi) {
+        int capacita = titolari.length;
+        while (capacita < attesi) capacita *= 2;
+        if (capacita > titolari.length) ridimensiona(capacita);
+        posizioni.riserva(attesi);
+    }
+
+    /**
+     * Restituisce gli operatori titolari, in ordine lessicografico,
+     * associati alla quantità posseduta.
+     *
+     * <p> La mappa viene costruita ad ogni invocazione e non
+     * è collegata a this.
+     *
+     * @return la mappa ordinata degli operatori e delle quantità.
+     */
+    SortedMap<Operatore, Integer> ordinate() {
+        SortedMap<Operatore, Integer> risultato = new TreeMap<>();
+        for (int i = 0; i < dimensione; i++)
+            risultato.put(titolari[i], quantita[i]);
+        return risultato;
+    }
+
+    /**
+     * Copia negli array specificati i titolari che possiedono più azioni,
+     * in ordine di quantità decrescente e, a parità di quantità, in ordine
+     * lessicografico, con le quantità che possiedono.
+     *
+     * <p> Modifica la rappresentazione di this, riposizionando i titolari annotati.
+     * Richiede tempo atteso {@code O(log n + N)}, con {@code n} titolari e {@code N}
+     * titolari copiati, più {@code O(log n)} per ogni titolare annotato; la prima
+     * invocazione costruisce la classifica in tempo atteso {@code O(n log n)}.
+     *
+     * @param n il numero massimo di titolari, non negativo.
+     * @param primi l'array in cui copiare i titolari, lungo almeno {@code n}.
+     * @param quantitaPrimi l'array in cui copiare le quantità, lungo almeno {@code n}.
+     * @return il numero di titolari copiati.
+     */
+    int maggiori(final int n, final Operatore[] primi, final int[] quantitaPrimi) {
+        aggiornaClassifica();
+        return classifica.primi(n, primi, quantitaPrimi);
+    }
+
+    /**
+     * Restituisce la posizione di un operatore nella classifica dei titolari
+     * per quantità decrescente.
+     *
+     * <p> Modifica la rappresentazione di this e richiede tempo come
+     * {@link #maggiori(int, Operatore[], int[])}.
+     *
+     * @param operatore l'operatore.
+     * @return la posizione, a partire da 1, oppure 0 se l'operatore non è un titolare.
+     */
+    int classificato(final Operatore operatore) {
+        aggiornaClassifica();
+        int posizione = posizione(operatore);
+        return posizione < 0 ? 0 : classifica.posizione(nodi[posizione]);
+    }
+
+    /**
+     * Restituisce la posizione di un operatore.
+     *
+     * @param operatore l'operatore.
+     * @return la posizione, oppure -1 se l'operatore non è un titolare.
+     */
+    private int posizione(final Operatore operatore) {
+        return posizioni.get(operatore.id);
+    }
+
+    /**
+     * Annota che la quantità di una posizione è variata, se la classifica
+     * è stata costruita.
+     *
+     * <p> Modifica this; richiede tempo costante.
+     *
+     * @param posizione la posizione.
+     */
+    private void segna(final int posizione) {
+        if (!classificaAttiva || voci[posizione] != ClassificaOperatori.NESSUNO) return;
+        voci[posizione] = riposizionande;
+        daRiposizionare[riposizionande++] = posizione;
+    }
+
+    /**
+     * Costruisce la classifica, se necessario, e vi applica le variazioni annotate.
+     *
+     * <p> Modifica la rappresentazione di this.
+     */
+    private void aggiornaClassifica() {
+        if (!classificaAttiva) {
+            classificaAttiva = true;
+            for (int i = 0; i < dimensione; i++)
+                nodi[i] = classifica.inserisci(titolari[i], quantita[i]);
+            return;
+        }
+        for (int k = 0; k < numeroOrfani; k++)
+            classifica.rimuovi(orfani[k]);
+        numeroOrfani = 0;
+        for (int k = 0; k < riposizionande; k++) {
+            int p = daRiposizionare[k];
+            voci[p] = ClassificaOperatori.NESSUNO;
+            if (nodi[p] == ClassificaOperatori.NESSUNO)
+                nodi[p] = classifica.inserisci(titolari[p], quantita[p]);
+            else
+                classifica.aggiorna(nodi[p], quantita[p]);
+        }
+        riposizionande = 0;
+    }
+
+    /**
+     * Elimina una posizione spostando in essa l'ultima posizione occupata;
+     * il nodo del titolare uscito viene annotato per la rimozione dalla classifica.
+     *
+     * <p> Modifica this.
+     *
+     * @param posizione la posizione da eliminare.
+     */
+    private void elimina(final int posizione) {
+        posizioni.remove(titolari[posizione].id);
+        int voce = voci[posizione];
+        if (voce != ClassificaOperatori.NESSUNO) {
+            int spostata = daRiposizionare[--riposizionande];
+            daRiposizionare[voce] = spostata;
+            voci[spostata] = voce;
+        }
+        if (nodi[posizione] != ClassificaOperatori.NESSUNO) {
+            if (numeroOrfani == orfani.length)
+                orfani = Arrays.copyOf(orfani, 2 * numeroOrfani);
+            orfani[numeroOrfani++] = nodi[posizione];
+        }
+        int ultima = --dimensione;
+        if (posizione != ultima) {
+            titolari[posizione] = titolari[ultima];
+            quantita[posizione] = quantita[ultima];
+            impegnate[posizione] = impegnate[ultima];
+            nodi[posizione] = nodi[ultima];
+            voci[posizione] = voci[ultima];
+            if (voci[posizione] != ClassificaOperatori.NESSUNO)
+                daRiposizionare[voci[posizione]] = posizione;
+            posizioni.put(titolari[posizione].id, posizione);
+        }
+        titolari[ultima] = null;
+        quantita[ultima] = 0;
+        impegnate[ultima] = 0;
+    }
+
+    /**
+     * Raddoppia la capacità delle posizioni.
+     *
+     * <p> Modifica this.
+     */
+    private void ingrandisci() {
+        ridimensiona(2 * titolari.length);
+    }
+
+    /**
+     * Porta la capacità delle posizioni al valore specificato.
+     *
+     * <p> Modifica this.
+     *
+     * @param capacita la nuova capacità, non minore di {@link #dimensione()}.
+     */
+    private void ridimensiona(final int capacita) {
+        titolari = Arrays.copyOf(titolari, capacita);
+        quantita = Arrays.copyOf(quantita, capacita);
+        impegnate = Arrays.copyOf(impegnate, capacita);
+        nodi = Arrays.copyOf(nodi, capacita);
+        voci = Arrays.copyOf(voci, capacita);
+        daRiposizionare = Arrays.copyOf(daRiposizionare, capacita);
+    }
+}
@@ -0,0 +1,40 @@
+package borsanova;
+
+import borsanova.Borsa.Azione;
+
+/**
+ * Interfaccia di chi riceve gli eventi del flusso delle quotazioni di una
+ * {@link Borsa} tramite un {@link Abbonamento}.
+ *
+ * <p> Gli eventi vengono consegnati a lotti, dal thread che invoca
+ * {@link Abbonamento#consegna(AscoltatoreQuotazioni, int)}; al termine di ogni
+ * lotto non vuoto viene invocato {@link #fineLotto()}. I metodi non devono
+ * conservare riferimenti agli argomenti oltre all'azione, che è stabile.
+ */
+public interface AscoltatoreQuotazioni {
+
+    /**
+     * Riceve una variazione del prezzo di un'azione, oppure, se l'abbonato
+     * è rimasto indietro, l'ultimo prezzo noto dell'azione.
+     *
+     * @param azione l'azione.
+     * @param prezzo il nuovo prezzo.
+     */
+    void prezzo(Azione azione, int prezzo);
+
+    /**
+     * Riceve uno scambio eseguito su un'azione.
+     *
+     * @param azione l'azione scambiata.
+     * @param acquisto {@code true} se lo scambio è stato provocato da un acquisto,
+     *  {@code false} se da una vendita.
+     * @param quantita la quantità scambiata.
+     * @param prezzo il prezzo unitario dello scambio.
+     */
+    void scambio(Azione azione, boolean acquisto, int quantita, int prezzo);
+
+    /**
+     * Segnala la fine di un lotto di eventi.
+     */
+    default void fineLotto() {}
+}
@@ -1,11 +1,11 @@
 package borsanova;
 
+import borsanova.Borsa.Azione;
 import java.util.Collections;
-import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
-import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
 
 /**
  * Classe che rappresenta un'azienda.
@@ -16,13 +16,20 @@ import java.util.TreeSet;
  *      <li>un insieme di borse dove è quotata.</li>
  *  </ul>
  * 
- * <p> Essendo il nome unico, non è possibile creare due aziende con lo stesso nome.
+ * <p> Essendo il nome unico all'interno del suo {@link Mercato}, non è possibile creare
+ * due aziende con lo stesso nome nello stesso mercato.
  * 
  * <p>Un'Azienda può decidere di quotarsi in una borsa,
  * specificando il numero totale di azioni e il prezzo unitario di ciascuna azione.
  * Inoltre è possibile ottenere un insieme non modificabile delle borse dove l'azienda è quotata.
  * 
  * <p>Il criterio di confronto e di ordinamento tra le aziende è il nome.
+ * Dato che ogni nome corrisponde a un'unica istanza nel suo mercato, due aziende
+ * sono uguali solo se sono la stessa istanza, e il codice hash è l'identificativo
+ * intero assegnato dal mercato alla creazione: né l'uguaglianza né il codice hash
+ * esaminano il nome, e il confronto lo esamina carattere per carattere solo se
+ * i nomi coincidono nei primi quattro caratteri (si veda {@link Nomi}). Aziende di
+ * mercati diversi con lo stesso nome sono ordinate secondo l'ordine di creazione dei mercati.
  * 
  * <p> Strumenti di supporto e confronto:
  *  <ul>
@@ -35,57 +42,99 @@ import java.util.TreeSet;
  */
 public class Azienda implements Comparable<Azienda> {
     
-    /** Registro delle istanze uniche di Azienda.
-     *  La chiave è il nome dell'azienda, il valore è l'istanza di Azienda. 
-     */
-    private static final Map<String, Azienda> ISTANZE = new TreeMap<>();
-
     /**Il nome di questa Azienda.*/
     public final String nome;
 
+    /** Il mercato di questa Azienda. */
+    final Mercato mercato;
+
+    /**
+     * L'identificativo di questa Azienda, unico tra le aziende del suo mercato
+     * e assegnato in ordine di creazione a partire da 0.
+     */
+    final int id;
+
+    /** La chiave d'ordine del nome di questa Azienda (si veda {@link Nomi#chiave(String)}). */
+    final long chiave;
+
     /**Le borse dove questa Azienda è quotata.*/
     private final Set<Borsa> borse;
 
+    /** L'indice dei prezzi delle azioni di questa Azienda nelle borse dove è quotata. */
+    final IndicePrezzi indice = new IndicePrezzi();
+
     /*-
      * AF:
      *  - nome è il nome dell'azienda.
+     *  - mercato è il mercato dell'azienda.
      *  - borse è l'insieme delle borse dove l'azienda è quotata.
+     *  - indice associa le azioni dell'azienda nelle borse dove è quotata ai loro prezzi.
      * 
      * RI: 
      *  - nome non può essere null e non può essere vuoto o contenere solo spazi.
+     *  - mercato non può essere null.
+     *  - id non è negativo ed è diverso da quello di ogni altra azienda di mercato.
+     *  - chiave è la chiave d'ordine di nome.
      *  - borse non può essere null e non può contenere null.
-     *    Inoltre borse non può contenere duplicati e deve essere ordinata in ordine lessicografico.
+     *    Inoltre borse non può contenere duplicati, deve essere ordinata in ordine lessicografico
+     *    e contiene solo borse di mercato.
+     *  - indice non può essere null e contiene le azioni dell'azienda in ciascuna borsa
+     *    di borse in cui la quotazione è stata completata.
      */
 
     /**
-     * Metodo di fabbricazione per ottenere un'istanza di Azienda.
+     * Metodo di fabbricazione per ottenere un'istanza di Azienda del mercato globale.
      * 
      * <p>Se non esiste già un'azienda con il nome specificato, ne viene creata una nuova.
-     * Altrimenti, viene restituita l'istanza già esistente.</p>
+     * Altrimenti, viene restituita l'istanza già esistente.
+     * Il metodo può essere invocato da più thread contemporaneamente.</p>
      * 
      * @param nome il nome dell'azienda.
      * @throws NullPointerException se {@code nome} è {@code null}.
      * @throws IllegalArgumentException se {@code nome} è vuoto o contiene solo spazi.
      * @return l'istanza di Azienda.
+     * @see Mercato#azienda(String)
      */
     public static Azienda of(final String nome) {
-        if (Objects.requireNonNull(nome, "Il nome dell'azienda non può essere null").isBlank()) 
-            throw new IllegalArgumentException("Il nome dell'azienda non può essere vuoto");
-        if (!ISTANZE.containsKey(nome)) ISTANZE.put(nome, new Azienda(nome));
-        return ISTANZE.get(nome);
+        return Mercato.GLOBALE.azienda(nome);
+    }
+
+    /**
+     * Restituisce tutte le aziende del mercato globale, in ordine lessicografico.
+     * 
+     * <p> L'elenco restituito è una copia non modificabile.
+     * 
+     * @return l'elenco delle aziende.
+     */
+    public static Iterable<Azienda> istanze() {
+        return Mercato.GLOBALE.aziende();
     }
 
     /**
      * Costruisce un'istanza di Azienda con il nome specificato.
      * 
-     * <p>Il costruttore è privato per garantire
-     * che le istanze di Azienda siano create solo tramite il metodo di fabbricazione {@link #of(String)}.</p>
+     * <p>Il costruttore è visibile solo all'interno del package per garantire
+     * che le istanze di Azienda siano create solo tramite il metodo di fabbricazione
+     * {@link Mercato#azienda(String)}.</p>
      * 
+     * @param mercato il mercato dell'azienda.
      * @param nome il nome dell'azienda.
      */
-    private Azienda(final String nome) {
+    Azienda(final Mercato mercato, final String nome) {
+        this.mercato = mercato;
         this.nome = nome;
-        this.borse = new TreeSet<>();
+        this.id = mercato.identificativiAziende.getAndIncrement();
+        this.chiave = Nomi.chiave(nome);
+        this.borse = new ConcurrentSkipListSet<>();
+    }
+
+    /**
+     * Restituisce il mercato di questa Azienda.
+     * 
+     * @return il mercato.
+     */
+    public Mercato mercato() {
+        return mercato;
     }
 
     /**
@@ -99,6 +148,28 @@ public class Azienda implements Comparable<Azienda> {
         return Collections.unmodifiableSet(borse);
     }
 
+    /**
+     * Restituisce l'azione di questa azienda con il prezzo migliore
+     * tra le borse dove è quotata.
+     * 
+     * <p> Il prezzo migliore è il più basso per chi acquista e il più alto
+     * per chi vende; a parità di prezzo viene restituita l'azione della borsa
+     * in cui l'azienda è stata quotata prima. L'indice dei prezzi viene
+     * aggiornato ad ogni variazione di prezzo in tempo logaritmico nel numero
+     * di borse, e la ricerca richiede tempo costante. </p>
+     * 
+     * @param acquisto {@code true} per il prezzo migliore per un acquisto,
+     *  {@code false} per una vendita.
+     * @throws NoSuchElementException se l'azienda non è quotata in alcuna borsa.
+     * @return l'azione con il prezzo migliore.
+     */
+    public Azione azioneMigliore(final boolean acquisto) {
+        Azione azione = indice.migliore(acquisto);
+        if (azione == null)
+            throw new NoSuchElementException("L'azienda " + nome + " non è quotata in alcuna borsa");
+        return azione;
+    }
+
     /**
      * Quota questa azienda in una borsa.
      * 
@@ -115,10 +186,12 @@ public class Azienda implements Comparable<Azienda> {
      * @param prezzo il prezzo unitario di ciascuna azione.
      * @throws NullPointerException se borsa è {@code null}.
      * @throws IllegalArgumentException se le azioni totali o il prezzo sono minori o uguali a 0,
-     *  oppure se l'azienda è già quotata nella borsa specificata.
+     *  se l'azienda è già quotata nella borsa specificata oppure se la borsa appartiene
+     *  a un altro {@link Mercato}.
      */
     public void quotaInBorsa(final Borsa borsa, final int azioniTotali, final int prezzo) {
         Objects.requireNonNull(borsa, "La borsa non può essere null");
+        mercato.verifica(borsa.mercato);
         if (azioniTotali <= 0) throw new IllegalArgumentException("Il numero di azioni totali deve essere positivo");
         if (prezzo <= 0) throw new IllegalArgumentException("Il prezzo unitario deve essere positivo");
         if (!borse.add(borsa))
@@ -136,18 +209,18 @@ public class Azienda implements Comparable<Azienda> {
 
     @Override
     public boolean equals(Object obj) {
-        if (!(obj instanceof Azienda other)) return false;
-        return nome.equals(other.nome);
+        return this == obj;
     }
 
     @Override
     public int hashCode() {
-        return nome.hashCode();
+        return id;
     }
 
     @Override
     public int compareTo(Azienda altra) {
-        return nome.compareTo(altra.nome);
+        if (this == altra) return 0;
+        return Nomi.confronta(nome, chiave, mercato, altra.nome, altra.chiave, altra.mercato);
     }
 
 }
@@ -0,0 +1,18 @@
+package borsanova;
+
+/**
+ * Record che rappresenta una barra di prezzo (apertura, massimo, minimo e chiusura)
+ * e di volume, ottenuta aggregando scambi consecutivi dello {@link StoricoPrezzi}
+ * di un'azione.
+ *
+ * @param inizio l'istante di inizio della barra, in millisecondi: l'inizio dell'intervallo
+ *  per le barre a intervalli di tempo, l'istante del primo scambio per le altre.
+ * @param primo il numero di sequenza del primo scambio della barra.
+ * @param scambi il numero di scambi della barra.
+ * @param apertura il prezzo del primo scambio.
+ * @param massimo il prezzo massimo.
+ * @param minimo il prezzo minimo.
+ * @param chiusura il prezzo dell'ultimo scambio.
+ * @param volume la quantità scambiata complessivamente.
+ */
+public record Barra(long inizio, long primo, int scambi, int apertura, int massimo, int minimo, int chiusura, long volume) {}
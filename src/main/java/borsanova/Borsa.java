@@ -1,13 +1,17 @@
 package borsanova;
 
 import borsanova.politicaPrezzo.*;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
-import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
 
 
 /**
@@ -20,17 +24,35 @@ import java.util.TreeSet;
  *   <li> Una politica di variazione del prezzo delle azioni quotate in questa borsa. </li>
  *  </ul>
  * 
- * <p> Dato che il nome di una borsa è unico, non è possibile creare due borse con lo stesso nome.
+ * <p> Dato che il nome di una borsa è unico all'interno del suo {@link Mercato}, non è possibile
+ * creare due borse con lo stesso nome nello stesso mercato.
  * 
  * <p> Una borsa può:
  *  <ul>
  *   <li> impostare una politica di prezzo; </li>
  *   <li> restituire l'elenco delle azioni quotate in questa borsa; </li>
  *   <li> restituire un'azione data un'azienda; </li>
+ *   <li> eseguire in blocco un elenco di ordini di compravendita; </li>
+ *   <li> aggiornare in blocco i prezzi delle sue azioni, ad esempio a fine giornata; </li>
+ *   <li> abbinare, con priorità di prezzo e di tempo, ordini al mercato e con limite
+ *        di prezzo inseriti dagli operatori nel libro degli ordini di ciascuna azione; </li>
+ *   <li> pubblicare le variazioni di prezzo e gli scambi delle sue azioni
+ *        agli abbonati al flusso delle quotazioni. </li>
  *  </ul>
  * 
  * 
  * <p>Il criterio di confronto e ordinamento tra borse è il nome.
+ * Dato che ogni nome corrisponde a un'unica istanza nel suo mercato, due borse
+ * sono uguali solo se sono la stessa istanza, e il codice hash è l'identificativo
+ * intero assegnato dal mercato alla creazione (si veda {@link Nomi}); borse di
+ * mercati diversi con lo stesso nome sono ordinate secondo l'ordine di creazione dei mercati.
+ * 
+ * <p> Le operazioni di una borsa possono essere invocate da più thread
+ * contemporaneamente: ogni azione ha un proprio blocco che protegge
+ * le sue allocazioni e il suo prezzo, così che operazioni su azioni diverse
+ * procedano in parallelo. Quando è necessario acquisire sia il blocco di un'azione
+ * che quello di un {@link Operatore}, il blocco dell'azione viene sempre acquisito
+ * per primo; questo ordine globale impedisce lo stallo tra compravendite concorrenti.
  * 
  * <p> Strumenti di supporto utilizzati:
  *  <ul>
@@ -45,38 +67,66 @@ import java.util.TreeSet;
  */
 public class Borsa implements Comparable<Borsa> {
 
-    /** Registro contenente le borse istanziate */
-    private static final Map<String, Borsa> ISTANZE = new TreeMap<>();
+    /** Il valore restituito da un ordine con limite eseguito completamente. */
+    public static final long NESSUN_ORDINE = -1;
 
     /** Il nome della borsa. */
     public final String nome;
 
+    /** Il mercato della borsa. */
+    final Mercato mercato;
+
+    /**
+     * L'identificativo della borsa, unico tra le borse del suo mercato
+     * e assegnato in ordine di creazione a partire da 0.
+     */
+    final int id;
+
+    /** La chiave d'ordine del nome della borsa (si veda {@link Nomi#chiave(String)}). */
+    final long chiave;
+
     /** L'elenco delle azioni quotate in questa borsa. */
     private final Set<Azione> azioni;
 
+    /** L'indice delle azioni quotate in questa borsa, per azienda. */
+    private final Map<Azienda, Azione> azioniPerAzienda;
+
     /** La politica di variazione del prezzo delle azioni quotate in questa borsa.*/
-    private PoliticaPrezzo politica;
+    private volatile PoliticaPrezzo politica;
+
+    /** Il flusso delle quotazioni delle azioni quotate in questa borsa. */
+    private final FlussoQuotazioni flusso;
 
     /*-
      * AF: 
      *  - nome è il nome della borsa.
+     *  - mercato è il mercato della borsa.
      *  - azioni è l'insieme delle azioni quotate in questa borsa.
+     *  - azioniPerAzienda associa ad ogni azienda quotata in questa borsa la sua azione.
      *  - politica è la politica di variazione del prezzo delle azioni quotate in questa borsa.
+     *  - flusso contiene le variazioni di prezzo e gli scambi più recenti delle azioni.
      * 
      * RI:
      *  - nome non può essere null e non può essere vuoto o contenere solo spazi.
+     *  - mercato non può essere null; le aziende delle azioni appartengono a mercato.
+     *  - id non è negativo ed è diverso da quello di ogni altra borsa di mercato.
+     *  - chiave è la chiave d'ordine di nome.
      *  - azioni non può essere null e non può contenere null. 
      *    Inoltre non può contenere duplicati e deve essere ordinata in ordine lessicografico.
+     *  - azioniPerAzienda non può essere null e contiene, per ogni azione a di azioni,
+     *    la sola associazione da a.azienda() ad a.
      *  - politica non può essere null.
+     *  - flusso non può essere null.
      */
 
     /**
-     * Metodo di fabbricazione per ottenere un'istanza di Borsa.
+     * Metodo di fabbricazione per ottenere un'istanza di Borsa del mercato globale.
      * 
      * <p>
      *  Se non esiste già una borsa con il nome specificato, ne viene creata una
      *  nuova.
      *  Altrimenti, viene restituita l'istanza già esistente.
+     *  Il metodo può essere invocato da più thread contemporaneamente.
      * </p>
      * 
      * @param nome il nome della borsa.
@@ -84,29 +134,44 @@ public class Borsa implements Comparable<Borsa> {
      * @throws IllegalArgumentException se {@code nome} è vuoto o contiene solo spazi.
      * 
      * @return l'istanza di Borsa.
+     * @see Mercato#borsa(String)
      */
     public static Borsa of(final String nome) {
-        if (Objects.requireNonNull(nome).isBlank())
-            throw new IllegalArgumentException("Il nome della borsa non può essere vuoto");
-        if (!ISTANZE.containsKey(nome))
-            ISTANZE.put(nome, new Borsa(nome));
-        return ISTANZE.get(nome);
+        return Mercato.GLOBALE.borsa(nome);
+    }
+
+    /**
+     * Restituisce tutte le borse del mercato globale, in ordine lessicografico.
+     * 
+     * <p> L'elenco restituito è una copia non modificabile.
+     * 
+     * @return l'elenco delle borse.
+     */
+    public static Iterable<Borsa> istanze() {
+        return Mercato.GLOBALE.borse();
     }
 
     /**
      * Costruisce un'istanza di Borsa.
      * 
      * <p>
-     * Il costruttore è privato per garantire che le istanze di Borsa siano create
-     * solo tramite il metodo di fabbricazione {@link #of(String)}.
+     * Il costruttore è visibile solo all'interno del package per garantire che le
+     * istanze di Borsa siano create solo tramite il metodo di fabbricazione
+     * {@link Mercato#borsa(String)}.
      * </p>
      * 
+     * @param mercato il mercato della borsa.
      * @param nome il nome della borsa.
      */
-    private Borsa(final String nome) {
+    Borsa(final Mercato mercato, final String nome) {
+        this.mercato = mercato;
         this.nome = nome;
-        this.azioni = new TreeSet<>();
+        this.id = mercato.identificativiBorse.getAndIncrement();
+        this.chiave = Nomi.chiave(nome);
+        this.azioni = new ConcurrentSkipListSet<>();
+        this.azioniPerAzienda = new ConcurrentHashMap<>();
         this.politica = new PrezzoInvariato();
+        this.flusso = new FlussoQuotazioni();
     }
 
     /**
@@ -117,13 +182,25 @@ public class Borsa implements Comparable<Borsa> {
      * 
      * @param politica la politica di prezzo da impostare.
      * @throws NullPointerException se politica è {@code null}.
+     * @throws IllegalArgumentException se è aperto un {@link Giornale} e la politica
+     *  non può esservi registrata.
      * 
      */
-    public void politica(final PoliticaPrezzo politica) {
+    public synchronized void politica(final PoliticaPrezzo politica) {
         Objects.requireNonNull(politica, "La politica di prezzo non può essere null");
+        Giornale.annotaPolitica(this, politica);
         this.politica = politica;
     } 
 
+    /**
+     * Restituisce la politica di variazione del prezzo delle azioni quotate in questa borsa.
+     * 
+     * @return la politica di prezzo.
+     */
+    PoliticaPrezzo politica() {
+        return politica;
+    }
+
     /**
      * Restituisce l'elenco delle azioni quotate in questa borsa.
      * 
@@ -133,6 +210,24 @@ public class Borsa implements Comparable<Borsa> {
         return Collections.unmodifiableSet(azioni);
     }
 
+    /**
+     * Iscrive un nuovo abbonato al flusso delle quotazioni di questa borsa.
+     * 
+     * <p> L'abbonato riceve, tramite l'{@link Abbonamento} restituito, un evento per ogni
+     * variazione del prezzo e per ogni scambio delle azioni quotate in questa borsa
+     * avvenuti dopo l'iscrizione; lo scambio che provoca una variazione di prezzo
+     * segue la variazione stessa. La pubblicazione degli eventi non rallenta
+     * le compravendite in attesa degli abbonati e non alloca memoria
+     * (si veda {@link FlussoQuotazioni}).
+     * 
+     * <p> Modifica this.
+     * 
+     * @return l'abbonamento.
+     */
+    public Abbonamento iscrivi() {
+        return flusso.iscrivi(this);
+    }
+
     /**
      * Quota un'azienda in questa borsa.
      * 
@@ -140,6 +235,8 @@ public class Borsa implements Comparable<Borsa> {
      * verrà aggiunta all'elenco delle azioni quotate in questa borsa, quindi
      * viene modificato this.</p>
      * 
+     * <p> L'azione viene inoltre aggiunta all'indice dei prezzi dell'azienda.</p>
+     * 
      * <p> Il metodo è protected in modo che non sia accessibile direttamente
      * dal client.
      * 
@@ -153,7 +250,15 @@ public class Borsa implements Comparable<Borsa> {
      */
     protected void quota(final Azienda azienda, final int azioniTotali, final int prezzo) {
         Azione azione = new Azione(azienda, azioniTotali, prezzo);
+        Giornale.annotaQuotazione(this, azienda, azioniTotali, prezzo);
         azioni.add(azione);
+        azioniPerAzienda.put(azienda, azione);
+        azione.blocco.lock();
+        try {
+            azienda.indice.aggiungi(azione);
+        } finally {
+            azione.blocco.unlock();
+        }
     }
 
     /**
@@ -164,10 +269,18 @@ public class Borsa implements Comparable<Borsa> {
      *  e la quantità alla mappa degli operatori dell'azione, e 
      *  modifica il prezzo dell'Azione in base alla politica di variazione 
      *  del prezzo impostata per questa borsa. </p>
+     * 
+     * <p> Modifica anche lo stato dell'operatore: il costo delle azioni,
+     *  calcolato al prezzo corrente, viene riservato (e quindi sottratto)
+     *  dal suo budget in un unico passo atomico prima di allocare le azioni,
+     *  e restituito se l'acquisto non può essere completato. </p>
      *  
      * <p> Il metodo è protected in modo che non sia accessibile direttamente
      * dal client.
      * 
+     * <p> Il metodo acquisisce il blocco dell'azione; se il chiamante intende
+     * acquisire anche il blocco dell'operatore, deve farlo dopo quello dell'azione.
+     * 
      * @param azione l'azione che l'operatore vuole comprare.
      * @param operatore l'operatore che vuole effettuare l'operazione di acquisto.
      * @param quantita la quantità di azioni che l'operatore desidera comprare.
@@ -182,15 +295,49 @@ public class Borsa implements Comparable<Borsa> {
         Objects.requireNonNull(operatore, "L'operatore non può essere null");
         if (quantita <= 0)
             throw new IllegalArgumentException("La quantità deve essere positiva");
+        azione.blocco.lock();
+        try {
+            EsitoOrdine esito = compra(azione, operatore, quantita, System.currentTimeMillis());
+            if (esito != EsitoOrdine.ESEGUITO)
+                throw new IllegalArgumentException(esito.messaggio);
+        } finally {
+            azione.blocco.unlock();
+        }
+    }
+
+    /**
+     * Compra un'azione in questa borsa senza sollevare eccezioni
+     * se l'acquisto non è consentito.
+     * 
+     * <p> Modifica l'azione e l'operatore come {@link #compraAzione(Azione, Operatore, int)},
+     * ma solo se l'acquisto è consentito. Il chiamante deve detenere il blocco
+     * dell'azione e aver verificato che la quantità sia positiva.
+     * 
+     * @param azione l'azione da comprare.
+     * @param operatore l'operatore che compra.
+     * @param quantita la quantità di azioni da comprare.
+     * @param istante l'istante dell'acquisto, in millisecondi dall'epoca.
+     * @return l'esito dell'acquisto.
+     */
+    private EsitoOrdine compra(final Azione azione, final Operatore operatore, final int quantita, final long istante) {
         if (azione.azioniDisponibili() < quantita)
-            throw new IllegalArgumentException("La quantità di azioni disponibili risulta essere minore della quantità richiesta");
-        if (operatore.budget() < azione.prezzo() * quantita)
-            throw new IllegalArgumentException("Budget non sufficiente per acquistare le azioni");
-        azione.operatoriQuantita.put(operatore, azione.operatoriQuantita.getOrDefault(operatore, 0) + quantita);
-        if (azione.operatoriQuantita.get(operatore) == 0) {
-            azione.operatoriQuantita.remove(operatore);
-        }
-        azione.prezzo(politica.calcolaPrezzo(azione, quantita, true));
+            return EsitoOrdine.AZIONI_NON_DISPONIBILI;
+        int prezzo = azione.prezzo();
+        int costo = prezzo * quantita;
+        if (!operatore.riserva(costo))
+            return EsitoOrdine.BUDGET_INSUFFICIENTE;
+        azione.operatoriQuantita.aggiungi(operatore, quantita);
+        try {
+            azione.prezzo(politica.calcolaPrezzo(azione, quantita, true));
+        } catch (RuntimeException e) {
+            azione.operatoriQuantita.rimuovi(operatore, quantita);
+            operatore.accredita(costo);
+            throw e;
+        }
+        azione.storico.registra(istante, prezzo, quantita);
+        flusso.pubblica(FlussoQuotazioni.ACQUISTO, azione, quantita, prezzo);
+        Giornale.annotaAcquisto(this, azione, operatore, quantita, costo);
+        return EsitoOrdine.ESEGUITO;
     }
 
     /**
@@ -205,6 +352,9 @@ public class Borsa implements Comparable<Borsa> {
      * <p> Il metodo è protected in modo che non sia accessibile direttamente
      * dal client.
      * 
+     * <p> Il metodo acquisisce il blocco dell'azione; se il chiamante intende
+     * acquisire anche il blocco dell'operatore, deve farlo dopo quello dell'azione.
+     * 
      * @param azione l'azione che l'operatore vuole vendere.
      * @param operatore l'operatore che vuole effettuare l'operazione di vendita.
      * @param quantita la quantità di azioni che l'operatore desidera vendere.
@@ -218,18 +368,487 @@ public class Borsa implements Comparable<Borsa> {
         Objects.requireNonNull(azione, "L'azione non può essere null");
         if (quantita <= 0)
             throw new IllegalArgumentException("La quantità deve essere positiva");
-        if (azione.operatoriQuantita.getOrDefault(operatore, 0) < quantita)
-            throw new IllegalArgumentException("Quantità di azioni possedute non sufficiente per la vendita");
-        azione.operatoriQuantita.put(operatore, azione.operatoriQuantita.get(operatore) - quantita);
-        if (azione.operatoriQuantita.get(operatore) == 0) {
-            azione.operatoriQuantita.remove(operatore);
+        azione.blocco.lock();
+        try {
+            EsitoOrdine esito = vendi(azione, operatore, quantita, System.currentTimeMillis());
+            if (esito != EsitoOrdine.ESEGUITO)
+                throw new IllegalArgumentException(esito.messaggio);
+        } finally {
+            azione.blocco.unlock();
         }
+    }
+
+    /**
+     * Vende un'azione in questa borsa senza sollevare eccezioni
+     * se la vendita non è consentita.
+     * 
+     * <p> Modifica l'azione come {@link #vendiAzione(Azione, Operatore, int)},
+     * ma solo se la vendita è consentita. Il chiamante deve detenere il blocco
+     * dell'azione e aver verificato che la quantità sia positiva.
+     * 
+     * @param azione l'azione da vendere.
+     * @param operatore l'operatore che vende.
+     * @param quantita la quantità di azioni da vendere.
+     * @param istante l'istante della vendita, in millisecondi dall'epoca.
+     * @return l'esito della vendita.
+     */
+    private EsitoOrdine vendi(final Azione azione, final Operatore operatore, final int quantita, final long istante) {
+        if (azione.operatoriQuantita.libere(operatore) < quantita)
+            return EsitoOrdine.AZIONI_INSUFFICIENTI;
+        int prezzo = azione.prezzo();
+        int ricavo = prezzo * quantita;
+        azione.operatoriQuantita.rimuovi(operatore, quantita);
         azione.prezzo(politica.calcolaPrezzo(azione, quantita, false));
+        azione.storico.registra(istante, prezzo, quantita);
+        flusso.pubblica(FlussoQuotazioni.VENDITA, azione, quantita, prezzo);
+        Giornale.annotaVendita(this, azione, operatore, quantita, ricavo);
+        return EsitoOrdine.ESEGUITO;
+    }
+
+    /**
+     * Aggiorna in blocco i prezzi di più azioni di questa borsa, ad esempio a fine
+     * giornata in base allo sbilancio netto degli scambi di ciascuna.
+     * 
+     * <p> A ogni azione viene applicata la politica di prezzo di questa borsa come dopo
+     *  una compravendita indipendente dalle altre: un acquisto della quantità specificata
+     *  se questa è positiva, una vendita della quantità opposta se è negativa; le azioni
+     *  con quantità nulla non vengono modificate. Le azioni e gli operatori non vengono
+     *  scambiati, e gli aggiornamenti non compaiono nello {@link StoricoPrezzi storico}. </p>
+     * 
+     * <p> I blocchi delle azioni vengono acquisiti tutti, in ordine di identificativo,
+     *  prima di calcolare i nuovi prezzi, e rilasciati dopo averli impostati: gli altri
+     *  thread osservano quindi o tutti i prezzi precedenti o tutti i nuovi. Se la politica
+     *  è una {@link PoliticaUniforme}, i nuovi prezzi vengono calcolati con un'unica
+     *  invocazione di {@link PoliticaUniforme#calcolaPrezzi(int[], int[], boolean[], int[], int)};
+     *  se un nuovo prezzo non è valido, nessun prezzo viene modificato. </p>
+     * 
+     * <p> Modifica il prezzo delle azioni e il valore delle azioni possedute dai loro titolari. </p>
+     * 
+     * @param sbilanci la quantità netta acquistata (positiva) o venduta (negativa)
+     *  di ciascuna azienda.
+     * @throws NullPointerException se la mappa, una sua azienda o una sua quantità è {@code null}.
+     * @throws NoSuchElementException se un'azienda non è quotata in questa borsa.
+     * @throws IllegalArgumentException se una quantità è {@link Integer#MIN_VALUE}
+     *  o se la politica di prezzo calcola un prezzo non positivo.
+     */
+    public void aggiornaPrezzi(final Map<Azienda, Integer> sbilanci) {
+        Objects.requireNonNull(sbilanci, "Gli sbilanci non possono essere null");
+        Azione[] scelte = new Azione[sbilanci.size()];
+        int[] sbilancio = new int[scelte.length];
+        int n = 0;
+        for (Map.Entry<Azienda, Integer> e : sbilanci.entrySet()) {
+            Azione azione = prendiAzione(e.getKey());
+            int q = Objects.requireNonNull(e.getValue(), "La quantità non può essere null");
+            if (q == Integer.MIN_VALUE)
+                throw new IllegalArgumentException("La quantità non è valida");
+            if (q == 0)
+                continue;
+            if (n == scelte.length) {
+                scelte = Arrays.copyOf(scelte, 2 * n + 1);
+                sbilancio = Arrays.copyOf(sbilancio, scelte.length);
+            }
+            scelte[n] = azione;
+            sbilancio[n++] = q;
+        }
+        // ordina per identificativo le azioni, insieme alle loro quantità
+        long[] ordine = new long[n];
+        for (int k = 0; k < n; k++)
+            ordine[k] = (long) scelte[k].id << 32 | k;
+        Arrays.sort(ordine);
+        Azione[] azioni = new Azione[n];
+        int[] prezzi = new int[n], quantita = new int[n], nuovi = new int[n];
+        boolean[] acquisti = new boolean[n];
+        for (int k = 0; k < n; k++) {
+            int j = (int) ordine[k];
+            azioni[k] = scelte[j];
+            acquisti[k] = sbilancio[j] > 0;
+            quantita[k] = Math.abs(sbilancio[j]);
+        }
+        int bloccate = 0;
+        try {
+            for (; bloccate < n; bloccate++)
+                azioni[bloccate].blocco.lock();
+            PoliticaPrezzo p = politica;
+            for (int k = 0; k < n; k++)
+                prezzi[k] = azioni[k].prezzo();
+            if (p instanceof PoliticaUniforme u)
+                u.calcolaPrezzi(prezzi, quantita, acquisti, nuovi, n);
+            else
+                for (int k = 0; k < n; k++)
+                    nuovi[k] = p.calcolaPrezzo(azioni[k], quantita[k], acquisti[k]);
+            for (int k = 0; k < n; k++)
+                if (nuovi[k] <= 0)
+                    throw new IllegalArgumentException("Il prezzo deve essere positivo");
+            for (int k = 0; k < n; k++) {
+                azioni[k].prezzo(nuovi[k]);
+                Giornale.annotaPrezzo(this, azioni[k]);
+            }
+        } finally {
+            while (bloccate > 0)
+                azioni[--bloccate].blocco.unlock();
+        }
+    }
+
+    /**
+     * Esegue in blocco un elenco di ordini su questa borsa.
+     * 
+     * <p> Gli ordini vengono raggruppati per azienda: l'azione di ciascuna azienda
+     *  viene reperita una sola volta e il suo blocco viene acquisito una sola volta
+     *  per l'intero gruppo. Gli ordini di ciascun gruppo vengono eseguiti nell'ordine
+     *  in cui compaiono nell'elenco, ciascuno con lo stesso effetto che avrebbe se
+     *  eseguito singolarmente tramite {@link Operatore#acquistaAzioni(Borsa, Azienda, int)}
+     *  o {@link Operatore#vendiAzioni(Borsa, Azienda, int)}, compresa
+     *  l'applicazione della politica di prezzo; i gruppi vengono eseguiti
+     *  nell'ordine in cui compare il loro primo ordine. Gli scambi di ciascun gruppo
+     *  vengono registrati nello {@link StoricoPrezzi storico} con lo stesso istante. </p>
+     * 
+     * <p> Il metodo non solleva eccezioni per gli ordini che non possono essere
+     *  eseguiti: ne riporta l'esito e prosegue con gli ordini successivi. </p>
+     * 
+     * <p> Modifica lo stato delle azioni e degli operatori coinvolti negli ordini eseguiti. </p>
+     * 
+     * @param ordini l'elenco degli ordini.
+     * @throws NullPointerException se l'elenco è {@code null}.
+     * @return gli esiti degli ordini, nello stesso ordine dell'elenco.
+     */
+    public EsitoOrdine[] eseguiOrdini(final List<Ordine> ordini) {
+        Objects.requireNonNull(ordini, "L'elenco degli ordini non può essere null");
+        int n = ordini.size();
+        EsitoOrdine[] esiti = new EsitoOrdine[n];
+        // raggruppa gli ordini per azienda in liste collegate da successivo
+        int[] successivo = new int[n];
+        Map<Azienda, int[]> gruppi = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            Ordine o = ordini.get(i);
+            if (o == null || o.operatore() == null || o.azienda() == null || o.valore() <= 0
+                    || o.operatore().mercato != mercato) {
+                esiti[i] = EsitoOrdine.NON_VALIDO;
+                continue;
+            }
+            successivo[i] = -1;
+            int[] estremi = gruppi.get(o.azienda());
+            if (estremi == null)
+                gruppi.put(o.azienda(), new int[] {i, i});
+            else
+                estremi[1] = successivo[estremi[1]] = i;
+        }
+        for (Map.Entry<Azienda, int[]> gruppo : gruppi.entrySet()) {
+            Azione azione = azioniPerAzienda.get(gruppo.getKey());
+            if (azione == null) {
+                for (int i = gruppo.getValue()[0]; i != -1; i = successivo[i])
+                    esiti[i] = EsitoOrdine.NON_QUOTATA;
+                continue;
+            }
+            azione.blocco.lock();
+            try {
+                long istante = System.currentTimeMillis();
+                for (int i = gruppo.getValue()[0]; i != -1; i = successivo[i])
+                    esiti[i] = esegui(azione, ordini.get(i), istante);
+            } finally {
+                azione.blocco.unlock();
+            }
+        }
+        return esiti;
+    }
+
+    /**
+     * Esegue un ordine su un'azione di questa borsa, aggiornando anche
+     * il budget e le azioni possedute dall'operatore.
+     * 
+     * <p> Il chiamante deve detenere il blocco dell'azione e aver verificato
+     * che l'ordine sia valido.
+     * 
+     * @param azione l'azione dell'ordine.
+     * @param ordine l'ordine.
+     * @param istante l'istante dell'ordine, in millisecondi dall'epoca.
+     * @return l'esito dell'ordine.
+     */
+    private EsitoOrdine esegui(final Azione azione, final Ordine ordine, final long istante) {
+        Operatore operatore = ordine.operatore();
+        int prezzo = azione.prezzo();
+        if (ordine.acquisto()) {
+            int quantita = ordine.valore() / prezzo;
+            if (quantita == 0)
+                return EsitoOrdine.QUANTITA_NULLA;
+            EsitoOrdine esito = compra(azione, operatore, quantita, istante);
+            if (esito == EsitoOrdine.ESEGUITO)
+                operatore.registraPossesso(azione, quantita);
+            return esito;
+        }
+        EsitoOrdine esito = vendi(azione, operatore, ordine.valore(), istante);
+        if (esito == EsitoOrdine.ESEGUITO) {
+            operatore.accredita(prezzo * ordine.valore());
+            operatore.registraPossesso(azione, -ordine.valore());
+        }
+        return esito;
+    }
+
+    /**
+     * Esegue un ordine al mercato su un'azione di questa borsa.
+     * 
+     * <p> L'ordine viene abbinato, con priorità di prezzo e di tempo, agli ordini
+     *  di segno opposto in attesa nel libro degli ordini dell'azione, fino ad esaurire
+     *  la quantità richiesta o il lato opposto del libro; per gli acquisti l'abbinamento
+     *  si interrompe anche quando il budget dell'operatore non è più sufficiente.
+     *  La parte non eseguita viene scartata. </p>
+     * 
+     * <p> Modifica lo stato dell'azione, degli operatori coinvolti
+     *  negli scambi e il prezzo dell'azione, come descritto in
+     *  {@link #abbina(Azione, Operatore, boolean, int, int, boolean)}. </p>
+     * 
+     * <p> Il metodo è protected in modo che non sia accessibile direttamente
+     * dal client; acquisisce il blocco dell'azione.
+     * 
+     * @param azione l'azione da scambiare.
+     * @param operatore l'operatore che inserisce l'ordine.
+     * @param acquisto {@code true} per un ordine di acquisto, {@code false} per uno di vendita.
+     * @param quantita la quantità di azioni da scambiare.
+     * @throws NullPointerException se l'azione o l'operatore sono {@code null}.
+     * @throws IllegalArgumentException se la quantità è minore o uguale a 0 o se,
+     *  per una vendita, l'operatore non possiede abbastanza azioni non impegnate
+     *  in altri ordini di vendita.
+     * @return la quantità di azioni effettivamente scambiate.
+     */
+    protected int ordineAlMercato(final Azione azione, final Operatore operatore, final boolean acquisto, final int quantita) {
+        Objects.requireNonNull(azione, "L'azione non può essere null");
+        Objects.requireNonNull(operatore, "L'operatore non può essere null");
+        if (quantita <= 0)
+            throw new IllegalArgumentException("La quantità deve essere positiva");
+        azione.blocco.lock();
+        try {
+            if (!acquisto && azione.operatoriQuantita.libere(operatore) < quantita)
+                throw new IllegalArgumentException("Quantità di azioni possedute non sufficiente per la vendita");
+            return abbina(azione, operatore, acquisto, quantita, acquisto ? Integer.MAX_VALUE : 1, false);
+        } finally {
+            azione.blocco.unlock();
+        }
+    }
+
+    /**
+     * Inserisce un ordine con limite di prezzo su un'azione di questa borsa.
+     * 
+     * <p> L'ordine viene prima abbinato, con priorità di prezzo e di tempo, agli
+     *  ordini di segno opposto in attesa a un prezzo non peggiore del limite; la parte
+     *  non eseguita resta in attesa nel libro degli ordini dell'azione. </p>
+     * 
+     * <p> Per un acquisto, il budget necessario a pagare l'intera quantità al prezzo
+     *  limite viene riservato all'inserimento: la differenza viene restituita per le parti
+     *  eseguite a un prezzo migliore, e la parte residua resta riservata finché l'ordine
+     *  è in attesa. Per una vendita, le azioni residue vengono impegnate e non
+     *  possono essere vendute altrimenti finché l'ordine è in attesa. Se la politica
+     *  di prezzo solleva un'eccezione durante l'abbinamento, l'ordine non viene inserito
+     *  e il budget riservato per la parte non eseguita viene restituito. </p>
+     * 
+     * <p> Modifica lo stato dell'azione, degli operatori coinvolti
+     *  negli scambi e il prezzo dell'azione, come descritto in
+     *  {@link #abbina(Azione, Operatore, boolean, int, int, boolean)}. </p>
+     * 
+     * <p> Il metodo è protected in modo che non sia accessibile direttamente
+     * dal client; acquisisce il blocco dell'azione.
+     * 
+     * @param azione l'azione da scambiare.
+     * @param operatore l'operatore che inserisce l'ordine.
+     * @param acquisto {@code true} per un ordine di acquisto, {@code false} per uno di vendita.
+     * @param quantita la quantità di azioni da scambiare.
+     * @param limite il prezzo limite: il massimo per un acquisto, il minimo per una vendita.
+     * @throws NullPointerException se l'azione o l'operatore sono {@code null}.
+     * @throws IllegalArgumentException se la quantità o il limite sono minori o uguali a 0,
+     *  se per un acquisto il budget dell'operatore non è sufficiente o se,
+     *  per una vendita, l'operatore non possiede abbastanza azioni non impegnate
+     *  in altri ordini di vendita.
+     * @return l'identificativo dell'ordine in attesa, oppure {@link #NESSUN_ORDINE}
+     *  se l'ordine è stato eseguito completamente.
+     */
+    protected long ordineConLimite(final Azione azione, final Operatore operatore, final boolean acquisto, final int quantita, final int limite) {
+        Objects.requireNonNull(azione, "L'azione non può essere null");
+        Objects.requireNonNull(operatore, "L'operatore non può essere null");
+        if (quantita <= 0)
+            throw new IllegalArgumentException("La quantità deve essere positiva");
+        if (limite <= 0)
+            throw new IllegalArgumentException("Il prezzo limite deve essere positivo");
+        azione.blocco.lock();
+        try {
+            if (acquisto && !operatore.riserva(Math.multiplyExact(quantita, limite)))
+                throw new IllegalArgumentException("Budget non sufficiente per acquistare le azioni");
+            if (!acquisto && azione.operatoriQuantita.libere(operatore) < quantita)
+                throw new IllegalArgumentException("Quantità di azioni possedute non sufficiente per la vendita");
+            int residuo = quantita - abbina(azione, operatore, acquisto, quantita, limite, true);
+            if (residuo == 0)
+                return NESSUN_ORDINE;
+            if (!acquisto)
+                azione.operatoriQuantita.impegna(operatore, residuo);
+            return azione.libro.inserisci(operatore, acquisto, limite, residuo);
+        } finally {
+            azione.blocco.unlock();
+        }
+    }
+
+    /**
+     * Annulla un ordine in attesa su un'azione di questa borsa.
+     * 
+     * <p> Se l'ordine è ancora in attesa, viene rimosso dal libro degli ordini
+     *  dell'azione e il budget riservato (per un acquisto) o le azioni impegnate
+     *  (per una vendita) tornano a disposizione dell'operatore. </p>
+     * 
+     * <p> Il metodo è protected in modo che non sia accessibile direttamente
+     * dal client; acquisisce il blocco dell'azione.
+     * 
+     * @param azione l'azione dell'ordine.
+     * @param operatore l'operatore che ha inserito l'ordine.
+     * @param ordine l'identificativo dell'ordine.
+     * @throws NullPointerException se l'azione o l'operatore sono {@code null}.
+     * @return la quantità residua annullata, 0 se l'ordine non è in attesa
+     *  o non è stato inserito dall'operatore.
+     */
+    protected int annullaOrdine(final Azione azione, final Operatore operatore, final long ordine) {
+        Objects.requireNonNull(azione, "L'azione non può essere null");
+        Objects.requireNonNull(operatore, "L'operatore non può essere null");
+        azione.blocco.lock();
+        try {
+            LibroOrdini libro = azione.libro;
+            int i = libro.ordine(ordine);
+            if (i == LibroOrdini.NESSUNO || libro.titolare(i) != operatore)
+                return 0;
+            int residuo = libro.quantita(i);
+            if (libro.acquisto(i))
+                operatore.accredita(residuo * libro.prezzo(i));
+            else
+                azione.operatoriQuantita.libera(operatore, residuo);
+            libro.rimuovi(i);
+            return residuo;
+        } finally {
+            azione.blocco.unlock();
+        }
+    }
+
+    /**
+     * Abbina un ordine agli ordini di segno opposto in attesa nel libro di un'azione.
+     * 
+     * <p> Gli ordini in attesa vengono considerati con priorità di prezzo e di tempo,
+     *  finché il loro prezzo non è peggiore del limite; ogni scambio avviene al prezzo
+     *  dell'ordine in attesa. Per ogni scambio: le azioni passano dal venditore
+     *  all'acquirente, nelle allocazioni dell'azione e nelle azioni possedute da ciascuno;
+     *  l'importo passa dall'acquirente al venditore; il prezzo dell'azione viene
+     *  aggiornato secondo la politica di prezzo di questa borsa. </p>
+     * 
+     * <p> Il chiamante deve detenere il blocco dell'azione e aver verificato che,
+     *  per una vendita, l'operatore possieda abbastanza azioni libere. </p>
+     * 
+     * <p> Se la politica di prezzo solleva un'eccezione, o calcola un prezzo non
+     *  positivo, lo scambio in corso non viene eseguito e l'eccezione viene propagata;
+     *  gli scambi precedenti restano eseguiti. Per un acquisto viene restituito il
+     *  budget riservato e non ancora speso: quello dello scambio in corso oppure,
+     *  se prepagato, quello dell'intera quantità residua al prezzo limite. </p>
+     * 
+     * @param azione l'azione.
+     * @param operatore l'operatore che inserisce l'ordine.
+     * @param acquisto {@code true} per un ordine di acquisto.
+     * @param quantita la quantità da scambiare.
+     * @param limite il prezzo limite.
+     * @param prepagato {@code true} se, per un acquisto, è già stato riservato
+     *  il costo dell'intera quantità al prezzo limite.
+     * @throws IllegalArgumentException se la politica di prezzo calcola un prezzo non positivo.
+     * @return la quantità scambiata.
+     */
+    private int abbina(final Azione azione, final Operatore operatore, final boolean acquisto, final int quantita, final int limite, final boolean prepagato) {
+        LibroOrdini libro = azione.libro;
+        int residuo = quantita;
+        long istante = 0; // letto al primo scambio e condiviso da tutti gli scambi dell'ordine
+        while (residuo > 0) {
+            int i = libro.migliore(!acquisto);
+            if (i == LibroOrdini.NESSUNO)
+                break;
+            int p = libro.prezzo(i);
+            if (acquisto ? p > limite : p < limite)
+                break;
+            int q = Math.min(residuo, libro.quantita(i));
+            if (acquisto && !prepagato) {
+                q = Math.min(q, operatore.budget() / p);
+                if (q == 0 || !operatore.riserva(p * q))
+                    break;
+            }
+            // il nuovo prezzo viene calcolato prima di modificare lo stato, così che
+            // un errore della politica non lasci lo scambio applicato a metà
+            int nuovoPrezzo;
+            try {
+                nuovoPrezzo = politica.calcolaPrezzo(azione, q, acquisto);
+                if (nuovoPrezzo <= 0)
+                    throw new IllegalArgumentException("Il prezzo deve essere positivo");
+            } catch (RuntimeException e) {
+                if (acquisto)
+                    operatore.accredita(prepagato ? residuo * limite : p * q);
+                throw e;
+            }
+            Operatore controparte = libro.titolare(i);
+            Operatore acquirente, venditore;
+            if (acquisto) {
+                acquirente = operatore;
+                venditore = controparte;
+                if (prepagato && limite > p)
+                    operatore.accredita((limite - p) * q);
+                azione.operatoriQuantita.libera(venditore, q);
+            } else {
+                acquirente = controparte;
+                venditore = operatore;
+            }
+            azione.operatoriQuantita.rimuovi(venditore, q);
+            azione.operatoriQuantita.aggiungi(acquirente, q);
+            venditore.registraPossesso(azione, -q);
+            acquirente.registraPossesso(azione, q);
+            libro.riduci(i, q);
+            residuo -= q;
+            azione.prezzo(nuovoPrezzo);
+            if (istante == 0)
+                istante = System.currentTimeMillis();
+            azione.storico.registra(istante, p, q);
+            flusso.pubblica(acquisto ? FlussoQuotazioni.ACQUISTO : FlussoQuotazioni.VENDITA, azione, q, p);
+            Giornale.annotaScambio(this, azione, acquirente, venditore, q, p);
+            // l'incasso viene accreditato dopo la registrazione, come ogni accredito
+            venditore.accredita(p * q);
+        }
+        return quantita - residuo;
+    }
+
+    /**
+     * Ripristina l'effetto di una compravendita registrata nel {@link Giornale}
+     * su un'azione di questa borsa, senza verificarne la validità.
+     * 
+     * <p> Le azioni passano dal venditore all'acquirente, nelle allocazioni dell'azione
+     *  e nelle azioni possedute da ciascuno, e il prezzo dell'azione viene impostato
+     *  al valore registrato; i budget vengono aggiornati dal giornale. </p>
+     * 
+     * <p> Modifica lo stato dell'azione e degli operatori coinvolti.
+     * 
+     * @param azienda l'azienda dell'azione.
+     * @param acquirente l'acquirente, oppure {@code null} se le azioni sono state vendute alla borsa.
+     * @param venditore il venditore, oppure {@code null} se le azioni sono state acquistate dalla borsa.
+     * @param quantita la quantità scambiata.
+     * @param prezzo il prezzo dell'azione dopo la compravendita.
+     */
+    void ripristinaScambio(final Azienda azienda, final Operatore acquirente, final Operatore venditore, final int quantita, final int prezzo) {
+        Azione azione = prendiAzione(azienda);
+        azione.blocco.lock();
+        try {
+            if (venditore != null) {
+                azione.operatoriQuantita.rimuovi(venditore, quantita);
+                venditore.registraPossesso(azione, -quantita);
+            }
+            if (acquirente != null) {
+                azione.operatoriQuantita.aggiungi(acquirente, quantita);
+                acquirente.registraPossesso(azione, quantita);
+            }
+            azione.prezzo(prezzo);
+        } finally {
+            azione.blocco.unlock();
+        }
     }
 
     /**
      * Restituisce l'azione quotata in questa borsa per l'azienda specificata.
      * 
+     * <p> L'azione viene reperita in tempo costante tramite l'indice
+     * delle azioni per azienda.
+     * 
      * @param azienda l'azienda di cui si vuole ottenere l'azione quotata in questa borsa.
      * @throws NullPointerException se l'azienda è {@code null}.
      * @throws NoSuchElementException se l'azienda non è quotata in questa borsa.
@@ -237,22 +856,20 @@ public class Borsa implements Comparable<Borsa> {
      */
     public Azione prendiAzione(final Azienda azienda) {
         Objects.requireNonNull(azienda, "L'azienda non può essere null");
-        for (Azione a : azioni)
-            if (a.azienda().nome.equals(azienda.nome))
-                return a;
-        throw new NoSuchElementException("Azione non quotata in questa borsa");
+        Azione azione = azioniPerAzienda.get(azienda);
+        if (azione == null)
+            throw new NoSuchElementException("Azione non quotata in questa borsa");
+        return azione;
     }
 
     @Override
     public boolean equals(Object obj) {
-        if (!(obj instanceof Borsa other))
-            return false;
-        return nome.equals(other.nome);
+        return this == obj;
     }
 
     @Override
     public int hashCode() {
-        return nome.hashCode();
+        return id;
     }
 
     @Override
@@ -260,9 +877,18 @@ public class Borsa implements Comparable<Borsa> {
         StringBuilder sb = new StringBuilder();
         sb.append(nome).append("\n");
         for (Azione a : azioni) {
+            int disponibili;
+            Map<Operatore, Integer> titolari;
+            a.blocco.lock();
+            try {
+                disponibili = a.azioniDisponibili();
+                titolari = a.operatoriQuantita.ordinate();
+            } finally {
+                a.blocco.unlock();
+            }
             sb.append("- ").append(a.azienda().nome);
-            sb.append(" ").append(a.azioniDisponibili()).append("\n");
-            for (Map.Entry<Operatore, Integer> entry : a.operatoriQuantita.entrySet())
+            sb.append(" ").append(disponibili).append("\n");
+            for (Map.Entry<Operatore, Integer> entry : titolari.entrySet())
                 sb.append("= ").append(entry.getKey().nome).append(" ").append(entry.getValue()).append("\n");
         }
         return sb.toString();
@@ -270,7 +896,8 @@ public class Borsa implements Comparable<Borsa> {
 
     @Override
     public int compareTo(Borsa altra) {
-        return nome.compareTo(altra.nome);
+        if (this == altra) return 0;
+        return Nomi.confronta(nome, chiave, mercato, altra.nome, altra.chiave, altra.mercato);
     }
 
     /**
@@ -299,10 +926,18 @@ public class Borsa implements Comparable<Borsa> {
      *   <li> il prezzo unitario; </li>
      *   <li> il nome della borsa in cui è quotata; </li>
      *   <li> il numero di azioni disponibili; </li>
+     *   <li> il miglior prezzo degli ordini di acquisto e di vendita in attesa,
+     *        e la quantità complessiva offerta a tale prezzo; </li>
+     *   <li> i titolari che ne possiedono di più e la posizione di ciascun titolare
+     *        nella loro classifica; </li>
+     *   <li> lo storico degli scambi eseguiti, aggregabile in barre di prezzo e volume. </li>
      *  </ul>
      * 
      * <p> Il criterio di confronto e ordinamento tra azioni è sia
-     * il nome della borsa in cui sono quotate che il nome dell'azienda.
+     * il nome della borsa in cui sono quotate che il nome dell'azienda, confrontate
+     * come {@link Borsa#compareTo(Borsa)} e {@link Azienda#compareTo(Azienda)}.
+     * Dato che un'azienda può essere quotata una sola volta in una borsa, due azioni
+     * sono uguali solo se sono la stessa istanza, e il codice hash è l'identificativo.
      * 
      * @see Comparable
      * 
@@ -316,29 +951,66 @@ public class Borsa implements Comparable<Borsa> {
         private final int azioniTotali;
 
         /** Il prezzo unitario dell'azione. */
-        private int prezzo;
+        private volatile int prezzo;
+
+        /**
+         * L'identificativo di questa azione, unico tra tutte le azioni quotate
+         * e assegnato in ordine di quotazione a partire da 0.
+         */
+        final int id = mercato.identificativiAzioni.getAndIncrement();
+
+        /**
+         * Registro degli operatori che possiedono queste azioni
+         * e della quantità di azioni possedute da ciascuno.
+         */
+        final Allocazioni operatoriQuantita = new Allocazioni();
+
+        /**
+         * Il libro degli ordini con limite di prezzo in attesa per questa azione.
+         */
+        final LibroOrdini libro = new LibroOrdini();
+
+        /** Lo storico degli scambi di questa azione. */
+        final StoricoPrezzi storico = new StoricoPrezzi();
 
         /**
-         * Elenco degli operatori che possiedono queste azioni.
-         * La chiave è l'operatore e il valore è la quantità di azioni possedute.
+         * Il blocco che protegge le allocazioni, il libro degli ordini e il prezzo di questa azione;
+         * precede il blocco di ogni {@link Operatore} nell'ordine di acquisizione.
          */
-        private final Map<Operatore, Integer> operatoriQuantita = new TreeMap<>();
+        final ReentrantLock blocco = new ReentrantLock();
+
+        /**
+         * La posizione di questa azione nell'indice dei prezzi della sua azienda
+         * (si veda {@link IndicePrezzi}), oppure -1 se non vi è ancora stata aggiunta;
+         * viene letta e modificata solo da chi detiene il blocco dell'indice.
+         */
+        int posizioneIndice = -1;
 
         /*-
          * AF: 
          *  - azienda è l'azienda di cui questa azione rappresenta le azioni.
          *  - azioniTotali sono le azioni totali di questa azione.
          *  - prezzo è il prezzo unitario dell'azione.
-         *  - operatoriQuantita contiene come chiavi gli operatori che posseggono 
-         *    l'azione e come valore la quantità di azioni possedute.
+         *  - id è l'identificativo dell'azione.
+         *  - operatoriQuantita associa gli operatori che posseggono 
+         *    l'azione alla quantità di azioni possedute.
+         *  - libro contiene gli ordini con limite di prezzo in attesa.
+         *  - storico contiene gli scambi eseguiti su questa azione.
          * 
          * RI:
          *  - azienda non può essere null.
          *  - azioniTotali non può essere minore o uguale a 0.
          *  - prezzo non può essere minore o uguale a 0.
+         *  - id non è negativo ed è diverso da quello di ogni altra azione.
          *  - operatoriQuantita non può essere null e non può contenere null.
-         *    Non può contenere duplicati e deve essere ordinata in ordine lessicografico.
-         *    I valori di operatoriQuantità devono essere maggiori di 0.
+         *    Non può contenere duplicati e le quantità devono essere maggiori di 0.
+         *  - operatoriQuantita.allocate() non può essere maggiore di azioniTotali.
+         *  - libro non può essere null; per ogni operatore, la quantità delle sue
+         *    azioni impegnate in operatoriQuantita è pari alla quantità residua
+         *    dei suoi ordini di vendita in libro.
+         *  - storico non può essere null.
+         *  - blocco non può essere null; operatoriQuantita, libro, storico e prezzo
+         *    vengono modificati solo da chi detiene blocco.
          */
 
         /**
@@ -366,6 +1038,7 @@ public class Borsa implements Comparable<Borsa> {
             this.azienda = azienda;
             this.azioniTotali = azioniTotali;
             this.prezzo = prezzo;
+            operatoriQuantita.valuta(prezzo);
         }
 
         /**
@@ -396,7 +1069,10 @@ public class Borsa implements Comparable<Borsa> {
          * Imposta il prezzo unitario di questa azione.
          * 
          * <p> Viene modificato this dato che viene impostato
-         * un nuovo prezzo.
+         * un nuovo prezzo; viene modificato anche il valore delle azioni
+         * dei titolari (si veda {@link Allocazioni#valuta(int)}), il prezzo
+         * viene aggiornato nell'indice dei prezzi dell'azienda e la variazione
+         * viene pubblicata nel flusso delle quotazioni.
          * 
          * @param prezzo il prezzo unitario.
          * @throws IllegalArgumentException se il prezzo è minore o uguale a 0.
@@ -405,6 +1081,29 @@ public class Borsa implements Comparable<Borsa> {
             if (prezzo <= 0)
                 throw new IllegalArgumentException("Il prezzo deve essere positivo");
             this.prezzo = prezzo;
+            operatoriQuantita.valuta(prezzo);
+            azienda.indice.aggiorna(this, prezzo);
+            flusso.pubblica(FlussoQuotazioni.PREZZO, this, 0, prezzo);
+        }
+
+        /**
+         * Restituisce lo storico degli scambi eseguiti su questa azione.
+         * 
+         * <p> Lo storico restituito è collegato a this: comprende anche gli scambi
+         * eseguiti dopo l'invocazione.
+         * 
+         * @return lo storico degli scambi.
+         */
+        public StoricoPrezzi storico() {
+            return storico;
+        }
+
+        /**
+         * Restituisce la borsa in cui questa azione è quotata.
+         * @return la borsa.
+         */
+        Borsa borsa() {
+            return Borsa.this;
         }
 
         /**
@@ -420,36 +1119,157 @@ public class Borsa implements Comparable<Borsa> {
          * di questa azione.
          * 
          * <p> Le azioni disponibili sono le azioni totali
-         * meno le azioni possedute dagli operatori. </p>
+         * meno le azioni possedute dagli operatori, il cui totale
+         * è mantenuto dal registro delle allocazioni. </p>
          * 
          * @return il numero di azioni disponibili.
          */
         public int azioniDisponibili() {
-            int azioniDis = azioniTotali;
-            for (Map.Entry<Operatore, Integer> entry : operatoriQuantita.entrySet())
-                azioniDis -= entry.getValue();
-            return azioniDis;
+            return azioniTotali - operatoriQuantita.allocate();
+        }
+
+        /**
+         * Restituisce il prezzo più alto tra gli ordini di acquisto
+         * in attesa per questa azione.
+         * 
+         * @return il miglior prezzo di acquisto, 0 se non ci sono ordini di acquisto.
+         */
+        public int migliorAcquisto() {
+            blocco.lock();
+            try {
+                return libro.migliorPrezzo(true);
+            } finally {
+                blocco.unlock();
+            }
+        }
+
+        /**
+         * Restituisce il prezzo più basso tra gli ordini di vendita
+         * in attesa per questa azione.
+         * 
+         * @return il miglior prezzo di vendita, 0 se non ci sono ordini di vendita.
+         */
+        public int migliorVendita() {
+            blocco.lock();
+            try {
+                return libro.migliorPrezzo(false);
+            } finally {
+                blocco.unlock();
+            }
+        }
+
+        /**
+         * Restituisce la quantità complessiva degli ordini di acquisto in attesa
+         * al prezzo {@link #migliorAcquisto()}.
+         * 
+         * @return la quantità, 0 se non ci sono ordini di acquisto.
+         */
+        public int volumeMigliorAcquisto() {
+            blocco.lock();
+            try {
+                return libro.migliorVolume(true);
+            } finally {
+                blocco.unlock();
+            }
+        }
+
+        /**
+         * Restituisce la quantità complessiva degli ordini di vendita in attesa
+         * al prezzo {@link #migliorVendita()}.
+         * 
+         * @return la quantità, 0 se non ci sono ordini di vendita.
+         */
+        public int volumeMigliorVendita() {
+            blocco.lock();
+            try {
+                return libro.migliorVolume(false);
+            } finally {
+                blocco.unlock();
+            }
+        }
+
+        /**
+         * Restituisce i titolari che possiedono più azioni di questa azione,
+         * associati alla quantità posseduta.
+         * 
+         * <p> I titolari sono in ordine di quantità decrescente e, a parità di
+         * quantità, in ordine lessicografico. La classifica dei titolari viene
+         * costruita alla prima interrogazione e poi aggiornata in modo pigro: le
+         * compravendite annotano solo i titolari la cui quantità è variata, in tempo
+         * costante. Con {@code n} titolari, il metodo richiede tempo atteso
+         * {@code O(log n + N)}, dove {@code N} è il numero di titolari restituiti,
+         * più {@code O(log n)} per ogni titolare la cui quantità è variata dalla
+         * precedente interrogazione.
+         * 
+         * <p> La mappa restituita è una copia non modificabile, non collegata a this,
+         * che si itera nell'ordine della classifica.
+         * 
+         * @param n il numero massimo di titolari da restituire.
+         * @throws IllegalArgumentException se {@code n} è negativo.
+         * @return i primi {@code n} titolari, o tutti se sono meno di {@code n}.
+         */
+        public Map<Operatore, Integer> maggioriTitolari(final int n) {
+            if (n < 0)
+                throw new IllegalArgumentException("Il numero di titolari non può essere negativo");
+            Operatore[] primi;
+            int[] quantita;
+            int trovati;
+            blocco.lock();
+            try {
+                int limite = Math.min(n, operatoriQuantita.dimensione());
+                primi = new Operatore[limite];
+                quantita = new int[limite];
+                trovati = operatoriQuantita.maggiori(limite, primi, quantita);
+            } finally {
+                blocco.unlock();
+            }
+            Map<Operatore, Integer> risultato = new LinkedHashMap<>();
+            for (int i = 0; i < trovati; i++)
+                risultato.put(primi[i], quantita[i]);
+            return Collections.unmodifiableMap(risultato);
+        }
+
+        /**
+         * Restituisce la posizione di un operatore nella classifica dei titolari
+         * di questa azione, ordinata come {@link #maggioriTitolari(int)}.
+         * 
+         * <p> Con {@code n} titolari, il metodo richiede tempo atteso {@code O(log n)},
+         * più il riposizionamento dei titolari la cui quantità è variata
+         * (si veda {@link #maggioriTitolari(int)}).
+         * 
+         * @param operatore l'operatore.
+         * @throws NullPointerException se l'operatore è {@code null}.
+         * @return la posizione, a partire da 1, oppure 0 se l'operatore
+         *  non possiede azioni di questa azione.
+         */
+        public int posizioneTitolare(final Operatore operatore) {
+            Objects.requireNonNull(operatore, "L'operatore non può essere null");
+            blocco.lock();
+            try {
+                return operatoriQuantita.classificato(operatore);
+            } finally {
+                blocco.unlock();
+            }
         }
 
         @Override
         public int compareTo(Azione o) {
-            int result = nomeBorsa().compareTo(o.nomeBorsa());
+            if (this == o) return 0;
+            int result = Borsa.this.compareTo(o.borsa());
             if (result == 0) {
-                result = azienda().nome.compareTo(o.azienda().nome);
+                result = azienda().compareTo(o.azienda());
             }
             return result;
         }
 
         @Override
         public boolean equals(Object obj) {
-            if (!(obj instanceof Azione other))
-                return false;
-            return azienda().equals(other.azienda()) && nomeBorsa().equals(other.nomeBorsa());
+            return this == obj;
         }
 
         @Override
         public int hashCode() {
-            return azienda().nome.hashCode();
+            return id;
         }
     }
 }
@@ -0,0 +1,243 @@
+package borsanova;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Classe che rappresenta la classifica degli operatori di un {@link Mercato}
+ * per capitale totale (si veda {@link Operatore#capitaleTotale()}).
+ *
+ * <p> La classifica è una {@link ClassificaOperatori} aggiornata in modo incrementale
+ * e pigro: ogni variazione del budget o del valore delle azioni di un operatore
+ * lo segnala, inserendolo in una pila se non vi si trova già; le interrogazioni
+ * svuotano la pila e riposizionano i soli operatori segnalati. La pila è concatenata
+ * tramite gli operatori stessi, così che una segnalazione non allochi memoria.
+ * Una variazione richiede quindi tempo costante, indipendentemente dal numero di operatori, e
+ * un'interrogazione tempo atteso {@code O(s log n)} in più rispetto alla
+ * classifica, con {@code s} operatori segnalati dalla precedente: un operatore
+ * segnalato più volte viene riposizionato una volta sola.
+ *
+ * <p> La classifica viene costruita alla prima interrogazione, inserendo tutti gli
+ * operatori esistenti; fino ad allora le segnalazioni non hanno alcun costo. Un
+ * operatore viene segnalato alla sua creazione, non quando viene reperito.
+ *
+ * <p> Se il mercato rilascia gli operatori inattivi (si veda {@link Mercato#Mercato(boolean)}),
+ * la classifica contiene solo gli operatori con capitale totale positivo: un operatore
+ * il cui capitale si azzera viene rimosso al riposizionamento, così che la classifica
+ * non lo mantenga raggiungibile. Perché gli operatori divenuti inattivi non restino
+ * raggiungibili dalla pila e dalla classifica fino alla successiva interrogazione,
+ * ogni {@link #SOGLIA_SEGNALATI} segnalazioni la segnalazione riposiziona essa
+ * stessa gli operatori segnalati, se il blocco della classifica è libero: gli
+ * operatori inattivi mantenuti raggiungibili sono così al più circa {@link #SOGLIA_SEGNALATI}.
+ *
+ * <p> Le segnalazioni possono avvenire da più thread contemporaneamente, senza
+ * attendere blocchi. Le interrogazioni sono sincronizzate e riflettono tutte le variazioni
+ * completate prima del loro inizio. Il blocco della classifica non viene mai tenuto
+ * mentre se ne acquisiscono altri.
+ */
+final class ClassificaCapitali {
+
+    /**
+     * Il numero di segnalazioni dopo cui, se la classifica contiene solo gli operatori
+     * con capitale positivo, una segnalazione riposiziona gli operatori segnalati.
+     */
+    static final int SOGLIA_SEGNALATI = 1024;
+
+    /** L'accesso atomico al campo {@link Operatore#segnalato}. */
+    private static final VarHandle SEGNALATO;
+
+    /** L'accesso atomico al campo {@link #segnalati}. */
+    private static final VarHandle SEGNALATI;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            SEGNALATO = lookup.findVarHandle(Operatore.class, "segnalato", boolean.class);
+            SEGNALATI = lookup.findVarHandle(ClassificaCapitali.class, "segnalati", Operatore.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** Il registro degli operatori da classificare. */
+    private final Registro<Operatore> operatori;
+
+    /** La classifica degli operatori. */
+    private final ClassificaOperatori classifica = new ClassificaOperatori();
+
+    /**
+     * La cima della pila degli operatori segnalati e non ancora riposizionati,
+     * concatenati tramite {@link Operatore#successivoSegnalato}; {@code null} se la pila è vuota.
+     */
+    private volatile Operatore segnalati;
+
+    /** Il blocco che protegge la classifica. */
+    private final ReentrantLock blocco = new ReentrantLock();
+
+    /** {@code true} se la classifica contiene solo gli operatori con capitale positivo. */
+    private final boolean soloAttivi;
+
+    /** {@code true} se la classifica è stata costruita. */
+    private volatile boolean attiva;
+
+    /*-
+     * AF:
+     *  - la posizione di un operatore è quella che occuperebbe in classifica dopo
+     *    aver riposizionato gli operatori in segnalati con il loro capitale corrente.
+     *
+     * RI:
+     *  - operatori, classifica e blocco non sono null.
+     *  - se attiva è false, la classifica è vuota.
+     *  - se attiva è true, ogni operatore o di operatori (con capitale positivo, se
+     *    soloAttivi è true) ha o.nodoCapitale != NESSUNO, e la classifica contiene o
+     *    nel nodo o.nodoCapitale, oppure si trova in segnalati.
+     *  - se soloAttivi è true, ogni operatore in classifica che non si trova in
+     *    segnalati ha capitale positivo.
+     *  - ogni operatore o con o.segnalato == true si trova in segnalati; se o.segnalato è
+     *    false e o è in classifica, il valore nel suo nodo è il suo capitale corrente.
+     *  - ogni operatore si trova in segnalati al più una volta; per ogni operatore o in
+     *    segnalati, o.profonditaSegnalazione è il numero di operatori a partire da o
+     *    al momento del suo inserimento.
+     */
+
+    /**
+     * Costruisce una classifica vuota, non ancora costruita.
+     *
+     * @param operatori il registro degli operatori da classificare.
+     * @param soloAttivi {@code true} per classificare solo gli operatori con capitale positivo.
+     */
+    ClassificaCapitali(final Registro<Operatore> operatori, final boolean soloAttivi) {
+        this.operatori = operatori;
+        this.soloAttivi = soloAttivi;
+    }
+
+    /**
+     * Segnala la registrazione di un operatore.
+     *
+     * <p> Modifica this se la classifica è stata costruita e contiene anche
+     * gli operatori con capitale nullo, come quello di un nuovo operatore.
+     *
+     * @param operatore l'operatore.
+     */
+    void registra(final Operatore operatore) {
+        if (!soloAttivi)
+            segnala(operatore);
+    }
+
+    /**
+     * Segnala la variazione del capitale di un operatore.
+     *
+     * <p> Modifica this se la classifica è stata costruita; richiede tempo costante,
+     * salvo riposizionare gli operatori segnalati ogni {@link #SOGLIA_SEGNALATI}
+     * segnalazioni se la classifica contiene solo gli operatori con capitale positivo.
+     * Deve essere invocato dopo la variazione.
+     *
+     * @param operatore l'operatore.
+     */
+    void segnala(final Operatore operatore) {
+        if (!attiva || operatore.segnalato || !SEGNALATO.compareAndSet(operatore, false, true))
+            return;
+        Operatore cima;
+        do {
+            cima = segnalati;
+            operatore.successivoSegnalato = cima;
+            operatore.profonditaSegnalazione = cima == null ? 1 : cima.profonditaSegnalazione + 1;
+        } while (!SEGNALATI.compareAndSet(this, cima, operatore));
+        if (soloAttivi && operatore.profonditaSegnalazione % SOGLIA_SEGNALATI == 0 && blocco.tryLock()) {
+            try {
+                aggiorna();
+            } finally {
+                blocco.unlock();
+            }
+        }
+    }
+
+    /**
+     * Copia negli array specificati i primi operatori per capitale totale
+     * e il loro capitale.
+     *
+     * <p> Modifica this, riposizionando gli operatori segnalati.
+     *
+     * @param n il numero massimo di operatori, non negativo.
+     * @param primi l'array in cui copiare gli operatori, lungo almeno {@code n}.
+     * @param capitali l'array in cui copiare i capitali, lungo almeno {@code n}.
+     * @return il numero di operatori copiati, pari al minimo tra {@code n} e il
+     *  numero di operatori in classifica.
+     */
+    int maggiori(final int n, final Operatore[] primi, final int[] capitali) {
+        blocco.lock();
+        try {
+            aggiorna();
+            return classifica.primi(n, primi, capitali);
+        } finally {
+            blocco.unlock();
+        }
+    }
+
+    /**
+     * Restituisce la posizione di un operatore nella classifica per capitale totale.
+     *
+     * <p> Modifica this, riposizionando gli operatori segnalati.
+     *
+     * @param operatore l'operatore.
+     * @return la posizione, a partire da 1, oppure 0 se l'operatore non è in classifica
+     *  perché ha capitale nullo e la classifica contiene solo gli operatori con capitale positivo.
+     */
+    int posizione(final Operatore operatore) {
+        blocco.lock();
+        try {
+            aggiorna();
+            if (operatore.nodoCapitale == ClassificaOperatori.NESSUNO)
+                return 0;
+            return classifica.posizione(operatore.nodoCapitale);
+        } finally {
+            blocco.unlock();
+        }
+    }
+
+    /**
+     * Costruisce la classifica, se necessario, e riposiziona gli operatori segnalati.
+     *
+     * <p> Modifica this. Il chiamante deve detenere il blocco di this.
+     */
+    private void aggiorna() {
+        if (!attiva) {
+            attiva = true;
+            for (Operatore o : operatori.elenco())
+                riposiziona(o);
+        }
+        Operatore o = (Operatore) SEGNALATI.getAndSet(this, (Operatore) null);
+        while (o != null) {
+            Operatore successivo = o.successivoSegnalato;
+            o.successivoSegnalato = null;
+            // dopo l'azzeramento l'operatore può essere segnalato di nuovo,
+            // sovrascrivendo il suo successore
+            SEGNALATO.setVolatile(o, false);
+            riposiziona(o);
+            o = successivo;
+        }
+    }
+
+    /**
+     * Inserisce un operatore nella classifica con il suo capitale corrente,
+     * oppure vi aggiorna il suo capitale; se la classifica contiene solo gli
+     * operatori con capitale positivo e il capitale è nullo, lo rimuove.
+     *
+     * <p> Modifica this e il nodo dell'operatore. Il chiamante deve detenere il blocco di this.
+     *
+     * @param operatore l'operatore.
+     */
+    private void riposiziona(final Operatore operatore) {
+        int capitale = operatore.capitaleTotale();
+        if (soloAttivi && capitale == 0) {
+            if (operatore.nodoCapitale != ClassificaOperatori.NESSUNO) {
+                classifica.rimuovi(operatore.nodoCapitale);
+                operatore.nodoCapitale = ClassificaOperatori.NESSUNO;
+            }
+        } else if (operatore.nodoCapitale == ClassificaOperatori.NESSUNO)
+            operatore.nodoCapitale = classifica.inserisci(operatore, capitale);
+        else
+            classifica.aggiorna(operatore.nodoCapitale, capitale);
+    }
+}
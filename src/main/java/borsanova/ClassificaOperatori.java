@@ -0,0 +1,335 @@
+package borsanova;
+
+import java.util.Arrays;
+
+/**
+ * Classe che rappresenta una classifica di operatori per valore,
+ * ad esempio la quantità posseduta di un'azione o il capitale totale.
+ *
+ * <p> La classifica è un treap (albero binario di ricerca bilanciato con
+ * priorità casuali) rappresentato da array indicizzati per nodo, in cui ogni
+ * nodo memorizza anche la dimensione del proprio sottoalbero: gli operatori sono
+ * ordinati per valore decrescente e, a parità di valore, in ordine
+ * lessicografico. Con {@code n} operatori, l'inserimento, la rimozione e
+ * l'aggiornamento di un operatore e il calcolo della sua posizione richiedono
+ * tempo atteso {@code O(log n)}, l'elenco dei primi {@code N} operatori tempo
+ * atteso {@code O(log n + N)}. I nodi rimossi vengono riutilizzati: la classifica
+ * non alloca memoria se non quando è necessario ingrandire gli array.
+ *
+ * <p> La classe è visibile solo all'interno del package e non è sincronizzata:
+ * è mantenuta da {@link Allocazioni}, per i titolari di un'azione, e da
+ * {@link ClassificaCapitali}.
+ */
+final class ClassificaOperatori {
+
+    /** Il nodo assente. */
+    static final int NESSUNO = -1;
+
+    /** La capacità iniziale dei nodi. */
+    private static final int CAPACITA_INIZIALE = 4;
+
+    /** Gli operatori, indicizzati per nodo. */
+    private Operatore[] operatori = new Operatore[CAPACITA_INIZIALE];
+
+    /** I valori degli operatori, indicizzati per nodo. */
+    private int[] valori = new int[CAPACITA_INIZIALE];
+
+    /** Il figlio sinistro di ogni nodo; per i nodi liberi, il successivo nodo libero. */
+    private int[] sinistro = new int[CAPACITA_INIZIALE];
+
+    /** Il figlio destro di ogni nodo. */
+    private int[] destro = new int[CAPACITA_INIZIALE];
+
+    /** La priorità di ogni nodo. */
+    private int[] priorita = new int[CAPACITA_INIZIALE];
+
+    /** La dimensione del sottoalbero di ogni nodo. */
+    private int[] dimensioni = new int[CAPACITA_INIZIALE];
+
+    /** La radice del treap. */
+    private int radice = NESSUNO;
+
+    /** Il primo nodo libero tra quelli già usati. */
+    private int liberi = NESSUNO;
+
+    /** Il numero di nodi usati almeno una volta. */
+    private int usati;
+
+    /** Lo stato del generatore (xorshift) delle priorità. */
+    private int seme = 0x2545F491;
+
+    /*-
+     * AF:
+     *  - la classifica elenca gli operatori dei nodi raggiungibili da radice,
+     *    nell'ordine simmetrico del treap: l'operatore operatori[x] ha valore valori[x].
+     *
+     * RI:
+     *  - gli array hanno la stessa lunghezza, non minore di usati.
+     *  - i nodi raggiungibili da radice sono distinti e hanno operatori distinti e non null;
+     *    i nodi liberi formano una lista, collegata da sinistro, a partire da liberi;
+     *    ogni nodo minore di usati è raggiungibile oppure libero.
+     *  - per ogni nodo x raggiungibile: i nodi del sottoalbero sinistro precedono x e x precede
+     *    quelli del sottoalbero destro, secondo precede; le priorità dei figli non superano
+     *    priorita[x]; dimensioni[x] è il numero di nodi del sottoalbero di x.
+     */
+
+    /**
+     * Restituisce il numero di operatori in classifica.
+     *
+     * @return il numero di operatori.
+     */
+    int dimensione() {
+        return dimensione(radice);
+    }
+
+    /**
+     * Inserisce un operatore nella classifica.
+     *
+     * <p> Modifica this.
+     *
+     * @param operatore l'operatore, non ancora in classifica.
+     * @param v il valore dell'operatore.
+     * @return il nodo dell'operatore.
+     */
+    int inserisci(final Operatore operatore, final int v) {
+        int x = alloca();
+        operatori[x] = operatore;
+        valori[x] = v;
+        radice = inserisci(radice, x);
+        return x;
+    }
+
+    /**
+     * Aggiorna il valore di un operatore.
+     *
+     * <p> Modifica this.
+     *
+     * @param x il nodo dell'operatore.
+     * @param v il nuovo valore.
+     */
+    void aggiorna(final int x, final int v) {
+        if (valori[x] == v) return;
+        radice = togli(radice, x);
+        valori[x] = v;
+        sinistro[x] = destro[x] = NESSUNO;
+        dimensioni[x] = 1;
+        radice = inserisci(radice, x);
+    }
+
+    /**
+     * Rimuove un operatore dalla classifica.
+     *
+     * <p> Modifica this.
+     *
+     * @param x il nodo dell'operatore.
+     */
+    void rimuovi(final int x) {
+        radice = togli(radice, x);
+        operatori[x] = null;
+        sinistro[x] = liberi;
+        liberi = x;
+    }
+
+    /**
+     * Restituisce la posizione in classifica di un operatore.
+     *
+     * @param x il nodo dell'operatore.
+     * @return la posizione, a partire da 1.
+     */
+    int posizione(final int x) {
+        int precedenti = 0;
+        int t = radice;
+        while (t != x) {
+            if (precede(x, t)) {
+                t = sinistro[t];
+            } else {
+                precedenti += dimensione(sinistro[t]) + 1;
+                t = destro[t];
+            }
+        }
+        return precedenti + dimensione(sinistro[x]) + 1;
+    }
+
+    /**
+     * Copia negli array specificati i primi operatori in classifica
+     * e i loro valori.
+     *
+     * @param n il numero massimo di operatori, non negativo.
+     * @param primi l'array in cui copiare gli operatori, lungo almeno {@code n}.
+     * @param valoriPrimi l'array in cui copiare i valori, lungo almeno {@code n}.
+     * @return il numero di operatori copiati, pari al minimo tra {@code n} e {@link #dimensione()}.
+     */
+    int primi(final int n, final Operatore[] primi, final int[] valoriPrimi) {
+        return visita(radice, 0, Math.min(n, dimensione()), primi, valoriPrimi);
+    }
+
+    /**
+     * Copia, in ordine simmetrico, i nodi di un sottoalbero a partire da una posizione,
+     * fino a raggiungere un limite.
+     *
+     * @param t la radice del sottoalbero.
+     * @param k la posizione da cui copiare.
+     * @param limite il numero di operatori da copiare complessivamente.
+     * @param primi l'array degli operatori.
+     * @param valoriPrimi l'array dei valori.
+     * @return la posizione successiva all'ultimo operatore copiato.
+     */
+    private int visita(final int t, int k, final int limite, final Operatore[] primi, final int[] valoriPrimi) {
+        if (t == NESSUNO || k == limite) return k;
+        k = visita(sinistro[t], k, limite, primi, valoriPrimi);
+        if (k == limite) return k;
+        primi[k] = operatori[t];
+        valoriPrimi[k] = valori[t];
+        return visita(destro[t], k + 1, limite, primi, valoriPrimi);
+    }
+
+    /**
+     * Indica se un nodo precede un altro nella classifica.
+     *
+     * @param x il primo nodo.
+     * @param y il secondo nodo.
+     * @return {@code true} se l'operatore di {@code x} ha valore maggiore o, a parità
+     *  di valore, precede in ordine lessicografico quello di {@code y}.
+     */
+    private boolean precede(final int x, final int y) {
+        if (valori[x] != valori[y]) return valori[x] > valori[y];
+        return operatori[x].compareTo(operatori[y]) < 0;
+    }
+
+    /**
+     * Inserisce un nodo in un sottoalbero.
+     *
+     * @param t la radice del sottoalbero.
+     * @param x il nodo, senza figli.
+     * @return la nuova radice del sottoalbero.
+     */
+    private int inserisci(int t, final int x) {
+        if (t == NESSUNO) return x;
+        if (precede(x, t)) {
+            sinistro[t] = inserisci(sinistro[t], x);
+            if (priorita[sinistro[t]] > priorita[t]) t = ruotaDestra(t);
+        } else {
+            destro[t] = inserisci(destro[t], x);
+            if (priorita[destro[t]] > priorita[t]) t = ruotaSinistra(t);
+        }
+        ricalcola(t);
+        return t;
+    }
+
+    /**
+     * Toglie un nodo da un sottoalbero.
+     *
+     * @param t la radice del sottoalbero, che contiene il nodo.
+     * @param x il nodo.
+     * @return la nuova radice del sottoalbero.
+     */
+    private int togli(final int t, final int x) {
+        if (t == x) return fondi(sinistro[t], destro[t]);
+        if (precede(x, t))
+            sinistro[t] = togli(sinistro[t], x);
+        else
+            destro[t] = togli(destro[t], x);
+        ricalcola(t);
+        return t;
+    }
+
+    /**
+     * Fonde due sottoalberi, i cui nodi del primo precedono tutti quelli del secondo.
+     *
+     * @param a la radice del primo sottoalbero.
+     * @param b la radice del secondo sottoalbero.
+     * @return la radice del sottoalbero risultante.
+     */
+    private int fondi(final int a, final int b) {
+        if (a == NESSUNO) return b;
+        if (b == NESSUNO) return a;
+        if (priorita[a] > priorita[b]) {
+            destro[a] = fondi(destro[a], b);
+            ricalcola(a);
+            return a;
+        }
+        sinistro[b] = fondi(a, sinistro[b]);
+        ricalcola(b);
+        return b;
+    }
+
+    /**
+     * Ruota a destra un sottoalbero.
+     *
+     * @param t la radice del sottoalbero, con figlio sinistro.
+     * @return la nuova radice.
+     */
+    private int ruotaDestra(final int t) {
+        int s = sinistro[t];
+        sinistro[t] = destro[s];
+        destro[s] = t;
+        ricalcola(t);
+        return s;
+    }
+
+    /**
+     * Ruota a sinistra un sottoalbero.
+     *
+     * @param t la radice del sottoalbero, con figlio destro.
+     * @return la nuova radice.
+     */
+    private int ruotaSinistra(final int t) {
+        int d = destro[t];
+        destro[t] = sinistro[d];
+        sinistro[d] = t;
+        ricalcola(t);
+        return d;
+    }
+
+    /**
+     * Ricalcola la dimensione del sottoalbero di un nodo.
+     *
+     * @param t il nodo.
+     */
+    private void ricalcola(final int t) {
+        dimensioni[t] = dimensione(sinistro[t]) + dimensione(destro[t]) + 1;
+    }
+
+    /**
+     * Restituisce la dimensione di un sottoalbero.
+     *
+     * @param t la radice del sottoalbero.
+     * @return il numero di nodi, 0 se il sottoalbero è vuoto.
+     */
+    private int dimensione(final int t) {
+        return t == NESSUNO ? 0 : dimensioni[t];
+    }
+
+    /**
+     * Alloca un nodo senza figli, con una nuova priorità casuale.
+     *
+     * <p> Modifica this.
+     *
+     * @return il nodo.
+     */
+    private int alloca() {
+        int x;
+        if (liberi != NESSUNO) {
+            x = liberi;
+            liberi = sinistro[x];
+        } else {
+            if (usati == operatori.length) {
+                int capacita = 2 * usati;
+                operatori = Arrays.copyOf(operatori, capacita);
+                valori = Arrays.copyOf(valori, capacita);
+                sinistro = Arrays.copyOf(sinistro, capacita);
+                destro = Arrays.copyOf(destro, capacita);
+                priorita = Arrays.copyOf(priorita, capacita);
+                dimensioni = Arrays.copyOf(dimensioni, capacita);
+            }
+            x = usati++;
+        }
+        seme ^= seme << 13;
+        seme ^= seme >>> 17;
+        seme ^= seme << 5;
+        priorita[x] = seme;
+        sinistro[x] = destro[x] = NESSUNO;
+        dimensioni[x] = 1;
+        return x;
+    }
+}
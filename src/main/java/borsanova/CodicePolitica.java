@@ -0,0 +1,113 @@
+package borsanova;
+
+import borsanova.politicaPrezzo.DecrementoCostante;
+import borsanova.politicaPrezzo.DecrementoEsponenziale;
+import borsanova.politicaPrezzo.IncrementoCostante;
+import borsanova.politicaPrezzo.IncrementoLineare;
+import borsanova.politicaPrezzo.PoliticaPrezzo;
+import borsanova.politicaPrezzo.PrezzoInvariato;
+import borsanova.politicaPrezzo.VariazioneCostante;
+import java.nio.ByteBuffer;
+
+/**
+ * Classe di supporto che codifica le politiche di prezzo del package
+ * {@link borsanova.politicaPrezzo} come sequenze di byte, e le ricostruisce
+ * a partire da tali sequenze, per il {@link Giornale} e l'{@link Istantanea}.
+ *
+ * <p> Una politica è codificata da un byte che ne indica il tipo, seguito dai suoi
+ * parametri (interi di 4 byte), nell'ordine del costruttore: nessuno per
+ * {@link PrezzoInvariato}, l'incremento e il decremento per {@link VariazioneCostante},
+ * il suo unico parametro per le altre politiche.
+ */
+final class CodicePolitica {
+
+    /** Tipo di {@link PrezzoInvariato}. */
+    private static final byte PREZZO_INVARIATO = 0;
+
+    /** Tipo di {@link IncrementoCostante}. */
+    private static final byte INCREMENTO_COSTANTE = 1;
+
+    /** Tipo di {@link DecrementoCostante}. */
+    private static final byte DECREMENTO_COSTANTE = 2;
+
+    /** Tipo di {@link VariazioneCostante}. */
+    private static final byte VARIAZIONE_COSTANTE = 3;
+
+    /** Tipo di {@link IncrementoLineare}. */
+    private static final byte INCREMENTO_LINEARE = 4;
+
+    /** Tipo di {@link DecrementoEsponenziale}. */
+    private static final byte DECREMENTO_ESPONENZIALE = 5;
+
+    /** Classe di sole funzioni statiche, non istanziabile. */
+    private CodicePolitica() {}
+
+    /**
+     * Restituisce la lunghezza in byte della codifica di una politica di prezzo.
+     *
+     * <p> Permette di verificare che una politica possa essere codificata
+     * prima di iniziare a scriverla.
+     *
+     * @param politica la politica.
+     * @return la lunghezza della codifica.
+     * @throws IllegalArgumentException se la politica non è una delle politiche
+     *  del package {@link borsanova.politicaPrezzo}.
+     */
+    static int lunghezza(final PoliticaPrezzo politica) {
+        if (politica instanceof PrezzoInvariato)
+            return 1;
+        if (politica instanceof VariazioneCostante)
+            return 1 + 2 * 4;
+        if (politica instanceof IncrementoCostante || politica instanceof DecrementoCostante
+                || politica instanceof IncrementoLineare || politica instanceof DecrementoEsponenziale)
+            return 1 + 4;
+        throw new IllegalArgumentException("La politica di prezzo non può essere codificata");
+    }
+
+    /**
+     * Scrive la codifica di una politica di prezzo a partire dalla posizione corrente
+     * di un buffer, facendola avanzare.
+     *
+     * @param politica la politica.
+     * @param destinazione il buffer, con almeno {@link #lunghezza(PoliticaPrezzo)} byte disponibili.
+     * @throws IllegalArgumentException se la politica non è una delle politiche
+     *  del package {@link borsanova.politicaPrezzo}.
+     */
+    static void codifica(final PoliticaPrezzo politica, final ByteBuffer destinazione) {
+        if (politica instanceof PrezzoInvariato)
+            destinazione.put(PREZZO_INVARIATO);
+        else if (politica instanceof IncrementoCostante i)
+            destinazione.put(INCREMENTO_COSTANTE).putInt(i.valore());
+        else if (politica instanceof DecrementoCostante d)
+            destinazione.put(DECREMENTO_COSTANTE).putInt(d.valore());
+        else if (politica instanceof VariazioneCostante v)
+            destinazione.put(VARIAZIONE_COSTANTE).putInt(v.incremento()).putInt(v.decremento());
+        else if (politica instanceof IncrementoLineare l)
+            destinazione.put(INCREMENTO_LINEARE).putInt(l.valore());
+        else if (politica instanceof DecrementoEsponenziale e)
+            destinazione.put(DECREMENTO_ESPONENZIALE).putInt(e.dimezzamento());
+        else
+            throw new IllegalArgumentException("La politica di prezzo non può essere codificata");
+    }
+
+    /**
+     * Ricostruisce una politica di prezzo a partire dalla codifica che inizia
+     * alla posizione corrente di un buffer, facendola avanzare.
+     *
+     * @param sorgente il buffer.
+     * @return la politica.
+     * @throws IllegalArgumentException se la codifica non è valida.
+     * @throws java.nio.BufferUnderflowException se la codifica è incompleta.
+     */
+    static PoliticaPrezzo decodifica(final ByteBuffer sorgente) {
+        return switch (sorgente.get()) {
+            case PREZZO_INVARIATO -> new PrezzoInvariato();
+            case INCREMENTO_COSTANTE -> new IncrementoCostante(sorgente.getInt());
+            case DECREMENTO_COSTANTE -> new DecrementoCostante(sorgente.getInt());
+            case VARIAZIONE_COSTANTE -> new VariazioneCostante(sorgente.getInt(), sorgente.getInt());
+            case INCREMENTO_LINEARE -> new IncrementoLineare(sorgente.getInt());
+            case DECREMENTO_ESPONENZIALE -> new DecrementoEsponenziale(sorgente.getInt());
+            default -> throw new IllegalArgumentException("La codifica della politica di prezzo non è valida");
+        };
+    }
+}
@@ -0,0 +1,47 @@
+package borsanova;
+
+/**
+ * Enumerazione dei possibili esiti dell'esecuzione di un {@link Ordine}.
+ *
+ * <p> Ad ogni esito diverso da {@link #ESEGUITO} è associato il messaggio
+ * dell'eccezione che l'operazione corrispondente solleverebbe se
+ * eseguita singolarmente.
+ */
+public enum EsitoOrdine {
+
+    /** L'ordine è stato eseguito. */
+    ESEGUITO("Ordine eseguito"),
+
+    /**
+     * L'ordine, l'operatore o l'azienda sono {@code null}, il valore non è positivo
+     * oppure l'operatore appartiene a un altro {@link Mercato}.
+     */
+    NON_VALIDO("L'ordine non è valido"),
+
+    /** L'azienda non è quotata nella borsa. */
+    NON_QUOTATA("Azione non quotata in questa borsa"),
+
+    /** Il prezzo totale di un acquisto non è sufficiente per comprare neppure un'azione. */
+    QUANTITA_NULLA("La quantità deve essere positiva"),
+
+    /** Le azioni disponibili sono meno di quelle da acquistare. */
+    AZIONI_NON_DISPONIBILI("La quantità di azioni disponibili risulta essere minore della quantità richiesta"),
+
+    /** Il budget dell'operatore non è sufficiente per l'acquisto. */
+    BUDGET_INSUFFICIENTE("Budget non sufficiente per acquistare le azioni"),
+
+    /** L'operatore non possiede abbastanza azioni (non impegnate) da vendere. */
+    AZIONI_INSUFFICIENTI("Quantità di azioni possedute non sufficiente per la vendita");
+
+    /** Il messaggio che descrive l'esito. */
+    public final String messaggio;
+
+    /**
+     * Costruisce un esito.
+     *
+     * @param messaggio il messaggio che descrive l'esito.
+     */
+    EsitoOrdine(final String messaggio) {
+        this.messaggio = messaggio;
+    }
+}
@@ -0,0 +1,215 @@
+package borsanova;
+
+import borsanova.Borsa.Azione;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Classe che rappresenta il flusso delle quotazioni di una {@link Borsa}: le variazioni
+ * di prezzo e gli scambi delle sue azioni, in un buffer circolare preallocato.
+ *
+ * <p> Chi pubblica un evento (il thread che esegue la compravendita, con il blocco
+ * dell'azione acquisito) ne riserva il numero di sequenza con un incremento atomico,
+ * scrive l'evento nella cella corrispondente e lo rende visibile aggiornando il numero
+ * di sequenza della cella; non attende mai gli abbonati e non alloca memoria.
+ * Ogni {@link Abbonamento} legge gli eventi in ordine di sequenza; una cella
+ * sovrascritta mentre viene letta viene riconosciuta rileggendone il numero di sequenza.
+ * Poiché più thread possono pubblicare contemporaneamente (per azioni diverse), un evento
+ * già riservato può essere ancora in corso di scrittura mentre i successivi sono visibili:
+ * l'abbonato lo attende, prima attivamente e poi cedendo il processore, così da non
+ * saltarlo né fermarsi prima degli eventi successivi.
+ * Un abbonato rimasto indietro di più di {@link #CAPACITA} eventi riceve, al posto
+ * degli eventi perduti, l'ultimo prezzo di ogni azione della borsa.
+ *
+ * <p> Le celle vengono allocate alla prima iscrizione: finché la borsa non ha
+ * abbonati la pubblicazione non ha alcun costo.
+ *
+ * <p> La classe è visibile solo all'interno del package.
+ */
+final class FlussoQuotazioni {
+
+    /** Il numero di eventi conservati, una potenza di 2. */
+    static final int CAPACITA = 1 << 12;
+
+    /** La maschera che riduce un numero di sequenza alla sua cella. */
+    private static final int MASCHERA = CAPACITA - 1;
+
+    /** Il tipo degli eventi di variazione del prezzo. */
+    static final byte PREZZO = 0;
+
+    /** Il tipo degli eventi di scambio provocati da un acquisto. */
+    static final byte ACQUISTO = 1;
+
+    /** Il tipo degli eventi di scambio provocati da una vendita. */
+    static final byte VENDITA = 2;
+
+    /** Il numero di sequenza di una cella non ancora scritta o in corso di scrittura. */
+    private static final long IN_SCRITTURA = -1;
+
+    /** Il numero di attese attive di un evento in corso di scrittura prima di cedere il processore. */
+    private static final int ATTESE_ATTIVE = 64;
+
+    /** L'accesso ordinato agli elementi di {@link #sequenze}. */
+    private static final VarHandle SEQUENZE = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /** Il numero di sequenza del prossimo evento da pubblicare. */
+    private final AtomicLong prossima = new AtomicLong();
+
+    /** I numeri di sequenza degli eventi contenuti nelle celle; {@code null} se non ci sono abbonati. */
+    private volatile long[] sequenze;
+
+    /** Il tipo degli eventi, per cella. */
+    private byte[] tipi;
+
+    /** Le azioni degli eventi, per cella. */
+    private Azione[] azioni;
+
+    /** Le quantità scambiate, per cella. */
+    private int[] quantita;
+
+    /** I prezzi, per cella. */
+    private int[] prezzi;
+
+    /*-
+     * AF:
+     *  - se sequenze non è null, per ogni cella i con sequenze[i] = s >= 0, l'evento
+     *    numero s è di tipo tipi[i] e riguarda azioni[i], con quantità quantita[i]
+     *    (per gli scambi) e prezzo prezzi[i]; prossima è il numero di sequenza del
+     *    prossimo evento.
+     *
+     * RI:
+     *  - tipi, azioni, quantita e prezzi sono assegnati prima di sequenze e hanno
+     *    lunghezza CAPACITA, come sequenze.
+     *  - per ogni cella i, sequenze[i] è IN_SCRITTURA oppure un numero di sequenza
+     *    s < prossima con s & MASCHERA = i; finché sequenze[i] vale s, le altre celle
+     *    di indice i non vengono modificate.
+     */
+
+    /**
+     * Iscrive un nuovo abbonato al flusso, allocando le celle se necessario.
+     *
+     * <p> Modifica this. L'abbonato riceverà gli eventi pubblicati dopo l'iscrizione.
+     *
+     * @param borsa la borsa di cui questo è il flusso.
+     * @return l'abbonamento.
+     */
+    synchronized Abbonamento iscrivi(final Borsa borsa) {
+        if (sequenze == null) {
+            tipi = new byte[CAPACITA];
+            azioni = new Azione[CAPACITA];
+            quantita = new int[CAPACITA];
+            prezzi = new int[CAPACITA];
+            long[] celle = new long[CAPACITA];
+            Arrays.fill(celle, IN_SCRITTURA);
+            sequenze = celle;
+        }
+        return new Abbonamento(this, borsa, prossima.get());
+    }
+
+    /**
+     * Pubblica un evento, se il flusso ha abbonati.
+     *
+     * <p> Modifica this.
+     *
+     * @param tipo il tipo dell'evento.
+     * @param azione l'azione.
+     * @param q la quantità scambiata, 0 per le variazioni di prezzo.
+     * @param prezzo il prezzo.
+     */
+    void pubblica(final byte tipo, final Azione azione, final int q, final int prezzo) {
+        long[] celle = sequenze;
+        if (celle == null) return;
+        long s = prossima.getAndIncrement();
+        int i = (int) s & MASCHERA;
+        SEQUENZE.setOpaque(celle, i, IN_SCRITTURA);
+        VarHandle.storeStoreFence();
+        tipi[i] = tipo;
+        azioni[i] = azione;
+        quantita[i] = q;
+        prezzi[i] = prezzo;
+        SEQUENZE.setRelease(celle, i, s);
+    }
+
+    /**
+     * Consegna a un ascoltatore un lotto di eventi di un abbonamento.
+     *
+     * <p> Modifica l'abbonamento.
+     *
+     * @param abbonamento l'abbonamento.
+     * @param ascoltatore l'ascoltatore.
+     * @param massimo il numero massimo di eventi da consegnare, se l'abbonato non è rimasto indietro.
+     * @return il numero di eventi consegnati.
+     */
+    int consegna(final Abbonamento abbonamento, final AscoltatoreQuotazioni ascoltatore, final int massimo) {
+        long[] celle = sequenze;
+        int consegnati = 0, attese = 0;
+        while (consegnati < massimo) {
+            long s = abbonamento.cursore;
+            int i = (int) s & MASCHERA;
+            long pubblicata = (long) SEQUENZE.getAcquire(celle, i);
+            if (pubblicata < s) {
+                long testa = prossima.get();
+                if (s >= testa) break; // nessun evento successivo è stato riservato
+                if (testa - s > CAPACITA) {
+                    consegnati += recupera(abbonamento, ascoltatore);
+                    continue;
+                }
+                // l'evento s è stato riservato ma è ancora in corso di scrittura
+                if (++attese < ATTESE_ATTIVE)
+                    Thread.onSpinWait();
+                else
+                    Thread.yield();
+                continue;
+            }
+            attese = 0;
+            if (pubblicata > s) {
+                consegnati += recupera(abbonamento, ascoltatore);
+                continue;
+            }
+            byte tipo = tipi[i];
+            Azione azione = azioni[i];
+            int q = quantita[i];
+            int prezzo = prezzi[i];
+            VarHandle.loadLoadFence();
+            if ((long) SEQUENZE.getOpaque(celle, i) != s) {
+                consegnati += recupera(abbonamento, ascoltatore);
+                continue;
+            }
+            abbonamento.cursore = s + 1;
+            if (tipo == PREZZO)
+                ascoltatore.prezzo(azione, prezzo);
+            else
+                ascoltatore.scambio(azione, tipo == ACQUISTO, q, prezzo);
+            consegnati++;
+        }
+        if (consegnati > 0) ascoltatore.fineLotto();
+        return consegnati;
+    }
+
+    /**
+     * Sostituisce gli eventi perduti da un abbonato rimasto indietro
+     * con l'ultimo prezzo di ogni azione della borsa.
+     *
+     * <p> Modifica l'abbonamento, portandolo al prossimo evento da pubblicare.
+     * Ogni evento con numero di sequenza inferiore è stato pubblicato dopo aver
+     * aggiornato il prezzo della sua azione: i prezzi letti in seguito non sono
+     * quindi meno recenti di quelli degli eventi perduti.
+     *
+     * @param abbonamento l'abbonamento.
+     * @param ascoltatore l'ascoltatore.
+     * @return il numero di prezzi consegnati.
+     */
+    private int recupera(final Abbonamento abbonamento, final AscoltatoreQuotazioni ascoltatore) {
+        long testa = prossima.get();
+        abbonamento.persi += testa - abbonamento.cursore;
+        abbonamento.cursore = testa;
+        int consegnati = 0;
+        for (Azione azione : abbonamento.borsa.azioni()) {
+            ascoltatore.prezzo(azione, azione.prezzo());
+            consegnati++;
+        }
+        return consegnati;
+    }
+}
@@ -0,0 +1,816 @@
+package borsanova;
+
+import borsanova.Borsa.Azione;
+import borsanova.politicaPrezzo.PoliticaPrezzo;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Classe che rappresenta il giornale delle operazioni, un file in cui vengono
+ * registrate, in sola aggiunta, tutte le operazioni che modificano lo stato
+ * di borse, aziende e operatori, così che tale stato possa essere ripristinato
+ * dopo un riavvio (o un arresto improvviso) del programma.
+ *
+ * <p> Vengono registrate le quotazioni, i depositi, i prelievi, le compravendite
+ * (comprese quelle eseguite in blocco e gli scambi tra ordini del libro degli ordini),
+ * gli aggiornamenti in blocco dei prezzi e i cambi di politica di prezzo. Di ogni compravendita viene registrato l'effetto
+ * (quantità scambiata, importo pagato o incassato e nuovo prezzo dell'azione), così
+ * che il ripristino non dipenda dalla politica di prezzo; gli ordini con limite
+ * in attesa non vengono registrati, e dopo il ripristino risultano annullati
+ * (con il budget e le azioni impegnate nuovamente a disposizione degli operatori).
+ * Vengono registrate solo le operazioni del mercato globale (si veda {@link Mercato#globale()}),
+ * in cui il giornale ripristina lo stato; gli altri mercati non vengono registrati.
+ *
+ * <p> Il file è suddiviso in segmenti, mappati in memoria uno alla volta.
+ * Ogni registrazione è composta dalla sua lunghezza, dal tipo, dai suoi campi
+ * (interi) e da un codice di controllo CRC32C; borse, aziende e operatori sono
+ * indicati tramite un identificativo intero, associato al nome dalla prima
+ * registrazione che li coinvolge. Le registrazioni vengono rese persistenti
+ * sul disco a gruppi (<em>group commit</em>): ogni volta che se ne accumula
+ * il numero specificato all'apertura, o su richiesta tramite {@link #sincronizza()}.
+ *
+ * <p> Può essere aperto un solo giornale alla volta; l'apertura ripristina lo stato
+ * descritto dalle registrazioni presenti nel file (fino alla prima registrazione
+ * incompleta o danneggiata, che viene scartata insieme a quanto la segue) e deve
+ * quindi avvenire all'avvio del programma, prima di ogni altra operazione.
+ *
+ * <p> Le registrazioni avvengono prima che l'operazione registrata restituisca
+ * il controllo al chiamante e, per le compravendite, mentre è detenuto il blocco
+ * dell'azione: le registrazioni relative alla stessa azione compaiono quindi
+ * nell'ordine in cui le operazioni sono state eseguite. Ogni accredito viene registrato
+ * prima di diventare visibile agli altri thread (un deposito prima di aumentare il budget,
+ * l'incasso di una vendita prima di essere accreditato al venditore), mentre ogni addebito
+ * viene prima riservato e poi registrato: nel giornale, ogni prelievo e ogni acquisto è
+ * quindi preceduto da accrediti sufficienti a coprirlo, e il ripristino lo verifica.
+ */
+public final class Giornale implements Closeable {
+
+    /** La dimensione di un segmento del file. */
+    private static final int DIMENSIONE_SEGMENTO = 1 << 22;
+
+    /** La lunghezza che indica che il segmento è concluso e si prosegue nel successivo. */
+    private static final int SALTO = -1;
+
+    /** Tipo della registrazione che associa un nome a un identificativo. */
+    private static final byte NOME = 1;
+
+    /** Tipo della registrazione di una quotazione. */
+    private static final byte QUOTAZIONE = 2;
+
+    /** Tipo della registrazione di un deposito. */
+    private static final byte DEPOSITO = 3;
+
+    /** Tipo della registrazione di un prelievo. */
+    private static final byte PRELIEVO = 4;
+
+    /** Tipo della registrazione di un acquisto dalla borsa. */
+    private static final byte ACQUISTO = 5;
+
+    /** Tipo della registrazione di una vendita alla borsa. */
+    private static final byte VENDITA = 6;
+
+    /** Tipo della registrazione di uno scambio tra due operatori. */
+    private static final byte SCAMBIO = 7;
+
+    /**
+     * Tipo della registrazione di un cambio di politica di prezzo, codificata da
+     * {@link CodicePolitica}; il tipo 8 indicava la codifica precedente, non più accettata.
+     */
+    private static final byte POLITICA = 9;
+
+    /** Tipo della registrazione del nuovo prezzo di un'azione, senza compravendita. */
+    private static final byte PREZZO = 10;
+
+    /** Categoria del nome di una borsa. */
+    private static final byte BORSA = 0;
+
+    /** Categoria del nome di un'azienda. */
+    private static final byte AZIENDA = 1;
+
+    /** Categoria del nome di un operatore. */
+    private static final byte OPERATORE = 2;
+
+    /** Il giornale aperto, oppure {@code null}. */
+    private static volatile Giornale aperto;
+
+    /** Il canale del file. */
+    private final FileChannel canale;
+
+    /** Il numero di registrazioni dopo il quale vengono rese persistenti. */
+    private final int gruppo;
+
+    /** Il blocco che serializza le registrazioni. */
+    private final ReentrantLock blocco = new ReentrantLock();
+
+    /** Gli identificativi di borse, aziende e operatori già registrati. */
+    private final Map<Object, Integer> identificativi = new IdentityHashMap<>();
+
+    /** Il calcolo del codice di controllo. */
+    private final CRC32C controllo = new CRC32C();
+
+    /** Il segmento corrente, mappato in memoria. */
+    private MappedByteBuffer segmento;
+
+    /** La posizione nel file dell'inizio del segmento corrente. */
+    private long inizioSegmento;
+
+    /** La posizione, nel segmento corrente, della prossima registrazione. */
+    private int posizione;
+
+    /** La posizione, nel segmento corrente, della prossima scrittura di un campo. */
+    private int scrittura;
+
+    /** La posizione, nel segmento corrente, fino alla quale le registrazioni sono persistenti. */
+    private int sincronizzata;
+
+    /** Il numero di registrazioni non ancora rese persistenti. */
+    private int inAttesa;
+
+    /** Indica se il giornale è stato chiuso. */
+    private boolean chiuso;
+
+    /*-
+     * AF:
+     *  - il giornale è costituito dalle registrazioni presenti nei segmenti del file che
+     *    precedono quello corrente, seguite da quelle presenti in segmento[0..posizione);
+     *  - le registrazioni in segmento[0..sincronizzata) (e nei segmenti precedenti) sono
+     *    persistenti, le ultime inAttesa registrazioni non ancora;
+     *  - identificativi associa ad ogni borsa, azienda e operatore già registrato il suo identificativo.
+     *
+     * RI:
+     *  - canale, identificativi e controllo non sono null, gruppo è positivo;
+     *  - se non chiuso: segmento non è null e mappa il file a partire da inizioSegmento,
+     *    multiplo di DIMENSIONE_SEGMENTO, per DIMENSIONE_SEGMENTO byte;
+     *  - 0 <= sincronizzata <= posizione <= DIMENSIONE_SEGMENTO - 4;
+     *  - 0 <= inAttesa < gruppo;
+     *  - gli identificativi sono distinti e sono gli interi da 0 a identificativi.size() escluso.
+     *  - segmento, posizione, scrittura, sincronizzata, inAttesa, identificativi e chiuso
+     *    vengono modificati solo da chi detiene blocco.
+     */
+
+    /**
+     * Apre il giornale contenuto in un file, creandolo se non esiste,
+     * e ripristina lo stato descritto dalle sue registrazioni.
+     *
+     * <p> Dopo l'apertura, tutte le operazioni su borse, aziende e operatori
+     * vengono registrate nel giornale fino alla sua chiusura.
+     *
+     * @param file il file del giornale.
+     * @param gruppo il numero di registrazioni dopo il quale vengono rese persistenti
+     *  sul disco (1 per renderle persistenti una ad una).
+     * @return il giornale aperto.
+     * @throws NullPointerException se il file è {@code null}.
+     * @throws IllegalArgumentException se il gruppo è minore o uguale a 0.
+     * @throws IllegalStateException se è già aperto un giornale.
+     * @throws IOException se si verifica un errore di ingresso/uscita.
+     */
+    public static Giornale apri(final Path file, final int gruppo) throws IOException {
+        Objects.requireNonNull(file, "Il file non può essere null");
+        if (gruppo <= 0)
+            throw new IllegalArgumentException("La dimensione del gruppo deve essere positiva");
+        synchronized (Giornale.class) {
+            if (aperto != null)
+                throw new IllegalStateException("È già aperto un giornale");
+            FileChannel canale = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                Giornale giornale = new Giornale(canale, gruppo);
+                giornale.ripristina();
+                aperto = giornale;
+                return giornale;
+            } catch (IOException | RuntimeException e) {
+                canale.close();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Costruisce un giornale sul canale specificato.
+     *
+     * @param canale il canale del file.
+     * @param gruppo il numero di registrazioni dopo il quale vengono rese persistenti.
+     */
+    private Giornale(final FileChannel canale, final int gruppo) {
+        this.canale = canale;
+        this.gruppo = gruppo;
+    }
+
+    /**
+     * Rende persistenti sul disco tutte le registrazioni.
+     *
+     * <p> Modifica this.
+     */
+    public void sincronizza() {
+        blocco.lock();
+        try {
+            if (!chiuso)
+                forza();
+        } finally {
+            blocco.unlock();
+        }
+    }
+
+    /**
+     * Chiude il giornale, dopo aver reso persistenti tutte le registrazioni;
+     * le operazioni successive non vengono registrate.
+     *
+     * <p> Modifica this.
+     *
+     * @throws IOException se si verifica un errore di ingresso/uscita.
+     */
+    @Override
+    public void close() throws IOException {
+        blocco.lock();
+        try {
+            if (chiuso)
+                return;
+            forza();
+            chiuso = true;
+            segmento = null;
+            canale.close();
+        } finally {
+            blocco.unlock();
+        }
+        synchronized (Giornale.class) {
+            if (aperto == this)
+                aperto = null;
+        }
+    }
+
+    /**
+     * Indica se è aperto un giornale.
+     *
+     * @return {@code true} se e solo se è aperto un giornale.
+     */
+    static boolean attivo() {
+        return aperto != null;
+    }
+
+    /**
+     * Restituisce il giornale in cui registrare un'operazione di un mercato.
+     *
+     * @param mercato il mercato dell'operazione.
+     * @return il giornale aperto, oppure {@code null} se non è aperto un giornale
+     *  o se il mercato non è quello globale.
+     */
+    private static Giornale aperto(final Mercato mercato) {
+        return mercato == Mercato.GLOBALE ? aperto : null;
+    }
+
+    /**
+     * Registra la quotazione di un'azienda in una borsa, se è aperto un giornale.
+     *
+     * @param borsa la borsa.
+     * @param azienda l'azienda.
+     * @param azioniTotali il numero di azioni totali.
+     * @param prezzo il prezzo unitario.
+     */
+    static void annotaQuotazione(final Borsa borsa, final Azienda azienda, final int azioniTotali, final int prezzo) {
+        Giornale g = aperto(borsa.mercato);
+        if (g == null)
+            return;
+        g.blocco.lock();
+        try {
+            if (!g.chiuso)
+                g.registra(QUOTAZIONE, g.id(borsa), g.id(azienda), azioniTotali, prezzo);
+        } finally {
+            g.blocco.unlock();
+        }
+    }
+
+    /**
+     * Registra un deposito, se è aperto un giornale.
+     *
+     * @param operatore l'operatore.
+     * @param importo l'importo depositato.
+     */
+    static void annotaDeposito(final Operatore operatore, final int importo) {
+        Giornale g = aperto(operatore.mercato);
+        if (g == null)
+            return;
+        g.blocco.lock();
+        try {
+            if (!g.chiuso)
+                g.registra(DEPOSITO, g.id(operatore), importo);
+        } finally {
+            g.blocco.unlock();
+        }
+    }
+
+    /**
+     * Registra un prelievo, se è aperto un giornale.
+     *
+     * @param operatore l'operatore.
+     * @param importo l'importo prelevato.
+     */
+    static void annotaPrelievo(final Operatore operatore, final int importo) {
+        Giornale g = aperto(operatore.mercato);
+        if (g == null)
+            return;
+        g.blocco.lock();
+        try {
+            if (!g.chiuso)
+                g.registra(PRELIEVO, g.id(operatore), importo);
+        } finally {
+            g.blocco.unlock();
+        }
+    }
+
+    /**
+     * Registra l'acquisto di azioni dalla borsa, se è aperto un giornale.
+     *
+     * <p> Il chiamante deve detenere il blocco dell'azione e aver già
+     * aggiornato il suo prezzo.
+     *
+     * @param borsa la borsa.
+     * @param azione l'azione acquistata.
+     * @param operatore l'acquirente.
+     * @param quantita la quantità acquistata.
+     * @param costo l'importo pagato.
+     */
+    static void annotaAcquisto(final Borsa borsa, final Azione azione, final Operatore operatore, final int quantita, final int costo) {
+        Giornale g = aperto(borsa.mercato);
+        if (g == null)
+            return;
+        g.blocco.lock();
+        try {
+            if (!g.chiuso)
+                g.registra(ACQUISTO, g.id(operatore), g.id(borsa), g.id(azione.azienda()), quantita, costo, azione.prezzo());
+        } finally {
+            g.blocco.unlock();
+        }
+    }
+
+    /**
+     * Registra la vendita di azioni alla borsa, se è aperto un giornale.
+     *
+     * <p> Il chiamante deve detenere il blocco dell'azione e aver già
+     * aggiornato il suo prezzo.
+     *
+     * @param borsa la borsa.
+     * @param azione l'azione venduta.
+     * @param operatore il venditore.
+     * @param quantita la quantità venduta.
+     * @param ricavo l'importo incassato.
+     */
+    static void annotaVendita(final Borsa borsa, final Azione azione, final Operatore operatore, final int quantita, final int ricavo) {
+        Giornale g = aperto(borsa.mercato);
+        if (g == null)
+            return;
+        g.blocco.lock();
+        try {
+            if (!g.chiuso)
+                g.registra(VENDITA, g.id(operatore), g.id(borsa), g.id(azione.azienda()), quantita, ricavo, azione.prezzo());
+        } finally {
+            g.blocco.unlock();
+        }
+    }
+
+    /**
+     * Registra uno scambio tra due operatori eseguito dal libro degli ordini,
+     * se è aperto un giornale.
+     *
+     * <p> Il chiamante deve detenere il blocco dell'azione e aver già
+     * aggiornato il suo prezzo.
+     *
+     * @param borsa la borsa.
+     * @param azione l'azione scambiata.
+     * @param acquirente l'acquirente.
+     * @param venditore il venditore.
+     * @param quantita la quantità scambiata.
+     * @param prezzo il prezzo unitario dello scambio.
+     */
+    static void annotaScambio(final Borsa borsa, final Azione azione, final Operatore acquirente, final Operatore venditore, final int quantita, final int prezzo) {
+        Giornale g = aperto(borsa.mercato);
+        if (g == null)
+            return;
+        g.blocco.lock();
+        try {
+            if (!g.chiuso)
+                g.registra(SCAMBIO, g.id(acquirente), g.id(venditore), g.id(borsa), g.id(azione.azienda()), quantita, prezzo, azione.prezzo());
+        } finally {
+            g.blocco.unlock();
+        }
+    }
+
+    /**
+     * Registra il nuovo prezzo di un'azione, impostato senza compravendita,
+     * se è aperto un giornale.
+     *
+     * <p> Il chiamante deve detenere il blocco dell'azione e aver già
+     * aggiornato il suo prezzo.
+     *
+     * @param borsa la borsa.
+     * @param azione l'azione.
+     */
+    static void annotaPrezzo(final Borsa borsa, final Azione azione) {
+        Giornale g = aperto(borsa.mercato);
+        if (g == null)
+            return;
+        g.blocco.lock();
+        try {
+            if (!g.chiuso)
+                g.registra(PREZZO, g.id(borsa), g.id(azione.azienda()), azione.prezzo());
+        } finally {
+            g.blocco.unlock();
+        }
+    }
+
+    /**
+     * Registra un cambio di politica di prezzo, se è aperto un giornale.
+     *
+     * <p> Possono essere registrate solo le politiche di prezzo del package
+     * {@link borsanova.politicaPrezzo}.
+     *
+     * @param borsa la borsa.
+     * @param politica la nuova politica.
+     * @throws IllegalArgumentException se è aperto un giornale e la politica
+     *  non può essere registrata.
+     */
+    static void annotaPolitica(final Borsa borsa, final PoliticaPrezzo politica) {
+        Giornale g = aperto(borsa.mercato);
+        if (g == null)
+            return;
+        int lunghezza = CodicePolitica.lunghezza(politica);
+        g.blocco.lock();
+        try {
+            if (!g.chiuso) {
+                int id = g.id(borsa);
+                g.inizia(POLITICA, 4 + lunghezza);
+                g.campo(id);
+                CodicePolitica.codifica(politica, g.segmento.slice(g.scrittura, lunghezza));
+                g.scrittura += lunghezza;
+                g.termina();
+            }
+        } finally {
+            g.blocco.unlock();
+        }
+    }
+
+    /**
+     * Restituisce l'identificativo di una borsa, di un'azienda o di un operatore,
+     * registrandone il nome se è la prima volta che compare nel giornale.
+     *
+     * <p> Può modificare this. Il chiamante deve detenere il blocco.
+     *
+     * @param entita la borsa, l'azienda o l'operatore.
+     * @return l'identificativo.
+     */
+    private int id(final Object entita) {
+        Integer id = identificativi.get(entita);
+        if (id != null)
+            return id;
+        byte categoria;
+        String nome;
+        if (entita instanceof Borsa b) {
+            categoria = BORSA;
+            nome = b.nome;
+        } else if (entita instanceof Azienda a) {
+            categoria = AZIENDA;
+            nome = a.nome;
+        } else {
+            categoria = OPERATORE;
+            nome = ((Operatore) entita).nome;
+        }
+        byte[] byteNome = nome.getBytes(StandardCharsets.UTF_8);
+        inizia(NOME, 1 + byteNome.length);
+        segmento.put(scrittura, categoria);
+        segmento.put(scrittura + 1, byteNome);
+        scrittura += 1 + byteNome.length;
+        termina();
+        id = identificativi.size();
+        identificativi.put(entita, id);
+        return id;
+    }
+
+    /**
+     * Aggiunge una registrazione con due campi interi.
+     *
+     * <p> Modifica this. Il chiamante deve detenere il blocco. Come le altre versioni
+     * del metodo, ha un numero fisso di campi per non allocare un array ad ogni registrazione.
+     *
+     * @param tipo il tipo della registrazione.
+     * @param a il primo campo.
+     * @param b il secondo campo.
+     */
+    private void registra(final byte tipo, final int a, final int b) {
+        inizia(tipo, 4 * 2);
+        campo(a);
+        campo(b);
+        termina();
+    }
+
+    /**
+     * Aggiunge una registrazione con tre campi interi.
+     *
+     * <p> Modifica this. Il chiamante deve detenere il blocco.
+     *
+     * @param tipo il tipo della registrazione.
+     * @param a il primo campo.
+     * @param b il secondo campo.
+     * @param c il terzo campo.
+     */
+    private void registra(final byte tipo, final int a, final int b, final int c) {
+        inizia(tipo, 4 * 3);
+        campo(a);
+        campo(b);
+        campo(c);
+        termina();
+    }
+
+    /**
+     * Aggiunge una registrazione con quattro campi interi.
+     *
+     * <p> Modifica this. Il chiamante deve detenere il blocco.
+     *
+     * @param tipo il tipo della registrazione.
+     * @param a il primo campo.
+     * @param b il secondo campo.
+     * @param c il terzo campo.
+     * @param d il quarto campo.
+     */
+    private void registra(final byte tipo, final int a, final int b, final int c, final int d) {
+        inizia(tipo, 4 * 4);
+        campo(a);
+        campo(b);
+        campo(c);
+        campo(d);
+        termina();
+    }
+
+    /**
+     * Aggiunge una registrazione con sei campi interi.
+     *
+     * <p> Modifica this. Il chiamante deve detenere il blocco.
+     *
+     * @param tipo il tipo della registrazione.
+     * @param a il primo campo.
+     * @param b il secondo campo.
+     * @param c il terzo campo.
+     * @param d il quarto campo.
+     * @param e il quinto campo.
+     * @param f il sesto campo.
+     */
+    private void registra(final byte tipo, final int a, final int b, final int c, final int d, final int e, final int f) {
+        inizia(tipo, 4 * 6);
+        campo(a);
+        campo(b);
+        campo(c);
+        campo(d);
+        campo(e);
+        campo(f);
+        termina();
+    }
+
+    /**
+     * Aggiunge una registrazione con sette campi interi.
+     *
+     * <p> Modifica this. Il chiamante deve detenere il blocco.
+     *
+     * @param tipo il tipo della registrazione.
+     * @param a il primo campo.
+     * @param b il secondo campo.
+     * @param c il terzo campo.
+     * @param d il quarto campo.
+     * @param e il quinto campo.
+     * @param f il sesto campo.
+     * @param g il settimo campo.
+     */
+    private void registra(final byte tipo, final int a, final int b, final int c, final int d, final int e, final int f, final int g) {
+        inizia(tipo, 4 * 7);
+        campo(a);
+        campo(b);
+        campo(c);
+        campo(d);
+        campo(e);
+        campo(f);
+        campo(g);
+        termina();
+    }
+
+    /**
+     * Scrive un campo intero della registrazione iniziata con {@link #inizia(byte, int)}.
+     *
+     * <p> Modifica this. Il chiamante deve detenere il blocco.
+     *
+     * @param valore il valore del campo.
+     */
+    private void campo(final int valore) {
+        segmento.putInt(scrittura, valore);
+        scrittura += 4;
+    }
+
+    /**
+     * Inizia una registrazione, passando al segmento successivo se in quello
+     * corrente non c'è spazio sufficiente, e ne scrive la lunghezza e il tipo.
+     *
+     * <p> Modifica this. Il chiamante deve detenere il blocco.
+     *
+     * @param tipo il tipo della registrazione.
+     * @param lunghezzaCampi la lunghezza in byte dei campi.
+     */
+    private void inizia(final byte tipo, final int lunghezzaCampi) {
+        int lunghezza = 1 + lunghezzaCampi;
+        // lascia sempre lo spazio per un eventuale SALTO
+        if (posizione + 4 + lunghezza + 4 > DIMENSIONE_SEGMENTO - 4) {
+            segmento.putInt(posizione, SALTO);
+            posizione += 4;
+            forza();
+            try {
+                inizioSegmento += DIMENSIONE_SEGMENTO;
+                segmento = mappa(inizioSegmento);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            posizione = sincronizzata = 0;
+        }
+        segmento.putInt(posizione, lunghezza);
+        segmento.put(posizione + 4, tipo);
+        scrittura = posizione + 5;
+    }
+
+    /**
+     * Conclude la registrazione iniziata con {@link #inizia(byte, int)}, scrivendone il codice di
+     * controllo, e la rende persistente se si è completato un gruppo.
+     *
+     * <p> Modifica this. Il chiamante deve detenere il blocco.
+     */
+    private void termina() {
+        int lunghezza = scrittura - posizione - 4;
+        segmento.putInt(scrittura, controllo(posizione + 4, lunghezza));
+        posizione = scrittura + 4;
+        if (++inAttesa == gruppo)
+            forza();
+    }
+
+    /**
+     * Rende persistenti le registrazioni del segmento corrente non ancora persistenti.
+     *
+     * <p> Modifica this. Il chiamante deve detenere il blocco.
+     */
+    private void forza() {
+        if (posizione > sincronizzata)
+            segmento.force(sincronizzata, posizione - sincronizzata);
+        sincronizzata = posizione;
+        inAttesa = 0;
+    }
+
+    /**
+     * Calcola il codice di controllo di una porzione del segmento corrente.
+     *
+     * @param inizio la posizione dell'inizio della porzione.
+     * @param lunghezza la lunghezza della porzione.
+     * @return il codice di controllo.
+     */
+    private int controllo(final int inizio, final int lunghezza) {
+        controllo.reset();
+        controllo.update(segmento.slice(inizio, lunghezza));
+        return (int) controllo.getValue();
+    }
+
+    /**
+     * Mappa in memoria un segmento del file, estendendo il file se necessario.
+     *
+     * @param inizio la posizione nel file dell'inizio del segmento.
+     * @return il segmento.
+     * @throws IOException se si verifica un errore di ingresso/uscita.
+     */
+    private MappedByteBuffer mappa(final long inizio) throws IOException {
+        return canale.map(FileChannel.MapMode.READ_WRITE, inizio, DIMENSIONE_SEGMENTO);
+    }
+
+    /**
+     * Ripristina lo stato descritto dalle registrazioni del giornale
+     * e si predispone ad aggiungerne di nuove dopo l'ultima valida.
+     *
+     * <p> Modifica this, e le borse, le aziende e gli operatori coinvolti
+     * nelle registrazioni.
+     *
+     * @throws IOException se si verifica un errore di ingresso/uscita.
+     */
+    private void ripristina() throws IOException {
+        List<Object> entita = new ArrayList<>();
+        segmento = mappa(0);
+        while (true) {
+            int lunghezza = segmento.getInt(posizione);
+            if (lunghezza == SALTO) {
+                inizioSegmento += DIMENSIONE_SEGMENTO;
+                segmento = mappa(inizioSegmento);
+                posizione = 0;
+                continue;
+            }
+            int inizio = posizione + 4;
+            if (lunghezza <= 0 || inizio + lunghezza + 4 > DIMENSIONE_SEGMENTO - 4
+                    || segmento.getInt(inizio + lunghezza) != controllo(inizio, lunghezza))
+                break;
+            applica(inizio, lunghezza, entita);
+            posizione = inizio + lunghezza + 4;
+        }
+        // scarta quanto segue l'ultima registrazione valida, residuo di una scrittura interrotta
+        for (int i = posizione; i < DIMENSIONE_SEGMENTO; i++)
+            if (segmento.get(i) != 0)
+                segmento.put(i, (byte) 0);
+        canale.truncate(inizioSegmento + DIMENSIONE_SEGMENTO);
+        segmento.force();
+        sincronizzata = posizione;
+    }
+
+    /**
+     * Applica una registrazione del segmento corrente.
+     *
+     * <p> Modifica this, e le borse, le aziende e gli operatori coinvolti
+     * nella registrazione.
+     *
+     * @param inizio la posizione dell'inizio della registrazione (il suo tipo).
+     * @param lunghezza la lunghezza della registrazione.
+     * @param entita le borse, le aziende e gli operatori, indicizzati per identificativo.
+     * @throws IllegalStateException se il tipo della registrazione non è valido.
+     */
+    private void applica(final int inizio, final int lunghezza, final List<Object> entita) {
+        byte tipo = segmento.get(inizio);
+        if (tipo == NOME) {
+            byte[] byteNome = new byte[lunghezza - 2];
+            segmento.get(inizio + 2, byteNome);
+            String nome = new String(byteNome, StandardCharsets.UTF_8);
+            Object e = switch (segmento.get(inizio + 1)) {
+                case BORSA -> Borsa.of(nome);
+                case AZIENDA -> Azienda.of(nome);
+                case OPERATORE -> Operatore.of(nome);
+                default -> throw new IllegalStateException("Categoria di nome non valida nel giornale");
+            };
+            identificativi.put(e, entita.size());
+            entita.add(e);
+            return;
+        }
+        if (tipo == POLITICA) {
+            if (lunghezza < 1 + 4 + 1)
+                throw new IllegalStateException("Politica di prezzo non valida nel giornale");
+            ByteBuffer codice = segmento.slice(inizio + 5, lunghezza - 5);
+            PoliticaPrezzo politica = CodicePolitica.decodifica(codice);
+            if (codice.hasRemaining())
+                throw new IllegalStateException("Politica di prezzo non valida nel giornale");
+            ((Borsa) entita.get(segmento.getInt(inizio + 1))).politica(politica);
+            return;
+        }
+        int[] c = new int[(lunghezza - 1) / 4];
+        for (int i = 0; i < c.length; i++)
+            c[i] = segmento.getInt(inizio + 1 + 4 * i);
+        switch (tipo) {
+            case QUOTAZIONE -> ((Azienda) entita.get(c[1])).quotaInBorsa((Borsa) entita.get(c[0]), c[2], c[3]);
+            case DEPOSITO -> {
+                if (c[1] <= 0)
+                    throw new IllegalStateException("Deposito non valido nel giornale");
+                ((Operatore) entita.get(c[0])).accredita(c[1]);
+            }
+            case PRELIEVO -> addebita((Operatore) entita.get(c[0]), c[1]);
+            case ACQUISTO -> {
+                Operatore acquirente = (Operatore) entita.get(c[0]);
+                addebita(acquirente, c[4]);
+                ((Borsa) entita.get(c[1])).ripristinaScambio((Azienda) entita.get(c[2]), acquirente, null, c[3], c[5]);
+            }
+            case VENDITA -> {
+                Operatore venditore = (Operatore) entita.get(c[0]);
+                venditore.accredita(c[4]);
+                ((Borsa) entita.get(c[1])).ripristinaScambio((Azienda) entita.get(c[2]), null, venditore, c[3], c[5]);
+            }
+            case SCAMBIO -> {
+                Operatore acquirente = (Operatore) entita.get(c[0]);
+                Operatore venditore = (Operatore) entita.get(c[1]);
+                addebita(acquirente, Math.multiplyExact(c[4], c[5]));
+                venditore.accredita(c[4] * c[5]);
+                ((Borsa) entita.get(c[2])).ripristinaScambio((Azienda) entita.get(c[3]), acquirente, venditore, c[4], c[6]);
+            }
+            case PREZZO -> ((Borsa) entita.get(c[0])).ripristinaScambio((Azienda) entita.get(c[1]), null, null, 0, c[2]);
+            default -> throw new IllegalStateException("Tipo di registrazione non valido nel giornale");
+        }
+    }
+
+    /**
+     * Ripristina un addebito registrato nel giornale, verificando che il budget
+     * dell'operatore sia sufficiente.
+     *
+     * <p> Modifica l'operatore.
+     *
+     * @param operatore l'operatore.
+     * @param importo l'importo addebitato.
+     * @throws IllegalStateException se l'importo non è positivo o il budget non è sufficiente.
+     */
+    private static void addebita(final Operatore operatore, final int importo) {
+        if (importo <= 0 || !operatore.riserva(importo))
+            throw new IllegalStateException("Addebito non valido nel giornale");
+    }
+}
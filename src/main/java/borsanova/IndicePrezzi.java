@@ -0,0 +1,229 @@
+package borsanova;
+
+import borsanova.Borsa.Azione;
+import java.util.Arrays;
+
+/**
+ * Classe che rappresenta l'indice dei prezzi delle azioni di un'{@link Azienda}
+ * nelle borse in cui è quotata.
+ *
+ * <p> L'indice è rappresentato da un elenco di posizioni, una per ogni azione,
+ * ciascuna delle quali associa l'azione al suo prezzo, e da due heap binari
+ * indicizzati sulle posizioni: uno ordinato per prezzo crescente, la cui radice
+ * è la borsa più conveniente per acquistare, e uno per prezzo decrescente, la cui
+ * radice è la borsa più conveniente per vendere. A parità di prezzo precede la
+ * borsa in cui l'azienda è stata quotata prima.
+ *
+ * <p> Con {@code k} borse, l'aggiunta di un'azione e l'aggiornamento di un prezzo
+ * richiedono tempo {@code O(log k)}, la ricerca della borsa migliore tempo costante.
+ *
+ * <p> I metodi sono sincronizzati: l'indice può essere aggiornato da più borse
+ * contemporaneamente. Il blocco dell'indice non viene mai tenuto mentre se ne
+ * acquisiscono altri, e può quindi essere acquisito tenendo quello di un'azione
+ * o di un operatore.
+ */
+final class IndicePrezzi {
+
+    /** La capacità iniziale delle posizioni. */
+    private static final int CAPACITA_INIZIALE = 2;
+
+    /** Le azioni, indicizzate per posizione. */
+    private Azione[] azioni = new Azione[CAPACITA_INIZIALE];
+
+    /** I prezzi delle azioni, indicizzati per posizione. */
+    private int[] prezzi = new int[CAPACITA_INIZIALE];
+
+    /** Il numero di posizioni occupate. */
+    private int dimensione;
+
+    /** L'heap delle posizioni per prezzo crescente. */
+    private final Heap minimi = new Heap(true);
+
+    /** L'heap delle posizioni per prezzo decrescente. */
+    private final Heap massimi = new Heap(false);
+
+    /*-
+     * AF:
+     *  - l'azione azioni[i], per 0 <= i < dimensione, ha prezzo prezzi[i].
+     *  - la borsa migliore per acquistare è quella di azioni[minimi.posizioni[0]],
+     *    quella migliore per vendere quella di azioni[massimi.posizioni[0]].
+     *
+     * RI:
+     *  - azioni e prezzi hanno la stessa lunghezza, non minore di dimensione.
+     *  - azioni[0..dimensione) sono distinte, non null, e azioni[i].posizioneIndice == i.
+     *  - i due heap contengono ciascuno le posizioni 0..dimensione-1 e rispettano
+     *    il proprio ordinamento per (prezzo, posizione).
+     */
+
+    /**
+     * Aggiunge un'azione all'indice, con il suo prezzo corrente.
+     *
+     * <p> Modifica this e la posizione dell'azione nell'indice. Il chiamante deve
+     * detenere il blocco dell'azione.
+     *
+     * @param azione l'azione, non ancora presente nell'indice.
+     */
+    synchronized void aggiungi(final Azione azione) {
+        if (dimensione == azioni.length) {
+            azioni = Arrays.copyOf(azioni, 2 * dimensione);
+            prezzi = Arrays.copyOf(prezzi, 2 * dimensione);
+        }
+        int i = dimensione++;
+        azioni[i] = azione;
+        prezzi[i] = azione.prezzo();
+        azione.posizioneIndice = i;
+        minimi.inserisci(i);
+        massimi.inserisci(i);
+    }
+
+    /**
+     * Aggiorna il prezzo di un'azione nell'indice.
+     *
+     * <p> Modifica this. Se l'azione non è ancora stata aggiunta, non fa nulla.
+     *
+     * @param azione l'azione.
+     * @param prezzo il nuovo prezzo.
+     */
+    synchronized void aggiorna(final Azione azione, final int prezzo) {
+        int i = azione.posizioneIndice;
+        if (i < 0 || prezzi[i] == prezzo)
+            return;
+        prezzi[i] = prezzo;
+        minimi.ripristina(i);
+        massimi.ripristina(i);
+    }
+
+    /**
+     * Restituisce l'azione con il prezzo migliore.
+     *
+     * @param acquisto {@code true} per il prezzo più basso, {@code false} per il più alto.
+     * @return l'azione, oppure {@code null} se l'indice è vuoto.
+     */
+    synchronized Azione migliore(final boolean acquisto) {
+        if (dimensione == 0)
+            return null;
+        return azioni[(acquisto ? minimi : massimi).posizioni[0]];
+    }
+
+    /**
+     * Restituisce le azioni presenti nell'indice, nell'ordine in cui sono state aggiunte.
+     *
+     * @return una copia dell'elenco delle azioni.
+     */
+    synchronized Azione[] elenco() {
+        return Arrays.copyOf(azioni, dimensione);
+    }
+
+    /**
+     * Heap binario indicizzato delle posizioni, ordinato per prezzo.
+     */
+    private final class Heap {
+
+        /** {@code true} se l'heap è ordinato per prezzo crescente. */
+        private final boolean crescente;
+
+        /** Le posizioni, nell'ordine dell'heap. */
+        private int[] posizioni = new int[CAPACITA_INIZIALE];
+
+        /** L'indice nell'heap di ciascuna posizione. */
+        private int[] nodi = new int[CAPACITA_INIZIALE];
+
+        /**
+         * Costruisce un heap vuoto.
+         *
+         * @param crescente {@code true} per ordinare per prezzo crescente.
+         */
+        Heap(final boolean crescente) {
+            this.crescente = crescente;
+        }
+
+        /**
+         * Indica se una posizione precede un'altra nell'heap.
+         *
+         * @param i la prima posizione.
+         * @param j la seconda posizione.
+         * @return {@code true} se {@code i} precede {@code j}.
+         */
+        private boolean precede(final int i, final int j) {
+            if (prezzi[i] != prezzi[j])
+                return crescente ? prezzi[i] < prezzi[j] : prezzi[i] > prezzi[j];
+            return i < j;
+        }
+
+        /**
+         * Inserisce l'ultima posizione aggiunta all'indice.
+         *
+         * @param i la posizione, pari a {@code dimensione - 1}.
+         */
+        void inserisci(final int i) {
+            if (i == posizioni.length) {
+                posizioni = Arrays.copyOf(posizioni, 2 * i);
+                nodi = Arrays.copyOf(nodi, 2 * i);
+            }
+            posizioni[i] = i;
+            nodi[i] = i;
+            sali(i);
+        }
+
+        /**
+         * Ripristina l'ordinamento dopo la variazione del prezzo di una posizione.
+         *
+         * @param i la posizione.
+         */
+        void ripristina(final int i) {
+            int n = nodi[i];
+            sali(n);
+            if (nodi[i] == n)
+                scendi(n);
+        }
+
+        /**
+         * Sposta verso la radice il nodo specificato finché precede il padre.
+         *
+         * @param n il nodo.
+         */
+        private void sali(int n) {
+            int i = posizioni[n];
+            while (n > 0) {
+                int padre = (n - 1) >>> 1;
+                if (!precede(i, posizioni[padre]))
+                    break;
+                sposta(posizioni[padre], n);
+                n = padre;
+            }
+            sposta(i, n);
+        }
+
+        /**
+         * Sposta verso le foglie il nodo specificato finché un figlio lo precede.
+         *
+         * @param n il nodo.
+         */
+        private void scendi(int n) {
+            int i = posizioni[n];
+            while (true) {
+                int figlio = 2 * n + 1;
+                if (figlio >= dimensione)
+                    break;
+                if (figlio + 1 < dimensione && precede(posizioni[figlio + 1], posizioni[figlio]))
+                    figlio++;
+                if (!precede(posizioni[figlio], i))
+                    break;
+                sposta(posizioni[figlio], n);
+                n = figlio;
+            }
+            sposta(i, n);
+        }
+
+        /**
+         * Colloca una posizione in un nodo.
+         *
+         * @param i la posizione.
+         * @param n il nodo.
+         */
+        private void sposta(final int i, final int n) {
+            posizioni[n] = i;
+            nodi[i] = n;
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package borsanova;
+
+import borsanova.Borsa.Azione;
+import borsanova.politicaPrezzo.PoliticaPrezzo;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Classe che scrive e carica un'istantanea binaria di un intero {@link Mercato}:
+ * le borse con la loro politica di prezzo, le azioni quotate con il loro
+ * prezzo e le quantità possedute da ciascun operatore, le aziende
+ * e gli operatori con il loro budget.
+ *
+ * <p> L'istantanea è composta, nell'ordine, da:
+ *  <ul>
+ *   <li> un numero che identifica il formato; </li>
+ *   <li> i nomi delle borse, delle aziende e degli operatori (ciascun elenco
+ *        preceduto dalla sua lunghezza, ciascun nome dalla lunghezza in byte
+ *        della sua codifica UTF-8), che li identificano tramite la loro posizione; </li>
+ *   <li> per ogni borsa, la politica di prezzo (si veda {@link CodicePolitica})
+ *        e le azioni quotate, ciascuna con azienda, azioni totali, prezzo
+ *        e l'elenco dei titolari con la quantità posseduta; </li>
+ *   <li> il budget di ogni operatore. </li>
+ *  </ul>
+ * Tutti i numeri sono interi di 4 byte, tranne il tipo della politica di prezzo.
+ * Le azioni possedute da ciascun operatore
+ * non vengono scritte una seconda volta, ma ricostruite a partire dai titolari
+ * delle azioni.
+ *
+ * <p> Come per il {@link Giornale}, gli ordini con limite in attesa non fanno parte
+ * dell'istantanea: il budget riservato dagli ordini di acquisto viene restituito
+ * agli operatori e le azioni impegnate negli ordini di vendita tornano libere.
+ *
+ * <p> L'istantanea può essere scritta mentre sono in corso altre operazioni (si veda
+ * {@link #scrivi(Mercato, Path)}) e va caricata all'avvio del programma, prima di ogni
+ * altra operazione e di aprire un giornale; per far ripartire il giornale da un'istantanea
+ * è sufficiente chiuderlo, scrivere l'istantanea e aprire un nuovo giornale in un file diverso.
+ *
+ * <p> Un'istantanea può essere caricata anche in un nuovo {@link Mercato}, ad esempio
+ * per far ripartire più simulazioni indipendenti dallo stesso stato.
+ */
+public final class Istantanea {
+
+    /** Il numero che identifica il formato dell'istantanea. */
+    private static final int FORMATO = 0x424E5332;
+
+    /** La dimensione del buffer di scrittura. */
+    private static final int DIMENSIONE_BUFFER = 1 << 20;
+
+    /** Classe di sole funzioni statiche, non istanziabile. */
+    private Istantanea() {}
+
+    /**
+     * Scrive l'istantanea del mercato globale in un file, sostituendone il contenuto.
+     *
+     * @param file il file.
+     * @throws NullPointerException se il file è {@code null}.
+     * @throws IOException se si verifica un errore di ingresso/uscita.
+     * @see #scrivi(Mercato, Path)
+     */
+    public static void scrivi(final Path file) throws IOException {
+        scrivi(Mercato.GLOBALE, file);
+    }
+
+    /**
+     * Scrive l'istantanea di un mercato in un file, sostituendone il contenuto.
+     *
+     * <p> Le azioni quotate vengono lette tutte nello stesso istante, acquisendo insieme i loro
+     * blocchi in ordine di identificativo: l'istantanea riflette tutte e sole le compravendite
+     * e le variazioni di prezzo completate prima di quell'istante. I depositi e i prelievi
+     * concorrenti, che non acquisiscono il blocco di alcuna azione, possono esservi compresi
+     * o meno, ciascuno per intero.
+     *
+     * <p> L'istantanea viene scritta in un file temporaneo nella stessa cartella, che sostituisce
+     * il file in modo atomico solo al termine della scrittura: se la scrittura non va a buon fine,
+     * il file mantiene il contenuto precedente.
+     *
+     * @param mercato il mercato.
+     * @param file il file.
+     * @throws NullPointerException se il mercato o il file sono {@code null}.
+     * @throws IllegalArgumentException se la politica di prezzo di una borsa non è una delle
+     *  politiche del package {@link borsanova.politicaPrezzo}.
+     * @throws IOException se si verifica un errore di ingresso/uscita.
+     */
+    public static void scrivi(final Mercato mercato, final Path file) throws IOException {
+        Objects.requireNonNull(mercato, "Il mercato non può essere null");
+        Objects.requireNonNull(file, "Il file non può essere null");
+        List<Borsa> borse = mercato.registroBorse.elenco();
+        List<Azienda> aziende = mercato.registroAziende.elenco();
+        Map<Azienda, Integer> idAziende = identificativi(aziende);
+        List<List<Azione>> azioniBorse = new ArrayList<>(borse.size());
+        List<Azione> bloccate = new ArrayList<>();
+        for (Borsa b : borse) {
+            List<Azione> azioni = elenco(b.azioni());
+            azioniBorse.add(azioni);
+            bloccate.addAll(azioni);
+        }
+        bloccate.sort(Comparator.comparingInt(a -> a.id));
+        PoliticaPrezzo[] politiche = new PoliticaPrezzo[borse.size()];
+        int[][] statiAzioni = new int[bloccate.size()][];
+        List<Operatore> operatori;
+        int[] idOperatori;
+        long[] capitali;
+        int bloccati = 0;
+        try {
+            for (Azione a : bloccate) {
+                a.blocco.lock();
+                bloccati++;
+            }
+            for (int i = 0; i < borse.size(); i++) {
+                politiche[i] = borse.get(i).politica();
+                CodicePolitica.lunghezza(politiche[i]); // verifica che possa essere codificata
+            }
+            // gli operatori elencati dopo aver acquisito i blocchi comprendono tutti i titolari
+            operatori = mercato.registroOperatori.elenco();
+            idOperatori = new int[mercato.identificativiOperatori.get()];
+            for (int i = 0; i < operatori.size(); i++)
+                idOperatori[operatori.get(i).id] = i;
+            capitali = new long[operatori.size()];
+            int n = 0;
+            for (List<Azione> azioni : azioniBorse)
+                for (Azione a : azioni)
+                    statiAzioni[n++] = stato(a, idAziende, idOperatori, capitali);
+            for (int i = 0; i < operatori.size(); i++)
+                capitali[i] = Math.addExact(capitali[i], operatori.get(i).budget());
+        } finally {
+            for (int i = 0; i < bloccati; i++)
+                bloccate.get(i).blocco.unlock();
+        }
+        Path temporaneo = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel canale = FileChannel.open(temporaneo, StandardOpenOption.WRITE)) {
+                Scrittore s = new Scrittore(canale);
+                s.intero(FORMATO);
+                s.intero(borse.size());
+                for (Borsa b : borse)
+                    s.nome(b.nome);
+                s.intero(aziende.size());
+                for (Azienda a : aziende)
+                    s.nome(a.nome);
+                s.intero(operatori.size());
+                for (Operatore o : operatori)
+                    s.nome(o.nome);
+                int n = 0;
+                for (int i = 0; i < borse.size(); i++) {
+                    s.politica(politiche[i]);
+                    s.intero(azioniBorse.get(i).size());
+                    for (int j = 0; j < azioniBorse.get(i).size(); j++)
+                        for (int valore : statiAzioni[n++])
+                            s.intero(valore);
+                }
+                for (long capitale : capitali)
+                    s.intero(Math.toIntExact(capitale));
+                s.svuota();
+                canale.force(true);
+            }
+            Files.move(temporaneo, file, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaneo);
+        }
+    }
+
+    /**
+     * Restituisce i numeri che descrivono un'azione nell'istantanea: azienda, azioni totali,
+     * prezzo, numero di titolari e, per ogni titolare, operatore e quantità posseduta;
+     * aggiunge inoltre al budget riservato da ciascun operatore quello impegnato negli
+     * ordini di acquisto in attesa sull'azione.
+     *
+     * <p> Il chiamante deve detenere il blocco dell'azione.
+     *
+     * @param azione l'azione.
+     * @param idAziende la posizione di ogni azienda nell'istantanea.
+     * @param idOperatori la posizione nell'istantanea di ogni operatore, indicizzata per identificativo.
+     * @param riservato il budget riservato da ciascun operatore, indicizzato per posizione; viene modificato.
+     * @return i numeri che descrivono l'azione.
+     * @throws ArithmeticException se il budget riservato da un operatore non è rappresentabile.
+     */
+    private static int[] stato(final Azione azione, final Map<Azienda, Integer> idAziende,
+            final int[] idOperatori, final long[] riservato) {
+        Allocazioni allocazioni = azione.operatoriQuantita;
+        int[] stato = new int[4 + 2 * allocazioni.dimensione()];
+        stato[0] = idAziende.get(azione.azienda());
+        stato[1] = azione.azioniTotali();
+        stato[2] = azione.prezzo();
+        stato[3] = allocazioni.dimensione();
+        for (int i = 0; i < allocazioni.dimensione(); i++) {
+            stato[4 + 2 * i] = idOperatori[allocazioni.titolare(i).id];
+            stato[5 + 2 * i] = allocazioni.quantita(i);
+        }
+        LibroOrdini libro = azione.libro;
+        for (int i = 0; i < libro.posizioni(); i++)
+            if (libro.quantita(i) > 0 && libro.acquisto(i)) {
+                int titolare = idOperatori[libro.titolare(i).id];
+                riservato[titolare] = Math.addExact(riservato[titolare], (long) libro.quantita(i) * libro.prezzo(i));
+            }
+        return stato;
+    }
+
+    /**
+     * Carica nel mercato globale l'istantanea contenuta in un file.
+     *
+     * <p> Modifica le borse, le aziende e gli operatori dell'istantanea,
+     * creandoli se necessario.
+     *
+     * @param file il file.
+     * @throws NullPointerException se il file è {@code null}.
+     * @throws IllegalStateException se è aperto un {@link Giornale}.
+     * @throws IOException se si verifica un errore di ingresso/uscita o se il file
+     *  non contiene un'istantanea valida.
+     * @see #carica(Mercato, Path)
+     */
+    public static void carica(final Path file) throws IOException {
+        carica(Mercato.GLOBALE, file);
+    }
+
+    /**
+     * Carica in un mercato l'istantanea contenuta in un file.
+     *
+     * <p> Modifica le borse, le aziende e gli operatori del mercato presenti
+     * nell'istantanea, creandoli se necessario.
+     *
+     * <p> Per caricare rapidamente molti operatori, questi vengono registrati in blocco
+     * e i loro possessi vengono impostati senza acquisirne i blocchi: il mercato non
+     * deve essere usato da altri thread durante il caricamento.
+     *
+     * @param mercato il mercato.
+     * @param file il file.
+     * @throws NullPointerException se il mercato o il file sono {@code null}.
+     * @throws IllegalStateException se il mercato è quello globale ed è aperto un {@link Giornale}.
+     * @throws IOException se si verifica un errore di ingresso/uscita o se il file
+     *  non contiene un'istantanea valida.
+     */
+    public static void carica(final Mercato mercato, final Path file) throws IOException {
+        Objects.requireNonNull(mercato, "Il mercato non può essere null");
+        Objects.requireNonNull(file, "Il file non può essere null");
+        if (mercato == Mercato.GLOBALE && Giornale.attivo())
+            throw new IllegalStateException("L'istantanea deve essere caricata prima di aprire il giornale");
+        MappedByteBuffer dati;
+        try (FileChannel canale = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (canale.size() > Integer.MAX_VALUE)
+                throw new IOException("L'istantanea è troppo grande");
+            dati = canale.map(FileChannel.MapMode.READ_ONLY, 0, canale.size());
+        }
+        try {
+            if (dati.getInt() != FORMATO)
+                throw new IOException("Il file non contiene un'istantanea");
+            LettoreNomi nomi = new LettoreNomi(dati);
+            Borsa[] borse = new Borsa[dati.getInt()];
+            mercato.registroBorse.riserva(borse.length);
+            for (int i = 0; i < borse.length; i++)
+                borse[i] = mercato.borsa(nomi.nome());
+            Azienda[] aziende = new Azienda[dati.getInt()];
+            mercato.registroAziende.riserva(aziende.length);
+            for (int i = 0; i < aziende.length; i++)
+                aziende[i] = mercato.azienda(nomi.nome());
+            Operatore[] operatori = new Operatore[dati.getInt()];
+            mercato.registroOperatori.riserva(operatori.length);
+            for (int i = 0; i < operatori.length; i++) {
+                String nome = nomi.nome();
+                if (nome.isBlank())
+                    throw new IllegalArgumentException("Il nome dell'operatore non può essere vuoto");
+                operatori[i] = mercato.registroOperatori.nuova(nome);
+            }
+            for (Borsa b : borse) {
+                b.politica(CodicePolitica.decodifica(dati));
+                for (int n = dati.getInt(); n > 0; n--) {
+                    Azienda azienda = aziende[dati.getInt()];
+                    int azioniTotali = dati.getInt();
+                    int prezzo = dati.getInt();
+                    azienda.quotaInBorsa(b, azioniTotali, prezzo);
+                    Azione azione = b.prendiAzione(azienda);
+                    int titolari = dati.getInt();
+                    azione.blocco.lock();
+                    try {
+                        azione.operatoriQuantita.riserva(titolari);
+                        for (int t = 0; t < titolari; t++) {
+                            Operatore titolare = operatori[dati.getInt()];
+                            int quantita = dati.getInt();
+                            azione.operatoriQuantita.carica(titolare, quantita);
+                            titolare.caricaPossesso(azione, quantita);
+                        }
+                    } finally {
+                        azione.blocco.unlock();
+                    }
+                }
+            }
+            for (Operatore o : operatori) {
+                int budget = dati.getInt();
+                if (budget != 0)
+                    o.accredita(budget);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("L'istantanea non è valida", e);
+        }
+    }
+
+    /**
+     * Copia gli elementi di un {@link Iterable} in una lista.
+     *
+     * @param <T> il tipo degli elementi.
+     * @param elementi gli elementi.
+     * @return la lista degli elementi.
+     */
+    private static <T> List<T> elenco(final Iterable<T> elementi) {
+        List<T> lista = new ArrayList<>();
+        for (T e : elementi)
+            lista.add(e);
+        return lista;
+    }
+
+    /**
+     * Associa ad ogni elemento di una lista la sua posizione.
+     *
+     * @param <T> il tipo degli elementi.
+     * @param elementi la lista.
+     * @return la mappa dagli elementi alle loro posizioni.
+     */
+    private static <T> Map<T, Integer> identificativi(final List<T> elementi) {
+        Map<T, Integer> identificativi = new HashMap<>(2 * elementi.size());
+        for (int i = 0; i < elementi.size(); i++)
+            identificativi.put(elementi.get(i), i);
+        return identificativi;
+    }
+
+    /**
+     * Lettore dei nomi dell'istantanea, che riusa lo stesso array per la loro codifica.
+     */
+    private static final class LettoreNomi {
+
+        /** L'istantanea. */
+        private final ByteBuffer dati;
+
+        /** L'array in cui copiare la codifica di ciascun nome. */
+        private byte[] codifica = new byte[64];
+
+        /**
+         * Costruisce un lettore dei nomi dell'istantanea specificata.
+         *
+         * @param dati l'istantanea.
+         */
+        LettoreNomi(final ByteBuffer dati) {
+            this.dati = dati;
+        }
+
+        /**
+         * Legge un nome, preceduto dalla lunghezza in byte della sua codifica UTF-8.
+         *
+         * @return il nome.
+         */
+        String nome() {
+            int lunghezza = dati.getInt();
+            if (codifica.length < lunghezza)
+                codifica = new byte[Math.max(lunghezza, 2 * codifica.length)];
+            dati.get(codifica, 0, lunghezza);
+            return new String(codifica, 0, lunghezza, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Scrittore bufferizzato dell'istantanea su un canale.
+     */
+    private static final class Scrittore {
+
+        /** Il canale su cui scrivere. */
+        private final FileChannel canale;
+
+        /** Il buffer di scrittura. */
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(DIMENSIONE_BUFFER);
+
+        /**
+         * Costruisce uno scrittore sul canale specificato.
+         *
+         * @param canale il canale.
+         */
+        Scrittore(final FileChannel canale) {
+            this.canale = canale;
+        }
+
+        /**
+         * Scrive un intero.
+         *
+         * @param valore l'intero.
+         * @throws IOException se si verifica un errore di ingresso/uscita.
+         */
+        void intero(final int valore) throws IOException {
+            if (buffer.remaining() < 4)
+                svuota();
+            buffer.putInt(valore);
+        }
+
+        /**
+         * Scrive una politica di prezzo, codificata da {@link CodicePolitica}.
+         *
+         * @param politica la politica, che può essere codificata.
+         * @throws IOException se si verifica un errore di ingresso/uscita.
+         */
+        void politica(final PoliticaPrezzo politica) throws IOException {
+            if (buffer.remaining() < CodicePolitica.lunghezza(politica))
+                svuota();
+            CodicePolitica.codifica(politica, buffer);
+        }
+
+        /**
+         * Scrive un nome, preceduto dalla lunghezza in byte della sua codifica UTF-8.
+         *
+         * @param nome il nome.
+         * @throws IOException se si verifica un errore di ingresso/uscita.
+         */
+        void nome(final String nome) throws IOException {
+            byte[] codifica = nome.getBytes(StandardCharsets.UTF_8);
+            intero(codifica.length);
+            for (int i = 0; i < codifica.length; ) {
+                if (!buffer.hasRemaining())
+                    svuota();
+                int n = Math.min(buffer.remaining(), codifica.length - i);
+                buffer.put(codifica, i, n);
+                i += n;
+            }
+        }
+
+        /**
+         * Scrive sul canale il contenuto del buffer.
+         *
+         * @throws IOException se si verifica un errore di ingresso/uscita.
+         */
+        void svuota() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                canale.write(buffer);
+            buffer.clear();
+        }
+    }
+}
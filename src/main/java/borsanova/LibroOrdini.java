@@ -0,0 +1,445 @@
+package borsanova;
+
+import java.util.Arrays;
+
+/**
+ * Classe che rappresenta il libro degli ordini con limite di prezzo
+ * in attesa per un'azione.
+ *
+ * <p> Il libro è rappresentato da:
+ *  <ul>
+ *   <li> un insieme di ordini, memorizzati in vettori di tipi primitivi indicizzati
+ *        da interi (con una lista delle posizioni libere da riutilizzare); </li>
+ *   <li> due lati, quello degli ordini di acquisto e quello degli ordini di vendita,
+ *        ciascuno dei quali è un elenco ordinato di livelli di prezzo; </li>
+ *   <li> per ogni livello di prezzo una coda degli ordini a quel prezzo, in ordine
+ *        di arrivo, realizzata collegando gli ordini tra loro (coda intrusiva). </li>
+ *  </ul>
+ *
+ * <p> Il miglior livello di ciascun lato (il prezzo più alto per gli acquisti,
+ * il più basso per le vendite) è l'ultimo del suo elenco, e il primo ordine della sua coda
+ * è quello con la priorità più alta: gli ordini vengono quindi abbinati con priorità
+ * di prezzo e, a parità di prezzo, di tempo. Le operazioni sul libro non allocano memoria
+ * se non quando è necessario ingrandire le strutture interne.
+ *
+ * <p> Ogni ordine è identificato da un numero che combina la sua posizione con il numero
+ * di volte che la posizione è stata riutilizzata, così che l'identificativo di un ordine
+ * eseguito o annullato non possa riferirsi per errore a un ordine successivo.
+ *
+ * <p> La classe è visibile solo all'interno del package: è {@link Borsa} ad eseguire
+ * gli abbinamenti e a regolare gli scambi, detenendo il blocco dell'azione.
+ */
+final class LibroOrdini {
+
+    /** Il valore che indica l'assenza di un ordine. */
+    static final int NESSUNO = -1;
+
+    /** La capacità iniziale degli ordini e dei livelli. */
+    private static final int CAPACITA_INIZIALE = 4;
+
+    /** La quantità residua di ciascun ordine, 0 per le posizioni libere. */
+    private int[] quantita = new int[CAPACITA_INIZIALE];
+
+    /** Il prezzo limite di ciascun ordine. */
+    private int[] prezzo = new int[CAPACITA_INIZIALE];
+
+    /** Il lato di ciascun ordine: {@code true} per gli acquisti. */
+    private boolean[] acquisto = new boolean[CAPACITA_INIZIALE];
+
+    /** L'operatore che ha inserito ciascun ordine. */
+    private Operatore[] titolare = new Operatore[CAPACITA_INIZIALE];
+
+    /** L'ordine successivo nella coda del livello (o nella lista delle posizioni libere). */
+    private int[] successivo = new int[CAPACITA_INIZIALE];
+
+    /** L'ordine precedente nella coda del livello. */
+    private int[] precedente = new int[CAPACITA_INIZIALE];
+
+    /** Il numero di riutilizzi di ciascuna posizione. */
+    private int[] generazione = new int[CAPACITA_INIZIALE];
+
+    /** Il numero di posizioni mai utilizzate. */
+    private int usate;
+
+    /** La prima posizione libera da riutilizzare. */
+    private int libera = NESSUNO;
+
+    /** Il lato degli ordini di acquisto. */
+    private final Lato acquisti = new Lato(true);
+
+    /** Il lato degli ordini di vendita. */
+    private final Lato vendite = new Lato(false);
+
+    /*-
+     * AF:
+     *  - per ogni posizione 0 <= i < usate con quantita[i] > 0, il libro contiene un
+     *    ordine di titolare[i], di acquisto se acquisto[i] (di vendita altrimenti),
+     *    per quantita[i] azioni al prezzo limite prezzo[i],
+     *    identificato da (generazione[i] << 32) | i.
+     *  - l'ordine di priorità degli ordini di un lato è dato dai livelli del lato,
+     *    dall'ultimo al primo, e dalle code di ciascun livello, dalla testa alla coda.
+     *
+     * RI:
+     *  - tutti i vettori non sono null e hanno la stessa lunghezza, non minore di usate.
+     *  - per ogni 0 <= i < usate: quantita[i] >= 0; se quantita[i] > 0 allora prezzo[i] > 0,
+     *    titolare[i] non è null e i compare in un'unica coda, del livello di prezzo prezzo[i]
+     *    del lato acquisto[i]; se quantita[i] == 0 allora titolare[i] è null e i compare
+     *    nella lista delle posizioni libere che parte da libera, collegata da successivo.
+     *  - le code sono doppiamente collegate in modo coerente da successivo e precedente.
+     *  - ciascun lato rispetta il proprio invariante (si veda Lato).
+     */
+
+    /**
+     * Restituisce il lato degli ordini di acquisto o di vendita.
+     *
+     * @param acquisto {@code true} per il lato degli acquisti.
+     * @return il lato.
+     */
+    private Lato lato(final boolean acquisto) {
+        return acquisto ? acquisti : vendite;
+    }
+
+    /**
+     * Inserisce un ordine in coda al suo livello di prezzo.
+     *
+     * <p> Modifica this.
+     *
+     * @param operatore l'operatore che inserisce l'ordine.
+     * @param acquisto {@code true} per un ordine di acquisto.
+     * @param limite il prezzo limite, deve essere positivo.
+     * @param q la quantità, deve essere positiva.
+     * @return l'identificativo dell'ordine.
+     */
+    long inserisci(final Operatore operatore, final boolean acquisto, final int limite, final int q) {
+        int i = alloca();
+        quantita[i] = q;
+        prezzo[i] = limite;
+        this.acquisto[i] = acquisto;
+        titolare[i] = operatore;
+        lato(acquisto).accoda(i, limite, q);
+        return ((long) generazione[i] << 32) | i;
+    }
+
+    /**
+     * Restituisce la posizione dell'ordine con l'identificativo specificato.
+     *
+     * @param identificativo l'identificativo dell'ordine.
+     * @return la posizione, oppure {@link #NESSUNO} se l'ordine
+     *  non è (più) presente nel libro.
+     */
+    int ordine(final long identificativo) {
+        int i = (int) identificativo;
+        if (i < 0 || i >= usate || quantita[i] == 0 || generazione[i] != (int) (identificativo >>> 32))
+            return NESSUNO;
+        return i;
+    }
+
+    /**
+     * Restituisce l'ordine con la priorità più alta di un lato.
+     *
+     * @param acquisto {@code true} per il lato degli acquisti.
+     * @return la posizione dell'ordine, oppure {@link #NESSUNO} se il lato è vuoto.
+     */
+    int migliore(final boolean acquisto) {
+        return lato(acquisto).primo();
+    }
+
+    /**
+     * Restituisce il miglior prezzo di un lato.
+     *
+     * @param acquisto {@code true} per il lato degli acquisti.
+     * @return il miglior prezzo, oppure 0 se il lato è vuoto.
+     */
+    int migliorPrezzo(final boolean acquisto) {
+        return lato(acquisto).migliorPrezzo();
+    }
+
+    /**
+     * Restituisce la quantità complessiva offerta al miglior prezzo di un lato.
+     *
+     * @param acquisto {@code true} per il lato degli acquisti.
+     * @return la quantità, oppure 0 se il lato è vuoto.
+     */
+    int migliorVolume(final boolean acquisto) {
+        return lato(acquisto).migliorVolume();
+    }
+
+    /**
+     * Restituisce il numero di posizioni usate dal libro: gli ordini in attesa
+     * sono quelli nelle posizioni comprese tra 0 e tale numero (escluso)
+     * la cui quantità residua è positiva.
+     *
+     * @return il numero di posizioni usate.
+     */
+    int posizioni() {
+        return usate;
+    }
+
+    /**
+     * Restituisce la quantità residua di un ordine.
+     *
+     * @param i la posizione dell'ordine.
+     * @return la quantità residua.
+     */
+    int quantita(final int i) {
+        return quantita[i];
+    }
+
+    /**
+     * Restituisce il prezzo limite di un ordine.
+     *
+     * @param i la posizione dell'ordine.
+     * @return il prezzo limite.
+     */
+    int prezzo(final int i) {
+        return prezzo[i];
+    }
+
+    /**
+     * Indica se un ordine è di acquisto.
+     *
+     * @param i la posizione dell'ordine.
+     * @return {@code true} se l'ordine è di acquisto.
+     */
+    boolean acquisto(final int i) {
+        return acquisto[i];
+    }
+
+    /**
+     * Restituisce l'operatore che ha inserito un ordine.
+     *
+     * @param i la posizione dell'ordine.
+     * @return l'operatore.
+     */
+    Operatore titolare(final int i) {
+        return titolare[i];
+    }
+
+    /**
+     * Riduce la quantità residua di un ordine, rimuovendolo dal libro se si azzera.
+     *
+     * <p> Modifica this.
+     *
+     * @param i la posizione dell'ordine.
+     * @param q la quantità eseguita, positiva e non maggiore di quella residua.
+     */
+    void riduci(final int i, final int q) {
+        if (quantita[i] == q) {
+            rimuovi(i);
+            return;
+        }
+        quantita[i] -= q;
+        lato(acquisto[i]).riduci(prezzo[i], q);
+    }
+
+    /**
+     * Rimuove un ordine dal libro.
+     *
+     * <p> Modifica this.
+     *
+     * @param i la posizione dell'ordine.
+     */
+    void rimuovi(final int i) {
+        lato(acquisto[i]).togli(i, prezzo[i], quantita[i]);
+        quantita[i] = 0;
+        titolare[i] = null;
+        generazione[i]++;
+        successivo[i] = libera;
+        libera = i;
+    }
+
+    /**
+     * Restituisce una posizione libera, riutilizzandone una o ingrandendo i vettori.
+     *
+     * <p> Modifica this.
+     *
+     * @return la posizione.
+     */
+    private int alloca() {
+        if (libera != NESSUNO) {
+            int i = libera;
+            libera = successivo[i];
+            return i;
+        }
+        if (usate == quantita.length) {
+            int capacita = 2 * quantita.length;
+            quantita = Arrays.copyOf(quantita, capacita);
+            prezzo = Arrays.copyOf(prezzo, capacita);
+            acquisto = Arrays.copyOf(acquisto, capacita);
+            titolare = Arrays.copyOf(titolare, capacita);
+            successivo = Arrays.copyOf(successivo, capacita);
+            precedente = Arrays.copyOf(precedente, capacita);
+            generazione = Arrays.copyOf(generazione, capacita);
+        }
+        return usate++;
+    }
+
+    /**
+     * Classe che rappresenta un lato del libro: un elenco di livelli di prezzo
+     * ordinati in modo che il migliore sia l'ultimo.
+     *
+     * <p> Per rendere l'ordinamento uniforme, ogni livello è ordinato per chiave crescente,
+     * dove la chiave è il prezzo per gli acquisti e l'opposto del prezzo per le vendite.
+     */
+    private final class Lato {
+
+        /** {@code true} se questo è il lato degli acquisti. */
+        private final boolean acquisto;
+
+        /** Le chiavi dei livelli, in ordine crescente. */
+        private int[] chiavi = new int[CAPACITA_INIZIALE];
+
+        /** Il primo ordine della coda di ciascun livello. */
+        private int[] teste = new int[CAPACITA_INIZIALE];
+
+        /** L'ultimo ordine della coda di ciascun livello. */
+        private int[] code = new int[CAPACITA_INIZIALE];
+
+        /** La quantità complessiva degli ordini di ciascun livello. */
+        private int[] volumi = new int[CAPACITA_INIZIALE];
+
+        /** Il numero di livelli. */
+        private int livelli;
+
+        /*-
+         * AF:
+         *  - per ogni 0 <= j < livelli, il livello j ha prezzo |chiavi[j]|, la sua coda va
+         *    da teste[j] a code[j] e la quantità complessiva dei suoi ordini è volumi[j].
+         *
+         * RI:
+         *  - i vettori non sono null, hanno la stessa lunghezza, non minore di livelli.
+         *  - chiavi[0..livelli) è strettamente crescente; chiavi[j] > 0 se acquisto, < 0 altrimenti.
+         *  - per ogni livello la coda non è vuota e volumi[j] è la somma delle quantità dei suoi ordini.
+         */
+
+        /**
+         * Costruisce un lato vuoto.
+         *
+         * @param acquisto {@code true} per il lato degli acquisti.
+         */
+        Lato(final boolean acquisto) {
+            this.acquisto = acquisto;
+        }
+
+        /**
+         * Restituisce la chiave di un prezzo.
+         *
+         * @param p il prezzo.
+         * @return la chiave.
+         */
+        private int chiave(final int p) {
+            return acquisto ? p : -p;
+        }
+
+        /**
+         * Cerca un livello per prezzo con una ricerca binaria.
+         *
+         * @param p il prezzo.
+         * @return l'indice del livello se presente, altrimenti {@code -(punto di inserimento) - 1}.
+         */
+        private int cerca(final int p) {
+            return Arrays.binarySearch(chiavi, 0, livelli, chiave(p));
+        }
+
+        /**
+         * Restituisce il primo ordine del miglior livello.
+         *
+         * @return la posizione dell'ordine, oppure {@link #NESSUNO} se il lato è vuoto.
+         */
+        int primo() {
+            return livelli == 0 ? NESSUNO : teste[livelli - 1];
+        }
+
+        /**
+         * Restituisce il miglior prezzo.
+         *
+         * @return il miglior prezzo, oppure 0 se il lato è vuoto.
+         */
+        int migliorPrezzo() {
+            return livelli == 0 ? 0 : Math.abs(chiavi[livelli - 1]);
+        }
+
+        /**
+         * Restituisce la quantità complessiva del miglior livello.
+         *
+         * @return la quantità, oppure 0 se il lato è vuoto.
+         */
+        int migliorVolume() {
+            return livelli == 0 ? 0 : volumi[livelli - 1];
+        }
+
+        /**
+         * Accoda un ordine al livello del suo prezzo, creando il livello se necessario.
+         *
+         * <p> Modifica this.
+         *
+         * @param i la posizione dell'ordine.
+         * @param p il prezzo dell'ordine.
+         * @param q la quantità dell'ordine.
+         */
+        void accoda(final int i, final int p, final int q) {
+            int j = cerca(p);
+            successivo[i] = NESSUNO;
+            if (j < 0) {
+                j = -j - 1;
+                if (livelli == chiavi.length) {
+                    chiavi = Arrays.copyOf(chiavi, 2 * livelli);
+                    teste = Arrays.copyOf(teste, 2 * livelli);
+                    code = Arrays.copyOf(code, 2 * livelli);
+                    volumi = Arrays.copyOf(volumi, 2 * livelli);
+                }
+                System.arraycopy(chiavi, j, chiavi, j + 1, livelli - j);
+                System.arraycopy(teste, j, teste, j + 1, livelli - j);
+                System.arraycopy(code, j, code, j + 1, livelli - j);
+                System.arraycopy(volumi, j, volumi, j + 1, livelli - j);
+                livelli++;
+                chiavi[j] = chiave(p);
+                teste[j] = i;
+                volumi[j] = 0;
+                precedente[i] = NESSUNO;
+            } else {
+                successivo[code[j]] = i;
+                precedente[i] = code[j];
+            }
+            code[j] = i;
+            volumi[j] += q;
+        }
+
+        /**
+         * Riduce la quantità complessiva di un livello.
+         *
+         * <p> Modifica this.
+         *
+         * @param p il prezzo del livello.
+         * @param q la quantità da sottrarre.
+         */
+        void riduci(final int p, final int q) {
+            volumi[cerca(p)] -= q;
+        }
+
+        /**
+         * Toglie un ordine dalla coda del suo livello, eliminando il livello se resta vuoto.
+         *
+         * <p> Modifica this.
+         *
+         * @param i la posizione dell'ordine.
+         * @param p il prezzo dell'ordine.
+         * @param q la quantità residua dell'ordine.
+         */
+        void togli(final int i, final int p, final int q) {
+            int j = cerca(p);
+            if (precedente[i] == NESSUNO) teste[j] = successivo[i];
+            else successivo[precedente[i]] = successivo[i];
+            if (successivo[i] == NESSUNO) code[j] = precedente[i];
+            else precedente[successivo[i]] = precedente[i];
+            volumi[j] -= q;
+            if (teste[j] == NESSUNO) {
+                livelli--;
+                System.arraycopy(chiavi, j + 1, chiavi, j, livelli - j);
+                System.arraycopy(teste, j + 1, teste, j, livelli - j);
+                System.arraycopy(code, j + 1, code, j, livelli - j);
+                System.arraycopy(volumi, j + 1, volumi, j, livelli - j);
+            }
+        }
+    }
+}
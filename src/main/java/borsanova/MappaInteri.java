@@ -0,0 +1,185 @@
+package borsanova;
+
+import java.util.Arrays;
+
+/**
+ * Classe che rappresenta una mappa da interi non negativi a interi non negativi.
+ *
+ * <p> La mappa è una tabella hash ad indirizzamento aperto, con sondaggio lineare
+ * e cancellazione con spostamento all'indietro, rappresentata da due array di interi:
+ * le operazioni di interrogazione, inserimento e rimozione richiedono tempo costante
+ * (ammortizzato) e non allocano memoria se non quando è necessario ingrandire la tabella.
+ *
+ * <p> La classe è visibile solo all'interno del package e non è sincronizzata.
+ */
+final class MappaInteri {
+
+    /** Il valore restituito da {@link #get(int)} per le chiavi assenti. */
+    static final int ASSENTE = -1;
+
+    /** La capacità iniziale della tabella. */
+    private static final int CAPACITA_INIZIALE = 8;
+
+    /** Le chiavi, indicizzate per cella; {@link #ASSENTE} nelle celle vuote. */
+    private int[] chiavi;
+
+    /** I valori, indicizzati per cella. */
+    private int[] valori;
+
+    /** Il numero di chiavi presenti. */
+    private int dimensione;
+
+    /*-
+     * AF:
+     *  - la mappa associa chiavi[h] a valori[h] per ogni cella h con chiavi[h] != ASSENTE.
+     *
+     * RI:
+     *  - chiavi e valori non sono null e hanno la stessa lunghezza, una potenza di 2
+     *    maggiore del doppio di dimensione.
+     *  - dimensione è il numero di celle con chiavi[h] != ASSENTE; le chiavi presenti
+     *    sono distinte e non negative, i valori corrispondenti non negativi.
+     *  - ogni chiave presente è raggiungibile dal sondaggio lineare a partire da
+     *    hash(chiave) senza attraversare celle vuote.
+     */
+
+    /**
+     * Costruisce una mappa vuota.
+     */
+    MappaInteri() {
+        chiavi = new int[CAPACITA_INIZIALE];
+        valori = new int[CAPACITA_INIZIALE];
+        Arrays.fill(chiavi, ASSENTE);
+    }
+
+    /**
+     * Restituisce il numero di chiavi presenti.
+     *
+     * @return il numero di chiavi.
+     */
+    int dimensione() {
+        return dimensione;
+    }
+
+    /**
+     * Restituisce il valore associato a una chiave.
+     *
+     * @param chiave la chiave, non negativa.
+     * @return il valore, oppure {@link #ASSENTE} se la chiave non è presente.
+     */
+    int get(final int chiave) {
+        int h = cella(chiave);
+        return chiavi[h] == ASSENTE ? ASSENTE : valori[h];
+    }
+
+    /**
+     * Associa un valore a una chiave, sostituendo quello eventualmente presente.
+     *
+     * <p> Modifica this.
+     *
+     * @param chiave la chiave, non negativa.
+     * @param valore il valore, non negativo.
+     */
+    void put(final int chiave, final int valore) {
+        int h = cella(chiave);
+        if (chiavi[h] == ASSENTE) {
+            if (2 * (dimensione + 1) >= chiavi.length) {
+                ingrandisci();
+                h = cella(chiave);
+            }
+            chiavi[h] = chiave;
+            dimensione++;
+        }
+        valori[h] = valore;
+    }
+
+    /**
+     * Predispone la mappa a contenere il numero di chiavi specificato
+     * senza doversi ingrandire durante gli inserimenti successivi.
+     *
+     * <p> Modifica this.
+     *
+     * @param attese il numero di chiavi attese.
+     */
+    void riserva(final int attese) {
+        int capacita = chiavi.length;
+        while (2 * attese >= capacita) capacita *= 2;
+        if (capacita > chiavi.length) ridimensiona(capacita);
+    }
+
+    /**
+     * Rimuove una chiave, se presente.
+     *
+     * <p> Modifica this.
+     *
+     * @param chiave la chiave, non negativa.
+     */
+    void remove(final int chiave) {
+        int maschera = chiavi.length - 1;
+        int libera = cella(chiave);
+        if (chiavi[libera] == ASSENTE) return;
+        for (int h = (libera + 1) & maschera; chiavi[h] != ASSENTE; h = (h + 1) & maschera) {
+            int naturale = hash(chiavi[h]) & maschera;
+            if (((h - naturale) & maschera) >= ((h - libera) & maschera)) {
+                chiavi[libera] = chiavi[h];
+                valori[libera] = valori[h];
+                libera = h;
+            }
+        }
+        chiavi[libera] = ASSENTE;
+        dimensione--;
+    }
+
+    /**
+     * Restituisce la cella che contiene una chiave o, se la chiave non è
+     * presente, la prima cella vuota in cui inserirla.
+     *
+     * @param chiave la chiave.
+     * @return la cella.
+     */
+    private int cella(final int chiave) {
+        int maschera = chiavi.length - 1;
+        int h = hash(chiave) & maschera;
+        while (chiavi[h] != ASSENTE && chiavi[h] != chiave) h = (h + 1) & maschera;
+        return h;
+    }
+
+    /**
+     * Raddoppia la capacità della tabella, reinserendo le chiavi presenti.
+     *
+     * <p> Modifica this.
+     */
+    private void ingrandisci() {
+        ridimensiona(2 * chiavi.length);
+    }
+
+    /**
+     * Porta la capacità della tabella al valore specificato, reinserendo le chiavi presenti.
+     *
+     * <p> Modifica this.
+     *
+     * @param capacita la nuova capacità, una potenza di 2 maggiore del doppio di {@link #dimensione()}.
+     */
+    private void ridimensiona(final int capacita) {
+        int[] vecchieChiavi = chiavi, vecchiValori = valori;
+        chiavi = new int[capacita];
+        valori = new int[chiavi.length];
+        Arrays.fill(chiavi, ASSENTE);
+        for (int h = 0; h < vecchieChiavi.length; h++)
+            if (vecchieChiavi[h] != ASSENTE) {
+                int c = cella(vecchieChiavi[h]);
+                chiavi[c] = vecchieChiavi[h];
+                valori[c] = vecchiValori[h];
+            }
+    }
+
+    /**
+     * Restituisce il codice hash, ben distribuito, di una chiave.
+     *
+     * @param chiave la chiave.
+     * @return il codice hash.
+     */
+    private static int hash(final int chiave) {
+        int h = chiave * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,294 @@
+package borsanova;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Classe che rappresenta un mercato: l'insieme delle borse, delle aziende e
+ * degli operatori che possono interagire tra loro.
+ *
+ * <p> Ogni Mercato possiede i propri registri delle istanze, indicizzate per nome:
+ * all'interno di un mercato il nome di una borsa, di un'azienda o di un operatore
+ * è unico, mentre mercati diversi possono contenere istanze con lo stesso nome,
+ * distinte tra loro. I mercati non condividono alcuno stato modificabile né alcun
+ * blocco: mercati diversi possono essere usati da thread diversi in parallelo,
+ * senza interferire, ad esempio per eseguire simulazioni indipendenti.
+ *
+ * <p> Un'azienda può essere quotata solo in una borsa del proprio mercato, e un
+ * operatore può operare solo nelle borse del proprio mercato.
+ *
+ * <p> Un mercato può <em>rilasciare gli operatori inattivi</em> (si veda
+ * {@link #Mercato(boolean)}), per limitare la memoria occupata da molti operatori
+ * creati e poi abbandonati.
+ *
+ * <p> I metodi di fabbricazione {@link Borsa#of(String)}, {@link Azienda#of(String)}
+ * e {@link Operatore#of(String)} usano il mercato globale (si veda {@link #globale()}),
+ * l'unico i cui eventi vengono registrati nel {@link Giornale}.
+ *
+ * <p> Le operazioni di un Mercato possono essere invocate da più thread
+ * contemporaneamente.
+ */
+public final class Mercato {
+
+    /** Il numero da assegnare al prossimo mercato creato. */
+    private static final AtomicLong NUMERI = new AtomicLong();
+
+    /** Il mercato globale. */
+    static final Mercato GLOBALE = new Mercato();
+
+    /**
+     * Il numero di questo Mercato, che ne indica l'ordine di creazione; ordina
+     * le entità con lo stesso nome di mercati diversi (si veda {@link Nomi}).
+     */
+    final long numero = NUMERI.getAndIncrement();
+
+    /** Registro delle borse di questo Mercato, indicizzate per nome. */
+    final Registro<Borsa> registroBorse = new Registro<>(nome -> new Borsa(this, nome));
+
+    /** Registro delle aziende di questo Mercato, indicizzate per nome. */
+    final Registro<Azienda> registroAziende = new Registro<>(nome -> new Azienda(this, nome));
+
+    /** Registro degli operatori di questo Mercato, indicizzati per nome. */
+    final Registro<Operatore> registroOperatori;
+
+    /** La classifica degli operatori di questo Mercato per capitale totale. */
+    final ClassificaCapitali capitali;
+
+    /**
+     * Gli operatori con budget non nullo, indicizzati per nome, se questo Mercato
+     * rilascia gli operatori inattivi; {@code null} altrimenti.
+     */
+    private final ConcurrentHashMap<String, Operatore> fissati;
+
+    /** Il prossimo identificativo da assegnare a una borsa di questo Mercato. */
+    final AtomicInteger identificativiBorse = new AtomicInteger();
+
+    /** Il prossimo identificativo da assegnare a un'azienda di questo Mercato. */
+    final AtomicInteger identificativiAziende = new AtomicInteger();
+
+    /** Il prossimo identificativo da assegnare a un operatore di questo Mercato. */
+    final AtomicInteger identificativiOperatori = new AtomicInteger();
+
+    /** Il prossimo identificativo da assegnare a un'azione quotata in questo Mercato. */
+    final AtomicInteger identificativiAzioni = new AtomicInteger();
+
+    /*-
+     * AF:
+     *  - il mercato contiene le borse, le aziende e gli operatori registrati
+     *    rispettivamente in registroBorse, registroAziende e registroOperatori.
+     *
+     * RI:
+     *  - i campi diversi da fissati non sono null.
+     *  - numero è diverso dal numero di ogni altro Mercato.
+     *  - ogni istanza registrata appartiene a questo Mercato.
+     *  - capitali classifica gli operatori di registroOperatori.
+     *  - fissati è null se e solo se registroOperatori è senza rilascio; altrimenti
+     *    contiene ogni operatore di registroOperatori con budget non nullo, salvo
+     *    durante la variazione del budget.
+     *  - identificativiBorse, identificativiAziende e identificativiOperatori sono
+     *    maggiori dell'identificativo di ogni borsa, azienda e operatore di questo Mercato.
+     *  - identificativiAzioni è maggiore dell'identificativo di ogni azione quotata
+     *    in una borsa di questo Mercato.
+     */
+
+    /**
+     * Costruisce un nuovo Mercato, senza borse, aziende né operatori,
+     * che non rilascia gli operatori inattivi.
+     */
+    public Mercato() {
+        this(false);
+    }
+
+    /**
+     * Costruisce un nuovo Mercato, senza borse, aziende né operatori.
+     *
+     * <p> Se {@code rilascioOperatori} è {@code true}, il registro degli operatori
+     * conserva gli operatori inattivi (senza budget, senza azioni possedute e senza
+     * ordini in attesa) solo finché sono raggiungibili dal resto del programma: un
+     * operatore inattivo non più referenziato viene rilasciato dal garbage collector
+     * e non compare più in {@link #operatori()}; una successiva invocazione di
+     * {@link #operatore(String)} con lo stesso nome crea un nuovo operatore, inattivo
+     * come il precedente. Finché un operatore è raggiungibile, {@link #operatore(String)}
+     * restituisce sempre la stessa istanza. Gli operatori con budget non nullo vengono
+     * mantenuti dal mercato, quelli con azioni possedute o ordini in attesa dalle
+     * rispettive azioni; la classifica per capitale totale (si veda
+     * {@link #maggioriCapitali(int)}) contiene solo gli operatori con capitale positivo.
+     *
+     * <p> Il mercato globale non rilascia gli operatori inattivi.
+     *
+     * @param rilascioOperatori {@code true} per rilasciare gli operatori inattivi.
+     */
+    public Mercato(final boolean rilascioOperatori) {
+        registroOperatori = new Registro<>(nome -> new Operatore(this, nome), rilascioOperatori, this::registrato);
+        capitali = new ClassificaCapitali(registroOperatori, rilascioOperatori);
+        fissati = rilascioOperatori ? new ConcurrentHashMap<>() : null;
+    }
+
+    /**
+     * Restituisce il mercato globale, usato dai metodi di fabbricazione
+     * {@link Borsa#of(String)}, {@link Azienda#of(String)} e {@link Operatore#of(String)}.
+     *
+     * @return il mercato globale.
+     */
+    public static Mercato globale() {
+        return GLOBALE;
+    }
+
+    /**
+     * Metodo di fabbricazione per ottenere una borsa di questo Mercato.
+     *
+     * <p> Se non esiste già in questo Mercato una borsa con il nome specificato,
+     * ne viene creata una nuova. Altrimenti, viene restituita l'istanza già esistente.
+     *
+     * @param nome il nome della borsa.
+     * @throws NullPointerException se {@code nome} è {@code null}.
+     * @throws IllegalArgumentException se {@code nome} è vuoto o contiene solo spazi.
+     * @return l'istanza di Borsa.
+     */
+    public Borsa borsa(final String nome) {
+        if (Objects.requireNonNull(nome, "Il nome della borsa non può essere null").isBlank())
+            throw new IllegalArgumentException("Il nome della borsa non può essere vuoto");
+        return registroBorse.istanza(nome);
+    }
+
+    /**
+     * Metodo di fabbricazione per ottenere un'azienda di questo Mercato.
+     *
+     * <p> Se non esiste già in questo Mercato un'azienda con il nome specificato,
+     * ne viene creata una nuova. Altrimenti, viene restituita l'istanza già esistente.
+     *
+     * @param nome il nome dell'azienda.
+     * @throws NullPointerException se {@code nome} è {@code null}.
+     * @throws IllegalArgumentException se {@code nome} è vuoto o contiene solo spazi.
+     * @return l'istanza di Azienda.
+     */
+    public Azienda azienda(final String nome) {
+        if (Objects.requireNonNull(nome, "Il nome dell'azienda non può essere null").isBlank())
+            throw new IllegalArgumentException("Il nome dell'azienda non può essere vuoto");
+        return registroAziende.istanza(nome);
+    }
+
+    /**
+     * Metodo di fabbricazione per ottenere un operatore di questo Mercato.
+     *
+     * <p> Se non esiste già in questo Mercato un operatore con il nome specificato,
+     * ne viene creato uno nuovo. Altrimenti, viene restituita l'istanza già esistente.
+     *
+     * @param nome il nome dell'operatore.
+     * @throws NullPointerException se {@code nome} è {@code null}.
+     * @throws IllegalArgumentException se {@code nome} è vuoto o contiene solo spazi.
+     * @return l'istanza di Operatore.
+     */
+    public Operatore operatore(final String nome) {
+        if (Objects.requireNonNull(nome, "Il nome dell'operatore non può essere null").isBlank())
+            throw new IllegalArgumentException("Il nome dell'operatore non può essere vuoto");
+        return registroOperatori.istanza(nome);
+    }
+
+    /**
+     * Segnala alla classifica per capitale totale un operatore appena creato.
+     *
+     * <p> Modifica this.
+     *
+     * @param operatore l'operatore.
+     */
+    private void registrato(final Operatore operatore) {
+        capitali.registra(operatore);
+    }
+
+    /**
+     * Restituisce le borse di questo Mercato, in ordine lessicografico.
+     *
+     * <p> L'elenco restituito è una copia non modificabile.
+     *
+     * @return l'elenco delle borse.
+     */
+    public Iterable<Borsa> borse() {
+        return registroBorse.ordinate();
+    }
+
+    /**
+     * Restituisce le aziende di questo Mercato, in ordine lessicografico.
+     *
+     * <p> L'elenco restituito è una copia non modificabile.
+     *
+     * @return l'elenco delle aziende.
+     */
+    public Iterable<Azienda> aziende() {
+        return registroAziende.ordinate();
+    }
+
+    /**
+     * Restituisce gli operatori di questo Mercato, in ordine lessicografico.
+     *
+     * <p> L'elenco restituito è una copia non modificabile.
+     *
+     * @return l'elenco degli operatori.
+     */
+    public Iterable<Operatore> operatori() {
+        return registroOperatori.ordinate();
+    }
+
+    /**
+     * Restituisce i primi {@code n} operatori di questo Mercato per capitale totale,
+     * con il loro capitale.
+     *
+     * <p> La mappa restituita è una copia non modificabile, non collegata agli operatori;
+     * l'ordine di iterazione è quello della classifica: capitale totale decrescente
+     * e, a parità di capitale, ordine lessicografico.
+     *
+     * <p> La classifica non viene ricalcolata, ma è mantenuta aggiornata in modo incrementale:
+     * con {@code m} operatori, il metodo richiede tempo atteso {@code O(log m + n)}, più
+     * {@code O(log m)} per ogni operatore il cui capitale è variato dalla precedente
+     * interrogazione della classifica. La prima interrogazione costruisce la classifica
+     * e richiede tempo atteso {@code O(m log m)}.
+     *
+     * @param n il numero massimo di operatori.
+     * @throws IllegalArgumentException se {@code n} è negativo.
+     * @return gli operatori con il capitale totale maggiore e il loro capitale.
+     */
+    public Map<Operatore, Integer> maggioriCapitali(final int n) {
+        if (n < 0)
+            throw new IllegalArgumentException("Il numero di operatori non può essere negativo");
+        int limite = Math.min(n, registroOperatori.dimensione());
+        Operatore[] primi = new Operatore[limite];
+        int[] valori = new int[limite];
+        int trovati = capitali.maggiori(limite, primi, valori);
+        Map<Operatore, Integer> risultato = new LinkedHashMap<>();
+        for (int i = 0; i < trovati; i++)
+            risultato.put(primi[i], valori[i]);
+        return Collections.unmodifiableMap(risultato);
+    }
+
+    /**
+     * Mantiene raggiungibile un operatore di questo Mercato se ha budget non nullo,
+     * altrimenti smette di mantenerlo, se questo Mercato rilascia gli operatori inattivi.
+     *
+     * <p> Modifica this. Deve essere invocato dopo ogni variazione del budget
+     * dell'operatore da o verso zero; le invocazioni per lo stesso operatore vengono
+     * serializzate e ciascuna considera il budget corrente, così che l'ultima
+     * rifletta l'ultima variazione anche in presenza di variazioni concorrenti.
+     *
+     * @param operatore l'operatore.
+     */
+    void fissa(final Operatore operatore) {
+        if (fissati != null)
+            fissati.compute(operatore.nome, (nome, fissato) -> operatore.budget() != 0 ? operatore : null);
+    }
+
+    /**
+     * Verifica che un elemento appartenga a questo Mercato.
+     *
+     * @param altro il mercato dell'elemento.
+     * @throws IllegalArgumentException se {@code altro} non è questo Mercato.
+     */
+    void verifica(final Mercato altro) {
+        if (altro != this)
+            throw new IllegalArgumentException("Gli elementi appartengono a mercati diversi");
+    }
+}
@@ -0,0 +1,68 @@
+package borsanova;
+
+/**
+ * Classe di utilità per il confronto rapido dei nomi di borse, aziende e operatori.
+ *
+ * <p> Ogni entità con nome calcola alla costruzione una <em>chiave d'ordine</em>
+ * (si veda {@link #chiave(String)}), che contiene i primi quattro caratteri del
+ * nome: il confronto tra due nomi che differiscono entro i primi quattro caratteri
+ * si riduce al confronto di due {@code long}, senza accedere alle stringhe; solo
+ * a parità di chiave viene confrontato il nome completo. L'ordine risultante è
+ * quello lessicografico di {@link String#compareTo(String)}.
+ *
+ * <p> Due entità con lo stesso nome appartengono necessariamente a mercati diversi:
+ * a parità di nome vengono ordinate secondo l'ordine di creazione dei loro mercati
+ * (si veda {@link Mercato#numero}), così che il confronto sia coerente con
+ * l'uguaglianza, che è l'identità.
+ *
+ * <p> La classe è visibile solo all'interno del package.
+ */
+final class Nomi {
+
+    /** Il numero di caratteri contenuti in una chiave d'ordine. */
+    private static final int CARATTERI = Long.SIZE / Character.SIZE;
+
+    /** Classe di sole funzioni statiche, non istanziabile. */
+    private Nomi() {}
+
+    /**
+     * Calcola la chiave d'ordine di un nome.
+     *
+     * <p> La chiave contiene i primi quattro caratteri del nome, dal più
+     * significativo, completati con caratteri di codice 0 se il nome è più corto.
+     *
+     * @param nome il nome.
+     * @return la chiave d'ordine.
+     */
+    static long chiave(final String nome) {
+        long chiave = 0;
+        for (int i = 0; i < CARATTERI; i++)
+            chiave = (chiave << Character.SIZE) | (i < nome.length() ? nome.charAt(i) : 0);
+        return chiave;
+    }
+
+    /**
+     * Confronta due entità con nome in ordine lessicografico dei nomi, come
+     * {@link String#compareTo(String)}, e a parità di nome in ordine di creazione
+     * dei loro mercati.
+     *
+     * <p> Se le chiavi d'ordine sono diverse i nomi differiscono entro i primi quattro
+     * caratteri, e il loro ordine è quello delle chiavi, confrontate senza segno.
+     *
+     * @param nome il nome della prima entità.
+     * @param chiave la chiave d'ordine del primo nome.
+     * @param mercato il mercato della prima entità.
+     * @param altroNome il nome della seconda entità.
+     * @param altraChiave la chiave d'ordine del secondo nome.
+     * @param altroMercato il mercato della seconda entità.
+     * @return un valore negativo, nullo o positivo se la prima entità precede,
+     *  è uguale o segue la seconda.
+     */
+    static int confronta(final String nome, final long chiave, final Mercato mercato,
+            final String altroNome, final long altraChiave, final Mercato altroMercato) {
+        if (chiave != altraChiave)
+            return Long.compareUnsigned(chiave, altraChiave);
+        int risultato = nome.compareTo(altroNome);
+        return risultato != 0 ? risultato : Long.compare(mercato.numero, altroMercato.numero);
+    }
+}
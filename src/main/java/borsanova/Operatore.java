@@ -2,10 +2,17 @@ package borsanova;
 
 import borsanova.Borsa.Azione;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
 /**
  * Classe che rappresenta un Operatore.
@@ -17,8 +24,10 @@ import java.util.TreeMap;
  *   <li>un insieme di azioni possedute.</li>
  * </ul>
  * 
- * <p> Dato che il nome di un Operatore è unico,
- * non è possibile creare due operatori con lo stesso nome.
+ * <p> Dato che il nome di un Operatore è unico all'interno del suo {@link Mercato},
+ * non è possibile creare due operatori con lo stesso nome nello stesso mercato.
+ * Un Operatore può operare solo nelle borse del proprio mercato: le operazioni
+ * su una borsa di un altro mercato sollevano {@link IllegalArgumentException}.
  * 
  * <p>Un Operatore è partecipante del mercato azionario e può:
  *  <ul>
@@ -26,11 +35,27 @@ import java.util.TreeMap;
  *  <li>prelevare denaro dal proprio budget;</li>
  *  <li>acquistare azioni di un'azienda da una borsa;</li>
  *  <li>vendere azioni di un'azienda in una borsa;</li>
+ *  <li>inserire ordini al mercato e con limite di prezzo nel libro degli ordini
+ *  di un'azione, e annullare gli ordini in attesa;</li>
  *  <li>calcolare il valore delle azioni possedute;</li>
  *  <li>calcolare il proprio capitale totale.</li>
  * </ul>
  * 
- * <p>Il criterio di confronto e di ordinamento tra gli operatori è il nome.</p>
+ * <p>Il criterio di confronto e di ordinamento tra gli operatori è il nome.
+ * Dato che ogni nome corrisponde a un'unica istanza nel suo mercato, due operatori
+ * sono uguali solo se sono la stessa istanza, e il codice hash è l'identificativo
+ * intero assegnato dal mercato alla creazione (si veda {@link Nomi}); operatori di
+ * mercati diversi con lo stesso nome sono ordinati secondo l'ordine di creazione dei mercati.</p>
+ * 
+ * <p> Le operazioni di un Operatore possono essere invocate da più thread
+ * contemporaneamente. Il budget è aggiornato senza blocchi, tramite
+ * operazioni atomiche di confronto e scambio (compare-and-set): depositi,
+ * prelievi e acquisti concorrenti non perdono aggiornamenti e non possono
+ * rendere il budget negativo. Ogni Operatore ha inoltre un proprio blocco che
+ * protegge le azioni possedute; le compravendite acquisiscono prima il blocco
+ * dell'azione scambiata e poi quello dell'Operatore (si veda {@link Borsa}),
+ * così che operazioni su azioni e operatori diversi procedano in parallelo
+ * senza possibilità di stallo.</p>
  * 
  * <p> Strumenti di supporto utilizzati in questa classe:
  *  <ul>
@@ -43,48 +68,168 @@ import java.util.TreeMap;
  */
 public class Operatore implements Comparable<Operatore> {
 
-    /** Registro delle istanze uniche di Operatore.
-     * La chiave è il nome dell'Operatore, il valore è l'istanza di Operatore.
-     */
-    private static final Map<String, Operatore> ISTANZE = new TreeMap<>();
+    /** L'accesso atomico al campo {@link #budget}. */
+    private static final VarHandle BUDGET;
+
+    /** L'accesso atomico al campo {@link #valore}. */
+    private static final VarHandle VALORE;
+
+    /** L'accesso atomico al campo {@link #blocco}. */
+    private static final VarHandle BLOCCO;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            BUDGET = lookup.findVarHandle(Operatore.class, "budget", int.class);
+            VALORE = lookup.findVarHandle(Operatore.class, "valore", int.class);
+            BLOCCO = lookup.findVarHandle(Operatore.class, "blocco", ReentrantLock.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
     /**Il nome di questo Operatore.*/
     public final String nome;
 
-    /**Il budget di questo Operatore.*/
-    private int budget;
+    /** Il mercato di questo Operatore. */
+    final Mercato mercato;
+
+    /**
+     * L'identificativo di questo Operatore, unico tra gli operatori del suo mercato
+     * e assegnato in ordine di creazione a partire da 0.
+     */
+    final int id;
+
+    /** La chiave d'ordine del nome di questo Operatore (si veda {@link Nomi#chiave(String)}). */
+    final long chiave;
+
+    /**Il budget di questo Operatore, modificato solo tramite {@link #BUDGET}.*/
+    private volatile int budget;
+
+    /**
+     * Il valore delle azioni possedute da questo Operatore, modificato solo tramite
+     * {@link #VALORE} dalle {@link Allocazioni} delle azioni possedute.
+     */
+    private volatile int valore;
+
+    /** La capacità iniziale delle posizioni delle azioni possedute. */
+    private static final int CAPACITA_INIZIALE = 4;
+
+    /**
+     * Il numero di azioni possedute oltre il quale le posizioni vengono indicizzate
+     * da {@link #posizioni}; fino ad allora una ricerca lineare è più rapida.
+     */
+    private static final int SOGLIA_INDICE = 8;
+
+    /** Le posizioni di un operatore che non ha mai posseduto azioni. */
+    private static final Azione[] NESSUN_TITOLO = new Azione[0];
+
+    /** Le quantità di un operatore che non ha mai posseduto azioni. */
+    private static final int[] NESSUNA_QUANTITA = new int[0];
+
+    /**
+     * Le azioni possedute da questo Operatore, indicizzate per posizione; le posizioni
+     * vengono allocate al primo acquisto, così che gli operatori che non hanno mai
+     * posseduto azioni occupino poca memoria.
+     */
+    private Azione[] titoli = NESSUN_TITOLO;
+
+    /** Le quantità possedute, indicizzate per posizione. */
+    private int[] quantitaTitoli = NESSUNA_QUANTITA;
+
+    /** Il numero di posizioni occupate. */
+    private int dimensione;
+
+    /**
+     * La mappa che associa l'identificativo di ogni azione posseduta alla sua posizione,
+     * {@code null} finché questo Operatore non ha mai posseduto più di
+     * {@link #SOGLIA_INDICE} azioni diverse.
+     */
+    private MappaInteri posizioni;
+
+    /**
+     * Il blocco che protegge le azioni possedute da questo Operatore;
+     * segue il blocco di ogni {@link Azione} nell'ordine di acquisizione.
+     * Viene creato al primo uso (si veda {@link #blocco()}), così che gli operatori
+     * che non lo usano mai, come quelli appena caricati da un'{@link Istantanea},
+     * occupino meno memoria.
+     */
+    private volatile ReentrantLock blocco;
+
+    /**
+     * {@code true} se questo Operatore attende di essere riposizionato nella
+     * {@link ClassificaCapitali}, che lo modifica atomicamente.
+     */
+    volatile boolean segnalato;
+
+    /**
+     * L'operatore che segue questo Operatore nella pila degli operatori segnalati
+     * della {@link ClassificaCapitali}, oppure {@code null}.
+     */
+    Operatore successivoSegnalato;
 
-    /**Le azioni possedute da questo Operatore.
-     * La chiave è l'azione, il valore è la quantità posseduta. 
+    /**
+     * Il numero di operatori nella pila degli operatori segnalati della
+     * {@link ClassificaCapitali} a partire da questo Operatore, al momento della sua segnalazione.
+     */
+    int profonditaSegnalazione;
+
+    /**
+     * Il nodo di questo Operatore nella {@link ClassificaCapitali}, modificato solo
+     * da chi detiene il blocco della classifica.
      */
-    private final Map<Azione, Integer> azioni = new TreeMap<>();
+    int nodoCapitale = ClassificaOperatori.NESSUNO;
 
     /*-
      * AF:
      *  - nome è il nome di questo Operatore;
+     *  - mercato è il mercato di questo Operatore;
      *  - budget è il budget di questo Operatore;
-     *  - azioni contiene come chiave l'azione posseduta da questo Operatore e come valore la loro quantità. 
+     *  - per ogni 0 <= i < dimensione, questo Operatore possiede quantitaTitoli[i] azioni titoli[i].
+     *  - valore è il valore delle azioni possedute da questo Operatore.
      * 
      * RI:
      *  - nome non può null e non può essere vuoto o contenere solo spazi;
+     *  - mercato non può essere null e le azioni possedute sono quotate in borse di mercato;
+     *  - id non è negativo ed è diverso da quello di ogni altro operatore di mercato;
+     *  - chiave è la chiave d'ordine di nome;
      *  - budget non può essere negativo;
-     *  - azioni non può essere null e non può contenere nè null nè duplicati.
-     *    Inoltre, i valori di azioni devono essere positivi e azioni deve essere ordinata lessicograficamente.
+     *  - titoli e quantitaTitoli non sono null e hanno la stessa lunghezza, non minore di dimensione.
+     *  - per ogni 0 <= i < dimensione: titoli[i] non è null, quantitaTitoli[i] > 0 e titoli[i]
+     *    compare una sola volta tra le prime dimensione posizioni.
+     *  - se dimensione > SOGLIA_INDICE, posizioni non è null; se posizioni non è null,
+     *    associa titoli[i].id a i per ogni 0 <= i < dimensione, e nessun'altra chiave.
+     *  - una volta assegnato, blocco non cambia; titoli, quantitaTitoli, dimensione e
+     *    posizioni vengono modificati solo da chi detiene blocco, salvo durante il
+     *    caricamento di un'istantanea (si veda caricaPossesso).
+     *  - valore è la somma, per ogni azione posseduta, del prezzo a cui la valutano le sue
+     *    allocazioni per la quantità posseduta; al termine di ogni operazione su un'azione
+     *    tale prezzo coincide con quello dell'azione.
      */
 
     /**
-     * Metodo di fabbricazione per ottenere un'istanza di Operatore.
+     * Metodo di fabbricazione per ottenere un'istanza di Operatore del mercato globale.
      * 
      * <p>Se non esiste già un'operatore con il nome specificato, ne viene creata uno nuovo. 
-     * Altrimenti viene restituita l'istanza già esistente.</p>
+     * Altrimenti viene restituita l'istanza già esistente.
+     * Il metodo può essere invocato da più thread contemporaneamente.</p>
      * @param nome il nome dell'operatore.
      * @return l'istanza di Operatore.
+     * @see Mercato#operatore(String)
      */
     public static Operatore of(final String nome) {
-        if (Objects.requireNonNull(nome).isBlank())
-            throw new IllegalArgumentException("Il nome dell'operatore non può essere vuoto");
-        if (!ISTANZE.containsKey(nome)) ISTANZE.put(nome, new Operatore(nome));
-        return ISTANZE.get(nome);
+        return Mercato.GLOBALE.operatore(nome);
+    }
+
+    /**
+     * Restituisce tutti gli operatori del mercato globale, in ordine lessicografico.
+     * 
+     * <p> L'elenco restituito è una copia non modificabile.
+     * 
+     * @return l'elenco degli operatori.
+     */
+    public static Iterable<Operatore> istanze() {
+        return Mercato.GLOBALE.operatori();
     }
 
     /**
@@ -92,18 +237,31 @@ public class Operatore implements Comparable<Operatore> {
      * 
      * <p> Modifica this.
      * 
-     * <p>Il costruttore è privato per garantire
+     * <p>Il costruttore è visibile solo all'interno del package per garantire
      * che le istanze di Operatore siano create
-     * solo tramite il metodo di fabbricazione {@link #of(String)}.</p>
+     * solo tramite il metodo di fabbricazione {@link Mercato#operatore(String)}.</p>
      * 
+     * @param mercato il mercato dell'operatore.
      * @param nome il nome dell'operatore.
      * 
      */
-    private Operatore(final String nome) {
+    Operatore(final Mercato mercato, final String nome) {
+        this.mercato = mercato;
         this.nome = nome;
+        this.id = mercato.identificativiOperatori.getAndIncrement();
+        this.chiave = Nomi.chiave(nome);
         this.budget = 0;
     }
 
+    /**
+     * Restituisce il mercato di questo Operatore.
+     * 
+     * @return il mercato.
+     */
+    public Mercato mercato() {
+        return mercato;
+    }
+
     /**
      * Restituisce il budget di questo Operatore.
      * 
@@ -118,14 +276,23 @@ public class Operatore implements Comparable<Operatore> {
      * contenente le azioni possedute da questo Operatore
      * e la loro quantità.
      * 
-     * <p> La mappa restituita è una collezione non modificabile.
+     * <p> La mappa restituita è una copia non modificabile,
+     * non collegata a this.
      * La chiave è l'azione, il valore è la quantità di azioni possedute
      * da questo Operatore.
      * 
      * @return le azioni e la quantità posseduta.
      */
     public Map<Azione, Integer> azioni() {
-        return Collections.unmodifiableMap(azioni);
+        blocco().lock();
+        try {
+            SortedMap<Azione, Integer> risultato = new TreeMap<>();
+            for (int i = 0; i < dimensione; i++)
+                risultato.put(titoli[i], quantitaTitoli[i]);
+            return Collections.unmodifiableMap(risultato);
+        } finally {
+            blocco().unlock();
+        }
     }
 
     /**
@@ -141,7 +308,11 @@ public class Operatore implements Comparable<Operatore> {
     public void deposito(final int importo) {
         if (importo <= 0)
             throw new IllegalArgumentException("L'importo del deposito deve essere positivo");
-        budget += importo;
+        // il deposito viene registrato prima che altri thread possano spenderlo
+        Giornale.annotaDeposito(this, importo);
+        if ((int) BUDGET.getAndAdd(this, importo) == 0)
+            mercato.fissa(this);
+        mercato.capitali.segnala(this);
     }
 
     /**
@@ -158,9 +329,57 @@ public class Operatore implements Comparable<Operatore> {
     public void prelievo(final int importo) {
         if (importo <= 0)
             throw new IllegalArgumentException("L'importo del prelievo deve essere positivo");
-        else if (budget < importo)
+        // il prelievo viene prima riservato e poi registrato, come ogni addebito
+        if (!riserva(importo))
             throw new IllegalArgumentException("Budget non sufficiente per il prelievo");
-        budget -= importo;
+        Giornale.annotaPrelievo(this, importo);
+    }
+
+    /**
+     * Riserva un importo del budget di questo Operatore, sottraendolo
+     * in un unico passo atomico se il budget è sufficiente.
+     * 
+     * <p> Modifica this se l'importo viene riservato.
+     * 
+     * <p> È il primo passo di un acquisto: {@link Borsa} riserva il costo
+     * delle azioni prima di allocarle, e lo restituisce tramite {@link #accredita(int)}
+     * se l'acquisto non può essere completato.
+     * 
+     * @param importo l'importo da riservare, deve essere positivo.
+     * @return {@code true} se l'importo è stato riservato, {@code false}
+     *  se il budget non è sufficiente (in tal caso this non viene modificato).
+     */
+    boolean riserva(final int importo) {
+        int corrente;
+        do {
+            corrente = budget;
+            if (corrente < importo)
+                return false;
+        } while (!BUDGET.weakCompareAndSet(this, corrente, corrente - importo));
+        if (corrente == importo)
+            mercato.fissa(this);
+        mercato.capitali.segnala(this);
+        return true;
+    }
+
+    /**
+     * Accredita un importo al budget di questo Operatore: un importo
+     * riservato in precedenza con {@link #riserva(int)} e non speso, oppure
+     * il ricavo di una vendita.
+     * 
+     * <p> Diversamente da {@link #deposito(int)}, l'accredito non viene registrato
+     * nel {@link Giornale}, che registra già la compravendita da cui deriva;
+     * il ricavo di una vendita va quindi accreditato solo dopo averla registrata.
+     * 
+     * <p> Modifica this.
+     * 
+     * @param importo l'importo da accreditare.
+     */
+    void accredita(final int importo) {
+        int precedente = (int) BUDGET.getAndAdd(this, importo);
+        if (precedente == 0 || precedente + importo == 0)
+            mercato.fissa(this);
+        mercato.capitali.segnala(this);
     }
 
     /**
@@ -169,7 +388,7 @@ public class Operatore implements Comparable<Operatore> {
      * <p> Questo metodo inoltre:
      *  <ul>
      *   <li> modifica this perhcé aggiorna il budget di questo Operatore, diminuendolo
-     *      in base al prezzo delle azioni acquistate;</li>
+     *      in base al prezzo corrente (precedente all'acquisto) delle azioni acquistate;</li>
      *   <li> modifica this anche perché aggiunge le azioni acquistate all'insieme delle azioni possedute
      *       da questo Operatore;</li>
      *   <li> modifica lo stato dell'azione acquistata nella borsa, aggiungendo
@@ -177,6 +396,10 @@ public class Operatore implements Comparable<Operatore> {
      *        o aggiornando la quantità di azioni possedute da questo Operatore.
      *  </ul>
      * 
+     * <p> L'operazione è atomica rispetto alle altre operazioni sulla stessa
+     * azione e su questo Operatore: acquisisce il blocco dell'azione e poi quello
+     * di questo Operatore.
+     * 
      * @param borsa la borsa da cui acquistare le azioni dell'azienda.
      * @param azienda l'azienda di cui acquistare le azioni.
      * @param prezzo il prezzo delle azioni da acquistare.
@@ -187,16 +410,21 @@ public class Operatore implements Comparable<Operatore> {
     public void acquistaAzioni(final Borsa borsa, final Azienda azienda, final int prezzo) {
         Objects.requireNonNull(borsa, "La borsa non può essere null");
         Objects.requireNonNull(azienda, "L'azienda non può essere null");
+        mercato.verifica(borsa.mercato);
         if (prezzo <= 0)
             throw new IllegalArgumentException("Il prezzo delle azioni da acquistare deve essere positivo");
         
         Azione azione = borsa.prendiAzione(azienda);
-        int quantitaAzioni = prezzo / azione.prezzo(); 
-        borsa.compraAzione(azione, this, quantitaAzioni);
-        prelievo(quantitaAzioni * azione.prezzo());
-        azioni.put(azione, azioni.getOrDefault(azione, 0) + quantitaAzioni);
-        if (azioni.get(azione) == 0)
-            azioni.remove(azione);
+        azione.blocco.lock();
+        blocco().lock();
+        try {
+            int quantitaAzioni = prezzo / azione.prezzo(); 
+            borsa.compraAzione(azione, this, quantitaAzioni);
+            varia(azione, quantitaAzioni);
+        } finally {
+            blocco().unlock();
+            azione.blocco.unlock();
+        }
     }
 
     /**
@@ -214,6 +442,10 @@ public class Operatore implements Comparable<Operatore> {
      *        per l'azienda specificata.</li>
      * </ul>
      * 
+     * <p> L'operazione è atomica rispetto alle altre operazioni sulla stessa
+     * azione e su questo Operatore: acquisisce il blocco dell'azione e poi quello
+     * di questo Operatore.
+     * 
      * @param borsa la borsa in cui vendere le azioni dell'azienda.
      * @param azienda l'azienda di cui vendere le azioni.
      * @param quantita la quantità di azioni che si desidera vendere.
@@ -223,35 +455,417 @@ public class Operatore implements Comparable<Operatore> {
     public void vendiAzioni(final Borsa borsa, final Azienda azienda, final int quantita) {
         Objects.requireNonNull(borsa, "La borsa non può essere null");
         Objects.requireNonNull(azienda, "L'azienda non può essere null");
+        mercato.verifica(borsa.mercato);
         if (quantita <= 0)
             throw new IllegalArgumentException("La quantità di azioni da vendere deve essere positiva");
         
         Azione azione = borsa.prendiAzione(azienda);
-        int prezzo = azione.prezzo();
-        borsa.vendiAzione(azione, this, quantita);
-        deposito(prezzo * quantita);
-        azioni.put(azione, azioni.getOrDefault(azione, 0) - quantita);
-        if (azioni.get(azione) == 0) {
-            azioni.remove(azione);
+        azione.blocco.lock();
+        blocco().lock();
+        try {
+            int prezzo = azione.prezzo();
+            borsa.vendiAzione(azione, this, quantita);
+            accredita(prezzo * quantita);
+            varia(azione, -quantita);
+        } finally {
+            blocco().unlock();
+            azione.blocco.unlock();
         }
     }
 
     /**
-     * Calcola il valore delle azioni possedute da questo Operatore.
+     * Acquista delle azioni di un'azienda dalla borsa in cui hanno il prezzo più basso.
+     * 
+     * <p> La borsa viene scelta tramite l'indice dei prezzi dell'azienda
+     * (si veda {@link Azienda#azioneMigliore(boolean)}); se in quella borsa il prezzo
+     * specificato non basta per acquistare un'azione o le azioni disponibili non
+     * bastano, viene scelta quella con il prezzo più basso tra le borse in cui
+     * l'acquisto è possibile, esaminandole tutte. L'acquisto viene quindi eseguito
+     * come {@link #acquistaAzioni(Borsa, Azienda, int)}, al prezzo corrente in quel
+     * momento, che può essere variato dopo la scelta della borsa. </p>
+     * 
+     * <p> Modifica this e lo stato dell'azione acquistata, come
+     * {@link #acquistaAzioni(Borsa, Azienda, int)}.
+     * 
+     * @param azienda l'azienda di cui acquistare le azioni.
+     * @param prezzo il prezzo delle azioni da acquistare.
+     * @throws NullPointerException se l'azienda è {@code null}.
+     * @throws NoSuchElementException se l'azienda non è quotata in alcuna borsa.
+     * @throws IllegalArgumentException se il prezzo delle azioni da acquistare è negativo
+     *  o pari a zero, o se l'acquisto non è possibile in alcuna borsa.
+     * @return la borsa in cui sono state acquistate le azioni.
+     */
+    public Borsa acquistaAlMigliorPrezzo(final Azienda azienda, final int prezzo) {
+        Objects.requireNonNull(azienda, "L'azienda non può essere null");
+        if (prezzo <= 0)
+            throw new IllegalArgumentException("Il prezzo delle azioni da acquistare deve essere positivo");
+        Borsa borsa = instrada(azienda, true, azione -> {
+            int quantita = prezzo / azione.prezzo();
+            return quantita > 0 && azione.azioniDisponibili() >= quantita;
+        }).borsa();
+        acquistaAzioni(borsa, azienda, prezzo);
+        return borsa;
+    }
+
+    /**
+     * Vende delle azioni di un'azienda possedute da questo Operatore
+     * nella borsa in cui hanno il prezzo più alto.
+     * 
+     * <p> La borsa viene scelta tramite l'indice dei prezzi dell'azienda
+     * (si veda {@link Azienda#azioneMigliore(boolean)}); se in quella borsa questo
+     * Operatore non possiede abbastanza azioni, viene scelta quella con il prezzo
+     * più alto tra le borse in cui ne possiede abbastanza, esaminandole tutte.
+     * La vendita viene quindi eseguita come {@link #vendiAzioni(Borsa, Azienda, int)},
+     * al prezzo corrente in quel momento, che può essere variato dopo la scelta
+     * della borsa. </p>
+     * 
+     * <p> Modifica this e lo stato dell'azione venduta, come
+     * {@link #vendiAzioni(Borsa, Azienda, int)}.
+     * 
+     * @param azienda l'azienda di cui vendere le azioni.
+     * @param quantita la quantità di azioni che si desidera vendere.
+     * @throws NullPointerException se l'azienda è {@code null}.
+     * @throws NoSuchElementException se l'azienda non è quotata in alcuna borsa.
+     * @throws IllegalArgumentException se la quantità di azioni da vendere è negativa
+     *  o pari a zero, o se la vendita non è possibile in alcuna borsa.
+     * @return la borsa in cui sono state vendute le azioni.
+     */
+    public Borsa vendiAlMigliorPrezzo(final Azienda azienda, final int quantita) {
+        Objects.requireNonNull(azienda, "L'azienda non può essere null");
+        if (quantita <= 0)
+            throw new IllegalArgumentException("La quantità di azioni da vendere deve essere positiva");
+        Borsa borsa = instrada(azienda, false, azione -> possedute(azione) >= quantita).borsa();
+        vendiAzioni(borsa, azienda, quantita);
+        return borsa;
+    }
+
+    /**
+     * Sceglie l'azione di un'azienda con il prezzo migliore tra quelle ammesse.
+     * 
+     * <p> Se l'azione con il prezzo migliore nell'indice dei prezzi dell'azienda è
+     * ammessa, la scelta richiede tempo costante; altrimenti vengono esaminate tutte
+     * le azioni dell'azienda.
+     * 
+     * @param azienda l'azienda.
+     * @param acquisto {@code true} per il prezzo più basso, {@code false} per il più alto.
+     * @param ammessa il criterio con cui ammettere le azioni.
+     * @throws NoSuchElementException se l'azienda non è quotata in alcuna borsa.
+     * @return l'azione ammessa con il prezzo migliore, oppure l'azione con il prezzo
+     *  migliore se nessuna è ammessa.
+     */
+    private static Azione instrada(final Azienda azienda, final boolean acquisto, final Predicate<Azione> ammessa) {
+        Azione migliore = azienda.azioneMigliore(acquisto);
+        if (ammessa.test(migliore))
+            return migliore;
+        Azione scelta = null;
+        for (Azione azione : azienda.indice.elenco())
+            if (ammessa.test(azione) && (scelta == null
+                    || (acquisto ? azione.prezzo() < scelta.prezzo() : azione.prezzo() > scelta.prezzo())))
+                scelta = azione;
+        return scelta == null ? migliore : scelta;
+    }
+
+    /**
+     * Restituisce la quantità di azioni possedute da questo Operatore.
+     * 
+     * @param azione l'azione.
+     * @return la quantità posseduta, 0 se non ne possiede.
+     */
+    private int possedute(final Azione azione) {
+        blocco().lock();
+        try {
+            return quantitaTitolo(azione);
+        } finally {
+            blocco().unlock();
+        }
+    }
+
+    /**
+     * Acquista al mercato delle azioni di un'azienda da una borsa.
+     * 
+     * <p> Le azioni vengono acquistate dagli ordini di vendita in attesa
+     * nel libro degli ordini dell'azione, a partire dal prezzo più basso e,
+     * a parità di prezzo, dall'ordine meno recente, finché il budget lo consente;
+     * la parte che non può essere eseguita viene scartata.
+     * 
+     * <p> Modifica this, i venditori coinvolti e lo stato dell'azione
+     * (si veda {@link Borsa#ordineAlMercato(Azione, Operatore, boolean, int)}).
+     * 
+     * @param borsa la borsa in cui è quotata l'azione.
+     * @param azienda l'azienda di cui acquistare le azioni.
+     * @param quantita la quantità di azioni da acquistare.
+     * @throws NullPointerException se la borsa o l'azienda sono {@code null}.
+     * @throws IllegalArgumentException se la quantità è negativa o pari a zero.
+     * @return la quantità di azioni acquistate.
+     */
+    public int compraAlMercato(final Borsa borsa, final Azienda azienda, final int quantita) {
+        Objects.requireNonNull(borsa, "La borsa non può essere null");
+        Objects.requireNonNull(azienda, "L'azienda non può essere null");
+        mercato.verifica(borsa.mercato);
+        return borsa.ordineAlMercato(borsa.prendiAzione(azienda), this, true, quantita);
+    }
+
+    /**
+     * Vende al mercato delle azioni di un'azienda possedute da questo Operatore in una borsa.
+     * 
+     * <p> Le azioni vengono vendute agli ordini di acquisto in attesa
+     * nel libro degli ordini dell'azione, a partire dal prezzo più alto e,
+     * a parità di prezzo, dall'ordine meno recente;
+     * la parte che non può essere eseguita viene scartata.
+     * 
+     * <p> Modifica this, gli acquirenti coinvolti e lo stato dell'azione
+     * (si veda {@link Borsa#ordineAlMercato(Azione, Operatore, boolean, int)}).
+     * 
+     * @param borsa la borsa in cui è quotata l'azione.
+     * @param azienda l'azienda di cui vendere le azioni.
+     * @param quantita la quantità di azioni da vendere.
+     * @throws NullPointerException se la borsa o l'azienda sono {@code null}.
+     * @throws IllegalArgumentException se la quantità è negativa o pari a zero o
+     *  se questo Operatore non possiede abbastanza azioni non impegnate in ordini di vendita.
+     * @return la quantità di azioni vendute.
+     */
+    public int vendiAlMercato(final Borsa borsa, final Azienda azienda, final int quantita) {
+        Objects.requireNonNull(borsa, "La borsa non può essere null");
+        Objects.requireNonNull(azienda, "L'azienda non può essere null");
+        mercato.verifica(borsa.mercato);
+        return borsa.ordineAlMercato(borsa.prendiAzione(azienda), this, false, quantita);
+    }
+
+    /**
+     * Inserisce un ordine di acquisto con limite di prezzo.
+     * 
+     * <p> La parte dell'ordine che non può essere eseguita subito a un prezzo non
+     * superiore al limite resta in attesa nel libro degli ordini dell'azione;
+     * il budget necessario a pagarla al prezzo limite resta riservato finché
+     * l'ordine non viene eseguito o annullato.
+     * 
+     * <p> Modifica this, i venditori coinvolti e lo stato dell'azione
+     * (si veda {@link Borsa#ordineConLimite(Azione, Operatore, boolean, int, int)}).
+     * 
+     * @param borsa la borsa in cui è quotata l'azione.
+     * @param azienda l'azienda di cui acquistare le azioni.
+     * @param quantita la quantità di azioni da acquistare.
+     * @param limite il prezzo massimo che si è disposti a pagare per ciascuna azione.
+     * @throws NullPointerException se la borsa o l'azienda sono {@code null}.
+     * @throws IllegalArgumentException se la quantità o il limite sono negativi o pari a zero,
+     *  o se il budget non è sufficiente a pagare l'intera quantità al prezzo limite.
+     * @return l'identificativo dell'ordine in attesa, oppure {@link Borsa#NESSUN_ORDINE}
+     *  se l'ordine è stato eseguito completamente.
+     */
+    public long ordineAcquisto(final Borsa borsa, final Azienda azienda, final int quantita, final int limite) {
+        Objects.requireNonNull(borsa, "La borsa non può essere null");
+        Objects.requireNonNull(azienda, "L'azienda non può essere null");
+        mercato.verifica(borsa.mercato);
+        return borsa.ordineConLimite(borsa.prendiAzione(azienda), this, true, quantita, limite);
+    }
+
+    /**
+     * Inserisce un ordine di vendita con limite di prezzo.
+     * 
+     * <p> La parte dell'ordine che non può essere eseguita subito a un prezzo non
+     * inferiore al limite resta in attesa nel libro degli ordini dell'azione;
+     * le azioni corrispondenti restano impegnate finché l'ordine non viene
+     * eseguito o annullato.
+     * 
+     * <p> Modifica this, gli acquirenti coinvolti e lo stato dell'azione
+     * (si veda {@link Borsa#ordineConLimite(Azione, Operatore, boolean, int, int)}).
+     * 
+     * @param borsa la borsa in cui è quotata l'azione.
+     * @param azienda l'azienda di cui vendere le azioni.
+     * @param quantita la quantità di azioni da vendere.
+     * @param limite il prezzo minimo che si è disposti ad accettare per ciascuna azione.
+     * @throws NullPointerException se la borsa o l'azienda sono {@code null}.
+     * @throws IllegalArgumentException se la quantità o il limite sono negativi o pari a zero,
+     *  o se questo Operatore non possiede abbastanza azioni non impegnate in ordini di vendita.
+     * @return l'identificativo dell'ordine in attesa, oppure {@link Borsa#NESSUN_ORDINE}
+     *  se l'ordine è stato eseguito completamente.
+     */
+    public long ordineVendita(final Borsa borsa, final Azienda azienda, final int quantita, final int limite) {
+        Objects.requireNonNull(borsa, "La borsa non può essere null");
+        Objects.requireNonNull(azienda, "L'azienda non può essere null");
+        mercato.verifica(borsa.mercato);
+        return borsa.ordineConLimite(borsa.prendiAzione(azienda), this, false, quantita, limite);
+    }
+
+    /**
+     * Annulla un ordine con limite di prezzo in attesa inserito da questo Operatore.
+     * 
+     * <p> Modifica this se l'ordine è in attesa, restituendo il budget riservato
+     * o liberando le azioni impegnate, e modifica lo stato dell'azione.
+     * 
+     * @param borsa la borsa in cui è quotata l'azione.
+     * @param azienda l'azienda dell'ordine.
+     * @param ordine l'identificativo dell'ordine.
+     * @throws NullPointerException se la borsa o l'azienda sono {@code null}.
+     * @return la quantità residua annullata, 0 se l'ordine non era in attesa.
+     */
+    public int annullaOrdine(final Borsa borsa, final Azienda azienda, final long ordine) {
+        Objects.requireNonNull(borsa, "La borsa non può essere null");
+        Objects.requireNonNull(azienda, "L'azienda non può essere null");
+        mercato.verifica(borsa.mercato);
+        return borsa.annullaOrdine(borsa.prendiAzione(azienda), this, ordine);
+    }
+
+    /**
+     * Aggiorna la quantità posseduta di un'azione in seguito a uno scambio
+     * eseguito dal libro degli ordini.
+     * 
+     * <p> Modifica this. Il chiamante deve detenere il blocco dell'azione;
+     * il metodo acquisisce il blocco di questo Operatore.
+     * 
+     * @param azione l'azione scambiata.
+     * @param variazione la quantità acquistata (se positiva) o venduta (se negativa).
+     */
+    void registraPossesso(final Azione azione, final int variazione) {
+        blocco().lock();
+        try {
+            varia(azione, variazione);
+        } finally {
+            blocco().unlock();
+        }
+    }
+
+    /**
+     * Aggiunge un'azione a quelle possedute da questo Operatore durante il caricamento
+     * di un'{@link Istantanea}, senza acquisire il blocco di questo Operatore.
+     * 
+     * <p> Modifica this. Il chiamante deve detenere il blocco dell'azione, e nessun altro
+     * thread può usare questo Operatore finché il caricamento non è concluso. La prima
+     * azione posseduta occupa una sola posizione, poiché la maggior parte degli operatori
+     * caricati ne possiede una sola.
+     * 
+     * @param azione l'azione, non ancora posseduta.
+     * @param quantita la quantità posseduta, positiva.
+     */
+    void caricaPossesso(final Azione azione, final int quantita) {
+        if (titoli.length == 0) {
+            titoli = new Azione[1];
+            quantitaTitoli = new int[1];
+        }
+        varia(azione, quantita);
+    }
+
+    /**
+     * Restituisce il blocco che protegge le azioni possedute da questo Operatore,
+     * creandolo se necessario.
+     * 
+     * <p> Può modificare this.
+     * 
+     * @return il blocco.
+     */
+    private ReentrantLock blocco() {
+        ReentrantLock b = blocco;
+        if (b == null) {
+            b = new ReentrantLock();
+            if (!BLOCCO.compareAndSet(this, null, b))
+                b = blocco;
+        }
+        return b;
+    }
+
+    /**
+     * Restituisce la quantità posseduta di un'azione.
+     * 
+     * <p> Il chiamante deve detenere il blocco di questo Operatore.
+     * 
+     * @param azione l'azione.
+     * @return la quantità posseduta, 0 se non ne possiede.
+     */
+    private int quantitaTitolo(final Azione azione) {
+        int posizione = posizione(azione);
+        return posizione == MappaInteri.ASSENTE ? 0 : quantitaTitoli[posizione];
+    }
+
+    /**
+     * Restituisce la posizione di un'azione posseduta.
+     * 
+     * <p> Il chiamante deve detenere il blocco di questo Operatore.
+     * 
+     * @param azione l'azione.
+     * @return la posizione, {@link MappaInteri#ASSENTE} se l'azione non è posseduta.
+     */
+    private int posizione(final Azione azione) {
+        if (posizioni != null)
+            return posizioni.get(azione.id);
+        for (int i = 0; i < dimensione; i++)
+            if (titoli[i] == azione)
+                return i;
+        return MappaInteri.ASSENTE;
+    }
+
+    /**
+     * Varia la quantità posseduta di un'azione; se la quantità si azzera,
+     * l'azione non è più posseduta e la sua posizione viene occupata dall'ultima.
+     * 
+     * <p> Modifica this. Il chiamante deve detenere il blocco di questo Operatore.
+     * 
+     * @param azione l'azione.
+     * @param variazione la variazione della quantità; la quantità risultante non è negativa.
+     */
+    private void varia(final Azione azione, final int variazione) {
+        int posizione = posizione(azione);
+        if (posizione == MappaInteri.ASSENTE) {
+            if (variazione == 0) return;
+            if (dimensione == titoli.length) {
+                int capacita = Math.max(CAPACITA_INIZIALE, 2 * dimensione);
+                titoli = Arrays.copyOf(titoli, capacita);
+                quantitaTitoli = Arrays.copyOf(quantitaTitoli, capacita);
+            }
+            posizione = dimensione++;
+            titoli[posizione] = azione;
+            quantitaTitoli[posizione] = 0;
+            if (posizioni != null)
+                posizioni.put(azione.id, posizione);
+            else if (dimensione > SOGLIA_INDICE) {
+                posizioni = new MappaInteri();
+                for (int i = 0; i < dimensione; i++)
+                    posizioni.put(titoli[i].id, i);
+            }
+        }
+        quantitaTitoli[posizione] += variazione;
+        if (quantitaTitoli[posizione] != 0) return;
+        if (posizioni != null)
+            posizioni.remove(azione.id);
+        int ultima = --dimensione;
+        if (posizione != ultima) {
+            titoli[posizione] = titoli[ultima];
+            quantitaTitoli[posizione] = quantitaTitoli[ultima];
+            if (posizioni != null)
+                posizioni.put(titoli[posizione].id, posizione);
+        }
+        titoli[ultima] = null;
+    }
+
+    /**
+     * Aggiorna il valore delle azioni possedute da questo Operatore.
+     * 
+     * <p> Modifica this. È invocato dalle {@link Allocazioni} di un'azione,
+     * con il blocco dell'azione acquisito, quando cambiano la quantità posseduta
+     * o il prezzo dell'azione.
+     * 
+     * @param variazione la variazione del valore.
+     */
+    void rivaluta(final int variazione) {
+        VALORE.getAndAdd(this, variazione);
+        mercato.capitali.segnala(this);
+    }
+
+    /**
+     * Restituisce il valore delle azioni possedute da questo Operatore.
      * 
      * <p> Il valore delle azioni possedute da questo Operatore
      * è dato dalla somma del prezzo delle azioni possedute moltiplicato
      * per la quantità di azioni possedute.</p>
      * 
+     * <p> Il valore non viene ricalcolato, ma è mantenuto aggiornato da ogni
+     * compravendita e da ogni variazione di prezzo delle azioni possedute:
+     * il metodo richiede tempo costante.</p>
+     * 
      * @return il valore delle azioni possedute da questo Operatore.
      * 
      */
     public int valoreAzioni() {
-        int n = 0;
-        for (Map.Entry<Azione, Integer> coppia : azioni.entrySet()) {
-            n += coppia.getKey().prezzo() * coppia.getValue();
-        }
-        return n;
+        return valore;
     }
 
     /**
@@ -267,33 +881,69 @@ public class Operatore implements Comparable<Operatore> {
         return budget + valoreAzioni();
     }
 
+    /**
+     * Restituisce i primi {@code n} operatori del mercato globale per capitale totale,
+     * con il loro capitale.
+     * 
+     * @param n il numero massimo di operatori.
+     * @throws IllegalArgumentException se {@code n} è negativo.
+     * @return gli operatori con il capitale totale maggiore e il loro capitale.
+     * @see Mercato#maggioriCapitali(int)
+     */
+    public static Map<Operatore, Integer> maggioriCapitali(final int n) {
+        return Mercato.GLOBALE.maggioriCapitali(n);
+    }
+
+    /**
+     * Restituisce la posizione di questo Operatore nella classifica per capitale
+     * totale degli operatori del suo mercato, ordinata come {@link Mercato#maggioriCapitali(int)}.
+     * 
+     * <p> Il metodo richiede tempo atteso {@code O(log m)}, con {@code m} operatori,
+     * oltre al riposizionamento degli operatori il cui capitale è variato
+     * (si veda {@link Mercato#maggioriCapitali(int)}).
+     * 
+     * @return la posizione, a partire da 1, oppure 0 se il mercato rilascia gli
+     *  operatori inattivi (si veda {@link Mercato#Mercato(boolean)}) e questo
+     *  Operatore ha capitale nullo.
+     */
+    public int posizioneCapitale() {
+        return mercato.capitali.posizione(this);
+    }
+
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append(nome).append(", ").append(budget).append(", ").append(valoreAzioni());
-        for (Map.Entry<Azione, Integer> entry : azioni.entrySet()) {
-            sb.append("\n- ")
-              .append(entry.getKey().nomeBorsa()).append(", ")
-              .append(entry.getKey().azienda().nome).append(", ")
-              .append(entry.getValue());
+        blocco().lock();
+        try {
+            StringBuilder sb = new StringBuilder();
+            sb.append(nome).append(", ").append(budget).append(", ").append(valoreAzioni());
+            Azione[] ordinati = Arrays.copyOf(titoli, dimensione);
+            Arrays.sort(ordinati);
+            for (Azione azione : ordinati) {
+                sb.append("\n- ")
+                  .append(azione.nomeBorsa()).append(", ")
+                  .append(azione.azienda().nome).append(", ")
+                  .append(quantitaTitolo(azione));
+            }
+            return sb.toString();
+        } finally {
+            blocco().unlock();
         }
-        return sb.toString();
     }
 
     @Override
     public boolean equals(Object obj) {
-        if (!(obj instanceof Operatore o)) return false;
-        return nome.equals(o.nome);
+        return this == obj;
     }
 
     @Override
     public int hashCode() {
-        return nome.hashCode();
+        return id;
     }
 
     @Override
     public int compareTo(Operatore o) {
-        return nome.compareTo(o.nome);
+        if (this == o) return 0;
+        return Nomi.confronta(nome, chiave, mercato, o.nome, o.chiave, o.mercato);
     }
 
 }
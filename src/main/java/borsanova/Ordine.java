@@ -0,0 +1,21 @@
+package borsanova;
+
+/**
+ * Record che rappresenta un ordine di compravendita da eseguire
+ * in blocco tramite {@link Borsa#eseguiOrdini(java.util.List)}.
+ *
+ * <p> Un ordine di acquisto ha lo stesso significato di
+ * {@link Operatore#acquistaAzioni(Borsa, Azienda, int)}: il valore è il prezzo
+ * totale che l'operatore intende impegnare. Un ordine di vendita ha lo stesso
+ * significato di {@link Operatore#vendiAzioni(Borsa, Azienda, int)}: il valore
+ * è la quantità di azioni da vendere.
+ *
+ * <p> La validità dell'ordine non viene verificata alla costruzione,
+ * ma al momento dell'esecuzione, che ne riporta l'esito.
+ *
+ * @param operatore l'operatore che effettua l'ordine.
+ * @param azienda l'azienda di cui scambiare le azioni.
+ * @param acquisto {@code true} per un acquisto, {@code false} per una vendita.
+ * @param valore il prezzo totale (per un acquisto) o la quantità (per una vendita).
+ */
+public record Ordine(Operatore operatore, Azienda azienda, boolean acquisto, int valore) {}
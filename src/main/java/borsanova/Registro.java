@@ -0,0 +1,315 @@
+package borsanova;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Classe che rappresenta un registro di istanze uniche identificate da un nome.
+ *
+ * <p> Ogni {@link Mercato} possiede un registro per le sue borse, uno per le sue
+ * aziende e uno per i suoi operatori, usati dai suoi metodi di fabbricazione:
+ * il registro restituisce l'istanza associata a un nome creandola, tramite la
+ * fabbrica specificata, se non esiste ancora.
+ *
+ * <p> Il registro può essere usato da più thread contemporaneamente: anche se
+ * più thread richiedono lo stesso nome nello stesso momento, viene creata
+ * un'unica istanza. Il reperimento di un'istanza esistente richiede
+ * un'unica ricerca hash, senza blocchi.
+ *
+ * <p> Un registro <em>con rilascio</em> conserva le istanze tramite riferimenti
+ * deboli: un'istanza non più raggiungibile dal resto del programma viene rilasciata
+ * dal garbage collector, e il suo nome viene rimosso dal registro alla successiva
+ * registrazione. Finché un'istanza è raggiungibile, resta l'unica associata al suo
+ * nome; una nuova istanza con lo stesso nome viene creata solo dopo il rilascio
+ * della precedente. Chi usa il registro deve quindi mantenere raggiungibili le
+ * istanze il cui stato non può andare perso.
+ *
+ * <p> Chi usa il registro può essere informato della creazione di ogni nuova
+ * istanza, dopo che questa è stata registrata (si veda
+ * {@link #Registro(Function, boolean, Consumer)}); il reperimento di un'istanza
+ * esistente non viene segnalato.
+ *
+ * <p> L'elenco delle istanze in ordine viene prodotto solo su richiesta
+ * tramite {@link #ordinate()}.
+ *
+ * @param <T> il tipo delle istanze registrate.
+ */
+final class Registro<T extends Comparable<T>> {
+
+    /**
+     * Le istanze registrate, indicizzate per nome, se il registro è senza rilascio;
+     * la tabella viene sostituita solo da {@link #riserva(int)}.
+     */
+    private volatile ConcurrentHashMap<String, T> istanze;
+
+    /**
+     * I riferimenti deboli alle istanze registrate, indicizzati per nome, se il
+     * registro è con rilascio; la tabella viene sostituita solo da {@link #riserva(int)}.
+     */
+    private volatile ConcurrentHashMap<String, Riferimento<T>> riferimenti;
+
+    /** La coda dei riferimenti le cui istanze sono state rilasciate, se il registro è con rilascio. */
+    private final ReferenceQueue<T> rilasciate;
+
+    /** La fabbrica che crea una nuova istanza a partire dal nome. */
+    private final Function<String, T> fabbrica;
+
+    /** L'azione eseguita su ogni nuova istanza, dopo la sua registrazione. */
+    private final Consumer<? super T> registrazione;
+
+    /*-
+     * AF:
+     *  - se il registro è senza rilascio, istanze associa ad ogni nome registrato
+     *    la sua unica istanza.
+     *  - se il registro è con rilascio, riferimenti associa ad ogni nome registrato
+     *    un riferimento alla sua unica istanza; i nomi i cui riferimenti sono stati
+     *    svuotati non sono più registrati.
+     *  - fabbrica crea l'istanza di un nome non ancora registrato.
+     *
+     * RI:
+     *  - fabbrica e registrazione non possono essere null.
+     *  - esattamente uno tra istanze e riferimenti non è null; rilasciate è null
+     *    se e solo se riferimenti è null.
+     *  - istanze e riferimenti non contengono chiavi o valori null; ogni riferimento
+     *    r di riferimenti è associato a r.nome ed è registrato presso rilasciate.
+     */
+
+    /**
+     * Costruisce un registro vuoto senza rilascio.
+     *
+     * @param fabbrica la fabbrica delle nuove istanze.
+     */
+    Registro(final Function<String, T> fabbrica) {
+        this(fabbrica, false);
+    }
+
+    /**
+     * Costruisce un registro vuoto.
+     *
+     * @param fabbrica la fabbrica delle nuove istanze.
+     * @param rilascio {@code true} per un registro con rilascio.
+     */
+    Registro(final Function<String, T> fabbrica, final boolean rilascio) {
+        this(fabbrica, rilascio, istanza -> {});
+    }
+
+    /**
+     * Costruisce un registro vuoto che informa della creazione di ogni nuova istanza.
+     *
+     * <p> L'azione specificata viene eseguita dal thread che ha creato l'istanza,
+     * dopo averla registrata e prima di restituirla; altri thread possono quindi
+     * reperire l'istanza prima che l'azione sia eseguita.
+     *
+     * @param fabbrica la fabbrica delle nuove istanze.
+     * @param rilascio {@code true} per un registro con rilascio.
+     * @param registrazione l'azione da eseguire su ogni nuova istanza.
+     */
+    Registro(final Function<String, T> fabbrica, final boolean rilascio, final Consumer<? super T> registrazione) {
+        this.fabbrica = fabbrica;
+        this.registrazione = registrazione;
+        if (rilascio) {
+            riferimenti = new ConcurrentHashMap<>();
+            rilasciate = new ReferenceQueue<>();
+        } else {
+            istanze = new ConcurrentHashMap<>();
+            rilasciate = null;
+        }
+    }
+
+    /**
+     * Restituisce l'istanza associata al nome specificato, creandola se necessario.
+     *
+     * <p> Modifica this se il nome non è ancora registrato o, per un registro
+     * con rilascio, se sono state rilasciate delle istanze.
+     *
+     * @param nome il nome, già verificato dal chiamante.
+     * @return l'unica istanza associata al nome.
+     */
+    T istanza(final String nome) {
+        Trovata<T> trovata;
+        if (istanze != null) {
+            T istanza = istanze.get(nome);
+            if (istanza != null)
+                return istanza;
+            trovata = new Trovata<>();
+            trovata.istanza = istanze.computeIfAbsent(nome, n -> {
+                trovata.creata = true;
+                return fabbrica.apply(n);
+            });
+        } else {
+            Riferimento<T> riferimento = riferimenti.get(nome);
+            T istanza = riferimento != null ? riferimento.get() : null;
+            if (istanza != null)
+                return istanza;
+            pulisci();
+            // l'istanza trovata o creata viene mantenuta raggiungibile da trovata,
+            // così che non possa essere rilasciata prima di essere restituita
+            trovata = new Trovata<>();
+            riferimenti.compute(nome, (n, r) -> {
+                trovata.istanza = r != null ? r.get() : null;
+                if (trovata.istanza != null)
+                    return r;
+                trovata.creata = true;
+                trovata.istanza = fabbrica.apply(n);
+                return new Riferimento<>(trovata.istanza, n, rilasciate);
+            });
+        }
+        if (trovata.creata)
+            registrazione.accept(trovata.istanza);
+        return trovata.istanza;
+    }
+
+    /**
+     * Restituisce l'istanza associata al nome specificato, creandola senza cercarla
+     * prima se il registro è senza rilascio.
+     *
+     * <p> È pensato per registrare in blocco molte istanze con nomi non ancora
+     * registrati, come durante il caricamento di un'{@link Istantanea}: rispetto a
+     * {@link #istanza(String)} evita la ricerca preliminare di ogni nome. Se il nome è già
+     * registrato, l'istanza creata viene scartata e viene restituita quella esistente.
+     * Per un registro con rilascio equivale a {@link #istanza(String)}.
+     *
+     * <p> Modifica this se il nome non è ancora registrato.
+     *
+     * @param nome il nome, già verificato dal chiamante.
+     * @return l'unica istanza associata al nome.
+     */
+    T nuova(final String nome) {
+        if (istanze == null)
+            return istanza(nome);
+        T nuova = fabbrica.apply(nome);
+        T esistente = istanze.putIfAbsent(nome, nuova);
+        if (esistente != null)
+            return esistente;
+        registrazione.accept(nuova);
+        return nuova;
+    }
+
+    /**
+     * Restituisce il numero di istanze registrate.
+     *
+     * <p> Per un registro con rilascio, il numero può comprendere istanze
+     * già rilasciate ma non ancora rimosse.
+     *
+     * @return il numero di istanze.
+     */
+    int dimensione() {
+        if (istanze != null)
+            return istanze.size();
+        pulisci();
+        return riferimenti.size();
+    }
+
+    /**
+     * Predispone il registro a contenere il numero di istanze specificato
+     * senza doversi ingrandire durante le registrazioni successive.
+     *
+     * <p> Modifica this. Non deve essere invocato mentre altri thread usano
+     * il registro: è pensato per il caricamento di un'{@link Istantanea} all'avvio.
+     *
+     * @param attese il numero di istanze attese.
+     */
+    void riserva(final int attese) {
+        if (istanze != null) {
+            if (attese <= istanze.size())
+                return;
+            ConcurrentHashMap<String, T> nuove = new ConcurrentHashMap<>(attese);
+            nuove.putAll(istanze);
+            istanze = nuove;
+        } else {
+            if (attese <= riferimenti.size())
+                return;
+            ConcurrentHashMap<String, Riferimento<T>> nuovi = new ConcurrentHashMap<>(attese);
+            nuovi.putAll(riferimenti);
+            riferimenti = nuovi;
+        }
+    }
+
+    /**
+     * Restituisce le istanze registrate, in un ordine qualsiasi.
+     *
+     * <p> La lista restituita è una copia, non collegata a this.
+     *
+     * @return la lista delle istanze.
+     */
+    List<T> elenco() {
+        if (istanze != null)
+            return new ArrayList<>(istanze.values());
+        List<T> elenco = new ArrayList<>(riferimenti.size());
+        for (Riferimento<T> riferimento : riferimenti.values()) {
+            T istanza = riferimento.get();
+            if (istanza != null)
+                elenco.add(istanza);
+        }
+        return elenco;
+    }
+
+    /**
+     * Restituisce le istanze registrate, in ordine.
+     *
+     * <p> L'insieme restituito è una copia non modificabile, non collegata a this.
+     *
+     * @return l'insieme ordinato delle istanze.
+     */
+    SortedSet<T> ordinate() {
+        return Collections.unmodifiableSortedSet(new TreeSet<>(elenco()));
+    }
+
+    /**
+     * Rimuove i nomi delle istanze rilasciate dal garbage collector.
+     *
+     * <p> Modifica this.
+     */
+    private void pulisci() {
+        Object rilasciato;
+        while ((rilasciato = rilasciate.poll()) != null) {
+            Riferimento<?> riferimento = (Riferimento<?>) rilasciato;
+            riferimenti.remove(riferimento.nome, riferimento);
+        }
+    }
+
+    /**
+     * L'istanza trovata o creata da {@link #istanza(String)} se il nome non vi era associato.
+     *
+     * @param <T> il tipo dell'istanza.
+     */
+    private static final class Trovata<T> {
+
+        /** L'istanza. */
+        T istanza;
+
+        /** {@code true} se l'istanza è stata creata. */
+        boolean creata;
+    }
+
+    /**
+     * Riferimento debole a un'istanza registrata, che ne ricorda il nome.
+     *
+     * @param <T> il tipo dell'istanza.
+     */
+    private static final class Riferimento<T> extends WeakReference<T> {
+
+        /** Il nome dell'istanza. */
+        final String nome;
+
+        /**
+         * Costruisce un riferimento.
+         *
+         * @param istanza l'istanza.
+         * @param nome il nome dell'istanza.
+         * @param coda la coda in cui registrare il riferimento quando l'istanza viene rilasciata.
+         */
+        Riferimento(final T istanza, final String nome, final ReferenceQueue<? super T> coda) {
+            super(istanza, coda);
+            this.nome = nome;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package borsanova;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Classe che rappresenta lo storico degli scambi di un'azione: per ogni scambio,
+ * identificato dal suo numero di sequenza (a partire da 0), l'istante, il prezzo
+ * unitario e la quantità scambiata.
+ *
+ * <p> Gli scambi sono conservati in blocchi di array primitivi di {@link #BLOCCO}
+ * elementi, così che lo storico possa crescere fino a centinaia di milioni di scambi
+ * senza copiare quelli già registrati e senza oggetti per scambio; il primo blocco
+ * viene allocato piccolo e raddoppiato fino alla dimensione piena, così che le azioni
+ * poco scambiate occupino poca memoria.
+ *
+ * <p> Gli istanti sono non decrescenti: la ricerca per istante e l'aggregazione in
+ * {@link Barra barre} a intervalli di tempo usano la ricerca binaria.
+ *
+ * <p> Gli scambi vengono registrati da {@link Borsa} con il blocco dell'azione acquisito,
+ * con l'istante letto una sola volta per ordine; le interrogazioni possono essere eseguite
+ * da qualunque thread senza blocchi e vedono tutti gli scambi registrati prima della lettura
+ * di {@link #dimensione()}. Gli array già pubblicati non vengono mai sostituiti in place:
+ * quando lo storico deve ingrandirli, ne pubblica delle copie tramite il campo volatile
+ * {@link #blocchi}, letto dopo {@link #dimensione()}.
+ * Lo storico non fa parte del {@link Giornale} né dell'{@link Istantanea}.
+ */
+public final class StoricoPrezzi {
+
+    /** Il logaritmo in base 2 della dimensione di un blocco. */
+    private static final int BIT_BLOCCO = 16;
+
+    /** Il numero di scambi di un blocco pieno. */
+    static final int BLOCCO = 1 << BIT_BLOCCO;
+
+    /** La maschera che riduce un numero di sequenza alla sua posizione nel blocco. */
+    private static final int MASCHERA = BLOCCO - 1;
+
+    /** La dimensione iniziale del primo blocco. */
+    private static final int DIMENSIONE_INIZIALE = 16;
+
+    /**
+     * I blocchi degli scambi; viene sostituito, con blocchi che contengono gli stessi
+     * scambi, quando lo storico deve ingrandire un array già pubblicato.
+     */
+    private volatile Blocchi blocchi = new Blocchi(new long[1][], new int[1][], new int[1][]);
+
+    /**
+     * Il numero di scambi registrati; viene scritto dopo gli scambi e dopo {@link #blocchi},
+     * e letto prima di essi.
+     */
+    private volatile long dimensione;
+
+    /** L'istante dell'ultimo scambio registrato, 0 se non ce ne sono. */
+    private long ultimoIstante;
+
+    /*-
+     * AF:
+     *  - per ogni 0 <= s < dimensione, lo scambio numero s è avvenuto all'istante
+     *    blocchi.istanti[s >>> BIT_BLOCCO][s & MASCHERA], al prezzo blocchi.prezzi[...][...]
+     *    e per la quantità blocchi.quantita[...][...].
+     *
+     * RI:
+     *  - blocchi non è null; istanti, prezzi e quantita di blocchi non sono null.
+     *  - istanti, prezzi e quantita hanno la stessa lunghezza e i loro blocchi
+     *    di pari indice hanno la stessa lunghezza; i blocchi successivi al primo
+     *    hanno lunghezza BLOCCO, il primo al più BLOCCO.
+     *  - i blocchi contengono almeno dimensione elementi complessivamente.
+     *  - gli istanti sono non decrescenti, i prezzi e le quantità positivi;
+     *    ultimoIstante è l'istante dell'ultimo scambio, 0 se dimensione = 0.
+     *  - gli elementi di numero minore di dimensione non vengono più modificati;
+     *    gli array raggiungibili da blocchi dopo che dimensione vi è stato scritto
+     *    non vengono sostituiti, ma solo copiati in un nuovo valore di blocchi.
+     */
+
+    /**
+     * Costruisce uno storico vuoto.
+     */
+    StoricoPrezzi() {}
+
+    /**
+     * Registra uno scambio avvenuto nell'istante specificato (o, se l'istante
+     * precede quello dell'ultimo scambio, nell'istante dell'ultimo scambio).
+     *
+     * <p> Modifica this. Deve essere invocato da un solo thread alla volta.
+     *
+     * @param istante l'istante dello scambio, in millisecondi dall'epoca.
+     * @param prezzo il prezzo unitario dello scambio.
+     * @param q la quantità scambiata.
+     */
+    void registra(final long istante, final int prezzo, final int q) {
+        long s = dimensione;
+        int b = (int) (s >>> BIT_BLOCCO);
+        int i = (int) s & MASCHERA;
+        ultimoIstante = Math.max(istante, ultimoIstante);
+        Blocchi blocchi = this.blocchi;
+        if (b == blocchi.istanti.length || (i > 0 && i == blocchi.istanti[b].length)) {
+            // gli array pubblicati vengono copiati, mai sostituiti
+            long[][] istanti = Arrays.copyOf(blocchi.istanti, Math.max(2 * b, blocchi.istanti.length));
+            int[][] prezzi = Arrays.copyOf(blocchi.prezzi, istanti.length);
+            int[][] quantita = Arrays.copyOf(blocchi.quantita, istanti.length);
+            if (b < blocchi.istanti.length) {
+                istanti[b] = Arrays.copyOf(istanti[b], 2 * i);
+                prezzi[b] = Arrays.copyOf(prezzi[b], 2 * i);
+                quantita[b] = Arrays.copyOf(quantita[b], 2 * i);
+            }
+            this.blocchi = blocchi = new Blocchi(istanti, prezzi, quantita);
+        }
+        if (blocchi.istanti[b] == null) {
+            int n = b == 0 ? DIMENSIONE_INIZIALE : BLOCCO;
+            blocchi.istanti[b] = new long[n];
+            blocchi.prezzi[b] = new int[n];
+            blocchi.quantita[b] = new int[n];
+        }
+        blocchi.istanti[b][i] = ultimoIstante;
+        blocchi.prezzi[b][i] = prezzo;
+        blocchi.quantita[b][i] = q;
+        dimensione = s + 1;
+    }
+
+    /**
+     * Restituisce il numero di scambi registrati.
+     *
+     * @return il numero di scambi.
+     */
+    public long dimensione() {
+        return dimensione;
+    }
+
+    /**
+     * Restituisce l'istante di uno scambio.
+     *
+     * @param s il numero di sequenza dello scambio.
+     * @return l'istante, in millisecondi dall'epoca.
+     * @throws IndexOutOfBoundsException se lo scambio non è stato registrato.
+     */
+    public long istante(final long s) {
+        Objects.checkIndex(s, dimensione);
+        return blocchi.istanti[(int) (s >>> BIT_BLOCCO)][(int) s & MASCHERA];
+    }
+
+    /**
+     * Restituisce il prezzo unitario di uno scambio.
+     *
+     * @param s il numero di sequenza dello scambio.
+     * @return il prezzo.
+     * @throws IndexOutOfBoundsException se lo scambio non è stato registrato.
+     */
+    public int prezzo(final long s) {
+        Objects.checkIndex(s, dimensione);
+        return blocchi.prezzi[(int) (s >>> BIT_BLOCCO)][(int) s & MASCHERA];
+    }
+
+    /**
+     * Restituisce la quantità di uno scambio.
+     *
+     * @param s il numero di sequenza dello scambio.
+     * @return la quantità.
+     * @throws IndexOutOfBoundsException se lo scambio non è stato registrato.
+     */
+    public int quantita(final long s) {
+        Objects.checkIndex(s, dimensione);
+        return blocchi.quantita[(int) (s >>> BIT_BLOCCO)][(int) s & MASCHERA];
+    }
+
+    /**
+     * Restituisce il numero di sequenza del primo scambio avvenuto
+     * in un istante non precedente a quello specificato.
+     *
+     * <p> La ricerca è binaria e richiede tempo logaritmico nel numero di scambi.
+     *
+     * @param istante l'istante, in millisecondi dall'epoca.
+     * @return il numero di sequenza, oppure {@link #dimensione()} se tutti gli scambi
+     *  sono precedenti.
+     */
+    public long cerca(final long istante) {
+        long n = dimensione;
+        return cerca(blocchi, istante, 0, n);
+    }
+
+    /**
+     * Restituisce il numero di sequenza del primo scambio, tra quelli specificati,
+     * avvenuto in un istante non precedente a quello specificato.
+     *
+     * @param blocchi i blocchi degli scambi, letti dopo la dimensione.
+     * @param istante l'istante.
+     * @param da il primo scambio in cui cercare.
+     * @param a lo scambio successivo all'ultimo in cui cercare.
+     * @return il numero di sequenza, oppure {@code a} se gli scambi sono tutti precedenti.
+     */
+    private static long cerca(final Blocchi blocchi, final long istante, final long da, final long a) {
+        long basso = da, alto = a;
+        while (basso < alto) {
+            long medio = (basso + alto) >>> 1;
+            if (blocchi.istanti[(int) (medio >>> BIT_BLOCCO)][(int) medio & MASCHERA] < istante)
+                basso = medio + 1;
+            else
+                alto = medio;
+        }
+        return basso;
+    }
+
+    /**
+     * Aggrega in barre gli scambi con numero di sequenza compreso in un intervallo,
+     * raggruppandoli per numero di scambi.
+     *
+     * @param da il primo scambio.
+     * @param a lo scambio successivo all'ultimo; se è maggiore di {@link #dimensione()}
+     *  si considerano gli scambi fino all'ultimo registrato.
+     * @param scambi il numero di scambi di ogni barra (l'ultima può averne meno).
+     * @return l'elenco delle barre, ordinate per numero di sequenza.
+     * @throws IllegalArgumentException se l'intervallo non è valido o il numero di scambi
+     *  non è positivo.
+     */
+    public List<Barra> barrePerScambi(final long da, final long a, final int scambi) {
+        if (scambi <= 0)
+            throw new IllegalArgumentException("Il numero di scambi di una barra deve essere positivo");
+        long fine = Math.min(a, dimensione);
+        if (da < 0 || da > fine)
+            throw new IllegalArgumentException("L'intervallo di scambi non è valido");
+        Blocchi blocchi = this.blocchi;
+        List<Barra> barre = new ArrayList<>();
+        for (long s = da; s < fine; s += scambi) {
+            long ultimo = Math.min(fine, s + scambi);
+            barre.add(barra(blocchi, blocchi.istanti[(int) (s >>> BIT_BLOCCO)][(int) s & MASCHERA], s, ultimo));
+        }
+        return barre;
+    }
+
+    /**
+     * Aggrega in barre gli scambi avvenuti in un intervallo di tempo, raggruppandoli
+     * in intervalli consecutivi di uguale durata a partire dall'inizio; gli intervalli
+     * privi di scambi vengono omessi.
+     *
+     * <p> I confini di ciascuna barra vengono trovati con la ricerca binaria.
+     *
+     * @param da l'istante iniziale, in millisecondi dall'epoca.
+     * @param a l'istante finale (escluso).
+     * @param durata la durata di ogni barra, in millisecondi.
+     * @return l'elenco delle barre, ordinate per istante.
+     * @throws IllegalArgumentException se l'intervallo non è valido o la durata non è positiva.
+     */
+    public List<Barra> barrePerTempo(final long da, final long a, final long durata) {
+        if (durata <= 0)
+            throw new IllegalArgumentException("La durata di una barra deve essere positiva");
+        if (da > a)
+            throw new IllegalArgumentException("L'intervallo di tempo non è valido");
+        long n = dimensione;
+        Blocchi blocchi = this.blocchi;
+        long fine = cerca(blocchi, a, 0, n);
+        List<Barra> barre = new ArrayList<>();
+        for (long s = cerca(blocchi, da, 0, fine); s < fine; ) {
+            long inizio = da + (blocchi.istanti[(int) (s >>> BIT_BLOCCO)][(int) s & MASCHERA] - da) / durata * durata;
+            long limite = inizio > a - durata ? a : inizio + durata;
+            long ultimo = cerca(blocchi, limite, s, fine);
+            barre.add(barra(blocchi, inizio, s, ultimo));
+            s = ultimo;
+        }
+        return barre;
+    }
+
+    /**
+     * Aggrega in una barra gli scambi con numero di sequenza compreso in un intervallo non vuoto.
+     *
+     * @param blocchi i blocchi degli scambi, letti dopo la dimensione.
+     * @param inizio l'istante di inizio della barra.
+     * @param da il primo scambio.
+     * @param a lo scambio successivo all'ultimo.
+     * @return la barra.
+     */
+    private static Barra barra(final Blocchi blocchi, final long inizio, final long da, final long a) {
+        int apertura = blocchi.prezzi[(int) (da >>> BIT_BLOCCO)][(int) da & MASCHERA];
+        int massimo = apertura, minimo = apertura, chiusura = apertura;
+        long volume = 0;
+        for (long s = da; s < a; ) {
+            int[] p = blocchi.prezzi[(int) (s >>> BIT_BLOCCO)];
+            int[] q = blocchi.quantita[(int) (s >>> BIT_BLOCCO)];
+            int i = (int) s & MASCHERA;
+            int fine = (int) Math.min(p.length, i + (a - s));
+            for (; i < fine; i++) {
+                chiusura = p[i];
+                if (chiusura > massimo) massimo = chiusura;
+                if (chiusura < minimo) minimo = chiusura;
+                volume += q[i];
+            }
+            s = (s & ~(long) MASCHERA) + fine;
+        }
+        return new Barra(inizio, da, (int) (a - da), apertura, massimo, minimo, chiusura, volume);
+    }
+
+    /**
+     * Gli array dei blocchi degli scambi, pubblicati insieme.
+     *
+     * @param istanti gli istanti degli scambi, in millisecondi, per blocco.
+     * @param prezzi i prezzi unitari degli scambi, per blocco.
+     * @param quantita le quantità scambiate, per blocco.
+     */
+    private record Blocchi(long[][] istanti, int[][] prezzi, int[][] quantita) {}
+}
@@ -1,7 +1,5 @@
 package borsanova.politicaPrezzo;
 
-import borsanova.Borsa.Azione;
-
 /**
  * Classe che implementa una politica di prezzo {@link PoliticaPrezzo}
  * a decremento costante.
@@ -19,7 +17,7 @@ import borsanova.Borsa.Azione;
  *  </ul>
  * 
  */
-public class DecrementoCostante implements PoliticaPrezzo {
+public class DecrementoCostante implements PoliticaUniforme {
 
     /**
      * Il valore che rappresenta la decrescita
@@ -48,13 +46,30 @@ public class DecrementoCostante implements PoliticaPrezzo {
         this.valore = valore;
     }
 
+    /**
+     * Restituisce il valore di decremento del prezzo.
+     * 
+     * @return il valore di decremento.
+     */
+    public int valore() {
+        return valore;
+    }
+
     @Override
-    public int calcolaPrezzo(final Azione azione, final int quantita, final boolean acquisto) {
+    public int prezzoDopo(final int prezzo, final int quantita, final boolean acquisto) {
         if (acquisto)  
-            return azione.prezzo();
-        if (azione.prezzo() - valore <= 0)
+            return prezzo;
+        if (prezzo - valore <= 0)
             return 1;
-        return azione.prezzo() - valore;
+        return prezzo - valore;
+    }
+
+    @Override
+    public void calcolaPrezzi(final int[] prezzi, final int[] quantita, final boolean[] acquisti, final int[] nuoviPrezzi, final int n) {
+        PoliticaUniforme.verifica(prezzi, quantita, acquisti, nuoviPrezzi, n);
+        // il prezzo è positivo, quindi il massimo con 1 lascia invariati gli acquisti
+        for (int i = 0; i < n; i++)
+            nuoviPrezzi[i] = Math.max(prezzi[i] - (acquisti[i] ? 0 : valore), 1);
     }
 
 }
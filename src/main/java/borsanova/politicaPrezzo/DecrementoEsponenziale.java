@@ -0,0 +1,100 @@
+package borsanova.politicaPrezzo;
+
+/**
+ * Classe che implementa una politica di prezzo {@link PoliticaPrezzo}
+ * a decremento esponenziale.
+ * 
+ * <p> Il decremento esponenziale è un'operazione che, se un'azione viene venduta,
+ * diminuisce il suo prezzo in modo esponenziale nella quantità venduta: il prezzo
+ * si dimezza ogni {@code dimezzamento} azioni vendute, ossia vendendo {@code q}
+ * azioni il prezzo viene moltiplicato per {@code 2^(-q / dimezzamento)} e arrotondato
+ * per difetto; altrimenti lascia il prezzo invariato. Se con il decremento il prezzo
+ * dell'azione diventa 0, il prezzo dell'azione viene impostato a 1. </p>
+ * 
+ * <p> Il calcolo non usa l'aritmetica in virgola mobile: il fattore {@code 2^(-q / d)}
+ * viene scomposto in {@code 2^(-(q / d))}, uno scorrimento, e {@code 2^(-(q % d) / d)},
+ * letto da una tabella di {@code d} valori in virgola fissa con 62 bit frazionari,
+ * calcolata alla costruzione. </p>
+ */
+public class DecrementoEsponenziale implements PoliticaUniforme {
+
+    /** Il massimo numero di azioni vendute che dimezza il prezzo. */
+    public static final int DIMEZZAMENTO_MASSIMO = 1 << 16;
+
+    /** Il numero di bit frazionari dei fattori della tabella. */
+    private static final int BIT_FRAZIONARI = 62;
+
+    /** Il numero di azioni vendute che dimezza il prezzo. */
+    private final int dimezzamento;
+
+    /** I fattori {@code 2^(-j / dimezzamento)}, per {@code 0 <= j < dimezzamento}, in virgola fissa. */
+    private final long[] fattori;
+
+    /*-
+     * AF:
+     *  - dimezzamento è il numero di azioni vendute che dimezza il prezzo di un'azione.
+     * 
+     * RI:
+     *  - dimezzamento è compreso tra 1 e DIMEZZAMENTO_MASSIMO.
+     *  - fattori ha lunghezza dimezzamento e fattori[j] approssima 2^(62 - j / dimezzamento);
+     *    fattori[0] = 2^62.
+     */
+
+    /**
+     * Costruisce un'istanza di DecrementoEsponenziale, con il numero
+     * di azioni vendute che dimezza il prezzo specificato.
+     * 
+     * @param dimezzamento il numero di azioni vendute che dimezza il prezzo.
+     * @throws IllegalArgumentException se il numero non è compreso tra 1
+     *  e {@link #DIMEZZAMENTO_MASSIMO}.
+     */
+    public DecrementoEsponenziale(int dimezzamento) {
+        if (dimezzamento <= 0 || dimezzamento > DIMEZZAMENTO_MASSIMO)
+            throw new IllegalArgumentException("Il numero di azioni che dimezza il prezzo deve essere compreso tra 1 e " + DIMEZZAMENTO_MASSIMO + ".");
+        this.dimezzamento = dimezzamento;
+        this.fattori = new long[dimezzamento];
+        fattori[0] = 1L << BIT_FRAZIONARI;
+        for (int j = 1; j < dimezzamento; j++)
+            fattori[j] = Math.round(Math.scalb(Math.pow(2, -(double) j / dimezzamento), BIT_FRAZIONARI));
+    }
+
+    /**
+     * Restituisce il numero di azioni vendute che dimezza il prezzo.
+     * 
+     * @return il numero di azioni.
+     */
+    public int dimezzamento() {
+        return dimezzamento;
+    }
+
+    /**
+     * Calcola il prezzo di un'azione dopo la vendita di una quantità di azioni.
+     * 
+     * @param prezzo il prezzo prima della vendita, positivo.
+     * @param quantita la quantità venduta, non negativa.
+     * @return il nuovo prezzo, pari a {@code prezzo * 2^(-quantita / dimezzamento)}
+     *  arrotondato per difetto, o a 1 se minore.
+     */
+    public int prezzoDopoVendita(final int prezzo, final int quantita) {
+        int dimezzamenti = quantita / dimezzamento;
+        if (dimezzamenti >= Integer.SIZE - 1)
+            return 1;
+        long nuovo = Math.multiplyHigh((long) prezzo << (Long.SIZE - BIT_FRAZIONARI), fattori[quantita % dimezzamento]) >> dimezzamenti;
+        return nuovo < 1 ? 1 : (int) nuovo;
+    }
+
+    @Override
+    public int prezzoDopo(final int prezzo, final int quantita, final boolean acquisto) {
+        if (acquisto)
+            return prezzo;
+        return prezzoDopoVendita(prezzo, quantita);
+    }
+
+    @Override
+    public void calcolaPrezzi(final int[] prezzi, final int[] quantita, final boolean[] acquisti, final int[] nuoviPrezzi, final int n) {
+        PoliticaUniforme.verifica(prezzi, quantita, acquisti, nuoviPrezzi, n);
+        // la tabella dei fattori è indicizzata dalla quantità: il ciclo non è vettorizzabile
+        for (int i = 0; i < n; i++)
+            nuoviPrezzi[i] = acquisti[i] ? prezzi[i] : prezzoDopoVendita(prezzi[i], quantita[i]);
+    }
+}
@@ -1,7 +1,5 @@
 package borsanova.politicaPrezzo;
 
-import borsanova.Borsa.Azione;
-
 /**
  * Classe che implementa una politica di prezzo {@link PoliticaPrezzo}
  * ad incremento costante.
@@ -17,7 +15,7 @@ import borsanova.Borsa.Azione;
  *  </ul>
  * 
  */
-public class IncrementoCostante implements PoliticaPrezzo {
+public class IncrementoCostante implements PoliticaUniforme {
 
     /** Il valore che rappresenta la crescita
      * del prezzo di un'azione.
@@ -45,10 +43,26 @@ public class IncrementoCostante implements PoliticaPrezzo {
         this.valore = valore;
     }
 
+    /**
+     * Restituisce il valore di incremento del prezzo.
+     * 
+     * @return il valore di incremento.
+     */
+    public int valore() {
+        return valore;
+    }
+
     @Override
-    public int calcolaPrezzo(final Azione azione, final int quantita, final boolean acquisto) {
+    public int prezzoDopo(final int prezzo, final int quantita, final boolean acquisto) {
         if (acquisto) 
-            return azione.prezzo() + valore;
-        return azione.prezzo();
+            return prezzo + valore;
+        return prezzo;
+    }
+
+    @Override
+    public void calcolaPrezzi(final int[] prezzi, final int[] quantita, final boolean[] acquisti, final int[] nuoviPrezzi, final int n) {
+        PoliticaUniforme.verifica(prezzi, quantita, acquisti, nuoviPrezzi, n);
+        for (int i = 0; i < n; i++)
+            nuoviPrezzi[i] = prezzi[i] + (acquisti[i] ? valore : 0);
     }
 }
@@ -0,0 +1,76 @@
+package borsanova.politicaPrezzo;
+
+/**
+ * Classe che implementa una politica di prezzo {@link PoliticaPrezzo}
+ * ad incremento lineare.
+ * 
+ * <p> L'incremento lineare è un'operazione che aumenta il prezzo di un'azione,
+ * se viene acquistata, di un valore costante per ogni azione acquistata,
+ * altrimenti lascia il prezzo invariato. Il prezzo non può superare
+ * {@link Integer#MAX_VALUE}. </p>
+ * 
+ * <p> Il nuovo prezzo è calcolato con aritmetica intera. </p>
+ */
+public class IncrementoLineare implements PoliticaUniforme {
+
+    /** L'incremento del prezzo per ogni azione acquistata. */
+    private final int valore;
+
+    /*-
+     * AF:
+     *  - valore rappresenta l'incremento del prezzo per ogni azione acquistata.
+     * 
+     * RI:
+     *  - valore non può essere minore o uguale a 0.
+     */
+
+    /**
+     * Costruisce un'istanza di IncrementoLineare,
+     * con un valore di incremento per azione specificato.
+     * 
+     * @param valore l'incremento del prezzo per ogni azione acquistata.
+     * @throws IllegalArgumentException se il valore di incremento è minore o uguale a 0.
+     */
+    public IncrementoLineare(int valore) {
+        if (valore <= 0)
+            throw new IllegalArgumentException("Il valore di incremento deve essere positivo.");
+        this.valore = valore;
+    }
+
+    /**
+     * Restituisce l'incremento del prezzo per ogni azione acquistata.
+     * 
+     * @return il valore di incremento.
+     */
+    public int valore() {
+        return valore;
+    }
+
+    /**
+     * Calcola il prezzo di un'azione dopo l'acquisto di una quantità di azioni.
+     * 
+     * @param prezzo il prezzo prima dell'acquisto.
+     * @param quantita la quantità acquistata.
+     * @return il nuovo prezzo, pari a {@code prezzo + valore * quantita}
+     *  o a {@link Integer#MAX_VALUE} se maggiore.
+     */
+    public int prezzoDopoAcquisto(final int prezzo, final int quantita) {
+        return (int) Math.min((long) prezzo + (long) valore * quantita, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int prezzoDopo(final int prezzo, final int quantita, final boolean acquisto) {
+        if (acquisto)
+            return prezzoDopoAcquisto(prezzo, quantita);
+        return prezzo;
+    }
+
+    @Override
+    public void calcolaPrezzi(final int[] prezzi, final int[] quantita, final boolean[] acquisti, final int[] nuoviPrezzi, final int n) {
+        PoliticaUniforme.verifica(prezzi, quantita, acquisti, nuoviPrezzi, n);
+        for (int i = 0; i < n; i++) {
+            long nuovo = Math.min((long) prezzi[i] + (long) valore * quantita[i], Integer.MAX_VALUE);
+            nuoviPrezzi[i] = acquisti[i] ? (int) nuovo : prezzi[i];
+        }
+    }
+}
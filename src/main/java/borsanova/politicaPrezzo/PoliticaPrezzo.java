@@ -13,6 +13,11 @@ import borsanova.Borsa.Azione;
  *  che deve essere sovrascritto dalle classi che implementano una politica di prezzo.
  * </p>
  * 
+ * <p> Le politiche in cui il nuovo prezzo dipende solo dal prezzo corrente,
+ *  dalla quantità e dal tipo dell'operazione implementano {@link PoliticaUniforme},
+ *  che permette anche di calcolare i prezzi in blocco.
+ * </p>
+ * 
  * <p>Strumenti di supporto utilizzati e confronti:
  *  <ul>
  *   <li> Giacomo Castellana, compagno di corso, per aver discusso
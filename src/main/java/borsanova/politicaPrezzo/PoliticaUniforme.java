@@ -0,0 +1,75 @@
+package borsanova.politicaPrezzo;
+
+import borsanova.Borsa.Azione;
+import java.util.Objects;
+
+/**
+ * Interfaccia per le politiche di prezzo {@link PoliticaPrezzo} uniformi.
+ * 
+ * <p> Una politica uniforme tratta allo stesso modo tutte le azioni: il nuovo
+ * prezzo dipende solo dal prezzo corrente, dalla quantità scambiata e dal tipo
+ * dell'operazione, e non da altro stato dell'azione o della politica. Per questo
+ * può calcolare in blocco i prezzi di più compravendite indipendenti, con
+ * {@link #calcolaPrezzi(int[], int[], boolean[], int[], int)}. </p>
+ */
+public interface PoliticaUniforme extends PoliticaPrezzo {
+
+    /**
+     * Calcola il nuovo prezzo di un'azione dopo una compravendita.
+     * 
+     * @param prezzo il prezzo dell'azione prima della compravendita, positivo.
+     * @param quantita la quantità di azioni acquistate o vendute.
+     * @param acquisto {@code true} se l'operazione è un acquisto, {@code false} se è una vendita.
+     * @return il nuovo prezzo dell'azione.
+     */
+    public int prezzoDopo(int prezzo, int quantita, boolean acquisto);
+
+    @Override
+    public default int calcolaPrezzo(final Azione azione, final int quantita, final boolean acquisto) {
+        return prezzoDopo(azione.prezzo(), quantita, acquisto);
+    }
+
+    /**
+     * Calcola in blocco i nuovi prezzi di più compravendite indipendenti.
+     * 
+     * <p> Per ogni {@code i} minore di {@code n}, {@code nuoviPrezzi[i]} diventa
+     * {@code prezzoDopo(prezzi[i], quantita[i], acquisti[i])}; {@code nuoviPrezzi}
+     * può coincidere con {@code prezzi}. Le implementazioni sovrascrivono questo
+     * metodo con un ciclo senza salti, che il compilatore può vettorizzare. </p>
+     * 
+     * <p> Modifica {@code nuoviPrezzi}.
+     * 
+     * @param prezzi i prezzi prima delle compravendite, positivi.
+     * @param quantita le quantità acquistate o vendute.
+     * @param acquisti {@code true} per gli acquisti, {@code false} per le vendite.
+     * @param nuoviPrezzi l'array in cui scrivere i nuovi prezzi.
+     * @param n il numero di compravendite.
+     * @throws NullPointerException se un array è {@code null}.
+     * @throws IndexOutOfBoundsException se {@code n} è negativo o maggiore
+     *  della lunghezza di un array.
+     */
+    public default void calcolaPrezzi(final int[] prezzi, final int[] quantita, final boolean[] acquisti, final int[] nuoviPrezzi, final int n) {
+        verifica(prezzi, quantita, acquisti, nuoviPrezzi, n);
+        for (int i = 0; i < n; i++)
+            nuoviPrezzi[i] = prezzoDopo(prezzi[i], quantita[i], acquisti[i]);
+    }
+
+    /**
+     * Verifica gli argomenti di {@link #calcolaPrezzi(int[], int[], boolean[], int[], int)}.
+     * 
+     * @param prezzi i prezzi.
+     * @param quantita le quantità.
+     * @param acquisti i tipi delle operazioni.
+     * @param nuoviPrezzi l'array dei nuovi prezzi.
+     * @param n il numero di compravendite.
+     * @throws NullPointerException se un array è {@code null}.
+     * @throws IndexOutOfBoundsException se {@code n} è negativo o maggiore
+     *  della lunghezza di un array.
+     */
+    static void verifica(final int[] prezzi, final int[] quantita, final boolean[] acquisti, final int[] nuoviPrezzi, final int n) {
+        Objects.checkFromIndexSize(0, n, Objects.requireNonNull(prezzi, "I prezzi non possono essere null").length);
+        Objects.checkFromIndexSize(0, n, Objects.requireNonNull(quantita, "Le quantità non possono essere null").length);
+        Objects.checkFromIndexSize(0, n, Objects.requireNonNull(acquisti, "Gli acquisti non possono essere null").length);
+        Objects.checkFromIndexSize(0, n, Objects.requireNonNull(nuoviPrezzi, "I nuovi prezzi non possono essere null").length);
+    }
+}
@@ -0,0 +1,336 @@
+package borsanova.politicaPrezzo;
+
+import borsanova.Borsa.Azione;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * Classe che implementa una politica di prezzo {@link PoliticaPrezzo}
+ * che reagisce alla pressione degli scambi recenti.
+ * 
+ * <p> Per ogni azione la politica tiene il volume netto (azioni acquistate meno
+ * azioni vendute) degli scambi recenti: gli ultimi {@code n} scambi, oppure
+ * gli scambi avvenuti negli ultimi {@code t} secondi. La pressione di un'azione
+ * è il volume netto diviso per {@code sensibilita} (troncato verso lo zero): ad ogni
+ * scambio il volume netto viene aggiornato, togliendo gli scambi usciti dalla finestra
+ * e aggiungendo la quantità scambiata, e il prezzo dell'azione varia di quanto è
+ * variata la pressione dallo scambio precedente. Un acquisto di molte azioni alza
+ * quindi il prezzo una sola volta, e lo riabbassa quando esce dalla finestra;
+ * il prezzo resta compreso tra 1 e {@link Integer#MAX_VALUE}. </p>
+ * 
+ * <p> Il volume netto di ogni azione è la somma di una finestra scorrevole
+ * di {@code n} (o {@code t}) contenitori in un buffer circolare: un contenitore
+ * per ogni scambio, oppure per ogni secondo. Ad ogni scambio la somma viene
+ * aggiornata in tempo costante sottraendo i contenitori usciti dalla finestra.
+ * Le finestre sono al più {@code capacita}, fissata alla costruzione e ripartita
+ * tra alcune <em>strisce</em>; ogni azione appartiene a una striscia, determinata
+ * dal suo codice hash. Quando una striscia ha assegnato tutte le sue finestre,
+ * la finestra della sua azione scambiata meno di recente viene svuotata e
+ * riassegnata, così che la memoria occupata non cresca con il numero di aziende
+ * quotate. </p>
+ * 
+ * <p> La politica può essere condivisa tra borse e invocata da più thread: ogni
+ * striscia ha un proprio blocco, così che il calcolo del prezzo di azioni di strisce
+ * diverse proceda in parallelo, come le compravendite di azioni diverse
+ * (si veda {@link borsanova.Borsa}). Il blocco di una striscia viene tenuto solo
+ * durante il calcolo e non se ne acquisiscono altri. Il suo stato non viene registrato
+ * nel {@link borsanova.Giornale} né nell'{@link borsanova.Istantanea}. </p>
+ */
+public class PressioneVolume implements PoliticaPrezzo {
+
+    /** Il numero massimo di strisce. */
+    private static final int STRISCE = 16;
+
+    /** Il numero di contenitori di ogni finestra. */
+    private final int contenitori;
+
+    /** {@code true} se ogni contenitore corrisponde a uno scambio, {@code false} se a un secondo. */
+    private final boolean perScambi;
+
+    /** L'orologio, in millisecondi, per le finestre di tempo. */
+    private final LongSupplier orologio;
+
+    /** Il volume netto che varia il prezzo di un'unità. */
+    private final int sensibilita;
+
+    /** Le strisce, ciascuna con le proprie finestre. */
+    private final Striscia[] strisce;
+
+    /*-
+     * AF:
+     *  - il volume netto degli scambi recenti di un'azione a è la somma della finestra
+     *    associata ad a dalla striscia strisce[striscia(a)], oppure 0 se non ve n'è una.
+     * 
+     * RI:
+     *  - contenitori e sensibilita sono positivi; orologio non è null se !perScambi.
+     *  - strisce non è null, non contiene null e ha lunghezza compresa tra 1 e STRISCE;
+     *    la somma delle capacità delle strisce è la capacità della politica.
+     *  - ogni striscia associa solo azioni a con striscia(a) uguale alla sua posizione.
+     */
+
+    /**
+     * Costruisce una politica che considera gli ultimi scambi di ciascuna azione.
+     * 
+     * @param scambi il numero di scambi considerati.
+     * @param sensibilita il volume netto che varia il prezzo di un'unità.
+     * @param capacita il numero massimo di azioni di cui considerare gli scambi.
+     * @throws IllegalArgumentException se un parametro non è positivo.
+     */
+    public PressioneVolume(int scambi, int sensibilita, int capacita) {
+        this(scambi, true, null, sensibilita, capacita);
+    }
+
+    /**
+     * Costruisce una politica che considera gli scambi di ciascuna azione
+     * avvenuti in un intervallo di tempo recente, misurato in secondi interi.
+     * 
+     * @param durata la durata dell'intervallo.
+     * @param sensibilita il volume netto che varia il prezzo di un'unità.
+     * @param capacita il numero massimo di azioni di cui considerare gli scambi.
+     * @throws NullPointerException se la durata è {@code null}.
+     * @throws IllegalArgumentException se la durata è inferiore a un secondo
+     *  o se un parametro non è positivo.
+     */
+    public PressioneVolume(Duration durata, int sensibilita, int capacita) {
+        this(durata, sensibilita, capacita, System::currentTimeMillis);
+    }
+
+    /**
+     * Costruisce una politica che considera gli scambi di ciascuna azione
+     * avvenuti in un intervallo di tempo recente, misurato con l'orologio specificato.
+     * 
+     * @param durata la durata dell'intervallo.
+     * @param sensibilita il volume netto che varia il prezzo di un'unità.
+     * @param capacita il numero massimo di azioni di cui considerare gli scambi.
+     * @param orologio l'orologio, che restituisce l'istante corrente in millisecondi
+     *  e non torna indietro.
+     * @throws NullPointerException se la durata o l'orologio sono {@code null}.
+     * @throws IllegalArgumentException se la durata è inferiore a un secondo o supera
+     *  {@link Integer#MAX_VALUE} secondi, o se un parametro non è positivo.
+     */
+    public PressioneVolume(Duration durata, int sensibilita, int capacita, LongSupplier orologio) {
+        this(secondi(durata), false, Objects.requireNonNull(orologio, "L'orologio non può essere null"), sensibilita, capacita);
+    }
+
+    /**
+     * Costruisce una politica.
+     * 
+     * @param contenitori il numero di contenitori di ogni finestra.
+     * @param perScambi {@code true} se ogni contenitore corrisponde a uno scambio.
+     * @param orologio l'orologio, per le finestre di tempo.
+     * @param sensibilita il volume netto che varia il prezzo di un'unità.
+     * @param capacita il numero di finestre.
+     * @throws IllegalArgumentException se un parametro non è positivo.
+     */
+    private PressioneVolume(int contenitori, boolean perScambi, LongSupplier orologio, int sensibilita, int capacita) {
+        if (contenitori <= 0)
+            throw new IllegalArgumentException("La finestra deve contenere almeno uno scambio.");
+        if (sensibilita <= 0)
+            throw new IllegalArgumentException("La sensibilità deve essere positiva.");
+        if (capacita <= 0)
+            throw new IllegalArgumentException("La capacità deve essere positiva.");
+        if ((long) contenitori * capacita > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Le finestre sono troppo grandi.");
+        this.contenitori = contenitori;
+        this.perScambi = perScambi;
+        this.orologio = orologio;
+        this.sensibilita = sensibilita;
+        this.strisce = new Striscia[Math.min(capacita, STRISCE)];
+        for (int i = 0; i < strisce.length; i++)
+            strisce[i] = new Striscia(capacita / strisce.length + (i < capacita % strisce.length ? 1 : 0));
+    }
+
+    /**
+     * Restituisce la durata in secondi di un intervallo di tempo.
+     * 
+     * @param durata la durata.
+     * @return il numero di secondi.
+     * @throws NullPointerException se la durata è {@code null}.
+     * @throws IllegalArgumentException se la durata è inferiore a un secondo
+     *  o supera {@link Integer#MAX_VALUE} secondi.
+     */
+    private static int secondi(final Duration durata) {
+        long secondi = Objects.requireNonNull(durata, "La durata non può essere null").getSeconds();
+        if (secondi <= 0 || secondi > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("La durata deve essere compresa tra un secondo e " + Integer.MAX_VALUE + " secondi.");
+        return (int) secondi;
+    }
+
+    /**
+     * Restituisce il volume netto che varia il prezzo di un'unità.
+     * 
+     * @return la sensibilità.
+     */
+    public int sensibilita() {
+        return sensibilita;
+    }
+
+    /**
+     * Restituisce il volume netto degli scambi recenti di un'azione,
+     * senza registrare alcuno scambio.
+     * 
+     * @param azione l'azione.
+     * @return il volume netto, 0 se la politica non considera gli scambi dell'azione.
+     */
+    public long volumeNetto(final Azione azione) {
+        Striscia striscia = striscia(azione);
+        synchronized (striscia) {
+            Finestra f = striscia.finestre.get(azione);
+            if (f == null) return 0;
+            if (!perScambi) scorri(f, orologio.getAsLong() / 1000);
+            return f.somma;
+        }
+    }
+
+    @Override
+    public int calcolaPrezzo(final Azione azione, final int quantita, final boolean acquisto) {
+        Striscia striscia = striscia(azione);
+        long variazione;
+        synchronized (striscia) {
+            Finestra f = striscia.finestra(azione);
+            long chiave = perScambi ? f.chiave + 1 : orologio.getAsLong() / 1000;
+            scorri(f, chiave);
+            long volume = acquisto ? quantita : -(long) quantita;
+            f.volumi[(int) (chiave % contenitori)] += volume;
+            f.somma += volume;
+            long pressione = f.somma / sensibilita;
+            variazione = pressione - f.pressione;
+            f.pressione = pressione;
+        }
+        long nuovo = azione.prezzo() + variazione;
+        return (int) Math.max(1, Math.min(nuovo, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Restituisce la striscia di un'azione.
+     * 
+     * @param azione l'azione.
+     * @return la striscia.
+     */
+    private Striscia striscia(final Azione azione) {
+        int h = azione.hashCode() * 0x9E3779B9;
+        return strisce[Integer.remainderUnsigned(h ^ (h >>> 16), strisce.length)];
+    }
+
+    /**
+     * Fa scorrere una finestra fino al contenitore di chiave specificata,
+     * svuotando i contenitori che escono dalla finestra.
+     * 
+     * <p> Modifica la finestra. Il chiamante deve detenere il blocco della sua
+     * striscia. Il tempo richiesto è al più proporzionale al numero di
+     * contenitori, e costante se la chiave avanza di uno.
+     * 
+     * @param f la finestra.
+     * @param chiave la chiave, non minore dell'ultima della finestra.
+     */
+    private void scorri(final Finestra f, final long chiave) {
+        long ultima = f.chiave;
+        if (chiave <= ultima) return;
+        long fine = Math.min(chiave, ultima + contenitori);
+        for (long k = ultima + 1; k <= fine; k++) {
+            int i = (int) (k % contenitori);
+            f.somma -= f.volumi[i];
+            f.volumi[i] = 0;
+        }
+        f.chiave = chiave;
+    }
+
+    /**
+     * Finestra scorrevole degli scambi recenti di un'azione.
+     */
+    private static final class Finestra {
+
+        /** I volumi netti dei contenitori. */
+        final long[] volumi;
+
+        /** La somma dei contenitori. */
+        long somma;
+
+        /** La chiave (numero di scambio o secondo) dell'ultimo contenitore aggiornato. */
+        long chiave;
+
+        /** La pressione già applicata al prezzo dell'azione. */
+        long pressione;
+
+        /*-
+         * AF:
+         *  - l'ultimo contenitore aggiornato è quello di chiave chiave, e il contenitore
+         *    di chiave k (chiave - volumi.length < k <= chiave) contiene volumi[k % volumi.length].
+         *
+         * RI:
+         *  - volumi non è null; somma è la somma dei suoi elementi.
+         */
+
+        /**
+         * Costruisce una finestra vuota.
+         * 
+         * @param contenitori il numero di contenitori.
+         */
+        Finestra(final int contenitori) {
+            volumi = new long[contenitori];
+        }
+    }
+
+    /**
+     * Striscia di finestre, protetta dal proprio blocco intrinseco.
+     */
+    private final class Striscia {
+
+        /** Il numero massimo di finestre della striscia. */
+        private final int capacita;
+
+        /** Le finestre assegnate, per azione, dalla usata meno di recente. */
+        final LinkedHashMap<Azione, Finestra> finestre;
+
+        /*-
+         * AF:
+         *  - la striscia associa ad ogni azione di finestre la sua finestra.
+         *
+         * RI:
+         *  - capacita è positiva; finestre non è null, contiene al più capacita
+         *    associazioni ed è ordinata per accesso, dalla meno recente.
+         */
+
+        /**
+         * Costruisce una striscia senza finestre assegnate.
+         * 
+         * @param capacita il numero massimo di finestre, positivo.
+         */
+        Striscia(final int capacita) {
+            this.capacita = capacita;
+            this.finestre = new LinkedHashMap<>(2 * capacita, 0.75f, true);
+        }
+
+        /**
+         * Restituisce la finestra di un'azione, assegnandole quella usata
+         * meno di recente se non ne ha una e non ce ne sono di libere, e la rende
+         * la finestra usata più di recente.
+         * 
+         * <p> Modifica this. Il chiamante deve detenere il blocco di this.
+         * 
+         * @param azione l'azione.
+         * @return la finestra.
+         */
+        Finestra finestra(final Azione azione) {
+            Finestra f = finestre.get(azione);
+            if (f != null) return f;
+            if (finestre.size() < capacita) {
+                f = new Finestra(contenitori);
+            } else {
+                Map.Entry<Azione, Finestra> remota = finestre.entrySet().iterator().next();
+                f = remota.getValue();
+                finestre.remove(remota.getKey());
+                Arrays.fill(f.volumi, 0);
+                f.somma = 0;
+                f.pressione = 0;
+            }
+            f.chiave = perScambi ? 0 : orologio.getAsLong() / 1000;
+            finestre.put(azione, f);
+            return f;
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package borsanova.politicaPrezzo;
 
-import borsanova.Borsa.Azione;
-
 /**
  * Classe che implementa una politica di prezzo
  * invariata.
@@ -15,7 +13,7 @@ import borsanova.Borsa.Azione;
  *  </ul>
  * 
  */
-public class PrezzoInvariato implements PoliticaPrezzo {
+public class PrezzoInvariato implements PoliticaUniforme {
 
     /**
      * Costruisce un'istanza di PrezzoInvariato vuota.
@@ -29,7 +27,14 @@ public class PrezzoInvariato implements PoliticaPrezzo {
      */
 
     @Override
-    public int calcolaPrezzo(final Azione azione, final int quantita, final boolean acquisto) {
-        return azione.prezzo();
+    public int prezzoDopo(final int prezzo, final int quantita, final boolean acquisto) {
+        return prezzo;
+    }
+
+    @Override
+    public void calcolaPrezzi(final int[] prezzi, final int[] quantita, final boolean[] acquisti, final int[] nuoviPrezzi, final int n) {
+        PoliticaUniforme.verifica(prezzi, quantita, acquisti, nuoviPrezzi, n);
+        if (nuoviPrezzi != prezzi)
+            System.arraycopy(prezzi, 0, nuoviPrezzi, 0, n);
     }
 }
@@ -1,7 +1,5 @@
 package borsanova.politicaPrezzo;
 
-import borsanova.Borsa.Azione;
-
 /**
  * Classe che implementa una politica {@link PoliticaPrezzo}
  * di variazione costante del prezzo.
@@ -9,6 +7,7 @@ import borsanova.Borsa.Azione;
  * <p> Una politica a variazione costante del prezzo prevede,
  * in caso di acquisto di un'azione, una politica ad Incremento Costante ({@link IncrementoCostante}),
  * mentre in caso di vendita di un'azione, una politica a Decremento Costante ({@link DecrementoCostante}).
+ * I due valori sono applicati direttamente, senza delegare alle due politiche.
  * 
  * <p> Strumenti di supporto utilizzati:
  *  <ul>
@@ -16,13 +15,13 @@ import borsanova.Borsa.Azione;
  *  </ul>
  * 
  */
-public class VariazioneCostante implements PoliticaPrezzo{
+public class VariazioneCostante implements PoliticaUniforme {
 
     /** Il valore dell'incremento costante del prezzo. */
-    private final IncrementoCostante incremento;
+    private final int incremento;
 
     /** Il valore del decremento costante del prezzo. */
-    private final DecrementoCostante decremento;
+    private final int decremento;
 
     /*-
      * AF:
@@ -44,15 +43,43 @@ public class VariazioneCostante implements PoliticaPrezzo{
     public VariazioneCostante(int incremento, int decremento) {
         if (incremento <= 0 || decremento <= 0)
             throw new IllegalArgumentException("Incremento e decremento devono essere maggiori di 0.");
-        this.incremento = new IncrementoCostante(incremento);
-        this.decremento = new DecrementoCostante(decremento);
+        this.incremento = incremento;
+        this.decremento = decremento;
+    }
+
+    /**
+     * Restituisce il valore di incremento del prezzo.
+     * 
+     * @return il valore di incremento.
+     */
+    public int incremento() {
+        return incremento;
+    }
+
+    /**
+     * Restituisce il valore di decremento del prezzo.
+     * 
+     * @return il valore di decremento.
+     */
+    public int decremento() {
+        return decremento;
     }
 
     @Override
-    public int calcolaPrezzo(final Azione azione, final int quantita, final boolean acquisto) {
+    public int prezzoDopo(final int prezzo, final int quantita, final boolean acquisto) {
         if (acquisto)
-            return incremento.calcolaPrezzo(azione, quantita, acquisto);
-        return decremento.calcolaPrezzo(azione, quantita, acquisto);
+            return prezzo + incremento;
+        if (prezzo - decremento <= 0)
+            return 1;
+        return prezzo - decremento;
     }
 
+    @Override
+    public void calcolaPrezzi(final int[] prezzi, final int[] quantita, final boolean[] acquisti, final int[] nuoviPrezzi, final int n) {
+        PoliticaUniforme.verifica(prezzi, quantita, acquisti, nuoviPrezzi, n);
+        for (int i = 0; i < n; i++) {
+            int p = prezzi[i];
+            nuoviPrezzi[i] = acquisti[i] ? p + incremento : Math.max(p - decremento, 1);
+        }
+    }
 }
@@ -0,0 +1,52 @@
+package borsanova.simulazione;
+
+/**
+ * Record che rappresenta il comportamento casuale degli operatori di una simulazione.
+ *
+ * <p> A ogni passo della simulazione un operatore, scelto a caso, compie un'operazione
+ * scelta a caso con probabilità proporzionale al suo peso:
+ *  <ul>
+ *   <li> un deposito di un importo compreso tra 1 e {@code importoMassimo}; </li>
+ *   <li> un prelievo di un importo compreso tra 1 e il minimo tra {@code importoMassimo}
+ *        e il budget; </li>
+ *   <li> un acquisto di azioni di un'azienda scelta a caso, per un prezzo totale compreso
+ *        tra 1 e il minimo tra {@code importoMassimo} e il budget; </li>
+ *   <li> una vendita di una quantità compresa tra 1 e quella posseduta delle azioni di
+ *        un'azienda scelta a caso. </li>
+ *  </ul>
+ * Le operazioni che non possono essere eseguite (ad esempio un acquisto senza budget
+ * sufficiente o la vendita di azioni non possedute) vengono scartate.
+ *
+ * @param pesoDeposito il peso dei depositi, non negativo.
+ * @param pesoPrelievo il peso dei prelievi, non negativo.
+ * @param pesoAcquisto il peso degli acquisti, non negativo.
+ * @param pesoVendita il peso delle vendite, non negativo.
+ * @param importoMassimo l'importo massimo di un deposito, di un prelievo o di un acquisto, positivo.
+ */
+public record Comportamento(int pesoDeposito, int pesoPrelievo, int pesoAcquisto, int pesoVendita, int importoMassimo) {
+
+    /**
+     * Costruisce un comportamento, verificandone i parametri.
+     *
+     * @throws IllegalArgumentException se un peso è negativo, se la somma dei pesi non è
+     *  positiva o se l'importo massimo non è positivo.
+     */
+    public Comportamento {
+        if (pesoDeposito < 0 || pesoPrelievo < 0 || pesoAcquisto < 0 || pesoVendita < 0)
+            throw new IllegalArgumentException("I pesi delle operazioni non possono essere negativi");
+        if ((long) pesoDeposito + pesoPrelievo + pesoAcquisto + pesoVendita <= 0
+                || (long) pesoDeposito + pesoPrelievo + pesoAcquisto + pesoVendita > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("La somma dei pesi delle operazioni deve essere positiva");
+        if (importoMassimo <= 0)
+            throw new IllegalArgumentException("L'importo massimo deve essere positivo");
+    }
+
+    /**
+     * Restituisce la somma dei pesi delle operazioni.
+     *
+     * @return la somma dei pesi.
+     */
+    int pesoTotale() {
+        return pesoDeposito + pesoPrelievo + pesoAcquisto + pesoVendita;
+    }
+}
@@ -0,0 +1,189 @@
+package borsanova.simulazione;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Classe che rappresenta la distribuzione di un insieme di valori interi,
+ * ad esempio i prezzi finali di un'azione in più simulazioni.
+ *
+ * <p> La distribuzione conserva tutti i valori: oltre a minimo, massimo, media e
+ * deviazione standard, permette di calcolare i quantili. I valori vengono ordinati
+ * una sola volta, alla prima richiesta di un quantile. Il risultato non dipende
+ * dall'ordine in cui i valori sono stati aggiunti né da come sono stati ripartiti
+ * tra le distribuzioni unite con {@link #unisci(Distribuzione)}.
+ *
+ * <p> La classe non è sincronizzata: ogni distribuzione viene riempita da un solo
+ * thread e poi unita alle altre.
+ */
+public final class Distribuzione {
+
+    /** I valori. */
+    private int[] valori = new int[8];
+
+    /** Il numero di valori. */
+    private int numero;
+
+    /** La somma dei valori. */
+    private long somma;
+
+    /** {@code true} se i primi numero valori sono ordinati. */
+    private boolean ordinati = true;
+
+    /*-
+     * AF:
+     *  - la distribuzione contiene i valori valori[0..numero).
+     *
+     * RI:
+     *  - valori non è null e ha lunghezza non minore di numero.
+     *  - somma è la somma dei valori.
+     *  - se ordinati è true, valori[0..numero) è ordinato in modo crescente.
+     */
+
+    /**
+     * Costruisce una distribuzione vuota.
+     */
+    Distribuzione() {}
+
+    /**
+     * Aggiunge un valore alla distribuzione.
+     *
+     * <p> Modifica this.
+     *
+     * @param valore il valore.
+     */
+    void aggiungi(final int valore) {
+        if (numero == valori.length)
+            valori = Arrays.copyOf(valori, 2 * numero);
+        if (numero > 0 && valori[numero - 1] > valore)
+            ordinati = false;
+        valori[numero++] = valore;
+        somma += valore;
+    }
+
+    /**
+     * Aggiunge a questa distribuzione i valori di un'altra.
+     *
+     * <p> Modifica this.
+     *
+     * @param altra l'altra distribuzione, non modificata.
+     */
+    void unisci(final Distribuzione altra) {
+        if (numero + altra.numero > valori.length)
+            valori = Arrays.copyOf(valori, Math.max(2 * valori.length, numero + altra.numero));
+        System.arraycopy(altra.valori, 0, valori, numero, altra.numero);
+        numero += altra.numero;
+        somma += altra.somma;
+        ordinati = false;
+    }
+
+    /**
+     * Restituisce il numero di valori.
+     *
+     * @return il numero di valori.
+     */
+    public int numero() {
+        return numero;
+    }
+
+    /**
+     * Restituisce il valore minimo.
+     *
+     * @throws IllegalStateException se la distribuzione è vuota.
+     * @return il minimo.
+     */
+    public int minimo() {
+        return quantile(0);
+    }
+
+    /**
+     * Restituisce il valore massimo.
+     *
+     * @throws IllegalStateException se la distribuzione è vuota.
+     * @return il massimo.
+     */
+    public int massimo() {
+        return quantile(1);
+    }
+
+    /**
+     * Restituisce la media dei valori.
+     *
+     * @throws IllegalStateException se la distribuzione è vuota.
+     * @return la media.
+     */
+    public double media() {
+        verificaNonVuota();
+        return (double) somma / numero;
+    }
+
+    /**
+     * Restituisce la deviazione standard (della popolazione) dei valori.
+     *
+     * <p> Ordina i valori come {@link #quantile(double)} e li scorre, in tempo
+     * {@code O(n)}: il risultato non dipende dall'ordine di aggiunta.
+     *
+     * @throws IllegalStateException se la distribuzione è vuota.
+     * @return la deviazione standard.
+     */
+    public double deviazioneStandard() {
+        double media = media();
+        ordina();
+        double scarti = 0;
+        for (int i = 0; i < numero; i++)
+            scarti += (valori[i] - media) * (valori[i] - media);
+        return Math.sqrt(scarti / numero);
+    }
+
+    /**
+     * Restituisce un quantile dei valori, con il metodo del rango più vicino:
+     * il più piccolo valore tale che almeno una frazione {@code q} dei valori
+     * non lo superi.
+     *
+     * <p> Alla prima invocazione dopo l'aggiunta di valori non ordinati, ordina
+     * i valori in tempo {@code O(n log n)}; altrimenti richiede tempo costante.
+     *
+     * @param q la frazione, compresa tra 0 e 1.
+     * @throws IllegalArgumentException se {@code q} non è compresa tra 0 e 1.
+     * @throws IllegalStateException se la distribuzione è vuota.
+     * @return il quantile.
+     */
+    public int quantile(final double q) {
+        if (!(q >= 0 && q <= 1))
+            throw new IllegalArgumentException("La frazione deve essere compresa tra 0 e 1");
+        verificaNonVuota();
+        ordina();
+        int rango = (int) Math.ceil(q * numero);
+        return valori[Math.max(rango, 1) - 1];
+    }
+
+    /**
+     * Ordina i valori, se non lo sono già.
+     *
+     * <p> Modifica la rappresentazione di this, ma non la distribuzione.
+     */
+    private void ordina() {
+        if (!ordinati) {
+            Arrays.sort(valori, 0, numero);
+            ordinati = true;
+        }
+    }
+
+    /**
+     * Verifica che la distribuzione non sia vuota.
+     *
+     * @throws IllegalStateException se la distribuzione è vuota.
+     */
+    private void verificaNonVuota() {
+        if (numero == 0)
+            throw new IllegalStateException("La distribuzione è vuota");
+    }
+
+    @Override
+    public String toString() {
+        if (numero == 0)
+            return "vuota";
+        return String.format(Locale.ROOT, "n=%d, min=%d, mediana=%d, max=%d, media=%.2f, dev=%.2f",
+                numero, minimo(), quantile(0.5), massimo(), media(), deviazioneStandard());
+    }
+}
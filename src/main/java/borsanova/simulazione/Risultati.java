@@ -0,0 +1,139 @@
+package borsanova.simulazione;
+
+import java.util.Objects;
+
+/**
+ * Classe che rappresenta i risultati aggregati di un insieme di simulazioni
+ * di uno stesso {@link Scenario}.
+ *
+ * <p> Per ogni azienda dello scenario, identificata dal suo indice, i risultati
+ * contengono la distribuzione dei prezzi finali delle sue azioni nelle simulazioni;
+ * contengono inoltre la distribuzione del capitale totale finale degli operatori
+ * (un valore per operatore e per simulazione) e il numero di operazioni eseguite
+ * e scartate.
+ *
+ * <p> I risultati vengono prodotti da {@link Simulatore} unendo quelli parziali
+ * delle singole simulazioni; non dipendono dal numero di thread usati.
+ */
+public final class Risultati {
+
+    /** Le distribuzioni dei prezzi finali, indicizzate per azienda. */
+    private final Distribuzione[] prezzi;
+
+    /** La distribuzione dei capitali finali degli operatori. */
+    private final Distribuzione capitali = new Distribuzione();
+
+    /** Il numero di simulazioni. */
+    private int simulazioni;
+
+    /** Il numero di operazioni eseguite. */
+    private long eseguite;
+
+    /** Il numero di operazioni scartate. */
+    private long scartate;
+
+    /*-
+     * AF:
+     *  - prezzi[a] è la distribuzione dei prezzi finali dell'azienda a,
+     *    capitali quella dei capitali finali degli operatori, nelle simulazioni aggregate.
+     *
+     * RI:
+     *  - prezzi e i suoi elementi non sono null, capitali non è null.
+     *  - ogni distribuzione di prezzi contiene simulazioni valori.
+     *  - simulazioni, eseguite e scartate non sono negativi.
+     */
+
+    /**
+     * Costruisce i risultati vuoti di uno scenario.
+     *
+     * @param aziende il numero di aziende dello scenario.
+     */
+    Risultati(final int aziende) {
+        prezzi = new Distribuzione[aziende];
+        for (int a = 0; a < aziende; a++)
+            prezzi[a] = new Distribuzione();
+    }
+
+    /**
+     * Registra l'esito di una simulazione.
+     *
+     * <p> Modifica this.
+     *
+     * @param prezziFinali i prezzi finali, indicizzati per azienda.
+     * @param capitaliFinali i capitali finali, indicizzati per operatore.
+     * @param eseguite il numero di operazioni eseguite.
+     * @param scartate il numero di operazioni scartate.
+     */
+    void registra(final int[] prezziFinali, final int[] capitaliFinali, final int eseguite, final int scartate) {
+        for (int a = 0; a < prezzi.length; a++)
+            prezzi[a].aggiungi(prezziFinali[a]);
+        for (int capitale : capitaliFinali)
+            capitali.aggiungi(capitale);
+        simulazioni++;
+        this.eseguite += eseguite;
+        this.scartate += scartate;
+    }
+
+    /**
+     * Aggiunge a questi risultati quelli di altre simulazioni dello stesso scenario.
+     *
+     * <p> Modifica this.
+     *
+     * @param altri gli altri risultati, non modificati.
+     */
+    void unisci(final Risultati altri) {
+        for (int a = 0; a < prezzi.length; a++)
+            prezzi[a].unisci(altri.prezzi[a]);
+        capitali.unisci(altri.capitali);
+        simulazioni += altri.simulazioni;
+        eseguite += altri.eseguite;
+        scartate += altri.scartate;
+    }
+
+    /**
+     * Restituisce il numero di simulazioni aggregate.
+     *
+     * @return il numero di simulazioni.
+     */
+    public int simulazioni() {
+        return simulazioni;
+    }
+
+    /**
+     * Restituisce la distribuzione dei prezzi finali delle azioni di un'azienda.
+     *
+     * @param azienda l'indice dell'azienda, tra 0 e il numero di aziende dello scenario escluso.
+     * @throws IndexOutOfBoundsException se l'indice non è valido.
+     * @return la distribuzione dei prezzi finali.
+     */
+    public Distribuzione prezzi(final int azienda) {
+        return prezzi[Objects.checkIndex(azienda, prezzi.length)];
+    }
+
+    /**
+     * Restituisce la distribuzione del capitale totale finale degli operatori.
+     *
+     * @return la distribuzione dei capitali finali.
+     */
+    public Distribuzione capitali() {
+        return capitali;
+    }
+
+    /**
+     * Restituisce il numero complessivo di operazioni eseguite.
+     *
+     * @return il numero di operazioni eseguite.
+     */
+    public long eseguite() {
+        return eseguite;
+    }
+
+    /**
+     * Restituisce il numero complessivo di operazioni scartate.
+     *
+     * @return il numero di operazioni scartate.
+     */
+    public long scartate() {
+        return scartate;
+    }
+}
@@ -0,0 +1,43 @@
+package borsanova.simulazione;
+
+import borsanova.politicaPrezzo.PoliticaPrezzo;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Record che rappresenta lo scenario di una simulazione: un mercato con una sola
+ * borsa, in cui sono quotate alcune aziende, e alcuni operatori che vi operano
+ * per un numero fissato di passi secondo un {@link Comportamento} casuale.
+ *
+ * <p> Ogni simulazione costruisce un proprio mercato (si veda {@link borsanova.Mercato})
+ * e una propria politica di prezzo, ottenuta da {@code politica}: le politiche con
+ * stato non vengono quindi condivise tra simulazioni eseguite in parallelo.
+ *
+ * @param aziende il numero di aziende quotate, positivo.
+ * @param azioniTotali il numero di azioni totali di ciascuna azienda, positivo.
+ * @param prezzoIniziale il prezzo iniziale delle azioni, positivo.
+ * @param operatori il numero di operatori, positivo.
+ * @param budgetIniziale il budget iniziale di ciascun operatore, non negativo.
+ * @param passi il numero di operazioni di ciascuna simulazione, non negativo.
+ * @param comportamento il comportamento degli operatori.
+ * @param politica la fabbrica della politica di prezzo della borsa, invocata
+ *  una volta per simulazione.
+ */
+public record Scenario(int aziende, int azioniTotali, int prezzoIniziale, int operatori, int budgetIniziale,
+        int passi, Comportamento comportamento, Supplier<? extends PoliticaPrezzo> politica) {
+
+    /**
+     * Costruisce uno scenario, verificandone i parametri.
+     *
+     * @throws NullPointerException se il comportamento o la politica sono {@code null}.
+     * @throws IllegalArgumentException se un parametro numerico non è nell'intervallo indicato.
+     */
+    public Scenario {
+        Objects.requireNonNull(comportamento, "Il comportamento non può essere null");
+        Objects.requireNonNull(politica, "La politica di prezzo non può essere null");
+        if (aziende <= 0 || azioniTotali <= 0 || prezzoIniziale <= 0 || operatori <= 0)
+            throw new IllegalArgumentException("Aziende, azioni, prezzo e operatori devono essere positivi");
+        if (budgetIniziale < 0 || passi < 0)
+            throw new IllegalArgumentException("Il budget iniziale e i passi non possono essere negativi");
+    }
+}
@@ -0,0 +1,195 @@
+package borsanova.simulazione;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Mercato;
+import borsanova.Operatore;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Classe che esegue simulazioni Monte Carlo indipendenti di uno {@link Scenario}
+ * e ne aggrega i risultati.
+ *
+ * <p> Ogni simulazione costruisce un proprio {@link Mercato}, con una borsa in cui
+ * sono quotate le aziende dello scenario e con la politica di prezzo prodotta dallo
+ * scenario, e vi esegue i passi previsti dal {@link Comportamento} degli operatori.
+ * La simulazione di indice {@code i} usa un generatore pseudocasuale il cui seme
+ * dipende solo dal seme specificato e da {@code i}: le simulazioni sono quindi
+ * riproducibili, e i risultati aggregati non dipendono dal numero di thread.
+ *
+ * <p> Le simulazioni vengono ripartite tra i thread di un {@link ForkJoinPool}
+ * dividendo ricorsivamente l'intervallo degli indici; ciascun compito aggrega in
+ * propri {@link Risultati} le simulazioni che esegue, e i risultati vengono uniti
+ * risalendo la ripartizione. Le simulazioni non condividono alcuno stato modificabile.
+ */
+public final class Simulatore {
+
+    /** Il numero massimo di simulazioni eseguite da un compito senza suddividerlo. */
+    private static final int SOGLIA = 4;
+
+    /** L'incremento tra i semi di simulazioni consecutive. */
+    private static final long INCREMENTO_SEME = 0x9E3779B97F4A7C15L;
+
+    /** Classe di sole funzioni statiche, non istanziabile. */
+    private Simulatore() {}
+
+    /**
+     * Esegue le simulazioni di uno scenario nel pool comune di {@link ForkJoinPool}.
+     *
+     * @param scenario lo scenario.
+     * @param simulazioni il numero di simulazioni.
+     * @param seme il seme delle simulazioni.
+     * @throws NullPointerException se lo scenario è {@code null}.
+     * @throws IllegalArgumentException se il numero di simulazioni è negativo.
+     * @return i risultati aggregati.
+     * @see #esegui(Scenario, int, long, ForkJoinPool)
+     */
+    public static Risultati esegui(final Scenario scenario, final int simulazioni, final long seme) {
+        return esegui(scenario, simulazioni, seme, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Esegue le simulazioni di uno scenario in un {@link ForkJoinPool}.
+     *
+     * <p> Le eccezioni sollevate dalla politica di prezzo, diverse da
+     * {@link IllegalArgumentException}, interrompono le simulazioni e vengono
+     * propagate al chiamante.
+     *
+     * @param scenario lo scenario.
+     * @param simulazioni il numero di simulazioni.
+     * @param seme il seme delle simulazioni.
+     * @param pool il pool in cui eseguire le simulazioni.
+     * @throws NullPointerException se lo scenario o il pool sono {@code null}.
+     * @throws IllegalArgumentException se il numero di simulazioni è negativo.
+     * @return i risultati aggregati.
+     */
+    public static Risultati esegui(final Scenario scenario, final int simulazioni, final long seme, final ForkJoinPool pool) {
+        Objects.requireNonNull(scenario, "Lo scenario non può essere null");
+        Objects.requireNonNull(pool, "Il pool non può essere null");
+        if (simulazioni < 0)
+            throw new IllegalArgumentException("Il numero di simulazioni non può essere negativo");
+        return pool.invoke(new Compito(scenario, seme, 0, simulazioni));
+    }
+
+    /**
+     * Esegue una simulazione e ne registra l'esito.
+     *
+     * @param scenario lo scenario.
+     * @param caso il generatore pseudocasuale della simulazione.
+     * @param risultati i risultati in cui registrare l'esito.
+     */
+    private static void simula(final Scenario scenario, final SplittableRandom caso, final Risultati risultati) {
+        Mercato mercato = new Mercato();
+        Borsa borsa = mercato.borsa("Simulazione");
+        borsa.politica(scenario.politica().get());
+        Azienda[] aziende = new Azienda[scenario.aziende()];
+        for (int a = 0; a < aziende.length; a++) {
+            aziende[a] = mercato.azienda("Azienda" + a);
+            aziende[a].quotaInBorsa(borsa, scenario.azioniTotali(), scenario.prezzoIniziale());
+        }
+        Operatore[] operatori = new Operatore[scenario.operatori()];
+        for (int o = 0; o < operatori.length; o++) {
+            operatori[o] = mercato.operatore("Operatore" + o);
+            if (scenario.budgetIniziale() > 0)
+                operatori[o].deposito(scenario.budgetIniziale());
+        }
+        // le quantità possedute, indicizzate per operatore e azienda
+        int[][] possedute = new int[operatori.length][aziende.length];
+        Comportamento c = scenario.comportamento();
+        int eseguite = 0;
+        for (int passo = 0; passo < scenario.passi(); passo++) {
+            int o = caso.nextInt(operatori.length);
+            int a = caso.nextInt(aziende.length);
+            int scelta = caso.nextInt(c.pesoTotale());
+            Operatore operatore = operatori[o];
+            int budget = operatore.budget();
+            try {
+                if ((scelta -= c.pesoDeposito()) < 0) {
+                    operatore.deposito(1 + caso.nextInt(c.importoMassimo()));
+                } else if ((scelta -= c.pesoPrelievo()) < 0) {
+                    if (budget == 0) continue;
+                    operatore.prelievo(1 + caso.nextInt(Math.min(budget, c.importoMassimo())));
+                } else if ((scelta -= c.pesoAcquisto()) < 0) {
+                    if (budget == 0) continue;
+                    Borsa.Azione azione = borsa.prendiAzione(aziende[a]);
+                    int importo = 1 + caso.nextInt(Math.min(budget, c.importoMassimo()));
+                    int quantita = importo / azione.prezzo();
+                    if (quantita == 0 || quantita > azione.azioniDisponibili()) continue;
+                    operatore.acquistaAzioni(borsa, aziende[a], importo);
+                    possedute[o][a] += quantita;
+                } else {
+                    if (possedute[o][a] == 0) continue;
+                    int quantita = 1 + caso.nextInt(possedute[o][a]);
+                    operatore.vendiAzioni(borsa, aziende[a], quantita);
+                    possedute[o][a] -= quantita;
+                }
+                eseguite++;
+            } catch (IllegalArgumentException e) {
+                // l'operazione non è consentita dallo stato corrente: viene scartata
+            }
+        }
+        int[] prezzi = new int[aziende.length];
+        for (int a = 0; a < aziende.length; a++)
+            prezzi[a] = borsa.prendiAzione(aziende[a]).prezzo();
+        int[] capitali = new int[operatori.length];
+        for (int o = 0; o < operatori.length; o++)
+            capitali[o] = operatori[o].capitaleTotale();
+        risultati.registra(prezzi, capitali, eseguite, scenario.passi() - eseguite);
+    }
+
+    /**
+     * Compito che esegue le simulazioni di un intervallo di indici e ne aggrega i risultati.
+     */
+    private static final class Compito extends RecursiveTask<Risultati> {
+
+        /** La versione della serializzazione. */
+        private static final long serialVersionUID = 1L;
+
+        /** Lo scenario. */
+        private final transient Scenario scenario;
+
+        /** Il seme delle simulazioni. */
+        private final long seme;
+
+        /** Il primo indice dell'intervallo. */
+        private final int da;
+
+        /** L'indice successivo all'ultimo dell'intervallo. */
+        private final int a;
+
+        /**
+         * Costruisce un compito.
+         *
+         * @param scenario lo scenario.
+         * @param seme il seme delle simulazioni.
+         * @param da il primo indice.
+         * @param a l'indice successivo all'ultimo.
+         */
+        Compito(final Scenario scenario, final long seme, final int da, final int a) {
+            this.scenario = scenario;
+            this.seme = seme;
+            this.da = da;
+            this.a = a;
+        }
+
+        @Override
+        protected Risultati compute() {
+            if (a - da <= SOGLIA) {
+                Risultati risultati = new Risultati(scenario.aziende());
+                for (int i = da; i < a; i++)
+                    simula(scenario, new SplittableRandom(seme + i * INCREMENTO_SEME), risultati);
+                return risultati;
+            }
+            int medio = (da + a) >>> 1;
+            Compito sinistro = new Compito(scenario, seme, da, medio);
+            sinistro.fork();
+            Risultati risultati = new Compito(scenario, seme, medio, a).compute();
+            Risultati primi = sinistro.join();
+            primi.unisci(risultati);
+            return primi;
+        }
+    }
+}
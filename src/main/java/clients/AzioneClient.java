@@ -23,7 +23,7 @@ package clients;
 
 import borsanova.Borsa;
 import borsanova.Azienda;
-import java.util.Scanner;
+import utils.Lettore;
 
 /** Client di test per alcune funzionalità relative alle <strong>azioni</strong>. */
 public class AzioneClient {
@@ -46,7 +46,7 @@ public class AzioneClient {
    */
    public static void main(String[] args) {
     Borsa borsa = Borsa.of(args[0]);
-    try (Scanner sc = new Scanner(System.in)) {
+    try (Lettore sc = new Lettore(System.in)) {
       while (sc.hasNext()) {
         String nome = sc.next();
         int numero = sc.nextInt();
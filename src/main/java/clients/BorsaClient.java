@@ -21,13 +21,13 @@ along with this file.  If not, see <https://www.gnu.org/licenses/>.
 
 package clients;
 
-import java.util.Scanner;
 import java.util.Set;
 import java.util.TreeSet;
 
 import borsanova.Azienda;
 import borsanova.Borsa;
 import borsanova.Operatore;
+import utils.Lettore;
 
 /**
  * Client di test per alcune funzionalità relative alle <strong>borse</strong>.
@@ -77,7 +77,7 @@ public class BorsaClient {
    */
   public static void main(String[] args) {
     Set<Borsa> borse = new TreeSet<>();
-    try (Scanner sc = new Scanner(System.in)) {
+    try (Lettore sc = new Lettore(System.in)) {
 
       // quota aziende in borse
       while (sc.hasNext()) {
@@ -0,0 +1,102 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+package clients;
+
+import borsanova.politicaPrezzo.DecrementoCostante;
+import borsanova.politicaPrezzo.DecrementoEsponenziale;
+import borsanova.politicaPrezzo.IncrementoCostante;
+import borsanova.politicaPrezzo.IncrementoLineare;
+import borsanova.politicaPrezzo.PoliticaUniforme;
+import borsanova.politicaPrezzo.PrezzoInvariato;
+import borsanova.politicaPrezzo.VariazioneCostante;
+import java.util.Random;
+import utils.Lettore;
+
+/** Client di test che confronta il calcolo in blocco dei prezzi con quello di ciascun prezzo. */
+public class CalcoloPrezziClient {
+
+  /** . */
+  private CalcoloPrezziClient() {}
+
+  /*-
+   * Scriva un {@code main} che legge dal flusso in ingresso linee della forma
+   *
+   *     politica parametri casi seme
+   *
+   * dove politica è p (prezzo invariato, senza parametri), i o d (incremento o
+   * decremento costante, con il valore), v (variazione costante, con incremento
+   * e decremento), l (incremento lineare, con il valore) o e (decremento
+   * esponenziale, con il dimezzamento).
+   *
+   * Per ogni linea genera, con il seme specificato, il numero di compravendite
+   * indicato (prezzi positivi, per metà minori di 1000, quantità fino a 1000 e
+   * tipi a caso), ne calcola i nuovi prezzi in blocco, sia in un array distinto
+   * che sovrascrivendo i prezzi, e li confronta con quelli calcolati uno alla volta.
+   * Emette nel flusso d'uscita la linea stessa seguita dal numero di prezzi che
+   * differiscono.
+   */
+  public static void main(String[] args) {
+    try (Lettore sc = new Lettore(System.in)) {
+      while (sc.hasNext()) {
+        String nome = sc.next();
+        StringBuilder linea = new StringBuilder(nome);
+        PoliticaUniforme politica;
+        switch (nome) {
+          case "p" -> politica = new PrezzoInvariato();
+          case "v" -> {
+            int incremento = sc.nextInt(), decremento = sc.nextInt();
+            linea.append(' ').append(incremento).append(' ').append(decremento);
+            politica = new VariazioneCostante(incremento, decremento);
+          }
+          default -> {
+            int valore = sc.nextInt();
+            linea.append(' ').append(valore);
+            politica = switch (nome) {
+              case "i" -> new IncrementoCostante(valore);
+              case "d" -> new DecrementoCostante(valore);
+              case "l" -> new IncrementoLineare(valore);
+              default -> new DecrementoEsponenziale(valore);
+            };
+          }
+        }
+        int casi = sc.nextInt();
+        int seme = sc.nextInt();
+        linea.append(' ').append(casi).append(' ').append(seme);
+        Random r = new Random(seme);
+        int[] prezzi = new int[casi], quantita = new int[casi], nuovi = new int[casi];
+        boolean[] acquisti = new boolean[casi];
+        for (int i = 0; i < casi; i++) {
+          prezzi[i] = 1 + (i % 2 == 0 ? r.nextInt(1000) : r.nextInt(Integer.MAX_VALUE - 1000));
+          quantita[i] = r.nextInt(1001);
+          acquisti[i] = r.nextBoolean();
+        }
+        politica.calcolaPrezzi(prezzi, quantita, acquisti, nuovi, casi);
+        int differenze = 0;
+        for (int i = 0; i < casi; i++)
+          if (nuovi[i] != politica.prezzoDopo(prezzi[i], quantita[i], acquisti[i])) differenze++;
+        politica.calcolaPrezzi(prezzi, quantita, acquisti, prezzi, casi);
+        for (int i = 0; i < casi; i++) if (prezzi[i] != nuovi[i]) differenze++;
+        System.out.println(linea + ", " + differenze);
+      }
+    }
+  }
+}
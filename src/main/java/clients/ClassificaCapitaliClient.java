@@ -0,0 +1,96 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+package clients;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Operatore;
+import borsanova.politicaPrezzo.VariazioneCostante;
+import java.util.Map;
+import utils.Lettore;
+
+/** Client di test per la classifica degli operatori per capitale totale. */
+public class ClassificaCapitaliClient {
+
+  /** . */
+  private ClassificaCapitaliClient() {}
+
+  /*-
+   * Scriva un {@code main} che riceve come parametri sulla linea di comando il
+   * nome di una borsa, l'incremento e il decremento del prezzo delle sue azioni
+   * a ogni acquisto e a ogni vendita (si veda {@link VariazioneCostante}) e legge dal flusso in ingresso due gruppi di linee separati
+   * da una linea contenente solo "--".
+   *
+   * Il primo gruppo contiene linee della forma
+   *
+   *     nome_azienda numero_azioni prezzo
+   *
+   * che quotano un'azienda nella borsa; il secondo linee della forma
+   *
+   *     d nome_operatore importo
+   *     p nome_operatore importo
+   *     b nome_operatore nome_azienda prezzo
+   *     s nome_operatore nome_azienda quantita
+   *     t n
+   *     r nome_operatore
+   *
+   * che, rispettivamente, depositano o prelevano un importo dal budget di un
+   * operatore, acquistano o vendono azioni nella borsa, emettono nel flusso
+   * d'uscita i primi n operatori per capitale totale (una linea "n" seguita da
+   * una linea "- nome_operatore, capitale" per operatore) ed emettono la
+   * posizione di un operatore nella classifica ("nome_operatore, posizione").
+   */
+  public static void main(String[] args) {
+    Borsa borsa = Borsa.of(args[0]);
+    borsa.politica(new VariazioneCostante(Integer.parseInt(args[1]), Integer.parseInt(args[2])));
+    try (Lettore sc = new Lettore(System.in)) {
+      // quota le aziende nella borsa
+      while (sc.hasNext()) {
+        String nomeAzienda = sc.next();
+        if (nomeAzienda.equals("--")) break;
+        int numero = sc.nextInt();
+        int prezzo = sc.nextInt();
+        Azienda.of(nomeAzienda).quotaInBorsa(borsa, numero, prezzo);
+      }
+      // eseguo le operazioni
+      while (sc.hasNext()) {
+        String operazione = sc.next();
+        switch (operazione) {
+          case "d" -> Operatore.of(sc.next()).deposito(sc.nextInt());
+          case "p" -> Operatore.of(sc.next()).prelievo(sc.nextInt());
+          case "b" -> Operatore.of(sc.next()).acquistaAzioni(borsa, Azienda.of(sc.next()), sc.nextInt());
+          case "s" -> Operatore.of(sc.next()).vendiAzioni(borsa, Azienda.of(sc.next()), sc.nextInt());
+          case "t" -> {
+            int n = sc.nextInt();
+            System.out.println(n);
+            for (Map.Entry<Operatore, Integer> e : Operatore.maggioriCapitali(n).entrySet())
+              System.out.println("- " + e.getKey().nome + ", " + e.getValue());
+          }
+          default -> {
+            Operatore operatore = Operatore.of(sc.next());
+            System.out.println(operatore.nome + ", " + operatore.posizioneCapitale());
+          }
+        }
+      }
+    }
+  }
+}
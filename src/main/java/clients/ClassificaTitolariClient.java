@@ -0,0 +1,99 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+package clients;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Operatore;
+import java.util.Map;
+import utils.Lettore;
+
+/** Client di test per la classifica dei titolari di un'azione. */
+public class ClassificaTitolariClient {
+
+  /** . */
+  private ClassificaTitolariClient() {}
+
+  /*-
+   * Scriva un {@code main} che riceve come parametro sulla linea di comando il
+   * nome di una borsa e legge dal flusso in ingresso due gruppi di linee separati
+   * da una linea contenente solo "--".
+   *
+   * Il primo gruppo contiene linee della forma
+   *
+   *     nome_azienda numero_azioni prezzo
+   *
+   * che quotano un'azienda nella borsa; il secondo linee della forma
+   *
+   *     d nome_operatore importo
+   *     b nome_operatore nome_azienda prezzo
+   *     s nome_operatore nome_azienda quantita
+   *     t nome_azienda n
+   *     r nome_azienda nome_operatore
+   *
+   * che, rispettivamente, depositano un importo nel budget di un operatore,
+   * acquistano o vendono azioni nella borsa, emettono nel flusso d'uscita i
+   * primi n titolari dell'azione (una linea "nome_azienda, n" seguita da una
+   * linea "- nome_operatore, quantita" per titolare) ed emettono la posizione
+   * di un operatore nella classifica ("nome_azienda, nome_operatore, posizione").
+   */
+  public static void main(String[] args) {
+    Borsa borsa = Borsa.of(args[0]);
+    try (Lettore sc = new Lettore(System.in)) {
+      // quota le aziende nella borsa
+      while (sc.hasNext()) {
+        String nomeAzienda = sc.next();
+        if (nomeAzienda.equals("--")) break;
+        int numero = sc.nextInt();
+        int prezzo = sc.nextInt();
+        Azienda.of(nomeAzienda).quotaInBorsa(borsa, numero, prezzo);
+      }
+      // eseguo le operazioni
+      while (sc.hasNext()) {
+        String operazione = sc.next();
+        switch (operazione) {
+          case "d" -> Operatore.of(sc.next()).deposito(sc.nextInt());
+          case "b" -> Operatore.of(sc.next()).acquistaAzioni(borsa, Azienda.of(sc.next()), sc.nextInt());
+          case "s" -> Operatore.of(sc.next()).vendiAzioni(borsa, Azienda.of(sc.next()), sc.nextInt());
+          case "t" -> {
+            Azienda azienda = Azienda.of(sc.next());
+            int n = sc.nextInt();
+            System.out.println(azienda.nome + ", " + n);
+            for (Map.Entry<Operatore, Integer> e :
+                borsa.prendiAzione(azienda).maggioriTitolari(n).entrySet())
+              System.out.println("- " + e.getKey().nome + ", " + e.getValue());
+          }
+          default -> {
+            Azienda azienda = Azienda.of(sc.next());
+            Operatore operatore = Operatore.of(sc.next());
+            System.out.println(
+                azienda.nome
+                    + ", "
+                    + operatore.nome
+                    + ", "
+                    + borsa.prendiAzione(azienda).posizioneTitolare(operatore));
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+package clients;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Operatore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import utils.Lettore;
+
+/**
+ * Client di test per la compravendita <strong>concorrente</strong> di azioni.
+ */
+public class ConcorrenzaClient {
+
+  /** . */
+  private ConcorrenzaClient() {
+  }
+
+  /*-
+   * Scriva un {@code main} che riceve come parametri sulla linea di comando
+   *
+   *      numero_thread operazioni_per_thread seme
+   *
+   * e legge dal flusso in ingresso una sequenza di due gruppi di linee
+   * (separati tra loro dalla linea contenente solo --) della forma
+   *
+   *     nome_azienda nome_borsa numero prezzo_unitario
+   *     ...
+   *     --
+   *     nome_operatore budget_iniziale
+   *     ...
+   *
+   * In base al primo blocco quota le aziende nelle borse, in base al secondo
+   * crea gli operatori con il budget iniziale specificato. Avvia quindi il
+   * numero di thread specificato, ciascuno dei quali esegue il numero di
+   * operazioni specificato scegliendo a caso (a partire dal seme specificato)
+   * un operatore, un'azione e se comprarla (impegnando un prezzo totale
+   * casuale) o venderla (in quantità casuale); le operazioni non consentite
+   * vengono ignorate.
+   *
+   * Al termine emette nel flusso d'uscita il numero complessivo di azioni
+   * emesse, seguito dall'esito della verifica che nessuna azione sia stata
+   * creata o persa (le azioni disponibili più quelle possedute dagli operatori
+   * sono pari alle azioni emesse) e che il capitale complessivo degli operatori
+   * sia rimasto invariato (la politica di prezzo è quella predefinita).
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int numeroThread = Integer.parseInt(args[0]);
+    int operazioni = Integer.parseInt(args[1]);
+    long seme = Long.parseLong(args[2]);
+    Set<Borsa> borse = new TreeSet<>();
+    List<Operatore> operatori = new ArrayList<>();
+    try (Lettore sc = new Lettore(System.in)) {
+      // quota aziende in borse
+      while (sc.hasNext()) {
+        String nomeAzienda = sc.next();
+        if (nomeAzienda.equals("--"))
+          break;
+        Borsa b = Borsa.of(sc.next());
+        borse.add(b);
+        int numero = sc.nextInt();
+        int prezzo = sc.nextInt();
+        Azienda.of(nomeAzienda).quotaInBorsa(b, numero, prezzo);
+      }
+      // istanza gli operatori
+      while (sc.hasNext()) {
+        Operatore op = Operatore.of(sc.next());
+        op.deposito(sc.nextInt());
+        operatori.add(op);
+      }
+    }
+    List<Borsa.Azione> azioni = new ArrayList<>();
+    for (Borsa b : borse)
+      for (Borsa.Azione a : b.azioni())
+        azioni.add(a);
+    long capitaleIniziale = 0;
+    for (Operatore op : operatori)
+      capitaleIniziale += op.capitaleTotale();
+
+    Thread[] thread = new Thread[numeroThread];
+    for (int t = 0; t < numeroThread; t++) {
+      Random random = new Random(seme + t);
+      thread[t] = new Thread(() -> {
+        for (int i = 0; i < operazioni; i++) {
+          Operatore op = operatori.get(random.nextInt(operatori.size()));
+          Borsa.Azione a = azioni.get(random.nextInt(azioni.size()));
+          Borsa b = Borsa.of(a.nomeBorsa());
+          try {
+            if (random.nextBoolean())
+              op.acquistaAzioni(b, a.azienda(), 1 + random.nextInt(5 * a.prezzo()));
+            else
+              op.vendiAzioni(b, a.azienda(), 1 + random.nextInt(5));
+          } catch (IllegalArgumentException e) {
+            // operazione non consentita, viene ignorata
+          }
+        }
+      });
+      thread[t].start();
+    }
+    for (Thread t : thread)
+      t.join();
+
+    long emesse = 0, contate = 0, capitaleFinale = 0;
+    for (Borsa.Azione a : azioni) {
+      emesse += a.azioniTotali();
+      contate += a.azioniDisponibili();
+    }
+    for (Operatore op : operatori) {
+      capitaleFinale += op.capitaleTotale();
+      for (Map.Entry<Borsa.Azione, Integer> e : op.azioni().entrySet())
+        contate += e.getValue();
+    }
+    System.out.println("azioni emesse: " + emesse);
+    System.out.println("azioni conservate: " + (emesse == contate));
+    System.out.println("capitale conservato: " + (capitaleIniziale == capitaleFinale));
+  }
+}
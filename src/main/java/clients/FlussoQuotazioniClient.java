@@ -0,0 +1,147 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+package clients;
+
+import borsanova.Abbonamento;
+import borsanova.AscoltatoreQuotazioni;
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.Operatore;
+import borsanova.politicaPrezzo.VariazioneCostante;
+import java.util.Map;
+import java.util.TreeMap;
+import utils.Lettore;
+
+/**
+ * Client di test per il <strong>flusso delle quotazioni</strong> delle borse.
+ */
+public class FlussoQuotazioniClient {
+
+  /** . */
+  private FlussoQuotazioniClient() {
+  }
+
+  /** Ascoltatore che emette gli eventi nel flusso d'uscita. */
+  private static final class Stampa implements AscoltatoreQuotazioni {
+
+    @Override
+    public void prezzo(final Azione azione, final int prezzo) {
+      System.out.println("p, " + azione.azienda().nome + ", " + prezzo);
+    }
+
+    @Override
+    public void scambio(final Azione azione, final boolean acquisto, final int quantita, final int prezzo) {
+      System.out.println((acquisto ? "b, " : "s, ") + azione.azienda().nome + ", " + quantita + ", " + prezzo);
+    }
+
+    @Override
+    public void fineLotto() {
+      System.out.println("--");
+    }
+  }
+
+  /*-
+   * Scriva un {@code main} che legge dal flusso in ingresso tre gruppi di linee
+   * nello stesso formato di BorsaClient, dove però il terzo gruppo può
+   * contenere anche linee della forma
+   *
+   *     c nome_borsa
+   *     r numero nome_operatore nome_borsa nome_azienda
+   *
+   * Il programma riceve come parametri sulla linea di comando due interi:
+   * l'incremento e il decremento della politica di prezzo a variazione costante
+   * di tutte le borse. Dopo aver quotato le aziende, iscrive due abbonati al flusso delle quotazioni
+   * di ciascuna borsa: uno rapido e uno lento. Esegue quindi le operazioni del
+   * terzo gruppo; la linea c consegna all'abbonato rapido della borsa tutti gli
+   * eventi in attesa, a lotti di al più 3, e la linea r fa acquistare e poi
+   * vendere all'operatore un'azione dell'azienda, al prezzo corrente, per il
+   * numero di volte specificato.
+   *
+   * Gli eventi vengono emessi nel flusso d'uscita uno per linea: le variazioni di
+   * prezzo come "p, azienda, prezzo", gli scambi come "b, azienda, quantità, prezzo"
+   * (o s se provocati da una vendita); ogni lotto è seguito da una linea con --.
+   *
+   * Al termine, per ogni borsa (in ordine alfabetico) emette il nome della borsa,
+   * consegna all'abbonato lento tutti gli eventi in attesa, a lotti di al più 100,
+   * ed emette il numero di eventi che ha perso.
+   */
+  public static void main(String[] args) {
+    Map<Borsa, Abbonamento[]> abbonamenti = new TreeMap<>();
+    Stampa stampa = new Stampa();
+    try (Lettore sc = new Lettore(System.in)) {
+      // quota aziende in borse
+      while (sc.hasNext()) {
+        String nomeAzienda = sc.next();
+        if (nomeAzienda.equals("--"))
+          break;
+        Borsa b = Borsa.of(sc.next());
+        int numero = sc.nextInt();
+        int prezzo = sc.nextInt();
+        Azienda.of(nomeAzienda).quotaInBorsa(b, numero, prezzo);
+        abbonamenti.computeIfAbsent(b, k -> new Abbonamento[] {k.iscrivi(), k.iscrivi()});
+      }
+      for (Borsa b : abbonamenti.keySet())
+        b.politica(new VariazioneCostante(Integer.parseInt(args[0]), Integer.parseInt(args[1])));
+      // istanza gli operatori
+      while (sc.hasNext()) {
+        String nomeOperatore = sc.next();
+        if (nomeOperatore.equals("--"))
+          break;
+        Operatore.of(nomeOperatore).deposito(sc.nextInt());
+      }
+      // eseguo le operazioni
+      while (sc.hasNext()) {
+        String primo = sc.next();
+        if (primo.equals("c")) {
+          Abbonamento rapido = abbonamenti.get(Borsa.of(sc.next()))[0];
+          while (rapido.consegna(stampa, 3) > 0);
+        } else if (primo.equals("r")) {
+          int volte = sc.nextInt();
+          Operatore op = Operatore.of(sc.next());
+          Borsa b = Borsa.of(sc.next());
+          Azienda a = Azienda.of(sc.next());
+          for (int i = 0; i < volte; i++) {
+            op.acquistaAzioni(b, a, b.prendiAzione(a).prezzo());
+            op.vendiAzioni(b, a, 1);
+          }
+        } else {
+          Operatore op = Operatore.of(primo);
+          String operazione = sc.next();
+          Borsa b = Borsa.of(sc.next());
+          Azienda a = Azienda.of(sc.next());
+          int valore = sc.nextInt();
+          if (operazione.equals("b"))
+            op.acquistaAzioni(b, a, valore);
+          else
+            op.vendiAzioni(b, a, valore);
+        }
+      }
+    }
+    for (Map.Entry<Borsa, Abbonamento[]> e : abbonamenti.entrySet()) {
+      System.out.println(e.getKey().nome);
+      Abbonamento lento = e.getValue()[1];
+      while (lento.consegna(stampa, 100) > 0);
+      System.out.println("persi " + lento.persi());
+    }
+  }
+}
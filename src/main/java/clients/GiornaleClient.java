@@ -0,0 +1,218 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Giornale;
+import borsanova.Operatore;
+import borsanova.politicaPrezzo.DecrementoCostante;
+import borsanova.politicaPrezzo.IncrementoCostante;
+import borsanova.politicaPrezzo.PrezzoInvariato;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import utils.Lettore;
+
+/**
+ * Client di test per il ripristino dello stato tramite il <strong>giornale</strong> delle
+ * operazioni.
+ */
+public class GiornaleClient {
+
+  /** . */
+  private GiornaleClient() {}
+
+  /*-
+   * Scriva un {@code main} che riceve come parametro sulla linea di comando
+   *
+   *      dimensione_gruppo
+   *
+   * e legge dal flusso in ingresso tre gruppi di linee nello stesso formato di
+   * OperatoreClient, in cui il terzo blocco può contenere anche linee della
+   * forma
+   *
+   *     nome_operatore bl nome_borsa nome_azienda quantita limite
+   *     ... [oppure]
+   *     nome_operatore sl nome_borsa nome_azienda quantita limite
+   *     ... [oppure]
+   *     nome_borsa p valore
+   *     ... [oppure]
+   *     nome_borsa c numero nome_azienda sbilancio ...
+   *
+   * che inseriscono un ordine di acquisto (o di vendita) con limite di prezzo,
+   * impostano la politica di prezzo della borsa come PoliticaPrezzoClient
+   * (se il valore è 0, il prezzo resta invariato), oppure aggiornano in blocco
+   * i prezzi delle azioni delle numero aziende indicate della borsa, in base
+   * al loro sbilancio (positivo per gli acquisti, negativo per le vendite).
+   *
+   * Il programma esegue le operazioni in un processo separato che le registra
+   * in un giornale (che rende persistenti le registrazioni a gruppi della
+   * dimensione specificata), emette lo stato finale e termina bruscamente,
+   * senza chiudere il giornale. Avvia quindi un secondo processo che ripristina
+   * lo stato dal giornale e lo emette a sua volta. L'uscita di ciascun processo
+   * è separata dalla linea contenente solo --.
+   *
+   * Lo stato è l'elenco degli operatori (in ordine alfabetico, come in
+   * OperatoreClient), seguito per ogni borsa (in ordine alfabetico) dal suo
+   * nome e dall'elenco delle sue azioni, ciascuna descritta dal nome
+   * dell'azienda (preceduto da -), dal prezzo e dal numero di azioni
+   * disponibili (separati da virgole).
+   */
+  public static void main(String[] args) throws IOException, InterruptedException, URISyntaxException {
+    if (args.length == 3) {
+      Giornale giornale = Giornale.apri(Path.of(args[1]), Integer.parseInt(args[2]));
+      if (args[0].equals("esegui")) {
+        esegui();
+        emettiStato();
+        // termina senza chiudere il giornale, come dopo un arresto improvviso
+        System.out.flush();
+        Runtime.getRuntime().halt(0);
+      }
+      emettiStato();
+      giornale.close();
+      return;
+    }
+    Path file = Files.createTempFile("giornale", ".dat");
+    try {
+      byte[] ingresso = System.in.readAllBytes();
+      System.out.print(processo("esegui", file, args[0], ingresso));
+      System.out.println("--");
+      System.out.print(processo("ripristina", file, args[0], new byte[0]));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /**
+   * Esegue questo client in un nuovo processo e ne restituisce l'uscita.
+   *
+   * @param modalita la modalità del processo.
+   * @param file il file del giornale.
+   * @param gruppo la dimensione del gruppo.
+   * @param ingresso il flusso in ingresso del processo.
+   * @return l'uscita del processo.
+   */
+  private static String processo(String modalita, Path file, String gruppo, byte[] ingresso)
+      throws IOException, InterruptedException, URISyntaxException {
+    String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    String classi =
+        Path.of(GiornaleClient.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+            .toString();
+    Process p =
+        new ProcessBuilder(
+                java,
+                "-cp",
+                classi,
+                GiornaleClient.class.getName(),
+                modalita,
+                file.toString(),
+                gruppo)
+            .redirectErrorStream(true)
+            .start();
+    try (OutputStream out = p.getOutputStream()) {
+      out.write(ingresso);
+    }
+    String uscita;
+    try (InputStream in = p.getInputStream()) {
+      uscita = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+    p.waitFor();
+    return uscita;
+  }
+
+  /** Esegue le operazioni lette dal flusso in ingresso. */
+  private static void esegui() {
+    try (Lettore sc = new Lettore(System.in)) {
+      // quota aziende in borse
+      while (sc.hasNext()) {
+        String nomeAzienda = sc.next();
+        if (nomeAzienda.equals("--")) break;
+        Borsa b = Borsa.of(sc.next());
+        int numero = sc.nextInt();
+        int prezzo = sc.nextInt();
+        Azienda.of(nomeAzienda).quotaInBorsa(b, numero, prezzo);
+      }
+      // istanza gli operatori
+      while (sc.hasNext()) {
+        String nomeOperatore = sc.next();
+        if (nomeOperatore.equals("--")) break;
+        Operatore.of(nomeOperatore).deposito(sc.nextInt());
+      }
+      // eseguo le operazioni
+      while (sc.hasNext()) {
+        String nome = sc.next();
+        String operazione = sc.next();
+        switch (operazione) {
+          case "p" -> {
+            int pp = sc.nextInt();
+            Borsa.of(nome)
+                .politica(
+                    pp > 0
+                        ? new IncrementoCostante(pp)
+                        : pp < 0 ? new DecrementoCostante(-pp) : new PrezzoInvariato());
+          }
+          case "c" -> {
+            Borsa b = Borsa.of(nome);
+            Map<Azienda, Integer> sbilanci = new HashMap<>();
+            for (int numero = sc.nextInt(); numero > 0; numero--)
+              sbilanci.put(Azienda.of(sc.next()), sc.nextInt());
+            b.aggiornaPrezzi(sbilanci);
+          }
+          case "d" -> Operatore.of(nome).deposito(sc.nextInt());
+          case "w" -> Operatore.of(nome).prelievo(sc.nextInt());
+          default -> {
+            Operatore op = Operatore.of(nome);
+            Borsa b = Borsa.of(sc.next());
+            Azienda a = Azienda.of(sc.next());
+            int valore = sc.nextInt();
+            switch (operazione) {
+              case "b" -> op.acquistaAzioni(b, a, valore);
+              case "s" -> op.vendiAzioni(b, a, valore);
+              case "bl" -> op.ordineAcquisto(b, a, valore, sc.nextInt());
+              case "sl" -> op.ordineVendita(b, a, valore, sc.nextInt());
+              default -> throw new IllegalArgumentException("Operazione sconosciuta: " + operazione);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /** Emette lo stato degli operatori e delle borse. */
+  private static void emettiStato() {
+    for (Operatore op : Operatore.istanze()) System.out.println(op);
+    for (Borsa b : Borsa.istanze()) {
+      System.out.println(b.nome);
+      for (Borsa.Azione a : b.azioni())
+        System.out.println(
+            "- " + a.azienda().nome + ", " + a.prezzo() + ", " + a.azioniDisponibili());
+    }
+  }
+}
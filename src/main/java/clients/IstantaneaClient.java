@@ -0,0 +1,180 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Istantanea;
+import borsanova.Operatore;
+import borsanova.politicaPrezzo.DecrementoCostante;
+import borsanova.politicaPrezzo.IncrementoCostante;
+import borsanova.politicaPrezzo.PrezzoInvariato;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import utils.Lettore;
+
+/**
+ * Client di test per la scrittura e il caricamento dell'<strong>istantanea</strong> del
+ * mercato.
+ */
+public class IstantaneaClient {
+
+  /** . */
+  private IstantaneaClient() {}
+
+  /*-
+   * Scriva un {@code main} che legge dal flusso in ingresso gli stessi gruppi
+   * di linee di GiornaleClient.
+   *
+   * Il programma esegue le operazioni in un processo separato che, al
+   * termine, emette lo stato finale e ne scrive l'istantanea in un file.
+   * Avvia quindi un secondo processo che carica l'istantanea e ne emette lo
+   * stato come GiornaleClient. L'uscita di ciascun processo è separata dalla
+   * linea contenente solo --.
+   */
+  public static void main(String[] args) throws IOException, InterruptedException, URISyntaxException {
+    if (args.length == 2) {
+      Path file = Path.of(args[1]);
+      if (args[0].equals("esegui")) {
+        esegui();
+        emettiStato();
+        Istantanea.scrivi(file);
+      } else {
+        Istantanea.carica(file);
+        emettiStato();
+      }
+      return;
+    }
+    Path file = Files.createTempFile("istantanea", ".dat");
+    try {
+      byte[] ingresso = System.in.readAllBytes();
+      System.out.print(processo("esegui", file, ingresso));
+      System.out.println("--");
+      System.out.print(processo("carica", file, new byte[0]));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /**
+   * Esegue questo client in un nuovo processo e ne restituisce l'uscita.
+   *
+   * @param modalita la modalità del processo.
+   * @param file il file dell'istantanea.
+   * @param ingresso il flusso in ingresso del processo.
+   * @return l'uscita del processo.
+   */
+  private static String processo(String modalita, Path file, byte[] ingresso)
+      throws IOException, InterruptedException, URISyntaxException {
+    String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    String classi =
+        Path.of(IstantaneaClient.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+            .toString();
+    Process p =
+        new ProcessBuilder(
+                java,
+                "-cp",
+                classi,
+                IstantaneaClient.class.getName(),
+                modalita,
+                file.toString())
+            .redirectErrorStream(true)
+            .start();
+    try (OutputStream out = p.getOutputStream()) {
+      out.write(ingresso);
+    }
+    String uscita;
+    try (InputStream in = p.getInputStream()) {
+      uscita = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+    p.waitFor();
+    return uscita;
+  }
+
+  /** Esegue le operazioni lette dal flusso in ingresso. */
+  private static void esegui() {
+    try (Lettore sc = new Lettore(System.in)) {
+      // quota aziende in borse
+      while (sc.hasNext()) {
+        String nomeAzienda = sc.next();
+        if (nomeAzienda.equals("--")) break;
+        Borsa b = Borsa.of(sc.next());
+        int numero = sc.nextInt();
+        int prezzo = sc.nextInt();
+        Azienda.of(nomeAzienda).quotaInBorsa(b, numero, prezzo);
+      }
+      // istanza gli operatori
+      while (sc.hasNext()) {
+        String nomeOperatore = sc.next();
+        if (nomeOperatore.equals("--")) break;
+        Operatore.of(nomeOperatore).deposito(sc.nextInt());
+      }
+      // eseguo le operazioni
+      while (sc.hasNext()) {
+        String nome = sc.next();
+        String operazione = sc.next();
+        switch (operazione) {
+          case "p" -> {
+            int pp = sc.nextInt();
+            Borsa.of(nome)
+                .politica(
+                    pp > 0
+                        ? new IncrementoCostante(pp)
+                        : pp < 0 ? new DecrementoCostante(-pp) : new PrezzoInvariato());
+          }
+          case "d" -> Operatore.of(nome).deposito(sc.nextInt());
+          case "w" -> Operatore.of(nome).prelievo(sc.nextInt());
+          default -> {
+            Operatore op = Operatore.of(nome);
+            Borsa b = Borsa.of(sc.next());
+            Azienda a = Azienda.of(sc.next());
+            int valore = sc.nextInt();
+            switch (operazione) {
+              case "b" -> op.acquistaAzioni(b, a, valore);
+              case "s" -> op.vendiAzioni(b, a, valore);
+              case "bl" -> op.ordineAcquisto(b, a, valore, sc.nextInt());
+              case "sl" -> op.ordineVendita(b, a, valore, sc.nextInt());
+              default -> throw new IllegalArgumentException("Operazione sconosciuta: " + operazione);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /** Emette lo stato degli operatori e delle borse. */
+  private static void emettiStato() {
+    for (Operatore op : Operatore.istanze()) System.out.println(op);
+    for (Borsa b : Borsa.istanze()) {
+      System.out.println(b.nome);
+      for (Borsa.Azione a : b.azioni())
+        System.out.println(
+            "- " + a.azienda().nome + ", " + a.prezzo() + ", " + a.azioniDisponibili());
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+package clients;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Operatore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import utils.Lettore;
+
+/**
+ * Client di test per alcune funzionalità relative al <strong>libro degli
+ * ordini</strong>.
+ */
+public class LibroOrdiniClient {
+
+  /** . */
+  private LibroOrdiniClient() {
+  }
+
+  /*-
+   * Scriva un {@code main} che legge dal flusso in ingresso una sequenza di tre
+   * gruppi di linee (separati tra loro dalla linea contenente solo --) ciascuno
+   * della forma descritta di seguito:
+   *
+   *     nome_azienda nome_borsa numero prezzo_unitario
+   *     ...
+   *     --
+   *     nome_operatore budget_iniziale
+   *     ...
+   *     --
+   *     nome_operatore b nome_borsa nome_azienda prezzo_totale
+   *     ... [oppure]
+   *     nome_operatore s nome_borsa nome_azienda numero_azioni
+   *     ... [oppure]
+   *     nome_operatore bl nome_borsa nome_azienda numero_azioni prezzo_limite
+   *     ... [oppure]
+   *     nome_operatore sl nome_borsa nome_azienda numero_azioni prezzo_limite
+   *     ... [oppure]
+   *     nome_operatore bm nome_borsa nome_azienda numero_azioni
+   *     ... [oppure]
+   *     nome_operatore sm nome_borsa nome_azienda numero_azioni
+   *     ... [oppure]
+   *     nome_operatore x nome_borsa nome_azienda numero_ordine
+   *
+   * Assuma che i nomi non contengano spazi. In base ai primi due blocchi quota
+   * le aziende nelle borse e crea gli operatori come OperatoreClient, in base
+   * al terzo esegue le operazioni, a seconda che il codice che segue il nome
+   * dell'operatore sia:
+   *
+   * - b o s, compra o vende azioni come OperatoreClient;
+   * - bl o sl, inserisce un ordine di acquisto o di vendita con il prezzo
+   *   limite specificato;
+   * - bm o sm, inserisce un ordine di acquisto o di vendita al mercato;
+   * - x, annulla l'ordine con limite inserito dalla linea numero_ordine-esima
+   *   tra quelle con codice bl o sl (contando a partire da 1).
+   *
+   * Al termine della lettura il programma emette nel flusso d'uscita l'elenco
+   * degli operatori coinvolti come OperatoreClient, seguito per ogni borsa (in
+   * ordine alfabetico) dal nome della borsa e, per ciascuna azione quotata (in
+   * ordine alfabetico, prefissata da -), dal nome dell'azienda, dal prezzo, dal
+   * miglior prezzo di acquisto e dalla relativa quantità, dal miglior prezzo di
+   * vendita e dalla relativa quantità (separati da virgole).
+   */
+  public static void main(String[] args) {
+    Set<Borsa> borse = new TreeSet<>();
+    Set<Operatore> operatori = new TreeSet<>();
+    List<Long> ordini = new ArrayList<>();
+    try (Lettore sc = new Lettore(System.in)) {
+      // quota aziende in borse
+      while (sc.hasNext()) {
+        String nomeAzienda = sc.next();
+        if (nomeAzienda.equals("--"))
+          break;
+        Borsa b = Borsa.of(sc.next());
+        borse.add(b);
+        int numero = sc.nextInt();
+        int prezzo = sc.nextInt();
+        Azienda.of(nomeAzienda).quotaInBorsa(b, numero, prezzo);
+      }
+      // istanza gli operatori
+      while (sc.hasNext()) {
+        String nomeOperatore = sc.next();
+        if (nomeOperatore.equals("--"))
+          break;
+        Operatore op = Operatore.of(nomeOperatore);
+        op.deposito(sc.nextInt());
+        operatori.add(op);
+      }
+      // eseguo le operazioni
+      while (sc.hasNext()) {
+        Operatore op = Operatore.of(sc.next());
+        String operazione = sc.next();
+        Borsa b = Borsa.of(sc.next());
+        Azienda a = Azienda.of(sc.next());
+        int valore = sc.nextInt();
+        switch (operazione) {
+          case "b" -> op.acquistaAzioni(b, a, valore);
+          case "s" -> op.vendiAzioni(b, a, valore);
+          case "bl" -> ordini.add(op.ordineAcquisto(b, a, valore, sc.nextInt()));
+          case "sl" -> ordini.add(op.ordineVendita(b, a, valore, sc.nextInt()));
+          case "bm" -> op.compraAlMercato(b, a, valore);
+          case "sm" -> op.vendiAlMercato(b, a, valore);
+          default -> op.annullaOrdine(b, a, ordini.get(valore - 1));
+        }
+      }
+    }
+    for (Operatore op : operatori)
+      System.out.println(op.toString());
+    for (Borsa b : borse) {
+      System.out.println(b.nome);
+      for (Borsa.Azione a : b.azioni())
+        System.out.println("- " + a.azienda().nome + ", " + a.prezzo()
+            + ", " + a.migliorAcquisto() + ", " + a.volumeMigliorAcquisto()
+            + ", " + a.migliorVendita() + ", " + a.volumeMigliorVendita());
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+package clients;
+
+import borsanova.Borsa;
+import borsanova.Mercato;
+import borsanova.Operatore;
+import java.util.Map;
+import utils.Lettore;
+
+/** Client di test per l'indipendenza di più mercati. */
+public class MercatoClient {
+
+  /** . */
+  private MercatoClient() {}
+
+  /*-
+   * Scriva un {@code main} che riceve come parametro sulla linea di comando il
+   * numero n di mercati da creare, numerati da 0 a n-1, e legge dal flusso in
+   * ingresso linee della forma
+   *
+   *     m q nome_borsa nome_azienda numero_azioni prezzo
+   *     m d nome_operatore importo
+   *     m b nome_operatore nome_borsa nome_azienda prezzo
+   *     m s nome_operatore nome_borsa nome_azienda quantita
+   *     m x nome_operatore k nome_borsa nome_azienda prezzo
+   *
+   * che, nel mercato m, rispettivamente quotano un'azienda in una borsa,
+   * depositano un importo nel budget di un operatore, acquistano o vendono
+   * azioni in una borsa; l'ultima forma tenta di acquistare azioni in una borsa
+   * del mercato k ed emette nel flusso d'uscita il messaggio dell'eccezione
+   * sollevata, se presente. Al termine, emette per ogni mercato una linea
+   * "Mercato m" seguita dagli operatori in ordine lessicografico (come
+   * restituiti da toString) e dai primi 3 operatori per capitale totale (una
+   * linea "- nome_operatore, capitale" per operatore).
+   */
+  public static void main(String[] args) {
+    Mercato[] mercati = new Mercato[Integer.parseInt(args[0])];
+    for (int i = 0; i < mercati.length; i++) mercati[i] = new Mercato();
+    try (Lettore sc = new Lettore(System.in)) {
+      while (sc.hasNext()) {
+        Mercato m = mercati[sc.nextInt()];
+        String operazione = sc.next();
+        switch (operazione) {
+          case "q" -> {
+            Borsa borsa = m.borsa(sc.next());
+            m.azienda(sc.next()).quotaInBorsa(borsa, sc.nextInt(), sc.nextInt());
+          }
+          case "d" -> m.operatore(sc.next()).deposito(sc.nextInt());
+          case "b" ->
+              m.operatore(sc.next()).acquistaAzioni(m.borsa(sc.next()), m.azienda(sc.next()), sc.nextInt());
+          case "s" ->
+              m.operatore(sc.next()).vendiAzioni(m.borsa(sc.next()), m.azienda(sc.next()), sc.nextInt());
+          default -> {
+            Operatore operatore = m.operatore(sc.next());
+            Mercato altro = mercati[sc.nextInt()];
+            try {
+              operatore.acquistaAzioni(altro.borsa(sc.next()), altro.azienda(sc.next()), sc.nextInt());
+            } catch (IllegalArgumentException e) {
+              System.out.println(e.getMessage());
+            }
+          }
+        }
+      }
+    }
+    for (int i = 0; i < mercati.length; i++) {
+      System.out.println("Mercato " + i);
+      for (Operatore o : mercati[i].operatori()) System.out.println(o);
+      for (Map.Entry<Operatore, Integer> e : mercati[i].maggioriCapitali(3).entrySet())
+        System.out.println("- " + e.getKey().nome + ", " + e.getValue());
+    }
+  }
+}
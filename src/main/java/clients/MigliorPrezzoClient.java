@@ -0,0 +1,112 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+package clients;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Operatore;
+import borsanova.politicaPrezzo.VariazioneCostante;
+import utils.Lettore;
+
+/** Client di test per la scelta della borsa con il prezzo migliore. */
+public class MigliorPrezzoClient {
+
+  /** . */
+  private MigliorPrezzoClient() {}
+
+  /**
+   * Restituisce la descrizione dell'azione di un'azienda con il prezzo migliore.
+   *
+   * @param azienda l'azienda.
+   * @param acquisto {@code true} per un acquisto, {@code false} per una vendita.
+   * @return il nome della borsa seguito dal prezzo.
+   */
+  private static String migliore(final Azienda azienda, final boolean acquisto) {
+    Borsa.Azione azione = azienda.azioneMigliore(acquisto);
+    return azione.nomeBorsa() + " " + azione.prezzo();
+  }
+
+  /*-
+   * Scriva un {@code main} che riceve come parametro sulla linea di comando
+   * il budget iniziale di un operatore e legge dal flusso in ingresso tre gruppi
+   * di linee separati da linee contenenti solo "--".
+   *
+   * Il primo gruppo contiene linee della forma
+   *
+   *     nome_borsa incremento decremento
+   *
+   * che istanziano una borsa con politica a variazione costante; il secondo
+   * linee della forma
+   *
+   *     nome_azienda nome_borsa numero_azioni prezzo
+   *
+   * che quotano un'azienda in una borsa; il terzo linee della forma
+   *
+   *     b nome_azienda prezzo
+   *     s nome_azienda quantita
+   *
+   * con cui l'operatore acquista (o vende) le azioni dell'azienda al prezzo migliore.
+   * Dopo ogni operazione emette nel flusso d'uscita il nome dell'azienda, il nome
+   * della borsa in cui è stata eseguita l'operazione, la borsa migliore per
+   * acquistare e quella migliore per vendere, ciascuna seguita dal prezzo
+   * (separati da una virgola).
+   */
+  public static void main(String[] args) {
+    Operatore op = Operatore.of("MarioRossi");
+    op.deposito(Integer.parseInt(args[0]));
+    try (Lettore sc = new Lettore(System.in)) {
+      // istanzia le borse
+      while (sc.hasNext()) {
+        String nomeBorsa = sc.next();
+        if (nomeBorsa.equals("--")) break;
+        Borsa.of(nomeBorsa).politica(new VariazioneCostante(sc.nextInt(), sc.nextInt()));
+      }
+      // quota le aziende nelle borse
+      while (sc.hasNext()) {
+        String nomeAzienda = sc.next();
+        if (nomeAzienda.equals("--")) break;
+        Borsa borsa = Borsa.of(sc.next());
+        int numero = sc.nextInt();
+        int prezzo = sc.nextInt();
+        Azienda.of(nomeAzienda).quotaInBorsa(borsa, numero, prezzo);
+      }
+      // eseguo le operazioni
+      while (sc.hasNext()) {
+        String operazione = sc.next();
+        Azienda azienda = Azienda.of(sc.next());
+        int n = sc.nextInt();
+        Borsa borsa =
+            operazione.equals("b")
+                ? op.acquistaAlMigliorPrezzo(azienda, n)
+                : op.vendiAlMigliorPrezzo(azienda, n);
+        System.out.println(
+            azienda.nome
+                + ", "
+                + borsa.nome
+                + ", "
+                + migliore(azienda, true)
+                + ", "
+                + migliore(azienda, false));
+      }
+    }
+  }
+}
@@ -22,9 +22,9 @@ along with this file.  If not, see <https://www.gnu.org/licenses/>.
 package clients;
 
 import borsanova.Azienda;
-import java.util.Scanner;
 import java.util.Set;
 import java.util.TreeSet;
+import utils.Lettore;
 
 /** Client di test per alcune funzionalità relative alle <strong>aziende</strong>. */
 public class OmonimiaAziendaClient {
@@ -50,7 +50,7 @@ public class OmonimiaAziendaClient {
    */
   public static void main(String[] args) {
     Set<Azienda> aziende = new TreeSet<>();
-    try (Scanner sc = new Scanner(System.in)) {
+    try (Lettore sc = new Lettore(System.in)) {
       while (sc.hasNextLine())
         aziende.add(Azienda.of(sc.nextLine()));
     }
@@ -22,9 +22,9 @@ along with this file.  If not, see <https://www.gnu.org/licenses/>.
 package clients;
 
 import borsanova.Borsa;
-import java.util.Scanner;
 import java.util.Set;
 import java.util.TreeSet;
+import utils.Lettore;
 
 /** Client di test per alcune funzionalità relative alle <strong>aziende</strong>. */
 public class OmonimiaBorsaClient {
@@ -50,7 +50,7 @@ public class OmonimiaBorsaClient {
    */
   public static void main(String[] args) {
     Set<Borsa> borse = new TreeSet<>();
-    try (Scanner sc = new Scanner(System.in)) {
+    try (Lettore sc = new Lettore(System.in)) {
       while (sc.hasNextLine()) 
         borse.add(Borsa.of(sc.nextLine()));
     }
@@ -22,9 +22,9 @@ along with this file.  If not, see <https://www.gnu.org/licenses/>.
 package clients;
 
 import borsanova.Operatore;
-import java.util.Scanner;
 import java.util.Set;
 import java.util.TreeSet;
+import utils.Lettore;
 
 /**
  * Client di test per alcune funzionalità relative alle
@@ -54,7 +54,7 @@ public class OmonimiaOperatoreClient {
    */
    public static void main(String[] args) {
     Set<Operatore> operatori = new TreeSet<>();
-    try (Scanner sc = new Scanner(System.in)) {
+    try (Lettore sc = new Lettore(System.in)) {
       while (sc.hasNextLine())
         operatori.add(Operatore.of(sc.nextLine()));
     }
@@ -24,9 +24,9 @@ package clients;
 import borsanova.Azienda;
 import borsanova.Borsa;
 import borsanova.Operatore;
-import java.util.Scanner;
 import java.util.Set;
 import java.util.TreeSet;
+import utils.Lettore;
 
 /**
  * Client di test per alcune funzionalità relative agli
@@ -85,7 +85,7 @@ public class OperatoreClient {
    */
   public static void main(String[] args) {
     Set<Operatore> operatori = new TreeSet<>();
-    try (Scanner sc = new Scanner(System.in)) {
+    try (Lettore sc = new Lettore(System.in)) {
       // quota aziende in borse
       while (sc.hasNext()) {
         String nomeAzienda = sc.next();
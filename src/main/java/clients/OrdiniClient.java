@@ -0,0 +1,107 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+package clients;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.EsitoOrdine;
+import borsanova.Operatore;
+import borsanova.Ordine;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import utils.Lettore;
+
+/**
+ * Client di test per l'esecuzione in blocco degli <strong>ordini</strong>.
+ */
+public class OrdiniClient {
+
+  /** . */
+  private OrdiniClient() {
+  }
+
+  /*-
+   * Scriva un {@code main} che legge dal flusso in ingresso una sequenza di tre
+   * gruppi di linee nello stesso formato di BorsaClient e, dopo aver quotato le
+   * aziende e creato gli operatori, raccoglie le operazioni del terzo blocco in
+   * un elenco di ordini per ciascuna borsa (nell'ordine in cui compaiono).
+   *
+   * Al termine della lettura esegue in blocco gli ordini di ciascuna borsa (in
+   * ordine alfabetico di borsa) ed emette nel flusso d'uscita, per ogni
+   * operazione del terzo blocco (nell'ordine in cui compaiono) il numero della
+   * linea (contando a partire da 1) seguito dall'esito (separati da una
+   * virgola), e quindi l'elenco degli operatori coinvolti come
+   * OperatoreClient.
+   */
+  public static void main(String[] args) {
+    Set<Operatore> operatori = new TreeSet<>();
+    Map<Borsa, List<Ordine>> ordini = new TreeMap<>();
+    Map<Borsa, List<Integer>> linee = new TreeMap<>();
+    int numeroLinee = 0;
+    try (Lettore sc = new Lettore(System.in)) {
+      // quota aziende in borse
+      while (sc.hasNext()) {
+        String nomeAzienda = sc.next();
+        if (nomeAzienda.equals("--"))
+          break;
+        Borsa b = Borsa.of(sc.next());
+        int numero = sc.nextInt();
+        int prezzo = sc.nextInt();
+        Azienda.of(nomeAzienda).quotaInBorsa(b, numero, prezzo);
+      }
+      // istanza gli operatori
+      while (sc.hasNext()) {
+        String nomeOperatore = sc.next();
+        if (nomeOperatore.equals("--"))
+          break;
+        Operatore op = Operatore.of(nomeOperatore);
+        op.deposito(sc.nextInt());
+        operatori.add(op);
+      }
+      // raccolgo gli ordini
+      while (sc.hasNext()) {
+        Operatore op = Operatore.of(sc.next());
+        boolean acquisto = sc.next().equals("b");
+        Borsa b = Borsa.of(sc.next());
+        Azienda a = Azienda.of(sc.next());
+        int valore = sc.nextInt();
+        ordini.computeIfAbsent(b, k -> new ArrayList<>()).add(new Ordine(op, a, acquisto, valore));
+        linee.computeIfAbsent(b, k -> new ArrayList<>()).add(numeroLinee++);
+      }
+    }
+    EsitoOrdine[] esiti = new EsitoOrdine[numeroLinee];
+    for (Map.Entry<Borsa, List<Ordine>> e : ordini.entrySet()) {
+      EsitoOrdine[] esitiBorsa = e.getKey().eseguiOrdini(e.getValue());
+      List<Integer> lineeBorsa = linee.get(e.getKey());
+      for (int i = 0; i < esitiBorsa.length; i++)
+        esiti[lineeBorsa.get(i)] = esitiBorsa[i];
+    }
+    for (int i = 0; i < numeroLinee; i++)
+      System.out.println((i + 1) + ", " + esiti[i]);
+    for (Operatore op : operatori)
+      System.out.println(op.toString());
+  }
+}
@@ -0,0 +1,81 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+package clients;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Operatore;
+import borsanova.politicaPrezzo.DecrementoEsponenziale;
+import borsanova.politicaPrezzo.IncrementoLineare;
+import borsanova.politicaPrezzo.PoliticaPrezzo;
+import utils.Lettore;
+
+/** Client di test per le politiche di prezzo che dipendono dalla quantità scambiata. */
+public class PoliticaNonLineareClient {
+
+  /** . */
+  private PoliticaNonLineareClient() {}
+
+  /*-
+   * Scriva un {@code main} che riceve come parametri sulla linea di comando
+   *
+   *      nome_borsa politica valore budget_iniziale
+   *
+   * dove politica è l per una politica ad incremento lineare pari a valore
+   * per ogni azione acquistata, oppure e per una politica a decremento
+   * esponenziale che dimezza il prezzo ogni valore azioni vendute.
+   *
+   * Il programma quindi legge dal flusso in ingresso due gruppi di linee nello
+   * stesso formato di PoliticaPrezzoClient, esegue le operazioni allo stesso modo
+   * e, dopo ogni operazione, emette nel flusso d'uscita il nome dell'azienda
+   * seguito dal prezzo della sua azione (separati da una virgola).
+   */
+  public static void main(String[] args) {
+    Borsa borsa = Borsa.of(args[0]);
+    int valore = Integer.parseInt(args[2]);
+    PoliticaPrezzo politica = args[1].equals("l") ? new IncrementoLineare(valore) : new DecrementoEsponenziale(valore);
+    borsa.politica(politica);
+    Operatore op = Operatore.of("MarioRossi");
+    op.deposito(Integer.parseInt(args[3]));
+    try (Lettore sc = new Lettore(System.in)) {
+      // quota le aziende nella borsa
+      while (sc.hasNext()) {
+        String nomeAzienda = sc.next();
+        if (nomeAzienda.equals("--")) break;
+        int numero = sc.nextInt();
+        int prezzo = sc.nextInt();
+        Azienda.of(nomeAzienda).quotaInBorsa(borsa, numero, prezzo);
+      }
+      // eseguo le operazioni
+      while (sc.hasNext()) {
+        String operazione = sc.next();
+        Azienda azienda = Azienda.of(sc.next());
+        int n = sc.nextInt();
+        if (operazione.equals("b"))
+          op.acquistaAzioni(borsa, azienda, n);
+        else
+          op.vendiAzioni(borsa, azienda, n);
+        System.out.println(azienda.nome + ", " + borsa.prendiAzione(azienda).prezzo());
+      }
+    }
+  }
+}
@@ -25,8 +25,8 @@ import borsanova.politicaPrezzo.*;
 import borsanova.Azienda;
 import borsanova.Borsa;
 import borsanova.Operatore;
+import utils.Lettore;
 
-import java.util.Scanner;
 
 /** Client di test per alcune funzionalità relative alle <strong>borse</strong>. */
 public class PoliticaPrezzoClient {
@@ -82,7 +82,7 @@ public class PoliticaPrezzoClient {
     borsa.politica(polPrezzo);
     Operatore op = Operatore.of("MarioRossi");
     op.deposito(Integer.parseInt(args[2]));
-    try (Scanner sc = new Scanner(System.in)) {
+    try (Lettore sc = new Lettore(System.in)) {
       //quota le aziende nella borsa
       while (sc.hasNext()) {
         String nomeAzienda = sc.next();
@@ -0,0 +1,98 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+package clients;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Operatore;
+import borsanova.politicaPrezzo.PressioneVolume;
+import java.time.Duration;
+import utils.Lettore;
+
+/** Client di test per la politica di prezzo che reagisce al volume netto degli scambi recenti. */
+public class PressioneVolumeClient {
+
+  /** . */
+  private PressioneVolumeClient() {}
+
+  /** L'istante corrente dell'orologio simulato, in millisecondi. */
+  private static long istante;
+
+  /*-
+   * Scriva un {@code main} che riceve come parametri sulla linea di comando
+   *
+   *      nome_borsa finestra ampiezza sensibilita capacita budget_iniziale
+   *
+   * dove finestra è n per una politica che considera gli ultimi ampiezza scambi
+   * di ogni azione, oppure t per una che considera gli scambi degli ultimi
+   * ampiezza secondi, misurati con un orologio simulato che parte da 0;
+   * sensibilita e capacita sono i corrispondenti parametri della politica.
+   *
+   * Il programma quindi legge dal flusso in ingresso due gruppi di linee nello
+   * stesso formato di PoliticaPrezzoClient, con in più, tra le operazioni, linee
+   * della forma
+   *
+   *      t millisecondi
+   *
+   * che portano l'orologio simulato all'istante indicato. Dopo ogni acquisto o
+   * vendita emette nel flusso d'uscita il nome dell'azienda, il prezzo della sua
+   * azione e il volume netto recente (separati da una virgola).
+   */
+  public static void main(String[] args) {
+    Borsa borsa = Borsa.of(args[0]);
+    int ampiezza = Integer.parseInt(args[2]);
+    int sensibilita = Integer.parseInt(args[3]);
+    int capacita = Integer.parseInt(args[4]);
+    PressioneVolume politica = args[1].equals("n")
+        ? new PressioneVolume(ampiezza, sensibilita, capacita)
+        : new PressioneVolume(Duration.ofSeconds(ampiezza), sensibilita, capacita, () -> istante);
+    borsa.politica(politica);
+    Operatore op = Operatore.of("MarioRossi");
+    op.deposito(Integer.parseInt(args[5]));
+    try (Lettore sc = new Lettore(System.in)) {
+      // quota le aziende nella borsa
+      while (sc.hasNext()) {
+        String nomeAzienda = sc.next();
+        if (nomeAzienda.equals("--")) break;
+        int numero = sc.nextInt();
+        int prezzo = sc.nextInt();
+        Azienda.of(nomeAzienda).quotaInBorsa(borsa, numero, prezzo);
+      }
+      // eseguo le operazioni
+      while (sc.hasNext()) {
+        String operazione = sc.next();
+        if (operazione.equals("t")) {
+          istante = Long.parseLong(sc.next());
+          continue;
+        }
+        Azienda azienda = Azienda.of(sc.next());
+        int n = sc.nextInt();
+        if (operazione.equals("b"))
+          op.acquistaAzioni(borsa, azienda, n);
+        else
+          op.vendiAzioni(borsa, azienda, n);
+        Borsa.Azione azione = borsa.prendiAzione(azienda);
+        System.out.println(azienda.nome + ", " + azione.prezzo() + ", " + politica.volumeNetto(azione));
+      }
+    }
+  }
+}
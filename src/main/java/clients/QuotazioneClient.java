@@ -21,12 +21,12 @@ along with this file.  If not, see <https://www.gnu.org/licenses/>.
 
 package clients;
 
-import java.util.Scanner;
 import java.util.Set;
 import java.util.TreeSet;
 
 import borsanova.Azienda;
 import borsanova.Borsa;
+import utils.Lettore;
 
 /**
  * Client di test per alcune funzionalità relative alle
@@ -53,7 +53,7 @@ public class QuotazioneClient {
   public static void main(String[] args) {
     Set<Borsa> borse = new TreeSet<>();
     Set<Azienda> aziende = new TreeSet<>();
-    try (Scanner sc = new Scanner(System.in)) {
+    try (Lettore sc = new Lettore(System.in)) {
       while (sc.hasNext()) {
         Azienda azienda = Azienda.of(sc.next());
         aziende.add(azienda);
@@ -0,0 +1,116 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+package clients;
+
+import borsanova.politicaPrezzo.DecrementoEsponenziale;
+import borsanova.politicaPrezzo.IncrementoLineare;
+import java.math.BigInteger;
+import java.util.Random;
+import utils.Lettore;
+
+/**
+ * Client di test che confronta le politiche di prezzo che dipendono dalla quantità
+ * scambiata con un'implementazione di riferimento.
+ */
+public class RiferimentoPoliticheClient {
+
+  /** . */
+  private RiferimentoPoliticheClient() {}
+
+  /**
+   * Calcola il prezzo dopo un acquisto con incremento lineare, con aritmetica a precisione
+   * arbitraria.
+   *
+   * @param valore l'incremento per azione.
+   * @param prezzo il prezzo.
+   * @param quantita la quantità acquistata.
+   * @return il prezzo atteso.
+   */
+  private static int lineare(final int valore, final int prezzo, final int quantita) {
+    BigInteger nuovo =
+        BigInteger.valueOf(valore)
+            .multiply(BigInteger.valueOf(quantita))
+            .add(BigInteger.valueOf(prezzo));
+    return nuovo.min(BigInteger.valueOf(Integer.MAX_VALUE)).intValue();
+  }
+
+  /**
+   * Calcola il prezzo dopo una vendita con decremento esponenziale, in virgola mobile.
+   *
+   * @param dimezzamento il numero di azioni che dimezza il prezzo.
+   * @param prezzo il prezzo.
+   * @param quantita la quantità venduta.
+   * @return il prezzo atteso, oppure -1 se il valore esatto è così vicino a un intero
+   *     che la virgola mobile non permette di arrotondarlo con certezza.
+   */
+  private static int esponenziale(final int dimezzamento, final int prezzo, final int quantita) {
+    double esatto = prezzo * Math.pow(2, -(double) quantita / dimezzamento);
+    if (Math.abs(esatto - Math.rint(esatto)) < 1e-9 * Math.max(1, esatto)) return -1;
+    return (int) Math.max(1, Math.floor(esatto));
+  }
+
+  /*-
+   * Scriva un {@code main} che legge dal flusso in ingresso linee della forma
+   *
+   *     l valore casi seme
+   *     e dimezzamento casi seme
+   *
+   * e, per ciascuna, confronta la politica ad incremento lineare (o a decremento
+   * esponenziale) con il parametro specificato con un'implementazione di
+   * riferimento, per il numero di casi specificato: ogni caso è formato da un
+   * prezzo e da una quantità scelti a caso (con il seme specificato), la metà
+   * dei prezzi minori di 1000. Per ogni linea emette nel flusso d'uscita la linea
+   * stessa seguita dal numero di casi confrontati con certezza e dal numero di
+   * casi in cui le due implementazioni differiscono.
+   */
+  public static void main(String[] args) {
+    try (Lettore sc = new Lettore(System.in)) {
+      while (sc.hasNext()) {
+        String politica = sc.next();
+        int parametro = sc.nextInt();
+        int casi = sc.nextInt();
+        int seme = sc.nextInt();
+        Random r = new Random(seme);
+        IncrementoLineare l = politica.equals("l") ? new IncrementoLineare(parametro) : null;
+        DecrementoEsponenziale e = l == null ? new DecrementoEsponenziale(parametro) : null;
+        int confrontati = 0, differenze = 0;
+        for (int i = 0; i < casi; i++) {
+          int prezzo = 1 + (i % 2 == 0 ? r.nextInt(1000) : r.nextInt(Integer.MAX_VALUE));
+          int atteso, calcolato;
+          if (l != null) {
+            int quantita = 1 + r.nextInt(Integer.MAX_VALUE);
+            atteso = lineare(parametro, prezzo, quantita);
+            calcolato = l.prezzoDopoAcquisto(prezzo, quantita);
+          } else {
+            int quantita = r.nextInt(40 * parametro + 1);
+            atteso = esponenziale(parametro, prezzo, quantita);
+            calcolato = e.prezzoDopoVendita(prezzo, quantita);
+          }
+          if (atteso < 0) continue;
+          confrontati++;
+          if (atteso != calcolato) differenze++;
+        }
+        System.out.println(politica + " " + parametro + " " + casi + " " + seme + ", " + confrontati + ", " + differenze);
+      }
+    }
+  }
+}
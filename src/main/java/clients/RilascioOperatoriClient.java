@@ -0,0 +1,109 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import borsanova.Borsa;
+import borsanova.Mercato;
+import borsanova.Operatore;
+import java.util.Map;
+import utils.Lettore;
+
+/** Client di test per il rilascio degli operatori inattivi di un mercato. */
+public class RilascioOperatoriClient {
+
+  /** . */
+  private RilascioOperatoriClient() {}
+
+  /*-
+   * Scriva un {@code main} che crea un mercato che rilascia gli operatori inattivi
+   * e legge dal flusso in ingresso linee della forma
+   *
+   *     q nome_borsa nome_azienda numero_azioni prezzo
+   *     d nome_operatore importo
+   *     p nome_operatore importo
+   *     b nome_operatore nome_borsa nome_azienda prezzo
+   *     s nome_operatore nome_borsa nome_azienda quantita
+   *     n numero prefisso
+   *
+   * che rispettivamente quotano un'azienda in una borsa, depositano o prelevano
+   * un importo dal budget di un operatore, acquistano o vendono azioni in una
+   * borsa; l'ultima forma crea il numero indicato di operatori di nome
+   * prefisso0, prefisso1, ... senza conservarne i riferimenti. Al termine,
+   * dopo aver sollecitato il garbage collector, emette il numero di operatori
+   * del mercato, gli operatori in ordine lessicografico (come restituiti da
+   * toString), i primi 3 operatori per capitale totale (una linea
+   * "- nome_operatore, capitale" per operatore), una linea che indica se ogni
+   * operatore è ancora restituito dal mercato come la stessa istanza e la
+   * posizione in classifica di ciascuno degli operatori i cui nomi sono
+   * specificati sulla linea di comando.
+   */
+  public static void main(String[] args) throws InterruptedException {
+    Mercato m = new Mercato(true);
+    try (Lettore sc = new Lettore(System.in)) {
+      while (sc.hasNext()) esegui(m, sc);
+    }
+    for (int i = 0; i < 10; i++) {
+      System.gc();
+      Thread.sleep(20);
+    }
+    int numero = 0;
+    boolean uniche = true;
+    for (Operatore o : m.operatori()) {
+      numero++;
+      uniche &= m.operatore(o.nome) == o;
+    }
+    System.out.println("Operatori: " + numero);
+    for (Operatore o : m.operatori()) System.out.println(o);
+    for (Map.Entry<Operatore, Integer> e : m.maggioriCapitali(3).entrySet())
+      System.out.println("- " + e.getKey().nome + ", " + e.getValue());
+    System.out.println("Istanze uniche: " + uniche);
+    for (String nome : args)
+      System.out.println(nome + ": " + m.operatore(nome).posizioneCapitale());
+  }
+
+  /**
+   * Esegue un'operazione letta dal flusso in ingresso.
+   *
+   * @param m il mercato.
+   * @param sc il lettore del flusso in ingresso.
+   */
+  private static void esegui(Mercato m, Lettore sc) {
+    switch (sc.next()) {
+      case "q" -> {
+        Borsa borsa = m.borsa(sc.next());
+        m.azienda(sc.next()).quotaInBorsa(borsa, sc.nextInt(), sc.nextInt());
+      }
+      case "d" -> m.operatore(sc.next()).deposito(sc.nextInt());
+      case "p" -> m.operatore(sc.next()).prelievo(sc.nextInt());
+      case "b" ->
+          m.operatore(sc.next()).acquistaAzioni(m.borsa(sc.next()), m.azienda(sc.next()), sc.nextInt());
+      case "s" ->
+          m.operatore(sc.next()).vendiAzioni(m.borsa(sc.next()), m.azienda(sc.next()), sc.nextInt());
+      default -> {
+        int numero = sc.nextInt();
+        String prefisso = sc.next();
+        for (int i = 0; i < numero; i++) m.operatore(prefisso + i);
+      }
+    }
+  }
+}
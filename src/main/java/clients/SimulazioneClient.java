@@ -0,0 +1,109 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+package clients;
+
+import borsanova.politicaPrezzo.VariazioneCostante;
+import borsanova.simulazione.Comportamento;
+import borsanova.simulazione.Risultati;
+import borsanova.simulazione.Scenario;
+import borsanova.simulazione.Simulatore;
+import java.util.concurrent.ForkJoinPool;
+import utils.Lettore;
+
+/** Client di test per il simulatore Monte Carlo. */
+public class SimulazioneClient {
+
+  /** . */
+  private SimulazioneClient() {}
+
+  /*-
+   * Scriva un {@code main} che riceve come parametri sulla linea di comando il
+   * numero di simulazioni, il seme, l'incremento e il decremento del prezzo
+   * della politica {@link VariazioneCostante}, e legge dal flusso in ingresso
+   * una linea della forma
+   *
+   *     aziende azioni prezzo operatori budget passi deposito prelievo acquisto vendita importo
+   *
+   * che descrive lo scenario e il comportamento degli operatori. Il main esegue
+   * le simulazioni nel pool comune e in un pool con un solo thread, ed emette nel
+   * flusso d'uscita una linea "Azienda a: distribuzione" per ogni azienda, una
+   * linea "Capitali: distribuzione", una linea "Operazioni: eseguite, scartate"
+   * e infine una linea "Riproducibile: true" se i due pool producono gli stessi
+   * risultati.
+   */
+  public static void main(String[] args) {
+    int simulazioni = Integer.parseInt(args[0]);
+    long seme = Long.parseLong(args[1]);
+    int incremento = Integer.parseInt(args[2]);
+    int decremento = Integer.parseInt(args[3]);
+    Scenario scenario;
+    try (Lettore sc = new Lettore(System.in)) {
+      int aziende = sc.nextInt();
+      int azioni = sc.nextInt();
+      int prezzo = sc.nextInt();
+      int operatori = sc.nextInt();
+      int budget = sc.nextInt();
+      int passi = sc.nextInt();
+      Comportamento comportamento =
+          new Comportamento(sc.nextInt(), sc.nextInt(), sc.nextInt(), sc.nextInt(), sc.nextInt());
+      scenario =
+          new Scenario(
+              aziende,
+              azioni,
+              prezzo,
+              operatori,
+              budget,
+              passi,
+              comportamento,
+              () -> new VariazioneCostante(incremento, decremento));
+    }
+    String parallelo = descrivi(scenario, Simulatore.esegui(scenario, simulazioni, seme));
+    ForkJoinPool sequenziale = new ForkJoinPool(1);
+    try {
+      String singolo = descrivi(scenario, Simulatore.esegui(scenario, simulazioni, seme, sequenziale));
+      System.out.print(parallelo);
+      System.out.println("Riproducibile: " + parallelo.equals(singolo));
+    } finally {
+      sequenziale.shutdown();
+    }
+  }
+
+  /**
+   * Descrive i risultati delle simulazioni.
+   *
+   * @param scenario lo scenario.
+   * @param risultati i risultati.
+   * @return la descrizione, una linea per azienda più le linee dei capitali e delle operazioni.
+   */
+  private static String descrivi(Scenario scenario, Risultati risultati) {
+    StringBuilder sb = new StringBuilder();
+    for (int a = 0; a < scenario.aziende(); a++)
+      sb.append("Azienda ").append(a).append(": ").append(risultati.prezzi(a)).append('\n');
+    sb.append("Capitali: ").append(risultati.capitali()).append('\n');
+    sb.append("Operazioni: ")
+        .append(risultati.eseguite())
+        .append(", ")
+        .append(risultati.scartate())
+        .append('\n');
+    return sb.toString();
+  }
+}
@@ -0,0 +1,121 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+package clients;
+
+import borsanova.Azienda;
+import borsanova.Barra;
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.Operatore;
+import borsanova.StoricoPrezzi;
+import borsanova.politicaPrezzo.VariazioneCostante;
+import java.util.Set;
+import java.util.TreeSet;
+import utils.Lettore;
+
+/**
+ * Client di test per lo <strong>storico degli scambi</strong> delle azioni.
+ */
+public class StoricoPrezziClient {
+
+  /** . */
+  private StoricoPrezziClient() {
+  }
+
+  /**
+   * Emette una barra nel flusso d'uscita, senza l'istante di inizio.
+   *
+   * @param barra la barra.
+   */
+  private static void emetti(final Barra barra) {
+    System.out.println("= " + barra.primo() + ", " + barra.scambi() + ", " + barra.apertura() + ", "
+        + barra.massimo() + ", " + barra.minimo() + ", " + barra.chiusura() + ", " + barra.volume());
+  }
+
+  /*-
+   * Scriva un {@code main} che legge dal flusso in ingresso tre gruppi di linee
+   * nello stesso formato di BorsaClient, e riceve come parametri sulla linea di
+   * comando tre interi: l'incremento e il decremento della politica di prezzo a
+   * variazione costante di tutte le borse e il numero di scambi di una barra.
+   *
+   * Al termine della lettura, per ogni borsa (in ordine alfabetico) e per ogni
+   * azione in essa quotata (in ordine alfabetico) emette il nome della borsa e
+   * dell'azienda, separati da una virgola, seguiti:
+   *
+   * - dagli scambi dello storico, uno per linea, prefissati da - nella forma
+   *   "numero, prezzo, quantità";
+   * - dalle barre ottenute raggruppando gli scambi per il numero di scambi
+   *   specificato, una per linea, prefissate da = nella forma "primo, scambi,
+   *   apertura, massimo, minimo, chiusura, volume";
+   * - dall'unica barra, nella stessa forma, che raggruppa per tempo tutti gli
+   *   scambi avvenuti dall'inizio dell'epoca.
+   */
+  public static void main(String[] args) {
+    Set<Borsa> borse = new TreeSet<>();
+    try (Lettore sc = new Lettore(System.in)) {
+      // quota aziende in borse
+      while (sc.hasNext()) {
+        String nomeAzienda = sc.next();
+        if (nomeAzienda.equals("--"))
+          break;
+        Borsa b = Borsa.of(sc.next());
+        borse.add(b);
+        int numero = sc.nextInt();
+        int prezzo = sc.nextInt();
+        Azienda.of(nomeAzienda).quotaInBorsa(b, numero, prezzo);
+      }
+      for (Borsa b : borse)
+        b.politica(new VariazioneCostante(Integer.parseInt(args[0]), Integer.parseInt(args[1])));
+      // istanza gli operatori
+      while (sc.hasNext()) {
+        String nomeOperatore = sc.next();
+        if (nomeOperatore.equals("--"))
+          break;
+        Operatore.of(nomeOperatore).deposito(sc.nextInt());
+      }
+      // eseguo le operazioni
+      while (sc.hasNext()) {
+        Operatore op = Operatore.of(sc.next());
+        String operazione = sc.next();
+        Borsa b = Borsa.of(sc.next());
+        Azienda a = Azienda.of(sc.next());
+        int valore = sc.nextInt();
+        if (operazione.equals("b"))
+          op.acquistaAzioni(b, a, valore);
+        else
+          op.vendiAzioni(b, a, valore);
+      }
+    }
+    int scambi = Integer.parseInt(args[2]);
+    for (Borsa b : borse)
+      for (Azione azione : b.azioni()) {
+        System.out.println(b.nome + ", " + azione.azienda().nome);
+        StoricoPrezzi storico = azione.storico();
+        for (long s = 0; s < storico.dimensione(); s++)
+          System.out.println("- " + s + ", " + storico.prezzo(s) + ", " + storico.quantita(s));
+        for (Barra barra : storico.barrePerScambi(0, storico.dimensione(), scambi))
+          emetti(barra);
+        for (Barra barra : storico.barrePerTempo(0, Long.MAX_VALUE, Long.MAX_VALUE))
+          emetti(barra);
+      }
+  }
+}
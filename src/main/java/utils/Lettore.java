@@ -0,0 +1,345 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+/**
+ * Lettore veloce di un flusso di ingresso composto da <em>token</em> separati da spazi (o da linee),
+ * pensato per sostituire {@link java.util.Scanner} nei client.
+ *
+ * <p>A differenza di {@code Scanner}, che individua i token tramite espressioni regolari e decodifica
+ * l'intero flusso in caratteri, questo lettore:
+ *
+ * <ul>
+ *   <li>legge il flusso a blocchi in un ampio buffer di byte ed esamina direttamente i byte;
+ *   <li>converte gli interi senza allocare memoria;
+ *   <li>restituisce per byte uguali la stessa istanza di {@link String} (<em>interning</em>), così
+ *       che i nomi ripetuti (di borse, aziende e operatori) non vengano né decodificati né allocati
+ *       più di una volta, e il loro codice hash sia calcolato una volta sola.
+ * </ul>
+ *
+ * <p>Sono considerati separatori lo spazio e i caratteri di controllo ASCII da {@code \t} a {@code
+ * \r}; i token sono decodificati come UTF-8.
+ *
+ * <p>Come con {@code Scanner}, il separatore che segue un token non viene consumato, così che
+ * {@link #nextLine()} invocato dopo {@link #next()} alla fine di una linea restituisca la linea
+ * vuota, e un token non valido per {@link #nextInt()} resta il prossimo token. Diversamente da
+ * {@code Scanner}:
+ *
+ * <ul>
+ *   <li>{@link #hasNext()} consuma i separatori che precedono il prossimo token (anche se non
+ *       trova alcun token), e non è possibile leggere una linea dopo aver individuato un token con
+ *       {@link #hasNext()} senza averlo restituito;
+ *   <li>i soli terminatori di linea riconosciuti sono {@code \n} e {@code \r\n}.
+ * </ul>
+ */
+public final class Lettore implements Closeable {
+
+  /** La dimensione del buffer di lettura. */
+  private static final int DIMENSIONE_BUFFER = 1 << 16;
+
+  /** Il numero massimo di nomi conservati per l'interning. */
+  private static final int MASSIMO_NOMI = 1 << 16;
+
+  /** Il flusso da cui leggere. */
+  private final InputStream ingresso;
+
+  /** Il buffer di lettura. */
+  private final byte[] dati = new byte[DIMENSIONE_BUFFER];
+
+  /** La posizione del prossimo byte da esaminare in dati. */
+  private int posizione;
+
+  /** Il numero di byte validi in dati. */
+  private int limite;
+
+  /** Indica se è stata raggiunta la fine del flusso. */
+  private boolean finito;
+
+  /** I byte dell'ultimo token (o linea) individuato. */
+  private byte[] token = new byte[64];
+
+  /** La lunghezza dell'ultimo token (o linea) individuato. */
+  private int lunghezza;
+
+  /** Indica se token contiene un token individuato da {@link #hasNext()} e non ancora restituito. */
+  private boolean pronto;
+
+  /** La tabella (a sondaggio lineare) dei byte dei nomi conservati. */
+  private byte[][] chiavi = new byte[1024][];
+
+  /** I nomi conservati, nella stessa cella dei loro byte in chiavi. */
+  private String[] nomi = new String[1024];
+
+  /** Il numero di nomi conservati. */
+  private int numeroNomi;
+
+  /*-
+   * AF:
+   *  - il flusso ancora da leggere è costituito da dati[posizione..limite) seguito da quanto resta
+   *    in ingresso (nulla se finito);
+   *  - se pronto, il prossimo token è token[0..lunghezza);
+   *  - per ogni cella i con chiavi[i] != null, nomi[i] è la stringa (UTF-8) di byte chiavi[i].
+   *
+   * RI:
+   *  - ingresso, dati, token, chiavi e nomi non sono null;
+   *  - 0 <= posizione <= limite <= dati.length, 0 <= lunghezza <= token.length;
+   *  - chiavi.length == nomi.length è una potenza di 2 e numeroNomi <= chiavi.length / 2;
+   *  - chiavi[i] == null se e solo se nomi[i] == null e i byte in chiavi sono tutti distinti;
+   *  - numeroNomi è il numero di celle non null di chiavi.
+   */
+
+  /**
+   * Costruisce un lettore del flusso specificato.
+   *
+   * @param ingresso il flusso.
+   * @throws NullPointerException se il flusso è {@code null}.
+   */
+  public Lettore(final InputStream ingresso) {
+    if (ingresso == null) throw new NullPointerException("Il flusso non può essere null");
+    this.ingresso = ingresso;
+  }
+
+  /**
+   * Indica se il flusso contiene un altro token.
+   *
+   * @return {@code true} se e solo se c'è un altro token.
+   */
+  public boolean hasNext() {
+    if (pronto) return true;
+    int b;
+    do {
+      b = leggi();
+      if (b < 0) return false;
+    } while (separatore(b));
+    lunghezza = 0;
+    do {
+      accoda(b);
+      b = leggi();
+    } while (b >= 0 && !separatore(b));
+    // il separatore che segue il token, ancora nel buffer, non viene consumato
+    if (b >= 0) posizione--;
+    pronto = true;
+    return true;
+  }
+
+  /**
+   * Restituisce il prossimo token.
+   *
+   * @return il token.
+   * @throws NoSuchElementException se il flusso non contiene altri token.
+   */
+  public String next() {
+    if (!hasNext()) throw new NoSuchElementException("Il flusso non contiene altri token");
+    pronto = false;
+    return nome();
+  }
+
+  /**
+   * Restituisce il prossimo token, interpretato come intero in base 10 (eventualmente preceduto da
+   * un segno).
+   *
+   * <p>Come con {@link java.util.Scanner#nextInt()}, se il token non è un intero valido non viene
+   * consumato.
+   *
+   * @return l'intero.
+   * @throws NoSuchElementException se il flusso non contiene altri token.
+   * @throws InputMismatchException se il token non è un intero rappresentabile.
+   */
+  public int nextInt() {
+    if (!hasNext()) throw new NoSuchElementException("Il flusso non contiene altri token");
+    int i = 0;
+    boolean negativo = token[0] == '-';
+    if (negativo || token[0] == '+') i++;
+    if (i == lunghezza) throw new InputMismatchException(nome());
+    // accumulo in negativo, per rappresentare anche Integer.MIN_VALUE
+    int valore = 0;
+    for (; i < lunghezza; i++) {
+      int cifra = token[i] - '0';
+      if (cifra < 0 || cifra > 9 || valore < (Integer.MIN_VALUE + cifra) / 10)
+        throw new InputMismatchException(nome());
+      valore = valore * 10 - cifra;
+    }
+    if (!negativo && valore == Integer.MIN_VALUE) throw new InputMismatchException(nome());
+    pronto = false;
+    return negativo ? valore : -valore;
+  }
+
+  /**
+   * Indica se il flusso contiene un'altra linea.
+   *
+   * @return {@code true} se e solo se c'è un'altra linea.
+   * @throws IllegalStateException se un token è stato individuato da {@link #hasNext()} ma non
+   *     ancora restituito.
+   */
+  public boolean hasNextLine() {
+    if (pronto) throw new IllegalStateException("Un token è in attesa di essere restituito");
+    return disponibile();
+  }
+
+  /**
+   * Restituisce la prossima linea, senza il terminatore ({@code \n} o {@code \r\n}).
+   *
+   * @return la linea.
+   * @throws NoSuchElementException se il flusso non contiene altre linee.
+   * @throws IllegalStateException se un token è stato individuato da {@link #hasNext()} ma non
+   *     ancora restituito.
+   */
+  public String nextLine() {
+    if (!hasNextLine()) throw new NoSuchElementException("Il flusso non contiene altre linee");
+    lunghezza = 0;
+    for (int b = leggi(); b >= 0 && b != '\n'; b = leggi()) accoda(b);
+    if (lunghezza > 0 && token[lunghezza - 1] == '\r') lunghezza--;
+    return nome();
+  }
+
+  @Override
+  public void close() {
+    try {
+      ingresso.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Indica se un byte è un separatore.
+   *
+   * @param b il byte.
+   * @return {@code true} se e solo se il byte è un separatore.
+   */
+  private static boolean separatore(final int b) {
+    return b == ' ' || (b >= '\t' && b <= '\r');
+  }
+
+  /**
+   * Indica se restano byte da leggere, riempiendo il buffer se necessario.
+   *
+   * <p>Può modificare this.
+   *
+   * @return {@code true} se e solo se restano byte da leggere.
+   */
+  private boolean disponibile() {
+    while (posizione == limite && !finito) {
+      try {
+        int letti = ingresso.read(dati, 0, dati.length);
+        if (letti < 0) finito = true;
+        else {
+          posizione = 0;
+          limite = letti;
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return posizione < limite;
+  }
+
+  /**
+   * Legge il prossimo byte.
+   *
+   * <p>Modifica this.
+   *
+   * @return il byte (tra 0 e 255), o -1 se il flusso è terminato.
+   */
+  private int leggi() {
+    if (posizione == limite && !disponibile()) return -1;
+    return dati[posizione++] & 0xFF;
+  }
+
+  /**
+   * Aggiunge un byte a token, ingrandendolo se necessario.
+   *
+   * <p>Modifica this.
+   *
+   * @param b il byte.
+   */
+  private void accoda(final int b) {
+    if (lunghezza == token.length) token = Arrays.copyOf(token, 2 * lunghezza);
+    token[lunghezza++] = (byte) b;
+  }
+
+  /**
+   * Restituisce la stringa corrispondente a token[0..lunghezza), conservandola per le richieste
+   * successive finché non si raggiunge il numero massimo di nomi.
+   *
+   * <p>Può modificare this.
+   *
+   * @return la stringa.
+   */
+  private String nome() {
+    int maschera = chiavi.length - 1;
+    int cella = hash(token, lunghezza) & maschera;
+    for (; chiavi[cella] != null; cella = (cella + 1) & maschera)
+      if (Arrays.equals(chiavi[cella], 0, chiavi[cella].length, token, 0, lunghezza))
+        return nomi[cella];
+    String nome = new String(token, 0, lunghezza, StandardCharsets.UTF_8);
+    if (numeroNomi == MASSIMO_NOMI) return nome;
+    chiavi[cella] = Arrays.copyOf(token, lunghezza);
+    nomi[cella] = nome;
+    if (++numeroNomi > chiavi.length / 2) ingrandisci();
+    return nome;
+  }
+
+  /**
+   * Raddoppia la tabella dei nomi conservati.
+   *
+   * <p>Modifica this.
+   */
+  private void ingrandisci() {
+    byte[][] vecchieChiavi = chiavi;
+    String[] vecchiNomi = nomi;
+    chiavi = new byte[2 * vecchieChiavi.length][];
+    nomi = new String[2 * vecchiNomi.length];
+    int maschera = chiavi.length - 1;
+    for (int j = 0; j < vecchieChiavi.length; j++) {
+      byte[] chiave = vecchieChiavi[j];
+      if (chiave == null) continue;
+      int cella = hash(chiave, chiave.length) & maschera;
+      while (chiavi[cella] != null) cella = (cella + 1) & maschera;
+      chiavi[cella] = chiave;
+      nomi[cella] = vecchiNomi[j];
+    }
+  }
+
+  /**
+   * Restituisce il codice hash dei primi byte di un array.
+   *
+   * @param b l'array.
+   * @param lunghezza il numero di byte da considerare.
+   * @return il codice hash.
+   */
+  private static int hash(final byte[] b, final int lunghezza) {
+    int h = 1;
+    for (int i = 0; i < lunghezza; i++) h = 31 * h + b[i];
+    return h ^ (h >>> 16);
+  }
+}